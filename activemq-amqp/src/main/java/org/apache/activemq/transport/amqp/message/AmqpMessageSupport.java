@@ -26,7 +26,6 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.zip.InflaterInputStream;
 
 import jakarta.jms.JMSException;
 
@@ -34,6 +33,7 @@ import org.apache.activemq.command.ActiveMQBytesMessage;
 import org.apache.activemq.command.ActiveMQMapMessage;
 import org.apache.activemq.command.ActiveMQObjectMessage;
 import org.apache.activemq.command.ActiveMQTextMessage;
+import org.apache.activemq.compression.CompressionSupport;
 import org.apache.activemq.util.ByteArrayInputStream;
 import org.apache.activemq.util.ByteArrayOutputStream;
 import org.apache.activemq.util.ByteSequence;
@@ -242,16 +242,8 @@ public final class AmqpMessageSupport {
             ByteSequence contents = message.getContent();
 
             if (message.isCompressed()) {
-                try (ByteArrayOutputStream os = new ByteArrayOutputStream();
-                     ByteArrayInputStream is = new ByteArrayInputStream(contents);
-                     InflaterInputStream iis = new InflaterInputStream(is);) {
-
-                    byte value;
-                    while ((value = (byte) iis.read()) != -1) {
-                        os.write(value);
-                    }
-
-                    ByteSequence expanded = os.toByteSequence();
+                try {
+                    ByteSequence expanded = CompressionSupport.decompress(contents);
                     result = new Binary(expanded.getData(), expanded.getOffset(), expanded.getLength());
                 } catch (Exception cause) {
                    throw JMSExceptionSupport.create(cause);
@@ -281,9 +273,8 @@ public final class AmqpMessageSupport {
             ByteSequence contents = message.getContent();
 
             if (message.isCompressed()) {
-                try (ByteArrayInputStream is = new ByteArrayInputStream(contents);
-                     InflaterInputStream iis = new InflaterInputStream(is);
-                     DataInputStream dis = new DataInputStream(iis);) {
+                try (ByteArrayInputStream is = new ByteArrayInputStream(CompressionSupport.decompress(contents));
+                     DataInputStream dis = new DataInputStream(is);) {
 
                     int size = dis.readInt();
                     byte[] uncompressed = new byte[size];
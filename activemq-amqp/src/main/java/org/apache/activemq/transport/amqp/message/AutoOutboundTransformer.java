@@ -22,11 +22,26 @@ import jakarta.jms.BytesMessage;
 
 import org.apache.activemq.command.ActiveMQBytesMessage;
 import org.apache.activemq.command.ActiveMQMessage;
+import org.apache.activemq.command.Message;
+import org.apache.qpid.proton.codec.AMQPDefinedTypes;
+import org.apache.qpid.proton.codec.DecoderImpl;
+import org.apache.qpid.proton.codec.EncoderImpl;
 
 public class AutoOutboundTransformer extends JMSMappingOutboundTransformer {
 
+    // the key of the encodings cached on dispatched messages
+    private static final Object CACHE_KEY = CachedEncodedMessage.class;
+    // cached on a message that was encoded once, it is cached when it is encoded again
+    private static final Object ENCODED_ONCE = new Object();
+
     private final JMSMappingOutboundTransformer transformer = new JMSMappingOutboundTransformer();
 
+    private final DecoderImpl decoder = new DecoderImpl();
+    private final EncoderImpl encoder = new EncoderImpl(decoder);
+    {
+        AMQPDefinedTypes.registerAllTypes(decoder, encoder);
+    }
+
     @Override
     public EncodedMessage transform(ActiveMQMessage message) throws Exception {
         if (message == null) {
@@ -43,4 +58,50 @@ public class AutoOutboundTransformer extends JMSMappingOutboundTransformer {
             return transformer.transform(message);
         }
     }
+
+    /**
+     * Transforms a message dispatched by the broker for one delivery of it.
+     * <p>
+     * A topic message is dispatched to every subscription as the same message,
+     * so once a message is encoded a second time its encoding is cached on the
+     * dispatched message and later deliveries only encode the header, whether
+     * the message was mapped from JMS or arrived as a native AMQP message.
+     * Messages that are delivered once, like most queue messages, are not
+     * cached. The message only holds the cached encoding softly, so under
+     * memory pressure it is dropped and encoded again on a later delivery. The
+     * message also drops it when its content, its properties or one of the
+     * headers that are mapped to AMQP change, see
+     * {@link Message#getCachedEncoding(Object)}.
+     *
+     * @param dispatched the message as dispatched by the broker, it is copied
+     *        before it is transformed
+     * @param redeliveryCounter the redelivery counter of the delivery
+     */
+    public EncodedMessage transform(Message dispatched, int redeliveryCounter) throws Exception {
+        Object cached = dispatched.getCachedEncoding(CACHE_KEY);
+        if (cached instanceof CachedEncodedMessage) {
+            return ((CachedEncodedMessage) cached).encode(redeliveryCounter, encoder);
+        }
+
+        ActiveMQMessage message = (ActiveMQMessage) dispatched.copy();
+        message.setReadOnlyBody(true);
+        if (cached == null) {
+            dispatched.setCachedEncoding(CACHE_KEY, ENCODED_ONCE);
+            message.setRedeliveryCounter(redeliveryCounter);
+            return transform(message);
+        }
+
+        message.setRedeliveryCounter(0);
+        boolean nativeMessage = message.getBooleanProperty(JMS_AMQP_NATIVE);
+        EncodedMessage encoded = transform(message);
+        if (encoded == null) {
+            return null;
+        }
+
+        // the time to live of a mapped message is computed from its expiration
+        // for each delivery, a native message keeps the one it arrived with
+        CachedEncodedMessage entry = CachedEncodedMessage.create(encoded, nativeMessage ? 0 : message.getExpiration(), decoder);
+        dispatched.setCachedEncoding(CACHE_KEY, entry);
+        return entry.encode(redeliveryCounter, encoder);
+    }
 }
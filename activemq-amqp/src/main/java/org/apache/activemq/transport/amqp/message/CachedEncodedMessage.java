@@ -0,0 +1,146 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.transport.amqp.message;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.qpid.proton.amqp.UnsignedInteger;
+import org.apache.qpid.proton.amqp.messaging.Header;
+import org.apache.qpid.proton.codec.DecoderImpl;
+import org.apache.qpid.proton.codec.EncoderImpl;
+
+/**
+ * The AMQP encoding of a message taken apart into its header and the sections
+ * that follow the header. The header carries the delivery count and the time
+ * to live, which differ from one delivery of the message to the next, the other
+ * sections are the same for every delivery. So a delivery only encodes a header
+ * and copies the encoded sections behind it.
+ * <p>
+ * Instances are immutable and shared by the senders the message is dispatched
+ * to, the encoder and decoder are passed in by the caller.
+ */
+final class CachedEncodedMessage {
+
+    private static final byte HEADER_DESCRIPTOR_CODE = 0x70;
+    private static final byte[] HEADER_DESCRIPTOR_SYMBOL = "amqp:header:list".getBytes(StandardCharsets.US_ASCII);
+    // room for an encoded header in front of the sections
+    private static final int HEADER_SPACE = 64;
+
+    private final long messageFormat;
+    private final byte[] data;
+    private final int offset;
+    private final int length;
+    private final int sectionsOffset;
+    private final Header header;
+    private final long expiration;
+
+    private CachedEncodedMessage(long messageFormat, byte[] data, int offset, int length, int sectionsOffset, Header header, long expiration) {
+        this.messageFormat = messageFormat;
+        this.data = data;
+        this.offset = offset;
+        this.length = length;
+        this.sectionsOffset = sectionsOffset;
+        this.header = header;
+        this.expiration = expiration;
+    }
+
+    /**
+     * @param encoded the encoding of the message for a first delivery
+     * @param expiration the expiration the time to live of a delivery is computed
+     *        from, 0 to keep the time to live of the encoded header
+     */
+    static CachedEncodedMessage create(EncodedMessage encoded, long expiration, DecoderImpl decoder) {
+        byte[] data = encoded.getArray();
+        int offset = encoded.getArrayOffset();
+        int length = encoded.getLength();
+
+        Header header = null;
+        int sectionsOffset = offset;
+        if (startsWithHeader(data, offset, length)) {
+            ByteBuffer buffer = ByteBuffer.wrap(data, offset, length);
+            decoder.setByteBuffer(buffer);
+            header = (Header) decoder.readObject();
+            sectionsOffset = buffer.position();
+        }
+
+        return new CachedEncodedMessage(encoded.getMessageFormat(), data, offset, length, sectionsOffset, header, expiration);
+    }
+
+    /**
+     * @return the encoding of the message for a delivery with the given count
+     *         of previous delivery attempts
+     */
+    EncodedMessage encode(int deliveryCount, EncoderImpl encoder) {
+        if (deliveryCount == 0 && expiration == 0) {
+            return new EncodedMessage(messageFormat, data, offset, length);
+        }
+
+        Header patched = header != null ? new Header(header) : new Header();
+        if (deliveryCount > 0) {
+            patched.setDeliveryCount(UnsignedInteger.valueOf(deliveryCount));
+        }
+        if (expiration != 0) {
+            long ttl = expiration - System.currentTimeMillis();
+            if (ttl < 0) {
+                ttl = 1;
+            }
+            patched.setTtl(new UnsignedInteger((int) ttl));
+        }
+
+        int sectionsLength = offset + length - sectionsOffset;
+        AmqpWritableBuffer buffer = new AmqpWritableBuffer(HEADER_SPACE + sectionsLength);
+        encoder.setByteBuffer(buffer);
+        encoder.writeObject(patched);
+        buffer.put(data, sectionsOffset, sectionsLength);
+        return new EncodedMessage(messageFormat, buffer.getArray(), 0, buffer.getArrayLength());
+    }
+
+    // a described type with the header descriptor, in its numeric or symbolic form
+    private static boolean startsWithHeader(byte[] data, int offset, int length) {
+        if (length < 3 || data[offset] != 0x00) {
+            return false;
+        }
+        switch (data[offset + 1]) {
+            case 0x53:
+                return data[offset + 2] == HEADER_DESCRIPTOR_CODE;
+            case (byte) 0x80:
+                if (length < 10) {
+                    return false;
+                }
+                for (int i = 2; i < 9; i++) {
+                    if (data[offset + i] != 0) {
+                        return false;
+                    }
+                }
+                return data[offset + 9] == HEADER_DESCRIPTOR_CODE;
+            case (byte) 0xa3:
+                int symbolLength = data[offset + 2] & 0xff;
+                if (symbolLength != HEADER_DESCRIPTOR_SYMBOL.length || length < 3 + symbolLength) {
+                    return false;
+                }
+                for (int i = 0; i < symbolLength; i++) {
+                    if (data[offset + 3 + i] != HEADER_DESCRIPTOR_SYMBOL[i]) {
+                        return false;
+                    }
+                }
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -24,12 +24,12 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.activemq.broker.region.AbstractSubscription;
 import org.apache.activemq.command.ActiveMQDestination;
-import org.apache.activemq.command.ActiveMQMessage;
 import org.apache.activemq.command.ConsumerControl;
 import org.apache.activemq.command.ConsumerId;
 import org.apache.activemq.command.ConsumerInfo;
 import org.apache.activemq.command.ExceptionResponse;
 import org.apache.activemq.command.LocalTransactionId;
+import org.apache.activemq.command.Message;
 import org.apache.activemq.command.MessageAck;
 import org.apache.activemq.command.MessageDispatch;
 import org.apache.activemq.command.MessagePull;
@@ -40,7 +40,6 @@ import org.apache.activemq.command.TransactionId;
 import org.apache.activemq.transport.amqp.AmqpProtocolConverter;
 import org.apache.activemq.transport.amqp.message.AutoOutboundTransformer;
 import org.apache.activemq.transport.amqp.message.EncodedMessage;
-import org.apache.activemq.transport.amqp.message.OutboundTransformer;
 import org.apache.qpid.proton.amqp.messaging.Accepted;
 import org.apache.qpid.proton.amqp.messaging.Modified;
 import org.apache.qpid.proton.amqp.messaging.Outcome;
@@ -74,7 +73,7 @@ public class AmqpSender extends AmqpAbstractLink<Sender> {
 
     private static final byte[] EMPTY_BYTE_ARRAY = new byte[] {};
 
-    private final OutboundTransformer outboundTransformer = new AutoOutboundTransformer();
+    private final AutoOutboundTransformer outboundTransformer = new AutoOutboundTransformer();
     private final AmqpTransferTagGenerator tagCache = new AmqpTransferTagGenerator();
     private final LinkedList<MessageDispatch> outbound = new LinkedList<>();
     private final LinkedList<Delivery> dispatchedInTx = new LinkedList<>();
@@ -445,12 +444,7 @@ public class AmqpSender extends AmqpAbstractLink<Sender> {
             final MessageDispatch md = outbound.removeFirst();
             try {
 
-                ActiveMQMessage temp = null;
-                if (md.getMessage() != null) {
-                    temp = (ActiveMQMessage) md.getMessage().copy();
-                }
-
-                final ActiveMQMessage jms = temp;
+                final Message jms = md.getMessage();
                 if (jms == null) {
                     LOG.trace("Sender:[{}] browse done.", getEndpoint().getName());
                     // It's the end of browse signal in response to a MessagePull
@@ -461,7 +455,7 @@ public class AmqpSender extends AmqpAbstractLink<Sender> {
                 } else {
                     if (LOG.isTraceEnabled()) {
                         LOG.trace("Sender:[{}] msgId={} draining={}, drain={}, credit={}, remoteCredit={}, queued={}",
-                                  getEndpoint().getName(), jms.getJMSMessageID(), draining, getEndpoint().getDrain(),
+                                  getEndpoint().getName(), jms.getMessageId(), draining, getEndpoint().getDrain(),
                                   getEndpoint().getCredit(), getEndpoint().getRemoteCredit(), getEndpoint().getQueued());
                     }
 
@@ -473,9 +467,7 @@ public class AmqpSender extends AmqpAbstractLink<Sender> {
                         logicalDeliveryCount = 0;
                     }
 
-                    jms.setRedeliveryCounter(md.getRedeliveryCounter());
-                    jms.setReadOnlyBody(true);
-                    final EncodedMessage amqp = outboundTransformer.transform(jms);
+                    final EncodedMessage amqp = outboundTransformer.transform(jms, md.getRedeliveryCounter());
                     if (amqp != null && amqp.getLength() > 0) {
                         currentBuffer = new Buffer(amqp.getArray(), amqp.getArrayOffset(), amqp.getLength());
                         if (presettle) {
@@ -0,0 +1,181 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.transport.amqp.message;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.activemq.command.ActiveMQMessage;
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.apache.activemq.command.ActiveMQTopic;
+import org.apache.activemq.command.MessageId;
+import org.apache.qpid.proton.amqp.Symbol;
+import org.apache.qpid.proton.amqp.UnsignedByte;
+import org.apache.qpid.proton.amqp.UnsignedInteger;
+import org.apache.qpid.proton.amqp.messaging.AmqpValue;
+import org.apache.qpid.proton.amqp.messaging.Header;
+import org.apache.qpid.proton.amqp.messaging.MessageAnnotations;
+import org.apache.qpid.proton.message.Message;
+import org.junit.Test;
+
+public class AutoOutboundTransformerTest {
+
+    @Test
+    public void testMappedMessageEncodedOnceForManyDeliveries() throws Exception {
+        ActiveMQTextMessage dispatched = createTextMessage();
+        AutoOutboundTransformer transformer = new AutoOutboundTransformer();
+
+        byte[] expected = bytes(new JMSMappingOutboundTransformer().transform((ActiveMQMessage) dispatched.copy()));
+
+        // the first delivery does not cache, the second does
+        assertArrayEquals(expected, bytes(transformer.transform(dispatched, 0)));
+        assertArrayEquals(expected, bytes(transformer.transform(dispatched, 0)));
+        Object cached = dispatched.getCachedEncoding(CachedEncodedMessage.class);
+        assertTrue(cached instanceof CachedEncodedMessage);
+
+        // other senders share the cached encoding
+        AutoOutboundTransformer other = new AutoOutboundTransformer();
+        assertArrayEquals(expected, bytes(other.transform(dispatched, 0)));
+        assertEquals(cached, dispatched.getCachedEncoding(CachedEncodedMessage.class));
+    }
+
+    @Test
+    public void testCachedEncodingPatchesDeliveryCount() throws Exception {
+        ActiveMQTextMessage dispatched = createTextMessage();
+        AutoOutboundTransformer transformer = new AutoOutboundTransformer();
+        transformer.transform(dispatched, 0);
+        transformer.transform(dispatched, 0);
+
+        ActiveMQMessage redelivered = (ActiveMQMessage) dispatched.copy();
+        redelivered.setRedeliveryCounter(3);
+        byte[] expected = bytes(new JMSMappingOutboundTransformer().transform(redelivered));
+
+        EncodedMessage encoded = transformer.transform(dispatched, 3);
+        assertArrayEquals(expected, bytes(encoded));
+        Message amqp = encoded.decode();
+        assertEquals(UnsignedInteger.valueOf(3), amqp.getHeader().getDeliveryCount());
+        assertTrue(amqp.getHeader().getDurable());
+        assertEquals("text", ((AmqpValue) amqp.getBody()).getValue());
+    }
+
+    @Test
+    public void testCachedEncodingComputesTimeToLive() throws Exception {
+        ActiveMQTextMessage dispatched = createTextMessage();
+        dispatched.setExpiration(System.currentTimeMillis() + 60000);
+        AutoOutboundTransformer transformer = new AutoOutboundTransformer();
+        transformer.transform(dispatched, 0);
+        transformer.transform(dispatched, 0);
+
+        Thread.sleep(20);
+        long ttl = transformer.transform(dispatched, 0).decode().getHeader().getTtl().longValue();
+        assertTrue("ttl " + ttl, ttl > 0 && ttl < 60000);
+    }
+
+    @Test
+    public void testNativeMessageEncodedOnceForManyDeliveries() throws Exception {
+        Message amqp = Message.Factory.create();
+        amqp.setHeader(new Header());
+        amqp.getHeader().setDurable(true);
+        Map<Symbol, Object> annotations = new HashMap<>();
+        annotations.put(Symbol.valueOf("x-opt-test"), "value");
+        amqp.setMessageAnnotations(new MessageAnnotations(annotations));
+        amqp.setBody(new AmqpValue("native"));
+        EncodedMessage inbound = encode(amqp);
+
+        ActiveMQMessage dispatched = new AMQPNativeInboundTransformer().transform(inbound);
+        dispatched.setMessageId(new MessageId("ID:test:1:1:1:1"));
+        AutoOutboundTransformer transformer = new AutoOutboundTransformer();
+
+        assertArrayEquals(bytes(inbound), bytes(transformer.transform(dispatched, 0)));
+        assertArrayEquals(bytes(inbound), bytes(transformer.transform(dispatched, 0)));
+        assertTrue(dispatched.getCachedEncoding(CachedEncodedMessage.class) instanceof CachedEncodedMessage);
+
+        ActiveMQMessage redelivered = (ActiveMQMessage) dispatched.copy();
+        redelivered.setRedeliveryCounter(2);
+        byte[] expected = bytes(new AMQPNativeOutboundTransformer().transform(redelivered));
+
+        EncodedMessage encoded = transformer.transform(dispatched, 2);
+        assertArrayEquals(expected, bytes(encoded));
+        Message decoded = encoded.decode();
+        assertEquals(UnsignedInteger.valueOf(2), decoded.getHeader().getDeliveryCount());
+        assertEquals("value", decoded.getMessageAnnotations().getValue().get(Symbol.valueOf("x-opt-test")));
+        assertEquals("native", ((AmqpValue) decoded.getBody()).getValue());
+    }
+
+    @Test
+    public void testCachedEncodingDroppedWhenPropertiesChange() throws Exception {
+        ActiveMQTextMessage dispatched = createTextMessage();
+        AutoOutboundTransformer transformer = new AutoOutboundTransformer();
+        transformer.transform(dispatched, 0);
+        transformer.transform(dispatched, 0);
+        assertNotNull(dispatched.getCachedEncoding(CachedEncodedMessage.class));
+
+        dispatched.setReadOnlyProperties(false);
+        dispatched.setStringProperty("changed", "yes");
+        assertNull(dispatched.getCachedEncoding(CachedEncodedMessage.class));
+        assertNull(dispatched.copy().getCachedEncoding(CachedEncodedMessage.class));
+
+        Message amqp = transformer.transform(dispatched, 0).decode();
+        assertEquals("yes", amqp.getApplicationProperties().getValue().get("changed"));
+    }
+
+    @Test
+    public void testCachedEncodingDroppedWhenHeadersChange() throws Exception {
+        ActiveMQTextMessage dispatched = createTextMessage();
+        AutoOutboundTransformer transformer = new AutoOutboundTransformer();
+        transformer.transform(dispatched, 0);
+        transformer.transform(dispatched, 0);
+        assertNotNull(dispatched.getCachedEncoding(CachedEncodedMessage.class));
+
+        dispatched.setPriority((byte) 2);
+        assertNull(dispatched.getCachedEncoding(CachedEncodedMessage.class));
+
+        Message amqp = transformer.transform(dispatched, 0).decode();
+        assertEquals(UnsignedByte.valueOf((byte) 2), amqp.getHeader().getPriority());
+    }
+
+    private ActiveMQTextMessage createTextMessage() throws Exception {
+        ActiveMQTextMessage message = new ActiveMQTextMessage();
+        message.setMessageId(new MessageId("ID:test:1:1:1:1"));
+        message.setDestination(new ActiveMQTopic("test"));
+        message.setPersistent(true);
+        message.setPriority((byte) 7);
+        message.setTimestamp(System.currentTimeMillis());
+        message.setText("text");
+        message.setStringProperty("property", "value");
+        message.onSend();
+        message.storeContent();
+        return message;
+    }
+
+    private EncodedMessage encode(Message message) {
+        AmqpWritableBuffer buffer = new AmqpWritableBuffer();
+        message.encode(buffer);
+        return new EncodedMessage(0, buffer.getArray(), 0, buffer.getArrayLength());
+    }
+
+    private byte[] bytes(EncodedMessage encoded) {
+        return Arrays.copyOfRange(encoded.getArray(), encoded.getArrayOffset(), encoded.getArrayOffset() + encoded.getLength());
+    }
+}
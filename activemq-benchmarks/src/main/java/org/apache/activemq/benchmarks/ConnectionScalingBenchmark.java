@@ -0,0 +1,132 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.jms.Connection;
+import jakarta.jms.DeliveryMode;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Queue;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.broker.TransportConnector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Keeps a number of TCP connections open to an embedded broker and round
+ * trips a message over each of them in turn, with the broker and the clients
+ * reading on platform or on virtual threads. Virtual threads are only used on
+ * a JVM that supports them, on other JVMs both variants use platform threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConnectionScalingBenchmark {
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    @Param({"100", "1000"})
+    public int connectionCount;
+
+    private BrokerService broker;
+    private final List<Connection> connections = new ArrayList<Connection>();
+    private final List<MessageProducer> producers = new ArrayList<MessageProducer>();
+    private final List<MessageConsumer> consumers = new ArrayList<MessageConsumer>();
+    private TextMessage message;
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        broker = new BrokerService();
+        broker.setBrokerName("benchmark");
+        broker.setUseJmx(false);
+        broker.setAdvisorySupport(false);
+        broker.setPersistent(false);
+        broker.setVirtualThreads(virtualThreads);
+        TransportConnector connector = broker.addConnector("tcp://localhost:0?useVirtualThreads=" + virtualThreads);
+        broker.start();
+        broker.waitUntilStarted();
+
+        ActiveMQConnectionFactory connectionFactory = new ActiveMQConnectionFactory(
+            connector.getPublishableConnectString() + "?useVirtualThreads=" + virtualThreads);
+        connectionFactory.setCopyMessageOnSend(false);
+        for (int i = 0; i < connectionCount; i++) {
+            Connection connection = connectionFactory.createConnection();
+            connections.add(connection);
+            connection.start();
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("benchmark.queue." + i);
+            MessageProducer producer = session.createProducer(queue);
+            producer.setDeliveryMode(DeliveryMode.NON_PERSISTENT);
+            producers.add(producer);
+            consumers.add(session.createConsumer(queue));
+            if (message == null) {
+                message = session.createTextMessage(new String(new char[256]).replace('\0', 'x'));
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        for (Connection connection : connections) {
+            connection.close();
+        }
+        connections.clear();
+        producers.clear();
+        consumers.clear();
+        if (broker != null) {
+            broker.stop();
+            broker.waitUntilStopped();
+        }
+    }
+
+    @Benchmark
+    public Message roundTrip() throws JMSException {
+        int index = next;
+        next = (index + 1) % connectionCount;
+        producers.get(index).send(message);
+        Message received = consumers.get(index).receive(10000);
+        if (received == null) {
+            throw new IllegalStateException("Message was not dispatched");
+        }
+        return received;
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.benchmarks;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.activemq.command.ActiveMQDestination;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.filter.DestinationMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Looks up exact and wildcard destinations in a {@link DestinationMap} that
+ * holds <code>FOO.BAR.i.j</code> style destinations.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DestinationMapBenchmark {
+
+    @Param({"FOO.BAR.5.5", "FOO.*.5.*", "FOO.>"})
+    public String lookup;
+
+    @Param({"100"})
+    public int width;
+
+    private DestinationMap map;
+    private ActiveMQDestination destination;
+
+    @Setup
+    public void setUp() {
+        map = new DestinationMap();
+        for (int i = 0; i < width; i++) {
+            for (int j = 0; j < width; j++) {
+                ActiveMQQueue queue = new ActiveMQQueue("FOO.BAR." + i + "." + j);
+                map.put(queue, queue);
+            }
+        }
+        destination = new ActiveMQQueue(lookup);
+    }
+
+    @Benchmark
+    @SuppressWarnings("rawtypes")
+    public Set get() {
+        return map.get(destination);
+    }
+}
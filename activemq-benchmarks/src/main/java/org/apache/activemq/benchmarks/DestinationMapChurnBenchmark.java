@@ -0,0 +1,95 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.benchmarks;
+
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.activemq.command.ActiveMQDestination;
+import org.apache.activemq.command.ActiveMQTopic;
+import org.apache.activemq.filter.DestinationMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Routes messages to the subscriptions of a {@link DestinationMap} holding
+ * many topics while wildcard subscriptions are added and removed, as happens
+ * with MQTT clients that connect and disconnect all the time.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Group)
+public class DestinationMapChurnBenchmark {
+
+    @Param({"100000"})
+    public int topics;
+
+    private DestinationMap map;
+    private ActiveMQDestination[] destinations;
+    private ActiveMQDestination[] subscriptions;
+
+    @Setup
+    public void setUp() {
+        map = new DestinationMap();
+        destinations = new ActiveMQDestination[topics];
+        for (int i = 0; i < topics; i++) {
+            destinations[i] = new ActiveMQTopic("sensors." + (i % 1000) + ".device" + i + ".temperature");
+            map.put(destinations[i], destinations[i]);
+        }
+        subscriptions = new ActiveMQDestination[1000];
+        for (int i = 0; i < subscriptions.length; i++) {
+            subscriptions[i] = new ActiveMQTopic(i % 2 == 0 ? "sensors." + i + ".*.temperature" : "sensors." + i + ".>");
+        }
+        // a standing wildcard subscription for each group
+        for (int i = 0; i < subscriptions.length; i++) {
+            map.put(subscriptions[i], "standing-" + i);
+        }
+    }
+
+    @Benchmark
+    @Group("churn")
+    @GroupThreads(3)
+    @SuppressWarnings("rawtypes")
+    public Set route() {
+        return map.get(destinations[ThreadLocalRandom.current().nextInt(destinations.length)]);
+    }
+
+    @Benchmark
+    @Group("churn")
+    @GroupThreads(1)
+    public void subscribeAndUnsubscribe() {
+        ActiveMQDestination subscription = subscriptions[ThreadLocalRandom.current().nextInt(subscriptions.length)];
+        Object subscriber = new Object();
+        map.put(subscription, subscriber);
+        map.remove(subscription, subscriber);
+    }
+}
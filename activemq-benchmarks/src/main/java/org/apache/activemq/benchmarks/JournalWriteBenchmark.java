@@ -0,0 +1,102 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.activemq.store.kahadb.disk.journal.Journal;
+import org.apache.activemq.store.kahadb.disk.journal.Location;
+import org.apache.activemq.util.ByteSequence;
+import org.apache.activemq.util.IOHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Appends records to the KahaDB journal. Data files that were written are
+ * removed as the journal rolls over to keep the disk usage bounded.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JournalWriteBenchmark {
+
+    @Param({"false", "true"})
+    public boolean sync;
+
+    @Param({"256", "4096"})
+    public int payloadSize;
+
+    private File directory;
+    private Journal journal;
+    private ByteSequence payload;
+    private volatile int currentDataFileId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("activemq-benchmark").toFile();
+        journal = new Journal();
+        journal.setDirectory(directory);
+        journal.setMaxFileLength(16 * 1024 * 1024);
+        journal.start();
+        payload = new ByteSequence(new byte[payloadSize]);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        journal.close();
+        IOHelper.deleteFile(directory);
+    }
+
+    @Benchmark
+    public Location write() throws IOException {
+        Location location = journal.write(payload, sync);
+        int dataFileId = location.getDataFileId();
+        if (dataFileId != currentDataFileId) {
+            rollOver(dataFileId);
+        }
+        return location;
+    }
+
+    private synchronized void rollOver(int dataFileId) throws IOException {
+        if (dataFileId > currentDataFileId) {
+            currentDataFileId = dataFileId;
+            Set<Integer> written = new HashSet<Integer>(journal.getFileMap().keySet());
+            written.remove(dataFileId);
+            // the journal keeps the files that are still being appended to
+            journal.removeDataFiles(written);
+        }
+    }
+}
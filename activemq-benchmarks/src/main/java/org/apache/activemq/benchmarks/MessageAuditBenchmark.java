@@ -0,0 +1,71 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.activemq.ActiveMQMessageAudit;
+import org.apache.activemq.command.MessageId;
+import org.apache.activemq.command.ProducerId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Checks sequential message ids of a number of interleaved producers for
+ * duplicates with {@link ActiveMQMessageAudit}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessageAuditBenchmark {
+
+    @Param({"1", "64"})
+    public int producers;
+
+    private ActiveMQMessageAudit audit;
+    private ProducerId[] producerIds;
+    private long[] sequenceIds;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        audit = new ActiveMQMessageAudit(ActiveMQMessageAudit.DEFAULT_WINDOW_SIZE, producers);
+        producerIds = new ProducerId[producers];
+        sequenceIds = new long[producers];
+        for (int i = 0; i < producers; i++) {
+            producerIds[i] = new ProducerId("ID:benchmark-" + i + ":1:1:1");
+        }
+    }
+
+    @Benchmark
+    public boolean isDuplicate() {
+        int producer = next++ % producers;
+        return audit.isDuplicate(new MessageId(producerIds[producer], ++sequenceIds[producer]));
+    }
+}
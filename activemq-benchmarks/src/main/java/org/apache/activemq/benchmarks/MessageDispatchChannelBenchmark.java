@@ -0,0 +1,268 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.benchmarks;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.activemq.FifoMessageDispatchChannel;
+import org.apache.activemq.MessageDispatchChannel;
+import org.apache.activemq.SimplePriorityMessageDispatchChannel;
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.apache.activemq.command.MessageDispatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Passes message dispatches through the consumer side dispatch channels, the
+ * ring based fifo and priority channels and, as the baseline, a linked list
+ * channel as the fifo channel was implemented before.
+ * <p>
+ * The <code>handoff</code> group has a producer thread that enqueues while a
+ * consumer thread polls, as the transport thread and the session thread do,
+ * <code>burst</code> enqueues a burst of dispatches and drains it on one thread.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Group)
+public class MessageDispatchChannelBenchmark {
+
+    private static final int BACKLOG = 1024;
+    private static final int BURST = 64;
+
+    @Param({"fifo", "priority", "linkedList"})
+    public String channelType;
+
+    private MessageDispatchChannel channel;
+    private MessageDispatch[] dispatches;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        if ("fifo".equals(channelType)) {
+            channel = new FifoMessageDispatchChannel();
+        } else if ("priority".equals(channelType)) {
+            channel = new SimplePriorityMessageDispatchChannel();
+        } else {
+            channel = new LinkedListMessageDispatchChannel();
+        }
+        channel.start();
+
+        dispatches = new MessageDispatch[BURST];
+        for (int i = 0; i < dispatches.length; i++) {
+            ActiveMQTextMessage message = new ActiveMQTextMessage();
+            message.setPriority((byte) (i % 10));
+            MessageDispatch dispatch = new MessageDispatch();
+            dispatch.setMessage(message);
+            dispatches[i] = dispatch;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        channel.close();
+    }
+
+    @Benchmark
+    @Group("handoff")
+    public boolean produce() {
+        // keep the channel bounded when the producer runs ahead of the consumer
+        if (channel.size() >= BACKLOG) {
+            Thread.onSpinWait();
+            return false;
+        }
+        channel.enqueue(dispatches[next++ & (BURST - 1)]);
+        return true;
+    }
+
+    @Benchmark
+    @Group("handoff")
+    public MessageDispatch consume() {
+        MessageDispatch dispatch = channel.dequeueNoWait();
+        if (dispatch == null) {
+            Thread.onSpinWait();
+        }
+        return dispatch;
+    }
+
+    @Benchmark
+    @Group("burst")
+    public MessageDispatch burst() {
+        for (MessageDispatch dispatch : dispatches) {
+            channel.enqueue(dispatch);
+        }
+        MessageDispatch last = null;
+        for (int i = 0; i < BURST; i++) {
+            last = channel.dequeueNoWait();
+        }
+        return last;
+    }
+
+    /**
+     * The fifo channel as it was before the ring buffer, a linked list guarded
+     * by the mutex that is notified on every enqueue.
+     */
+    static class LinkedListMessageDispatchChannel implements MessageDispatchChannel {
+
+        private final Object mutex = new Object();
+        private final LinkedList<MessageDispatch> list = new LinkedList<MessageDispatch>();
+        private boolean closed;
+        private boolean running;
+
+        @Override
+        public void enqueue(MessageDispatch message) {
+            synchronized (mutex) {
+                list.addLast(message);
+                mutex.notify();
+            }
+        }
+
+        @Override
+        public void enqueueFirst(MessageDispatch message) {
+            synchronized (mutex) {
+                list.addFirst(message);
+                mutex.notify();
+            }
+        }
+
+        @Override
+        public boolean isEmpty() {
+            synchronized (mutex) {
+                return list.isEmpty();
+            }
+        }
+
+        @Override
+        public MessageDispatch dequeue(long timeout) throws InterruptedException {
+            synchronized (mutex) {
+                while (timeout != 0 && !closed && (list.isEmpty() || !running)) {
+                    if (timeout == -1) {
+                        mutex.wait();
+                    } else {
+                        mutex.wait(timeout);
+                        break;
+                    }
+                }
+                if (closed || !running || list.isEmpty()) {
+                    return null;
+                }
+                return list.removeFirst();
+            }
+        }
+
+        @Override
+        public MessageDispatch dequeueNoWait() {
+            synchronized (mutex) {
+                if (closed || !running || list.isEmpty()) {
+                    return null;
+                }
+                return list.removeFirst();
+            }
+        }
+
+        @Override
+        public MessageDispatch peek() {
+            synchronized (mutex) {
+                if (closed || !running || list.isEmpty()) {
+                    return null;
+                }
+                return list.getFirst();
+            }
+        }
+
+        @Override
+        public void start() {
+            synchronized (mutex) {
+                running = true;
+                mutex.notifyAll();
+            }
+        }
+
+        @Override
+        public void stop() {
+            synchronized (mutex) {
+                running = false;
+                mutex.notifyAll();
+            }
+        }
+
+        @Override
+        public void close() {
+            synchronized (mutex) {
+                if (!closed) {
+                    running = false;
+                    closed = true;
+                }
+                mutex.notifyAll();
+            }
+        }
+
+        @Override
+        public void clear() {
+            synchronized (mutex) {
+                list.clear();
+            }
+        }
+
+        @Override
+        public boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public int size() {
+            synchronized (mutex) {
+                return list.size();
+            }
+        }
+
+        @Override
+        public Object getMutex() {
+            return mutex;
+        }
+
+        @Override
+        public boolean isRunning() {
+            return running;
+        }
+
+        @Override
+        public List<MessageDispatch> removeAll() {
+            synchronized (mutex) {
+                ArrayList<MessageDispatch> rc = new ArrayList<MessageDispatch>(list);
+                list.clear();
+                return rc;
+            }
+        }
+    }
+}
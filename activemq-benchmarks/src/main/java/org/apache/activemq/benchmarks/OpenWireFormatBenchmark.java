@@ -0,0 +1,95 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.apache.activemq.command.MessageId;
+import org.apache.activemq.command.ProducerId;
+import org.apache.activemq.openwire.OpenWireFormat;
+import org.apache.activemq.util.ByteSequence;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Marshals and unmarshals a text message with the OpenWire format.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class OpenWireFormatBenchmark {
+
+    @Param({"12"})
+    public int version;
+
+    @Param({"true", "false"})
+    public boolean tightEncoding;
+
+    @Param({"256", "4096"})
+    public int payloadSize;
+
+    private OpenWireFormat wireFormat;
+    private ActiveMQTextMessage message;
+    private ByteSequence marshalled;
+
+    @Setup
+    public void setUp() throws Exception {
+        wireFormat = new OpenWireFormat(version);
+        wireFormat.setTightEncodingEnabled(tightEncoding);
+
+        ProducerId producerId = new ProducerId("ID:benchmark-1234-1:1:1:1");
+        message = new ActiveMQTextMessage();
+        message.setMessageId(new MessageId(producerId, 1));
+        message.setProducerId(producerId);
+        message.setDestination(new ActiveMQQueue("benchmark.queue"));
+        message.setPersistent(true);
+        message.setTimestamp(System.currentTimeMillis());
+        message.setCorrelationId("correlation-1");
+        message.setIntProperty("count", 1);
+        message.setStringProperty("region", "emea");
+        message.setBooleanProperty("priorityCustomer", true);
+        message.setText(new String(new char[payloadSize]).replace('\0', 'x'));
+        message.beforeMarshall(wireFormat);
+
+        marshalled = wireFormat.marshal(message);
+    }
+
+    @Benchmark
+    public ByteSequence marshal() throws IOException {
+        return wireFormat.marshal(message);
+    }
+
+    @Benchmark
+    public Object unmarshal() throws IOException {
+        return wireFormat.unmarshal(marshalled);
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.activemq.broker.region.policy.PolicyEntry;
+import org.apache.activemq.broker.region.policy.PolicyMap;
+import org.apache.activemq.command.ActiveMQDestination;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.filter.DestinationMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Resolves the policy of tenant queues against a {@link PolicyMap} that holds
+ * an entry per tenant plus a few wildcard entries, with and without the
+ * cache of chosen values.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PolicyMapBenchmark {
+
+    @Param({"0", "" + DestinationMap.DEFAULT_CHOOSE_VALUE_CACHE_SIZE})
+    public int cacheSize;
+
+    @Param({"10", "1000"})
+    public int tenants;
+
+    private PolicyMap map;
+    private ActiveMQDestination[] destinations;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        List<PolicyEntry> entries = new ArrayList<PolicyEntry>();
+        entries.add(queueEntry(">"));
+        entries.add(queueEntry("TENANT.>"));
+        entries.add(queueEntry("TENANT.*.ORDERS"));
+        for (int i = 0; i < tenants; i++) {
+            entries.add(queueEntry("TENANT." + i + ".>"));
+        }
+        map = new PolicyMap();
+        map.setDefaultEntry(new PolicyEntry());
+        map.setPolicyEntries(entries);
+        map.setChooseValueCacheSize(cacheSize);
+
+        destinations = new ActiveMQDestination[1024];
+        for (int i = 0; i < destinations.length; i++) {
+            destinations[i] = new ActiveMQQueue("TENANT." + (i % tenants) + (i % 2 == 0 ? ".ORDERS" : ".EVENTS." + i));
+        }
+    }
+
+    private static PolicyEntry queueEntry(String name) {
+        PolicyEntry entry = new PolicyEntry();
+        entry.setQueue(name);
+        return entry;
+    }
+
+    @Benchmark
+    public PolicyEntry getEntryFor() {
+        return map.getEntryFor(destinations[next++ & (destinations.length - 1)]);
+    }
+}
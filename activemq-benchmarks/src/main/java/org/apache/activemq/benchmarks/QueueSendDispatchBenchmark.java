@@ -0,0 +1,127 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.benchmarks;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.jms.Connection;
+import jakarta.jms.DeliveryMode;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Queue;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.store.kahadb.KahaDBPersistenceAdapter;
+import org.apache.activemq.util.IOHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sends a message to a queue of an embedded broker over the VM transport and
+ * receives it back, covering the send, store, dispatch and acknowledge path.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueueSendDispatchBenchmark {
+
+    @Param({"false", "true"})
+    public boolean persistent;
+
+    @Param({"1024"})
+    public int payloadSize;
+
+    private File dataDirectory;
+    private BrokerService broker;
+    private Connection connection;
+    private MessageProducer producer;
+    private MessageConsumer consumer;
+    private TextMessage message;
+
+    @Setup
+    public void setUp() throws Exception {
+        dataDirectory = Files.createTempDirectory("activemq-benchmark").toFile();
+
+        broker = new BrokerService();
+        broker.setBrokerName("benchmark");
+        broker.setUseJmx(false);
+        broker.setAdvisorySupport(false);
+        broker.setDataDirectoryFile(dataDirectory);
+        broker.setPersistent(persistent);
+        if (persistent) {
+            KahaDBPersistenceAdapter persistenceAdapter = new KahaDBPersistenceAdapter();
+            persistenceAdapter.setDirectory(new File(dataDirectory, "kahadb"));
+            persistenceAdapter.setEnableJournalDiskSyncs(false);
+            broker.setPersistenceAdapter(persistenceAdapter);
+        }
+        broker.start();
+        broker.waitUntilStarted();
+
+        ActiveMQConnectionFactory connectionFactory = new ActiveMQConnectionFactory("vm://benchmark?create=false");
+        connectionFactory.setCopyMessageOnSend(false);
+        connection = connectionFactory.createConnection();
+        connection.start();
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue("benchmark.queue");
+        producer = session.createProducer(queue);
+        producer.setDeliveryMode(persistent ? DeliveryMode.PERSISTENT : DeliveryMode.NON_PERSISTENT);
+        consumer = session.createConsumer(queue);
+        message = session.createTextMessage(new String(new char[payloadSize]).replace('\0', 'x'));
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        if (connection != null) {
+            connection.close();
+        }
+        if (broker != null) {
+            broker.stop();
+            broker.waitUntilStopped();
+        }
+        IOHelper.deleteFile(dataDirectory);
+    }
+
+    @Benchmark
+    public Message sendAndReceive() throws JMSException {
+        producer.send(message);
+        Message received = consumer.receive(10000);
+        if (received == null) {
+            throw new IllegalStateException("Message was not dispatched");
+        }
+        return received;
+    }
+}
@@ -223,6 +223,7 @@ public class BrokerService implements Service {
     private boolean monitorConnectionSplits = false;
     private int taskRunnerPriority = Thread.NORM_PRIORITY;
     private boolean dedicatedTaskRunner;
+    private boolean virtualThreads;
     private boolean cacheTempDestinations = false;// useful for failover
     private int timeBeforePurgeTempDestinations = 5000;
     private final List<Runnable> shutdownHooks = new ArrayList<>();
@@ -1270,6 +1271,7 @@ public class BrokerService implements Service {
         if (this.taskRunnerFactory == null) {
             this.taskRunnerFactory = new TaskRunnerFactory("ActiveMQ BrokerService["+getBrokerName()+"] Task", getTaskRunnerPriority(), true, 1000,
                     isDedicatedTaskRunner());
+            this.taskRunnerFactory.setVirtualThreads(isVirtualThreads());
             this.taskRunnerFactory.setThreadClassLoader(this.getClass().getClassLoader());
         }
         return this.taskRunnerFactory;
@@ -1283,6 +1285,7 @@ public class BrokerService implements Service {
         if (taskRunnerFactory == null) {
             persistenceTaskRunnerFactory = new TaskRunnerFactory("Persistence Adaptor Task", persistenceThreadPriority,
                     true, 1000, isDedicatedTaskRunner());
+            persistenceTaskRunnerFactory.setVirtualThreads(isVirtualThreads());
         }
         return persistenceTaskRunnerFactory;
     }
@@ -1891,6 +1894,20 @@ public class BrokerService implements Service {
         this.dedicatedTaskRunner = dedicatedTaskRunner;
     }
 
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Runs the broker's tasks on virtual threads when the JVM supports them,
+     * see {@link TaskRunnerFactory#setVirtualThreads(boolean)}. To read the
+     * accepted connections on virtual threads as well, set the
+     * useVirtualThreads option on the transport connector URI.
+     */
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
     public boolean isCacheTempDestinations() {
         return cacheTempDestinations;
     }
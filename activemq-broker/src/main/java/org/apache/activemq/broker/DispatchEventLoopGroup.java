@@ -0,0 +1,331 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.broker;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.activemq.thread.Task;
+import org.apache.activemq.thread.TaskRunner;
+import org.apache.activemq.thread.TaskRunnerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A fixed group of dispatch threads, each running an event loop that owns the
+ * tasks registered with it.
+ * <p>
+ * A task is scheduled on its loop by adding it to the loop's ready queue, a
+ * lock free multi producer queue that only the loop thread consumes. A task is
+ * queued at most once until the loop picks it up, so a burst of wakeups for
+ * the same task costs one queue entry. Tasks that report more work after an
+ * iteration go to the back of the queue, so the tasks of a loop take turns.
+ * Unlike the pooled task runners, scheduling a task does not hand it to an
+ * executor and does not lock.
+ * <p>
+ * An iteration can block, for example on a socket write to a slow consumer,
+ * which would hold up every other task of the loop. A watchdog takes a task
+ * whose iteration runs for longer than the stall timeout off its loop: the
+ * stalled thread is left to finish that iteration, another thread of the group
+ * takes over the loop, and the task is scheduled on a task runner of its own
+ * from then on. The owner of a task must therefore cope with an iteration that
+ * starts while the stalled one is still running.
+ * <p>
+ * The loops run on a pool of at most twice as many threads as there are loops,
+ * so each loop can have one stalled thread. A loop that stalls while all of
+ * them are taken resumes once one of the stalled iterations returns.
+ */
+public class DispatchEventLoopGroup {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DispatchEventLoopGroup.class);
+
+    public static final long DEFAULT_STALL_TIMEOUT = 500;
+
+    private final EventLoop[] loops;
+    private final ThreadPoolExecutor loopExecutor;
+    private final AtomicInteger nextLoop = new AtomicInteger();
+    private final long stallTimeout;
+    private final Thread watchdog;
+    private volatile boolean shutdown;
+
+    public DispatchEventLoopGroup(String name, int loopCount) {
+        this(name, loopCount, DEFAULT_STALL_TIMEOUT);
+    }
+
+    /**
+     * @param stallTimeout the time in milliseconds an iteration may take before
+     *        its task is taken off its loop, 0 to never take a task off
+     */
+    public DispatchEventLoopGroup(String name, int loopCount, long stallTimeout) {
+        if (loopCount < 1) {
+            throw new IllegalArgumentException("At least one event loop is required");
+        }
+        final AtomicInteger threadCount = new AtomicInteger();
+        loopExecutor = new ThreadPoolExecutor(2 * loopCount, 2 * loopCount, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, name + "-thread-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        loopExecutor.allowCoreThreadTimeOut(true);
+        loops = new EventLoop[loopCount];
+        for (int i = 0; i < loopCount; i++) {
+            loops[i] = new EventLoop(name + "-" + i, loopExecutor);
+        }
+        this.stallTimeout = stallTimeout;
+        if (stallTimeout > 0) {
+            watchdog = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    watchForStalls();
+                }
+            }, name + "-watchdog");
+            watchdog.setDaemon(true);
+        } else {
+            watchdog = null;
+        }
+    }
+
+    public void start() {
+        for (EventLoop loop : loops) {
+            loop.start();
+        }
+        if (watchdog != null) {
+            watchdog.start();
+        }
+    }
+
+    /**
+     * Stops the loops, tasks that are still scheduled are not iterated.
+     */
+    public void shutdown(long timeout) throws InterruptedException {
+        shutdown = true;
+        if (watchdog != null) {
+            LockSupport.unpark(watchdog);
+        }
+        for (EventLoop loop : loops) {
+            loop.shutdown = true;
+            Thread thread = loop.thread;
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
+        }
+        loopExecutor.shutdown();
+        loopExecutor.awaitTermination(timeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Assigns the task to one of the loops, round robin.
+     *
+     * @param taskRunnerFactory creates the task runner that iterates the task
+     *        if it is taken off its loop
+     * @param name the name of that task runner
+     * @return the handle used to schedule the task on its loop
+     */
+    public Registration register(Task task, TaskRunnerFactory taskRunnerFactory, String name) {
+        EventLoop loop = loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)];
+        return new Registration(loop, task, taskRunnerFactory, name);
+    }
+
+    public int getLoopCount() {
+        return loops.length;
+    }
+
+    public long getStallTimeout() {
+        return stallTimeout;
+    }
+
+    private void watchForStalls() {
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(stallTimeout);
+        while (!shutdown) {
+            LockSupport.parkNanos(this, timeoutNanos / 2);
+            long now = System.nanoTime();
+            for (EventLoop loop : loops) {
+                Registration current = loop.current.get();
+                if (current != null) {
+                    long iterationStart = current.iterationStart;
+                    if (now - iterationStart > timeoutNanos) {
+                        loop.detach(current, iterationStart);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A task registered with an event loop.
+     */
+    public static final class Registration {
+
+        private final EventLoop loop;
+        private final Task task;
+        private final TaskRunnerFactory taskRunnerFactory;
+        private final String name;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile long iterationStart;
+        // the task runner the task is scheduled on once it was taken off its loop
+        private volatile TaskRunner taskRunner;
+
+        private Registration(EventLoop loop, Task task, TaskRunnerFactory taskRunnerFactory, String name) {
+            this.loop = loop;
+            this.task = task;
+            this.taskRunnerFactory = taskRunnerFactory;
+            this.name = name;
+        }
+
+        /**
+         * Makes sure the task is iterated by its loop, does nothing if it is
+         * already waiting to be iterated.
+         */
+        public void schedule() {
+            TaskRunner runner = taskRunner;
+            if (runner != null) {
+                try {
+                    runner.wakeup();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            } else if (scheduled.compareAndSet(false, true)) {
+                loop.ready.offer(this);
+                if (loop.sleeping) {
+                    LockSupport.unpark(loop.thread);
+                }
+            }
+        }
+
+        /**
+         * @return true if the task was taken off its loop after it stalled it
+         */
+        public boolean isDetached() {
+            return taskRunner != null;
+        }
+
+        /**
+         * Stops the task runner of a task that was taken off its loop.
+         */
+        public void shutdown(long timeout) throws InterruptedException {
+            TaskRunner runner = taskRunner;
+            if (runner != null) {
+                runner.shutdown(timeout);
+            }
+        }
+
+        public String getLoopName() {
+            return loop.name;
+        }
+    }
+
+    private static final class EventLoop {
+
+        private final ConcurrentLinkedQueue<Registration> ready = new ConcurrentLinkedQueue<Registration>();
+        private final String name;
+        private final ThreadPoolExecutor executor;
+        // the thread running the loop, unparked when a task is scheduled
+        private volatile Thread thread;
+        // bumped when the loop moves to another thread, the previous one stops
+        private volatile int owner;
+        // the task being iterated, read by the watchdog and only cleared under
+        // the loop's lock so a detach sees whether the iteration still runs
+        private final AtomicReference<Registration> current = new AtomicReference<Registration>();
+        private volatile boolean sleeping;
+        private volatile boolean shutdown;
+
+        EventLoop(String name, ThreadPoolExecutor executor) {
+            this.name = name;
+            this.executor = executor;
+        }
+
+        synchronized void start() {
+            runAs(owner);
+        }
+
+        private void runAs(final int owner) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    EventLoop.this.run(owner);
+                }
+            });
+        }
+
+        /**
+         * Moves the stalled task to a task runner of its own and the loop to
+         * another thread, the stalled thread stops once its iteration returns.
+         * Does nothing if the iteration that was seen to stall has returned.
+         */
+        synchronized void detach(Registration stalled, long iterationStart) {
+            if (shutdown || stalled.taskRunner != null || current.get() != stalled || stalled.iterationStart != iterationStart) {
+                return;
+            }
+            LOG.warn("Dispatch task {} blocked its event loop {} for more than its stall timeout, it is moved to a task runner of its own",
+                     stalled.task, name);
+            stalled.taskRunner = stalled.taskRunnerFactory.createTaskRunner(stalled.task, stalled.name);
+            current.set(null);
+            runAs(++owner);
+        }
+
+        private void run(int owner) {
+            thread = Thread.currentThread();
+            while (!shutdown && this.owner == owner) {
+                Registration registration = ready.poll();
+                if (registration == null) {
+                    sleeping = true;
+                    // re-check after publishing that we sleep, a task scheduled
+                    // in between either is seen here or unparks us
+                    if (ready.isEmpty() && !shutdown) {
+                        LockSupport.park(this);
+                    }
+                    sleeping = false;
+                    continue;
+                }
+                // cleared before iterating so work added meanwhile schedules the task again
+                registration.scheduled.set(false);
+                if (registration.taskRunner != null) {
+                    // taken off the loop while it was queued
+                    registration.schedule();
+                    continue;
+                }
+                boolean more = false;
+                registration.iterationStart = System.nanoTime();
+                current.set(registration);
+                try {
+                    more = registration.task.iterate();
+                } catch (Throwable e) {
+                    LOG.warn("Dispatch task {} failed", registration.task, e);
+                } finally {
+                    synchronized (this) {
+                        // only clears its own task, the loop may have moved on to another thread
+                        current.compareAndSet(registration, null);
+                    }
+                }
+                if (more) {
+                    registration.schedule();
+                }
+            }
+        }
+    }
+}
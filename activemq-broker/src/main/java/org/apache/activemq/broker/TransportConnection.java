@@ -26,13 +26,16 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import javax.transaction.xa.XAResource;
@@ -97,6 +100,7 @@ import org.apache.activemq.transport.ResponseCorrelator;
 import org.apache.activemq.transport.TransmitCallback;
 import org.apache.activemq.transport.Transport;
 import org.apache.activemq.transport.TransportDisposedIOException;
+import org.apache.activemq.transport.tcp.TcpTransport;
 import org.apache.activemq.util.IntrospectionSupport;
 import org.apache.activemq.util.MarshallingSupport;
 import org.apache.activemq.util.NetworkBridgeUtils;
@@ -110,6 +114,7 @@ public class TransportConnection implements Connection, Task, CommandVisitor {
     private static final Logger LOG = LoggerFactory.getLogger(TransportConnection.class);
     private static final Logger TRANSPORTLOG = LoggerFactory.getLogger(TransportConnection.class.getName() + ".Transport");
     private static final Logger SERVICELOG = LoggerFactory.getLogger(TransportConnection.class.getName() + ".Service");
+    private static final int EVENT_LOOP_BATCH_SIZE = 1000;
     // Keeps track of the broker and connector that created this connection.
     protected final Broker broker;
     protected final BrokerService brokerService;
@@ -122,6 +127,10 @@ public class TransportConnection implements Connection, Task, CommandVisitor {
     protected BrokerInfo brokerInfo;
     protected final List<Command> dispatchQueue = new LinkedList<>();
     protected TaskRunner taskRunner;
+    // Used instead of the dispatchQueue and taskRunner when the connector dispatches from event loops
+    protected final Queue<Command> eventLoopDispatchQueue = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock eventLoopDispatchLock = new ReentrantLock();
+    protected DispatchEventLoopGroup.Registration dispatchRegistration;
     protected final AtomicReference<Throwable> transportException = new AtomicReference<>();
     protected AtomicBoolean dispatchStopped = new AtomicBoolean(false);
     private final Transport transport;
@@ -160,6 +169,7 @@ public class TransportConnection implements Connection, Task, CommandVisitor {
     private DemandForwardingBridge duplexBridge;
     private final TaskRunnerFactory taskRunnerFactory;
     private final TaskRunnerFactory stopTaskRunnerFactory;
+    private final TcpTransport tcpTransport;
     private TransportConnectionStateRegister connectionStateRegister = new SingleTransportConnectionStateRegister();
     private final ReentrantReadWriteLock serviceLock = new ReentrantReadWriteLock();
     private String duplexNetworkConnectorId;
@@ -185,6 +195,7 @@ public class TransportConnection implements Connection, Task, CommandVisitor {
         this.taskRunnerFactory = taskRunnerFactory;
         this.stopTaskRunnerFactory = stopTaskRunnerFactory;
         this.transport = transport;
+        this.tcpTransport = transport.narrow(TcpTransport.class);
         if( this.transport instanceof BrokerServiceAware ) {
             ((BrokerServiceAware)this.transport).setBrokerService(brokerService);
         }
@@ -231,6 +242,9 @@ public class TransportConnection implements Connection, Task, CommandVisitor {
      */
     @Override
     public int getDispatchQueueSize() {
+        if (dispatchRegistration != null) {
+            return eventLoopDispatchQueue.size();
+        }
         synchronized (dispatchQueue) {
             return dispatchQueue.size();
         }
@@ -948,7 +962,10 @@ public class TransportConnection implements Connection, Task, CommandVisitor {
     @Override
     public void dispatchAsync(Command message) {
         if (!stopping.get()) {
-            if (taskRunner == null) {
+            if (dispatchRegistration != null) {
+                eventLoopDispatchQueue.offer(message);
+                dispatchRegistration.schedule();
+            } else if (taskRunner == null) {
                 dispatchSync(message);
             } else {
                 synchronized (dispatchQueue) {
@@ -1027,6 +1044,9 @@ public class TransportConnection implements Connection, Task, CommandVisitor {
                 return false;
             }
             if (!dispatchStopped.get()) {
+                if (dispatchRegistration != null) {
+                    return dispatchEventLoopBatch();
+                }
                 Command command = null;
                 synchronized (dispatchQueue) {
                     if (dispatchQueue.isEmpty()) {
@@ -1047,6 +1067,45 @@ public class TransportConnection implements Connection, Task, CommandVisitor {
         }
     }
 
+    /**
+     * Dispatches up to a batch of the commands queued for the event loop, the
+     * transport is only flushed after the last command of the batch.
+     * <p>
+     * Once the connection is taken off a loop that it stalled, its own task
+     * runner may iterate while the stalled loop thread is still writing. Only
+     * one of them dispatches, the other leaves the queue to it: the thread that
+     * dispatched checks the queue again after it let go of the lock.
+     *
+     * @return true if commands are left in the queue
+     */
+    private boolean dispatchEventLoopBatch() throws IOException {
+        if (!eventLoopDispatchLock.tryLock()) {
+            return false;
+        }
+        try {
+            for (int i = 0; i < EVENT_LOOP_BATCH_SIZE; i++) {
+                Command command = eventLoopDispatchQueue.poll();
+                if (command == null) {
+                    break;
+                }
+                if (tcpTransport != null) {
+                    if (i == EVENT_LOOP_BATCH_SIZE - 1 || eventLoopDispatchQueue.isEmpty()) {
+                        tcpTransport.stopDeferringFlush();
+                    } else {
+                        tcpTransport.deferFlush();
+                    }
+                }
+                processDispatch(command);
+            }
+        } finally {
+            if (tcpTransport != null) {
+                tcpTransport.stopDeferringFlush();
+            }
+            eventLoopDispatchLock.unlock();
+        }
+        return !eventLoopDispatchQueue.isEmpty();
+    }
+
     /**
      * Returns the statistics for this connection
      */
@@ -1073,7 +1132,11 @@ public class TransportConnection implements Connection, Task, CommandVisitor {
         if (status.compareAndSet(NEW, STARTING)) {
             try {
                 synchronized (this) {
-                    if (taskRunnerFactory != null) {
+                    DispatchEventLoopGroup dispatchEventLoops = connector != null ? connector.getDispatchEventLoops() : null;
+                    if (taskRunnerFactory != null && dispatchEventLoops != null) {
+                        dispatchRegistration = dispatchEventLoops.register(this, taskRunnerFactory, "ActiveMQ Connection Dispatcher: "
+                                + getRemoteAddress());
+                    } else if (taskRunnerFactory != null) {
                         taskRunner = taskRunnerFactory.createTaskRunner(this, "ActiveMQ Connection Dispatcher: "
                                 + getRemoteAddress());
                     } else {
@@ -1210,6 +1273,12 @@ public class TransportConnection implements Connection, Task, CommandVisitor {
             taskRunner.shutdown(1);
             taskRunner = null;
         }
+        if (dispatchRegistration != null) {
+            // lets the loop run the stop iteration that sends the ShutdownInfo
+            dispatchRegistration.schedule();
+            dispatchStoppedLatch.await(1, TimeUnit.MILLISECONDS);
+            dispatchRegistration.shutdown(1);
+        }
         active = false;
         // Run the MessageDispatch callbacks so that message references get
         // cleaned up.
@@ -1227,6 +1296,16 @@ public class TransportConnection implements Connection, Task, CommandVisitor {
             }
             dispatchQueue.clear();
         }
+        for (Command command; (command = eventLoopDispatchQueue.poll()) != null; ) {
+            if (command.isMessageDispatch()) {
+                MessageDispatch md = (MessageDispatch) command;
+                TransmitCallback sub = md.getTransmitCallback();
+                broker.postProcessDispatch(md);
+                if (sub != null) {
+                    sub.onFailure();
+                }
+            }
+        }
         //
         // Remove all logical connection associated with this connection
         // from the broker.
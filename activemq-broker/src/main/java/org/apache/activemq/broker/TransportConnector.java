@@ -67,6 +67,10 @@ public class TransportConnector implements Connector, BrokerServiceAware {
     private URI discoveryUri;
     private String name;
     private boolean disableAsyncDispatch;
+    private boolean eventLoopDispatch;
+    private int dispatchEventLoopCount = Runtime.getRuntime().availableProcessors();
+    private long dispatchEventLoopStallTimeout = DispatchEventLoopGroup.DEFAULT_STALL_TIMEOUT;
+    private DispatchEventLoopGroup dispatchEventLoops;
     private boolean enableStatusMonitor = false;
     private Broker broker;
     private boolean updateClusterClients = false;
@@ -113,6 +117,9 @@ public class TransportConnector implements Connector, BrokerServiceAware {
         ManagedTransportConnector rc = new ManagedTransportConnector(context, connectorName, getServer());
         rc.setBrokerInfo(getBrokerInfo());
         rc.setDisableAsyncDispatch(isDisableAsyncDispatch());
+        rc.setEventLoopDispatch(isEventLoopDispatch());
+        rc.setDispatchEventLoopCount(getDispatchEventLoopCount());
+        rc.setDispatchEventLoopStallTimeout(getDispatchEventLoopStallTimeout());
         rc.setDiscoveryAgent(getDiscoveryAgent());
         rc.setDiscoveryUri(getDiscoveryUri());
         rc.setEnableStatusMonitor(isEnableStatusMonitor());
@@ -221,6 +228,11 @@ public class TransportConnector implements Connector, BrokerServiceAware {
         brokerInfo.setPeerBrokerInfos(broker.getPeerBrokerInfos());
         brokerInfo.setFaultTolerantConfiguration(broker.isFaultTolerantConfiguration());
         brokerInfo.setBrokerURL(broker.getBrokerService().getDefaultSocketURIString());
+        if (eventLoopDispatch && !disableAsyncDispatch) {
+            dispatchEventLoops = new DispatchEventLoopGroup("ActiveMQ Connection Dispatch Loop: " + getName(), dispatchEventLoopCount,
+                    dispatchEventLoopStallTimeout);
+            dispatchEventLoops.start();
+        }
         getServer().setAcceptListener(new TransportAcceptListener() {
             @Override
             public void onAccept(final Transport transport) {
@@ -319,6 +331,10 @@ public class TransportConnector implements Connector, BrokerServiceAware {
         for (TransportConnection connection : connections) {
             ss.stop(connection);
         }
+        if (dispatchEventLoops != null) {
+            dispatchEventLoops.shutdown(1000);
+            dispatchEventLoops = null;
+        }
         server = null;
         started.set(false);
         ss.throwFirstException();
@@ -514,6 +530,53 @@ public class TransportConnector implements Connector, BrokerServiceAware {
         this.disableAsyncDispatch = disableAsyncDispatch;
     }
 
+    public boolean isEventLoopDispatch() {
+        return eventLoopDispatch;
+    }
+
+    /**
+     * Dispatches to the connections from a fixed group of event loops instead
+     * of a task runner per connection. Each connection is owned by one loop,
+     * which drains its dispatch queue in batches and flushes the socket once
+     * per batch. Has no effect when async dispatch is disabled.
+     */
+    public void setEventLoopDispatch(boolean eventLoopDispatch) {
+        this.eventLoopDispatch = eventLoopDispatch;
+    }
+
+    public int getDispatchEventLoopCount() {
+        return dispatchEventLoopCount;
+    }
+
+    /**
+     * Sets the number of event loops used when {@link #setEventLoopDispatch(boolean)}
+     * is enabled, defaults to the number of available processors.
+     */
+    public void setDispatchEventLoopCount(int dispatchEventLoopCount) {
+        this.dispatchEventLoopCount = dispatchEventLoopCount;
+    }
+
+    public long getDispatchEventLoopStallTimeout() {
+        return dispatchEventLoopStallTimeout;
+    }
+
+    /**
+     * Sets the time in milliseconds a connection may block its event loop, for
+     * example on a write to a slow consumer, before it is taken off the loop and
+     * dispatched by a task runner of its own. 0 leaves connections on their loop.
+     */
+    public void setDispatchEventLoopStallTimeout(long dispatchEventLoopStallTimeout) {
+        this.dispatchEventLoopStallTimeout = dispatchEventLoopStallTimeout;
+    }
+
+    /**
+     * @return the event loops dispatching to the connections of this
+     *         connector, or null if connections use task runners
+     */
+    public DispatchEventLoopGroup getDispatchEventLoops() {
+        return dispatchEventLoops;
+    }
+
     /**
      * @return the enableStatusMonitor
      */
@@ -187,6 +187,36 @@ public class DestinationView implements DestinationViewMBean {
         return destination.getDestinationStatistics().getProcessTime().getMinTime();
     }
 
+    @Override
+    public long getEnqueueTimeP50() {
+        return destination.getDestinationStatistics().getEnqueueToDispatchTime().getPercentile(50);
+    }
+
+    @Override
+    public long getEnqueueTimeP99() {
+        return destination.getDestinationStatistics().getEnqueueToDispatchTime().getPercentile(99);
+    }
+
+    @Override
+    public long getEnqueueTimeP999() {
+        return destination.getDestinationStatistics().getEnqueueToDispatchTime().getPercentile(99.9);
+    }
+
+    @Override
+    public long getAckTimeP50() {
+        return destination.getDestinationStatistics().getDispatchToAckTime().getPercentile(50);
+    }
+
+    @Override
+    public long getAckTimeP99() {
+        return destination.getDestinationStatistics().getDispatchToAckTime().getPercentile(99);
+    }
+
+    @Override
+    public long getAckTimeP999() {
+        return destination.getDestinationStatistics().getDispatchToAckTime().getPercentile(99.9);
+    }
+
     /**
      * @return the average size of a message (bytes)
      */
@@ -590,6 +620,21 @@ public class DestinationView implements DestinationViewMBean {
         return destination.getDestinationStatistics().getBlockedTime().getTotalTime();
     }
 
+    @Override
+    public long getBlockedTimeP50() {
+        return destination.getDestinationStatistics().getBlockedSendTime().getPercentile(50);
+    }
+
+    @Override
+    public long getBlockedTimeP99() {
+        return destination.getDestinationStatistics().getBlockedSendTime().getPercentile(99);
+    }
+
+    @Override
+    public long getBlockedTimeP999() {
+        return destination.getDestinationStatistics().getBlockedSendTime().getPercentile(99.9);
+    }
+
     @Override
     public boolean isSendDuplicateFromStoreToDLQ() {
         return destination.isSendDuplicateFromStoreToDLQ();
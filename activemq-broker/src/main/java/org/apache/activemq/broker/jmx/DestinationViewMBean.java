@@ -333,6 +333,24 @@ public interface DestinationViewMBean {
     @MBeanInfo("Average time a message was held on this destination.")
     double getAverageEnqueueTime();
 
+    @MBeanInfo("Median time (ms) a message was held on this destination before being dispatched, to within 3.2%")
+    long getEnqueueTimeP50();
+
+    @MBeanInfo("99th percentile of the time (ms) a message was held on this destination before being dispatched, to within 3.2%")
+    long getEnqueueTimeP99();
+
+    @MBeanInfo("99.9th percentile of the time (ms) a message was held on this destination before being dispatched, to within 3.2%")
+    long getEnqueueTimeP999();
+
+    @MBeanInfo("Median time (ms) from a message being dispatched to it being acknowledged, to within 3.2%")
+    long getAckTimeP50();
+
+    @MBeanInfo("99th percentile of the time (ms) from a message being dispatched to it being acknowledged, to within 3.2%")
+    long getAckTimeP99();
+
+    @MBeanInfo("99.9th percentile of the time (ms) from a message being dispatched to it being acknowledged, to within 3.2%")
+    long getAckTimeP999();
+
     @MBeanInfo("Average message size on this destination")
     long getAverageMessageSize();
 
@@ -479,6 +497,15 @@ public interface DestinationViewMBean {
     @MBeanInfo("Total time (ms) messages have been blocked by flow control")
     long getTotalBlockedTime();
 
+    @MBeanInfo("Median time (ms) a send was blocked by flow control, to within 3.2%")
+    long getBlockedTimeP50();
+
+    @MBeanInfo("99th percentile of the time (ms) a send was blocked by flow control, to within 3.2%")
+    long getBlockedTimeP99();
+
+    @MBeanInfo("99.9th percentile of the time (ms) a send was blocked by flow control, to within 3.2%")
+    long getBlockedTimeP999();
+
     @MBeanInfo("Number of times the max uncommitted limit has been exceed for this destination")
     long getMaxUncommittedExceededCount();
 }
@@ -17,6 +17,7 @@
 package org.apache.activemq.broker.jmx;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.activemq.management.HistogramStatisticImpl;
 import org.apache.activemq.management.TimeStatisticImpl;
 import org.apache.activemq.store.PersistenceAdapter;
 import org.apache.activemq.store.PersistenceAdapterStatistics;
@@ -98,6 +99,10 @@ public class PersistenceAdapterView implements PersistenceAdapterViewMBean {
                 result.put("slowReadTime", getTimeStatisticAsMap(persistenceAdapterStatistics.getSlowReadTime()));
                 result.put("writeTime", getTimeStatisticAsMap(persistenceAdapterStatistics.getWriteTime()));
                 result.put("readTime", getTimeStatisticAsMap(persistenceAdapterStatistics.getReadTime()));
+                result.put("checkpointTime", getTimeStatisticAsMap(persistenceAdapterStatistics.getCheckpointTime()));
+                result.put("checkpointStallTime", getTimeStatisticAsMap(persistenceAdapterStatistics.getCheckpointStallTime()));
+                result.put("journalBatchSize", getHistogramStatisticAsMap(persistenceAdapterStatistics.getJournalBatchSize()));
+                result.put("journalSyncTime", getHistogramStatisticAsMap(persistenceAdapterStatistics.getJournalSyncTime()));
                 return mapper.writeValueAsString(result);
             } catch (IOException e) {
                 return e.toString();
@@ -122,6 +127,20 @@ public class PersistenceAdapterView implements PersistenceAdapterViewMBean {
         return result;
     }
 
+    private Map<String, Object> getHistogramStatisticAsMap(final HistogramStatisticImpl histogramStatistic) {
+        Map<String, Object> result = new HashMap<String, Object>();
+
+        result.put("count", histogramStatistic.getCount());
+        result.put("max", histogramStatistic.getMax());
+        result.put("average", histogramStatistic.getAverage());
+        result.put("p50", histogramStatistic.getPercentile(50));
+        result.put("p90", histogramStatistic.getPercentile(90));
+        result.put("p99", histogramStatistic.getPercentile(99));
+        result.put("p999", histogramStatistic.getPercentile(99.9));
+
+        return result;
+    }
+
     public void setDataViewCallable(Callable<String> dataViewCallable) {
         this.dataViewCallable = dataViewCallable;
     }
@@ -24,6 +24,7 @@ import javax.management.ObjectName;
 
 import org.apache.activemq.broker.BrokerService;
 import org.apache.activemq.broker.ConnectionContext;
+import org.apache.activemq.broker.region.PrefetchSubscription;
 import org.apache.activemq.broker.region.Subscription;
 import org.apache.activemq.command.ActiveMQDestination;
 import org.apache.activemq.command.ActiveMQQueue;
@@ -370,6 +371,14 @@ public class SubscriptionView implements SubscriptionViewMBean {
         return subscription != null ? subscription.getPrefetchSize() : 0;
     }
 
+    @Override
+    public int getTargetPrefetchSize() {
+        if (subscription instanceof PrefetchSubscription) {
+            return ((PrefetchSubscription) subscription).getTargetPrefetchSize();
+        }
+        return getPrefetchSize();
+    }
+
     @Override
     public boolean isMatchingQueue(String queueName) {
         if (isDestinationQueue()) {
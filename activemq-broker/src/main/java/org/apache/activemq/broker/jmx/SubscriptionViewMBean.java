@@ -136,6 +136,13 @@ public interface SubscriptionViewMBean {
     @MBeanInfo("Number of messages to pre-fetch and dispatch to the client.")
     int getPrefetchSize();
 
+    /**
+     * @return the prefetch an adaptive prefetch strategy aims for, which is
+     *         the current prefetch when the prefetch is not adapted
+     */
+    @MBeanInfo("Number of messages the adaptive prefetch strategy last computed to pre-fetch, the current prefetch when not adapted.")
+    int getTargetPrefetchSize();
+
     /**
      * @return whether or not the subscriber is retroactive or not
      */
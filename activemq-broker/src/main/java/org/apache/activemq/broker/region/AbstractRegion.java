@@ -322,12 +322,8 @@ public abstract class AbstractRegion implements Region {
     @Override
     @SuppressWarnings("unchecked")
     public Set<Destination> getDestinations(ActiveMQDestination destination) {
-        destinationsLock.readLock().lock();
-        try{
-            return destinationMap.unsynchronizedGet(destination);
-        } finally {
-            destinationsLock.readLock().unlock();
-        }
+        // the map can be searched while destinations are added or removed
+        return destinationMap.unsynchronizedGet(destination);
     }
 
     @Override
@@ -28,6 +28,7 @@ import org.apache.activemq.broker.BrokerService;
 import org.apache.activemq.broker.ConnectionContext;
 import org.apache.activemq.broker.ProducerBrokerExchange;
 import org.apache.activemq.broker.region.policy.DeadLetterStrategy;
+import org.apache.activemq.broker.region.policy.AdaptivePrefetchStrategy;
 import org.apache.activemq.broker.region.policy.SlowConsumerStrategy;
 import org.apache.activemq.command.ActiveMQDestination;
 import org.apache.activemq.command.ActiveMQTopic;
@@ -100,6 +101,7 @@ public abstract class BaseDestination implements Destination {
     protected int cursorMemoryHighWaterMark = 70;
     protected int storeUsageHighWaterMark = 100;
     private SlowConsumerStrategy slowConsumerStrategy;
+    private AdaptivePrefetchStrategy adaptivePrefetchStrategy;
     private boolean prioritizedMessages;
     private long inactiveTimeoutBeforeGC = DEFAULT_INACTIVE_TIMEOUT_BEFORE_GC;
     private boolean gcIfInactive;
@@ -262,12 +264,18 @@ public abstract class BaseDestination implements Destination {
     public void addSubscription(ConnectionContext context, Subscription sub) throws Exception{
         destinationStatistics.getConsumers().increment();
         this.lastActiveTime=0l;
+        if (adaptivePrefetchStrategy != null) {
+            adaptivePrefetchStrategy.addSubscription(this, sub);
+        }
     }
 
     @Override
     public void removeSubscription(ConnectionContext context, Subscription sub, long lastDeliveredSequenceId) throws Exception{
         destinationStatistics.getConsumers().decrement();
         this.lastActiveTime=0l;
+        if (adaptivePrefetchStrategy != null) {
+            adaptivePrefetchStrategy.removeSubscription(sub);
+        }
     }
 
 
@@ -739,6 +747,7 @@ public abstract class BaseDestination implements Destination {
             long finish = System.currentTimeMillis();
             long totalTimeBlocked = finish - start;
             destinationStatistics.getBlockedTime().addTime(totalTimeBlocked);
+            destinationStatistics.getBlockedSendTime().record(totalTimeBlocked);
             producerBrokerExchange.incrementTimeBlocked(this,totalTimeBlocked);
             producerBrokerExchange.blockingOnFlowControl(false);
         }
@@ -767,6 +776,14 @@ public abstract class BaseDestination implements Destination {
         return this.slowConsumerStrategy;
     }
 
+    public void setAdaptivePrefetchStrategy(AdaptivePrefetchStrategy adaptivePrefetchStrategy) {
+        this.adaptivePrefetchStrategy = adaptivePrefetchStrategy;
+    }
+
+    public AdaptivePrefetchStrategy getAdaptivePrefetchStrategy() {
+        return this.adaptivePrefetchStrategy;
+    }
+
 
     @Override
     public boolean isPrioritizedMessages() {
@@ -45,6 +45,9 @@ public class DestinationStatistics extends StatsImpl {
     protected TimeStatisticImpl blockedTime;
     protected SizeStatisticImpl messageSize;
     protected CountStatisticImpl maxUncommittedExceededCount;
+    protected HistogramStatisticImpl enqueueToDispatchTime;
+    protected HistogramStatisticImpl dispatchToAckTime;
+    protected HistogramStatisticImpl blockedSendTime;
 
     public DestinationStatistics() {
 
@@ -68,6 +71,9 @@ public class DestinationStatistics extends StatsImpl {
         blockedTime = new TimeStatisticImpl("blockedTime","amount of time messages are blocked for flow control");
         messageSize = new SizeStatisticImpl("messageSize","Size of messages passing through the destination");
         maxUncommittedExceededCount = new CountStatisticImpl("maxUncommittedExceededCount", "number of times maxUncommittedCount has been exceeded");
+        enqueueToDispatchTime = new HistogramStatisticImpl("enqueueToDispatchTime", "millis", "Distribution of the time from a message arriving at the destination to it being dispatched");
+        dispatchToAckTime = new HistogramStatisticImpl("dispatchToAckTime", "millis", "Distribution of the time from a message being dispatched to it being acknowledged");
+        blockedSendTime = new HistogramStatisticImpl("blockedSendTime", "millis", "Distribution of the time sends are blocked for flow control");
         addStatistic("enqueues", enqueues);
         addStatistic("dispatched", dispatched);
         addStatistic("dequeues", dequeues);
@@ -83,6 +89,9 @@ public class DestinationStatistics extends StatsImpl {
         addStatistic("blockedTime",blockedTime);
         addStatistic("messageSize",messageSize);
         addStatistic("maxUncommittedExceededCount", maxUncommittedExceededCount);
+        addStatistic("enqueueToDispatchTime", enqueueToDispatchTime);
+        addStatistic("dispatchToAckTime", dispatchToAckTime);
+        addStatistic("blockedSendTime", blockedSendTime);
     }
 
     public CountStatisticImpl getEnqueues() {
@@ -151,6 +160,18 @@ public class DestinationStatistics extends StatsImpl {
         return this.maxUncommittedExceededCount;
     }
 
+    public HistogramStatisticImpl getEnqueueToDispatchTime() {
+        return this.enqueueToDispatchTime;
+    }
+
+    public HistogramStatisticImpl getDispatchToAckTime() {
+        return this.dispatchToAckTime;
+    }
+
+    public HistogramStatisticImpl getBlockedSendTime() {
+        return this.blockedSendTime;
+    }
+
     public void reset() {
         if (this.isDoReset()) {
             super.reset();
@@ -165,6 +186,9 @@ public class DestinationStatistics extends StatsImpl {
             blockedTime.reset();
             messageSize.reset();
             maxUncommittedExceededCount.reset();
+            enqueueToDispatchTime.reset();
+            dispatchToAckTime.reset();
+            blockedSendTime.reset();
         }
     }
 
@@ -186,6 +210,9 @@ public class DestinationStatistics extends StatsImpl {
         blockedTime.setEnabled(enabled);
         messageSize.setEnabled(enabled);
         maxUncommittedExceededCount.setEnabled(enabled);
+        enqueueToDispatchTime.setEnabled(enabled);
+        dispatchToAckTime.setEnabled(enabled);
+        blockedSendTime.setEnabled(enabled);
 
     }
 
@@ -207,6 +234,9 @@ public class DestinationStatistics extends StatsImpl {
             blockedTime.setParent(parent.blockedTime);
             messageSize.setParent(parent.messageSize);
             maxUncommittedExceededCount.setParent(parent.maxUncommittedExceededCount);
+            enqueueToDispatchTime.setParent(parent.enqueueToDispatchTime);
+            dispatchToAckTime.setParent(parent.dispatchToAckTime);
+            blockedSendTime.setParent(parent.blockedSendTime);
         } else {
             enqueues.setParent(null);
             dispatched.setParent(null);
@@ -224,6 +254,9 @@ public class DestinationStatistics extends StatsImpl {
             blockedTime.setParent(null);
             messageSize.setParent(null);
             maxUncommittedExceededCount.setParent(null);
+            enqueueToDispatchTime.setParent(null);
+            dispatchToAckTime.setParent(null);
+            blockedSendTime.setParent(null);
         }
     }
 
@@ -62,6 +62,7 @@ public abstract class PrefetchSubscription extends AbstractSubscription {
     protected final Object pendingLock = new Object();
     protected final Object dispatchLock = new Object();
     private final CountDownLatch okForAckAsDispatchDone = new CountDownLatch(1);
+    private volatile int targetPrefetchSize = -1;
 
     public PrefetchSubscription(Broker broker, SystemUsage usageManager, ConnectionContext context, ConsumerInfo info, PendingMessageCursor cursor) throws JMSException {
         super(broker,context, info);
@@ -202,6 +203,7 @@ public abstract class PrefetchSubscription extends AbstractSubscription {
         }
 
         LOG.trace("ack: {}", ack);
+        final long ackTime = System.currentTimeMillis();
 
         synchronized(dispatchLock) {
             if (ack.isStandardAck()) {
@@ -229,6 +231,7 @@ public abstract class PrefetchSubscription extends AbstractSubscription {
                             registerRemoveSync(context, node);
                         }
                         acknowledge(context, ack, node);
+                        recordDispatchToAck(node, ackTime);
                         if (ack.getLastMessageId().equals(messageId)) {
                             destination = (Destination) node.getRegionDestination();
                             callDispatchMatched = true;
@@ -262,6 +265,7 @@ public abstract class PrefetchSubscription extends AbstractSubscription {
                             expandPrefetchExtension(1);
                         }
                         acknowledge(context, ack, node);
+                        recordDispatchToAck(node, ackTime);
                         destination = (Destination) node.getRegionDestination();
                         callDispatchMatched = true;
                         break;
@@ -832,6 +836,17 @@ public abstract class PrefetchSubscription extends AbstractSubscription {
      */
     protected abstract void acknowledge(ConnectionContext context, final MessageAck ack, final MessageReference node) throws IOException;
 
+    private void recordDispatchToAck(MessageReference node, long ackTime) {
+        Message message = node.getMessage();
+        Destination nodeDest = (Destination) node.getRegionDestination();
+        if (message != null && message.getBrokerOutTime() > 0) {
+            if (nodeDest != null) {
+                nodeDest.getDestinationStatistics().getDispatchToAckTime().record(ackTime - message.getBrokerOutTime());
+            }
+            getSubscriptionStatistics().getDispatchToAckTime().record(ackTime - message.getBrokerOutTime());
+        }
+    }
+
 
     public int getMaxProducersToAudit() {
         return maxProducersToAudit;
@@ -855,6 +870,20 @@ public abstract class PrefetchSubscription extends AbstractSubscription {
         }
     }
 
+    /**
+     * @return the prefetch an {@link org.apache.activemq.broker.region.policy.AdaptivePrefetchStrategy}
+     *         last computed for this subscription, or the current prefetch when
+     *         it is not adapted
+     */
+    public int getTargetPrefetchSize() {
+        int target = targetPrefetchSize;
+        return target < 0 ? getPrefetchSize() : target;
+    }
+
+    public void setTargetPrefetchSize(int targetPrefetchSize) {
+        this.targetPrefetchSize = targetPrefetchSize;
+    }
+
     @Override
     public void setPrefetchSize(int prefetchSize) {
         this.info.setPrefetchSize(prefetchSize);
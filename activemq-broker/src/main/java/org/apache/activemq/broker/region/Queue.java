@@ -128,6 +128,9 @@ public class Queue extends BaseDestination implements Task, UsageListener, Index
     private boolean useConsumerPriority = true;
     private boolean strictOrderDispatch = false;
     private final QueueDispatchSelector dispatchSelector;
+    private final QueueDispatchRing dispatchRing = new QueueDispatchRing();
+    private final QueueSelectorIndex selectorIndex;
+    private boolean useSelectorIndex = true;
     private boolean optimizedDispatch = false;
     private boolean iterationRunning = false;
     private boolean firstConsumer = false;
@@ -261,6 +264,7 @@ public class Queue extends BaseDestination implements Task, UsageListener, Index
         super(brokerService, store, destination, parentStats);
         this.taskFactory = taskFactory;
         this.dispatchSelector = new QueueDispatchSelector(destination);
+        this.selectorIndex = new QueueSelectorIndex(destination);
         if (store != null) {
             store.registerIndexListener(this);
         }
@@ -1125,6 +1129,14 @@ public class Queue extends BaseDestination implements Task, UsageListener, Index
         this.useConsumerPriority = useConsumerPriority;
     }
 
+    public boolean isUseSelectorIndex() {
+        return useSelectorIndex;
+    }
+
+    public void setUseSelectorIndex(boolean useSelectorIndex) {
+        this.useSelectorIndex = useSelectorIndex;
+    }
+
     public boolean isStrictOrderDispatch() {
         return strictOrderDispatch;
     }
@@ -2178,54 +2190,80 @@ public class Queue extends BaseDestination implements Task, UsageListener, Index
      *         were not full.
      */
     private PendingList doActualDispatch(PendingList list) throws Exception {
-        List<Subscription> consumers;
+        QueueDispatchRing ring = dispatchRing;
         consumersLock.readLock().lock();
-
         try {
             if (this.consumers.isEmpty()) {
                 // slave dispatch happens in processDispatchNotification
                 return list;
             }
-            consumers = new ArrayList<Subscription>(this.consumers);
         } finally {
             consumersLock.readLock().unlock();
         }
 
-        Set<Subscription> fullConsumers = new HashSet<Subscription>(this.consumers.size());
+        if (ring.isStale()) {
+            // message group assignments changed, re-order so that the least
+            // loaded consumers are offered new groups first
+            consumersLock.writeLock().lock();
+            try {
+                ring.reorder(this.consumers, orderedCompare, useConsumerPriority);
+            } finally {
+                consumersLock.writeLock().unlock();
+            }
+        }
+
+        Set<Subscription> fullConsumers = new HashSet<Subscription>(ring.size());
+        boolean indexSelectors = useSelectorIndex && !selectorIndex.isEmpty();
+        if (indexSelectors) {
+            selectorIndex.update(ring);
+        }
 
         for (Iterator<MessageReference> iterator = list.iterator(); iterator.hasNext();) {
 
             MessageReference node = iterator.next();
             Subscription target = null;
-            for (Subscription s : consumers) {
-                if (s instanceof QueueBrowserSubscription) {
-                    continue;
-                }
-                if (!fullConsumers.contains(s)) {
-                    if (!s.isFull()) {
-                        if (dispatchSelector.canSelect(s, node) && assignMessageGroup(s, (QueueMessageReference)node) && !((QueueMessageReference) node).isAcked() ) {
-                            // Dispatch it.
-                            s.add(node);
-                            LOG.trace("assigned {} to consumer {}", node.getMessageId(), s.getConsumerInfo().getConsumerId());
-                            iterator.remove();
-                            target = s;
-                            break;
-                        }
-                    } else {
-                        // no further dispatch of list to a full consumer to
-                        // avoid out of order message receipt
-                        fullConsumers.add(s);
-
-                        //For full consumers we need to mark that they are slow and
-                        // then call the broker.slowConsumer() hook if implemented
-                        if (s instanceof PrefetchSubscription) {
-                            final PrefetchSubscription sub = (PrefetchSubscription) s;
-                            if (!sub.isSlowConsumer()) {
-                                sub.setSlowConsumer(true);
-                                broker.slowConsumer(sub.getContext(), this, sub);
+            int targetBand = -1;
+            int targetOffset = -1;
+            if (indexSelectors) {
+                // only the consumers whose selector may match the message are visited
+                selectorIndex.selectCandidates(node);
+            }
+            for (int band = 0; target == null && band < ring.getBandCount(); band++) {
+                int count = indexSelectors ? selectorIndex.selectBand(ring, band) : ring.getBandSize(band);
+                for (int i = 0; i < count; i++) {
+                    int offset = indexSelectors ? selectorIndex.getOffset(i) : i;
+                    Subscription s = ring.get(band, offset);
+                    if (s instanceof QueueBrowserSubscription) {
+                        continue;
+                    }
+                    if (!fullConsumers.contains(s)) {
+                        if (!s.isFull()) {
+                            if (dispatchSelector.canSelect(s, node) && assignMessageGroup(s, (QueueMessageReference)node) && !((QueueMessageReference) node).isAcked() ) {
+                                // Dispatch it.
+                                s.add(node);
+                                LOG.trace("assigned {} to consumer {}", node.getMessageId(), s.getConsumerInfo().getConsumerId());
+                                iterator.remove();
+                                target = s;
+                                targetBand = band;
+                                targetOffset = offset;
+                                break;
                             }
+                        } else {
+                            // no further dispatch of list to a full consumer to
+                            // avoid out of order message receipt
+                            fullConsumers.add(s);
+
+                            //For full consumers we need to mark that they are slow and
+                            // then call the broker.slowConsumer() hook if implemented
+                            if (s instanceof PrefetchSubscription) {
+                                final PrefetchSubscription sub = (PrefetchSubscription) s;
+                                if (!sub.isSlowConsumer()) {
+                                    sub.setSlowConsumer(true);
+                                    broker.slowConsumer(sub.getContext(), this, sub);
+                                }
+                            }
+                            LOG.trace("Subscription full {}", s);
                         }
-                        LOG.trace("Subscription full {}", s);
                     }
                 }
             }
@@ -2235,23 +2273,27 @@ public class Queue extends BaseDestination implements Task, UsageListener, Index
             }
 
             // return if there are no consumers or all consumers are full
-            if (target == null && consumers.size() == fullConsumers.size()) {
+            if (target == null && ring.size() == fullConsumers.size()) {
                 return list;
             }
 
-            // If it got dispatched, rotate the consumer list to get round robin
-            // distribution.
-            if (target != null && !strictOrderDispatch && consumers.size() > 1
+            // If it got dispatched, move the band cursor past the target to get
+            // round robin distribution.
+            if (target != null && !strictOrderDispatch && ring.size() > 1
                     && !dispatchSelector.isExclusiveConsumer(target)) {
+                ring.advance(targetBand, targetOffset);
+            }
+
+            if (ring.isStale()) {
                 consumersLock.writeLock().lock();
                 try {
-                    if (removeFromConsumerList(target)) {
-                        addToConsumerList(target);
-                        consumers = new ArrayList<Subscription>(this.consumers);
-                    }
+                    ring.reorder(this.consumers, orderedCompare, useConsumerPriority);
                 } finally {
                     consumersLock.writeLock().unlock();
                 }
+                if (indexSelectors) {
+                    selectorIndex.update(ring);
+                }
             }
         }
 
@@ -2285,6 +2327,9 @@ public class Queue extends BaseDestination implements Task, UsageListener, Index
                         if (sequence < 0) {
                             messageGroupOwners.removeGroup(groupId);
                             subscription.getConsumerInfo().decrementAssignedGroupCount(destination);
+                            if (useConsumerPriority) {
+                                dispatchRing.invalidate();
+                            }
                         }
                     } else {
                         result = false;
@@ -2301,6 +2346,9 @@ public class Queue extends BaseDestination implements Task, UsageListener, Index
         Message message = n.getMessage();
         message.setJMSXGroupFirstForConsumer(true);
         subs.getConsumerInfo().incrementAssignedGroupCount(destination);
+        if (useConsumerPriority) {
+            dispatchRing.invalidate();
+        }
     }
 
     protected void pageInMessages(boolean force, int maxPageSize) throws Exception {
@@ -2314,10 +2362,17 @@ public class Queue extends BaseDestination implements Task, UsageListener, Index
         } else {
             consumers.add(sub);
         }
+        dispatchRing.rebuild(consumers, useConsumerPriority);
+        selectorIndex.addSubscription(sub);
     }
 
     private boolean removeFromConsumerList(Subscription sub) {
-        return consumers.remove(sub);
+        boolean removed = consumers.remove(sub);
+        if (removed) {
+            dispatchRing.rebuild(consumers, useConsumerPriority);
+            selectorIndex.removeSubscription(sub);
+        }
+        return removed;
     }
 
     private int getConsumerMessageCountBeforeFull() throws Exception {
@@ -0,0 +1,196 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.broker.region;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Round robin view of the consumers of a {@link Queue} used during dispatch.
+ *
+ * The consumers are held in an array snapshot that is only rebuilt when the
+ * consumer list changes. Consumers of equal priority form a band and each band
+ * keeps its own cursor, so rotating to the next consumer after a dispatch is a
+ * matter of moving the cursor rather than re-ordering and copying the consumer
+ * list for every message. Higher priority bands are always visited first.
+ *
+ * Instances are not thread safe, access is expected to be serialized by the
+ * owning queue's dispatch lock.
+ */
+public class QueueDispatchRing {
+
+    private static final Subscription[] EMPTY = new Subscription[0];
+
+    private Subscription[] members = EMPTY;
+    // start index of each band in members, with a trailing sentinel of members.length
+    private int[] bandStart = new int[] {0};
+    private int[] bandPriority = new int[0];
+    private int[] cursors = new int[0];
+    private boolean stale;
+    // changes whenever the members are rebuilt
+    private int generation;
+
+    /**
+     * Rebuild the ring from the given consumers.
+     *
+     * @param consumers the current consumers, in dispatch order
+     * @param usePriority split the consumers into bands of equal priority
+     */
+    public void rebuild(List<Subscription> consumers, boolean usePriority) {
+        Subscription[] newMembers = consumers.toArray(new Subscription[consumers.size()]);
+
+        int bands = 0;
+        int[] starts = new int[newMembers.length + 1];
+        int[] priorities = new int[newMembers.length];
+        for (int i = 0; i < newMembers.length; i++) {
+            int priority = usePriority ? newMembers[i].getConsumerInfo().getPriority() : 0;
+            if (bands == 0 || priorities[bands - 1] != priority) {
+                starts[bands] = i;
+                priorities[bands] = priority;
+                bands++;
+            }
+        }
+        starts[bands] = newMembers.length;
+
+        int[] newCursors = new int[bands];
+        if (!stale) {
+            // keep the rotation position of bands that survive the rebuild
+            for (int band = 0; band < bands; band++) {
+                int previous = indexOfBand(priorities[band]);
+                if (previous >= 0) {
+                    int size = starts[band + 1] - starts[band];
+                    newCursors[band] = cursors[previous] % size;
+                }
+            }
+        }
+
+        members = newMembers;
+        bandStart = Arrays.copyOf(starts, bands + 1);
+        bandPriority = Arrays.copyOf(priorities, bands);
+        cursors = newCursors;
+        stale = false;
+        generation++;
+    }
+
+    /**
+     * Re-sort the consumers starting from the current rotation of the ring and
+     * rebuild it, so that consumers which compare equal keep their round robin
+     * order and each band starts again from its first consumer.
+     *
+     * @param consumers the consumer list to update with the new order
+     * @param order the comparator used to sort the consumers
+     * @param usePriority split the consumers into bands of equal priority
+     */
+    public void reorder(List<Subscription> consumers, Comparator<Subscription> order, boolean usePriority) {
+        consumers.clear();
+        for (int band = 0; band < getBandCount(); band++) {
+            for (int offset = 0; offset < getBandSize(band); offset++) {
+                consumers.add(get(band, offset));
+            }
+        }
+        consumers.sort(order);
+        stale = true;
+        rebuild(consumers, usePriority);
+    }
+
+    private int indexOfBand(int priority) {
+        for (int i = 0; i < bandPriority.length; i++) {
+            if (bandPriority[i] == priority) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Mark the ordering of the ring as out of date, the next rebuild will
+     * start each band from its first consumer again.
+     */
+    public void invalidate() {
+        stale = true;
+    }
+
+    public boolean isStale() {
+        return stale;
+    }
+
+    public int size() {
+        return members.length;
+    }
+
+    public boolean isEmpty() {
+        return members.length == 0;
+    }
+
+    public int getBandCount() {
+        return bandPriority.length;
+    }
+
+    public int getBandSize(int band) {
+        return bandStart[band + 1] - bandStart[band];
+    }
+
+    /**
+     * @return the index of the first consumer of the band, see {@link #getMember(int)}
+     */
+    public int getBandStart(int band) {
+        return bandStart[band];
+    }
+
+    /**
+     * @return the offset within the band of the consumer the next dispatch
+     *         starts with
+     */
+    public int getCursor(int band) {
+        return cursors[band];
+    }
+
+    /**
+     * @return the consumer at the given index, the consumers are held band
+     *         after band regardless of the cursors
+     */
+    public Subscription getMember(int index) {
+        return members[index];
+    }
+
+    /**
+     * @return a number that changes every time the ring is rebuilt, and with
+     *         it the index of its consumers
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return the consumer at the given offset from the band's cursor
+     */
+    public Subscription get(int band, int offset) {
+        int start = bandStart[band];
+        int size = bandStart[band + 1] - start;
+        return members[start + (cursors[band] + offset) % size];
+    }
+
+    /**
+     * Move the cursor of the band past the consumer at the given offset so
+     * that the next dispatch starts with the consumer that follows it.
+     */
+    public void advance(int band, int offset) {
+        int size = bandStart[band + 1] - bandStart[band];
+        cursors[band] = (cursors[band] + offset + 1) % size;
+    }
+}
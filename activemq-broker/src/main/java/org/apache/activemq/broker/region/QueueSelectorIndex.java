@@ -0,0 +1,295 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.broker.region;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.jms.JMSException;
+
+import org.apache.activemq.command.ActiveMQDestination;
+import org.apache.activemq.filter.BooleanExpression;
+import org.apache.activemq.filter.NonCachedMessageEvaluationContext;
+import org.apache.activemq.filter.PropertyExpression;
+import org.apache.activemq.filter.SelectorIndexKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Index of the selectors of the consumers of a {@link Queue}.
+ *
+ * For consumers whose selector restricts a single property to one or more
+ * values (see {@link SelectorIndexKey}) the index maps each of those values to
+ * the consumers that accept it. The properties are evaluated once per message
+ * and only the consumers found under the message's values, plus the consumers
+ * that can not be indexed, are offered the message. Dispatch therefore visits
+ * the candidates of a message rather than every consumer of the queue.
+ *
+ * Consumers are referred to by their index in the {@link QueueDispatchRing},
+ * so the index is rebuilt whenever the ring is, see {@link #update}.
+ *
+ * Instances are not thread safe, access is expected to be serialized by the
+ * owning queue's dispatch lock.
+ */
+public class QueueSelectorIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(QueueSelectorIndex.class);
+    private static final int[] NONE = new int[0];
+
+    private final Map<Subscription, Entry> entries = new HashMap<Subscription, Entry>();
+    private final List<PropertyExpression> properties = new ArrayList<PropertyExpression>();
+    private final NonCachedMessageEvaluationContext evaluationContext = new NonCachedMessageEvaluationContext();
+
+    // built from the ring, members are referred to by their index in it
+    private boolean built;
+    private int generation;
+    private int[] unindexed = NONE;
+    private int[][] membersByProperty = new int[0][];
+    private List<Map<Object, int[]>> membersByValue = new ArrayList<Map<Object, int[]>>();
+
+    // the candidates of the current message in ring order, and their offsets in the current band
+    private int[] candidates = NONE;
+    private int candidateCount;
+    private int[] offsets = NONE;
+
+    private static final class Entry {
+        BooleanExpression selector;
+        SelectorIndexKey key;
+        int slot;
+    }
+
+    public QueueSelectorIndex(ActiveMQDestination destination) {
+        evaluationContext.setDestination(destination);
+    }
+
+    public void addSubscription(Subscription sub) {
+        if (sub instanceof AbstractSubscription) {
+            Entry entry = index(((AbstractSubscription) sub).getSelectorExpression());
+            if (entry != null) {
+                entries.put(sub, entry);
+            }
+        }
+        built = false;
+    }
+
+    public void removeSubscription(Subscription sub) {
+        if (entries.remove(sub) != null && entries.isEmpty()) {
+            properties.clear();
+        }
+        built = false;
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Brings the index up to date with the ring and with selectors that were
+     * changed since it was built. Has to be called before the candidates of a
+     * message are selected, and again once the ring was rebuilt.
+     */
+    public void update(QueueDispatchRing ring) {
+        boolean rebuild = !built || generation != ring.getGeneration();
+        for (Iterator<Map.Entry<Subscription, Entry>> iterator = entries.entrySet().iterator(); iterator.hasNext();) {
+            Map.Entry<Subscription, Entry> indexed = iterator.next();
+            BooleanExpression selector = ((AbstractSubscription) indexed.getKey()).getSelectorExpression();
+            if (selector != indexed.getValue().selector) {
+                Entry entry = index(selector);
+                if (entry != null) {
+                    indexed.setValue(entry);
+                } else {
+                    // selector was changed to one that can not be indexed
+                    iterator.remove();
+                }
+                rebuild = true;
+            }
+        }
+        if (rebuild) {
+            rebuild(ring);
+        }
+    }
+
+    /**
+     * Selects the consumers of the ring whose selector may match the message,
+     * see {@link #selectBand(QueueDispatchRing, int)}.
+     */
+    public void selectCandidates(MessageReference node) {
+        int count = 0;
+        int sources = 0;
+        if (unindexed.length > 0) {
+            System.arraycopy(unindexed, 0, candidates, 0, unindexed.length);
+            count = unindexed.length;
+            sources++;
+        }
+        for (int slot = 0; slot < membersByProperty.length; slot++) {
+            if (membersByProperty[slot].length == 0) {
+                continue;
+            }
+            int[] members = membersFor(slot, node);
+            if (members.length > 0) {
+                // a consumer is indexed under a single property, so the sets do not overlap
+                System.arraycopy(members, 0, candidates, count, members.length);
+                count += members.length;
+                sources++;
+            }
+        }
+        if (sources > 1) {
+            Arrays.sort(candidates, 0, count);
+        }
+        candidateCount = count;
+    }
+
+    /**
+     * Collects the candidates of the band, in the order the band visits its
+     * consumers starting from its cursor.
+     *
+     * @return the number of candidates in the band, see {@link #getOffset(int)}
+     */
+    public int selectBand(QueueDispatchRing ring, int band) {
+        int start = ring.getBandStart(band);
+        int size = ring.getBandSize(band);
+        int cursor = start + ring.getCursor(band);
+        int first = firstAtLeast(start);
+        int pivot = firstAtLeast(cursor);
+        int end = firstAtLeast(start + size);
+        int count = 0;
+        for (int i = pivot; i < end; i++) {
+            offsets[count++] = candidates[i] - cursor;
+        }
+        for (int i = first; i < pivot; i++) {
+            offsets[count++] = candidates[i] - cursor + size;
+        }
+        return count;
+    }
+
+    /**
+     * @return the offset from the band's cursor of a candidate selected by
+     *         {@link #selectBand(QueueDispatchRing, int)}
+     */
+    public int getOffset(int candidate) {
+        return offsets[candidate];
+    }
+
+    private int firstAtLeast(int index) {
+        int low = 0;
+        int high = candidateCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (candidates[mid] < index) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void rebuild(QueueDispatchRing ring) {
+        int slots = properties.size();
+        List<Integer> unindexedMembers = new ArrayList<Integer>();
+        List<List<Integer>> byProperty = new ArrayList<List<Integer>>(slots);
+        List<Map<Object, List<Integer>>> byValue = new ArrayList<Map<Object, List<Integer>>>(slots);
+        for (int slot = 0; slot < slots; slot++) {
+            byProperty.add(new ArrayList<Integer>());
+            byValue.add(new HashMap<Object, List<Integer>>());
+        }
+        for (int i = 0; i < ring.size(); i++) {
+            Entry entry = entries.get(ring.getMember(i));
+            if (entry == null) {
+                unindexedMembers.add(i);
+                continue;
+            }
+            byProperty.get(entry.slot).add(i);
+            for (Object value : entry.key.getValues()) {
+                List<Integer> members = byValue.get(entry.slot).get(value);
+                if (members == null) {
+                    members = new ArrayList<Integer>();
+                    byValue.get(entry.slot).put(value, members);
+                }
+                members.add(i);
+            }
+        }
+
+        unindexed = toArray(unindexedMembers);
+        membersByProperty = new int[slots][];
+        membersByValue = new ArrayList<Map<Object, int[]>>(slots);
+        for (int slot = 0; slot < slots; slot++) {
+            membersByProperty[slot] = toArray(byProperty.get(slot));
+            Map<Object, int[]> values = new HashMap<Object, int[]>();
+            for (Map.Entry<Object, List<Integer>> members : byValue.get(slot).entrySet()) {
+                values.put(members.getKey(), toArray(members.getValue()));
+            }
+            membersByValue.add(values);
+        }
+        candidates = new int[ring.size()];
+        offsets = new int[ring.size()];
+        candidateCount = 0;
+        generation = ring.getGeneration();
+        built = true;
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] result = new int[list.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = list.get(i);
+        }
+        return result;
+    }
+
+    private Entry index(BooleanExpression selector) {
+        SelectorIndexKey key = selector != null ? SelectorIndexKey.create(selector) : null;
+        if (key == null) {
+            return null;
+        }
+        int slot = properties.indexOf(key.getProperty());
+        if (slot < 0) {
+            slot = properties.size();
+            properties.add(key.getProperty());
+        }
+        Entry entry = new Entry();
+        entry.selector = selector;
+        entry.key = key;
+        entry.slot = slot;
+        return entry;
+    }
+
+    private int[] membersFor(int slot, MessageReference node) {
+        Object value;
+        try {
+            evaluationContext.setMessageReference(node);
+            value = SelectorIndexKey.normalize(properties.get(slot).evaluate(evaluationContext));
+        } catch (JMSException e) {
+            LOG.debug("Could not evaluate indexed property {}: {}", properties.get(slot), e.getMessage());
+            value = SelectorIndexKey.UNKNOWN;
+        } finally {
+            evaluationContext.clear();
+        }
+        if (value == SelectorIndexKey.UNKNOWN) {
+            return membersByProperty[slot];
+        }
+        int[] members = membersByValue.get(slot).get(value);
+        return members != null ? members : NONE;
+    }
+}
@@ -632,7 +632,9 @@ public class RegionBroker extends EmptyBroker {
             message.setBrokerOutTime(endTime);
             if (getBrokerService().isEnableStatistics()) {
                 long totalTime = endTime - message.getBrokerInTime();
-                ((Destination) message.getRegionDestination()).getDestinationStatistics().getProcessTime().addTime(totalTime);
+                DestinationStatistics statistics = ((Destination) message.getRegionDestination()).getDestinationStatistics();
+                statistics.getProcessTime().addTime(totalTime);
+                statistics.getEnqueueToDispatchTime().record(totalTime);
             }
             if (((BaseDestination) message.getRegionDestination()).isPersistJMSRedelivered() && !message.isRedelivered()) {
                 final int originalValue = message.getRedeliveryCounter();
@@ -18,6 +18,7 @@
 package org.apache.activemq.broker.region;
 
 import org.apache.activemq.management.CountStatisticImpl;
+import org.apache.activemq.management.HistogramStatisticImpl;
 import org.apache.activemq.management.SizeStatisticImpl;
 import org.apache.activemq.management.StatsImpl;
 
@@ -31,6 +32,7 @@ public class SubscriptionStatistics extends StatsImpl {
     protected CountStatisticImpl dequeues;
     protected CountStatisticImpl dispatched;
     protected SizeStatisticImpl inflightMessageSize;
+    protected HistogramStatisticImpl dispatchToAckTime;
 
 
     public SubscriptionStatistics() {
@@ -44,12 +46,14 @@ public class SubscriptionStatistics extends StatsImpl {
         dispatched = new CountStatisticImpl("dispatched", "The number of messages that have been dispatched from the subscription");
         dequeues = new CountStatisticImpl("dequeues", "The number of messages that have been acknowledged from the subscription");
         inflightMessageSize = new SizeStatisticImpl("inflightMessageSize", "The size in bytes of messages dispatched but awaiting acknowledgement");
+        dispatchToAckTime = new HistogramStatisticImpl("dispatchToAckTime", "millis", "Distribution of the time from a message being dispatched to the subscription to it being acknowledged");
 
         addStatistic("consumedCount", consumedCount);
         addStatistic("enqueues", enqueues);
         addStatistic("dispatched", dispatched);
         addStatistic("dequeues", dequeues);
         addStatistic("inflightMessageSize", inflightMessageSize);
+        addStatistic("dispatchToAckTime", dispatchToAckTime);
 
         this.setEnabled(enabled);
     }
@@ -74,6 +78,10 @@ public class SubscriptionStatistics extends StatsImpl {
         return inflightMessageSize;
     }
 
+    public HistogramStatisticImpl getDispatchToAckTime() {
+        return dispatchToAckTime;
+    }
+
     public void reset() {
         if (this.isDoReset()) {
             super.reset();
@@ -82,6 +90,7 @@ public class SubscriptionStatistics extends StatsImpl {
             dequeues.reset();
             dispatched.reset();
             inflightMessageSize.reset();
+            dispatchToAckTime.reset();
         }
     }
 
@@ -92,6 +101,7 @@ public class SubscriptionStatistics extends StatsImpl {
         dispatched.setEnabled(enabled);
         dequeues.setEnabled(enabled);
         inflightMessageSize.setEnabled(enabled);
+        dispatchToAckTime.setEnabled(enabled);
     }
 
     public void setParent(SubscriptionStatistics parent) {
@@ -101,12 +111,14 @@ public class SubscriptionStatistics extends StatsImpl {
             dispatched.setParent(parent.dispatched);
             dequeues.setParent(parent.dequeues);
             inflightMessageSize.setParent(parent.inflightMessageSize);
+            dispatchToAckTime.setParent(parent.dispatchToAckTime);
         } else {
             consumedCount.setParent(null);
             enqueues.setParent(null);
             dispatched.setParent(null);
             dequeues.setParent(null);
             inflightMessageSize.setParent(null);
+            dispatchToAckTime.setParent(null);
         }
     }
 
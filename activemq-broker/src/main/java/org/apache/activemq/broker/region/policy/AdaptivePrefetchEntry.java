@@ -0,0 +1,55 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.broker.region.policy;
+
+import org.apache.activemq.broker.region.Destination;
+import org.apache.activemq.broker.region.PrefetchSubscription;
+
+/**
+ * The measurements {@link AdaptivePrefetchStrategy} keeps for a consumer.
+ */
+public class AdaptivePrefetchEntry {
+
+    final Destination destination;
+    final PrefetchSubscription subscription;
+    long lastAcked;
+    long lastLatency;
+    volatile double ackRate;
+    volatile double averageLatency;
+
+    AdaptivePrefetchEntry(Destination destination, PrefetchSubscription subscription) {
+        this.destination = destination;
+        this.subscription = subscription;
+        this.lastAcked = subscription.getSubscriptionStatistics().getDispatchToAckTime().getCount();
+        this.lastLatency = subscription.getSubscriptionStatistics().getDispatchToAckTime().getTotal();
+    }
+
+    /**
+     * @return the acknowledged messages per second in the last check period
+     */
+    public double getAckRate() {
+        return ackRate;
+    }
+
+    /**
+     * @return the average dispatch to ack time in milliseconds in the last
+     *         check period
+     */
+    public double getAverageLatency() {
+        return averageLatency;
+    }
+}
@@ -0,0 +1,216 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.broker.region.policy;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.activemq.broker.Broker;
+import org.apache.activemq.broker.region.Destination;
+import org.apache.activemq.broker.region.PrefetchSubscription;
+import org.apache.activemq.broker.region.Subscription;
+import org.apache.activemq.management.HistogramStatisticImpl;
+import org.apache.activemq.thread.Scheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Resizes the prefetch of consumers at runtime from their measured
+ * acknowledgement rate and dispatch to ack latency.
+ * <p>
+ * Every check period the latency of the messages acknowledged by a consumer
+ * is compared with the target latency. A consumer that gets through its
+ * prefetch faster than the target gets a larger prefetch, up to twice the
+ * current size per period, and a consumer that holds on to its messages for
+ * longer gets a smaller one, so messages are not piled onto slow consumers
+ * while fast consumers on the same queue are starved. A consumer that holds
+ * messages without acknowledging any in a period drops to the minimum
+ * prefetch. The new prefetch is kept within the configured bounds and sent to
+ * the client with a {@link org.apache.activemq.command.ConsumerControl}.
+ * <p>
+ * Only consumers with a non zero prefetch that are served by a
+ * {@link PrefetchSubscription} are managed, so queue and durable topic
+ * consumers, browsers and pull consumers are left alone.
+ *
+ * @org.apache.xbean.XBean
+ */
+public class AdaptivePrefetchStrategy implements Runnable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AdaptivePrefetchStrategy.class);
+
+    protected Scheduler scheduler;
+    protected final AtomicBoolean taskStarted = new AtomicBoolean(false);
+    protected final Map<Subscription, AdaptivePrefetchEntry> consumers =
+        new ConcurrentHashMap<Subscription, AdaptivePrefetchEntry>();
+
+    private int minimumPrefetch = 1;
+    private int maximumPrefetch = 1000;
+    private long targetLatency = 1000;
+    private long checkPeriod = 5 * 1000;
+    private boolean ignoreNetworkConsumers = true;
+
+    public void setBrokerService(Broker broker) {
+        this.scheduler = broker.getScheduler();
+    }
+
+    /**
+     * Starts managing the prefetch of a subscription that was added to the
+     * destination.
+     */
+    public void addSubscription(Destination destination, Subscription subscription) {
+        if (!(subscription instanceof PrefetchSubscription)) {
+            return;
+        }
+        if (subscription.getPrefetchSize() == 0 || subscription.getConsumerInfo().isBrowser()) {
+            return;
+        }
+        if (isIgnoreNetworkConsumers() && subscription.getConsumerInfo().isNetworkSubscription()) {
+            return;
+        }
+
+        if (consumers.putIfAbsent(subscription, new AdaptivePrefetchEntry(destination, (PrefetchSubscription) subscription)) == null
+                && taskStarted.compareAndSet(false, true)) {
+            scheduler.executePeriodically(this, checkPeriod);
+        }
+    }
+
+    public void removeSubscription(Subscription subscription) {
+        if (consumers.remove(subscription) != null) {
+            ((PrefetchSubscription) subscription).setTargetPrefetchSize(-1);
+        }
+    }
+
+    @Override
+    public void run() {
+        for (AdaptivePrefetchEntry entry : consumers.values()) {
+            try {
+                adjust(entry);
+            } catch (Exception e) {
+                LOG.debug("failed to adjust the prefetch of: {}", entry.subscription.getConsumerInfo().getConsumerId(), e);
+            }
+        }
+    }
+
+    protected void adjust(AdaptivePrefetchEntry entry) {
+        PrefetchSubscription subscription = entry.subscription;
+        HistogramStatisticImpl dispatchToAckTime = subscription.getSubscriptionStatistics().getDispatchToAckTime();
+        long acked = dispatchToAckTime.getCount();
+        long latency = dispatchToAckTime.getTotal();
+        long ackedInPeriod = acked - entry.lastAcked;
+        long latencyInPeriod = latency - entry.lastLatency;
+        entry.lastAcked = acked;
+        entry.lastLatency = latency;
+        if (ackedInPeriod < 0) {
+            // the statistics were reset
+            return;
+        }
+
+        int prefetch = subscription.getPrefetchSize();
+        int target;
+        if (ackedInPeriod == 0) {
+            if (subscription.getDispatchedQueueSize() == 0) {
+                // idle, nothing to measure
+                return;
+            }
+            target = minimumPrefetch;
+        } else {
+            entry.ackRate = ackedInPeriod * 1000.0 / checkPeriod;
+            entry.averageLatency = (double) latencyInPeriod / ackedInPeriod;
+            // the latency includes the time spent in the prefetch buffer, which scales with the prefetch
+            double scale = entry.averageLatency > 0 ? targetLatency / entry.averageLatency : 2;
+            target = (int) Math.ceil(Math.max(prefetch, 1) * Math.min(2, scale));
+        }
+        target = Math.max(minimumPrefetch, Math.min(maximumPrefetch, target));
+        subscription.setTargetPrefetchSize(target);
+
+        // ignore small corrections so the consumer is not flooded with control commands
+        if (target != prefetch && Math.abs(target - prefetch) >= Math.max(1, prefetch / 10)) {
+            LOG.debug("adjusting prefetch of: {} from {} to {}, ack rate: {}/s, dispatch to ack latency: {}ms",
+                    subscription.getConsumerInfo().getConsumerId(), prefetch, target, entry.ackRate, entry.averageLatency);
+            subscription.setPrefetchSize(target);
+            subscription.updateConsumerPrefetch(target);
+            if (target > prefetch) {
+                entry.destination.wakeup();
+            }
+        }
+    }
+
+    /**
+     * @return the entry holding the measurements of the subscription, or null
+     *         when it is not managed
+     */
+    public AdaptivePrefetchEntry getEntry(Subscription subscription) {
+        return consumers.get(subscription);
+    }
+
+    public int getMinimumPrefetch() {
+        return minimumPrefetch;
+    }
+
+    /**
+     * The lower bound of the prefetch, default is 1.
+     */
+    public void setMinimumPrefetch(int minimumPrefetch) {
+        this.minimumPrefetch = minimumPrefetch;
+    }
+
+    public int getMaximumPrefetch() {
+        return maximumPrefetch;
+    }
+
+    /**
+     * The upper bound of the prefetch, default is 1000.
+     */
+    public void setMaximumPrefetch(int maximumPrefetch) {
+        this.maximumPrefetch = maximumPrefetch;
+    }
+
+    public long getTargetLatency() {
+        return targetLatency;
+    }
+
+    /**
+     * The time in milliseconds from dispatch to ack to aim for, default is 1
+     * second.
+     */
+    public void setTargetLatency(long targetLatency) {
+        this.targetLatency = targetLatency;
+    }
+
+    public long getCheckPeriod() {
+        return checkPeriod;
+    }
+
+    /**
+     * Time in milliseconds between adjustments, default is 5 seconds.
+     */
+    public void setCheckPeriod(long checkPeriod) {
+        this.checkPeriod = checkPeriod;
+    }
+
+    public boolean isIgnoreNetworkConsumers() {
+        return ignoreNetworkConsumers;
+    }
+
+    /**
+     * Leave the prefetch of network bridge consumers alone, default is true.
+     */
+    public void setIgnoreNetworkConsumers(boolean ignoreNetworkConsumers) {
+        this.ignoreNetworkConsumers = ignoreNetworkConsumers;
+    }
+}
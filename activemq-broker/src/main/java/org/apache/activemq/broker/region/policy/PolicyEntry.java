@@ -75,6 +75,7 @@ public class PolicyEntry extends DestinationMapEntry {
     private long minimumMessageSize=1024;
     private boolean useConsumerPriority=true;
     private boolean strictOrderDispatch=false;
+    private boolean useSelectorIndex=true;
     private boolean lazyDispatch=false;
     private int timeBeforeDispatchStarts = 0;
     private int consumersBeforeDispatchStarts = 0;
@@ -96,6 +97,7 @@ public class PolicyEntry extends DestinationMapEntry {
     private int cursorMemoryHighWaterMark = 70;
     private int storeUsageHighWaterMark = 100;
     private SlowConsumerStrategy slowConsumerStrategy;
+    private AdaptivePrefetchStrategy adaptivePrefetchStrategy;
     private boolean prioritizedMessages;
     private boolean allConsumersExclusiveByDefault;
     private boolean gcInactiveDestinations;
@@ -133,6 +135,7 @@ public class PolicyEntry extends DestinationMapEntry {
 
         queue.setUseConsumerPriority(isUseConsumerPriority());
         queue.setStrictOrderDispatch(isStrictOrderDispatch());
+        queue.setUseSelectorIndex(isUseSelectorIndex());
         queue.setOptimizedDispatch(isOptimizedDispatch());
         queue.setLazyDispatch(isLazyDispatch());
         queue.setTimeBeforeDispatchStarts(getTimeBeforeDispatchStarts());
@@ -166,6 +169,9 @@ public class PolicyEntry extends DestinationMapEntry {
         if (isUpdate("strictOrderDispatch", includedProperties)) {
             queue.setStrictOrderDispatch(isStrictOrderDispatch());
         }
+        if (isUpdate("useSelectorIndex", includedProperties)) {
+            queue.setUseSelectorIndex(isUseSelectorIndex());
+        }
         if (isUpdate("optimizedDispatch", includedProperties)) {
             queue.setOptimizedDispatch(isOptimizedDispatch());
         }
@@ -318,6 +324,11 @@ public class PolicyEntry extends DestinationMapEntry {
             scs.addDestination(destination);
         }
         destination.setSlowConsumerStrategy(scs);
+        AdaptivePrefetchStrategy aps = getAdaptivePrefetchStrategy();
+        if (aps != null) {
+            aps.setBrokerService(broker);
+        }
+        destination.setAdaptivePrefetchStrategy(aps);
         destination.setPrioritizedMessages(isPrioritizedMessages());
         if (sendFailIfNoSpace != -1) {
             destination.getSystemUsage().setSendFailIfNoSpace(isSendFailIfNoSpace());
@@ -757,6 +768,19 @@ public class PolicyEntry extends DestinationMapEntry {
         this.strictOrderDispatch = strictOrderDispatch;
     }
 
+    public boolean isUseSelectorIndex() {
+        return useSelectorIndex;
+    }
+
+    /**
+     * When true, queue consumers whose selectors restrict a single property
+     * to a set of values are indexed by those values, and dispatch only
+     * visits the consumers indexed under the values a message carries.
+     */
+    public void setUseSelectorIndex(boolean useSelectorIndex) {
+        this.useSelectorIndex = useSelectorIndex;
+    }
+
     public boolean isLazyDispatch() {
         return lazyDispatch;
     }
@@ -1006,6 +1030,18 @@ public class PolicyEntry extends DestinationMapEntry {
         return this.slowConsumerStrategy;
     }
 
+    /**
+     * Resizes the prefetch of the consumers on the destination from their
+     * measured ack rate and latency, see {@link AdaptivePrefetchStrategy}.
+     */
+    public void setAdaptivePrefetchStrategy(AdaptivePrefetchStrategy adaptivePrefetchStrategy) {
+        this.adaptivePrefetchStrategy = adaptivePrefetchStrategy;
+    }
+
+    public AdaptivePrefetchStrategy getAdaptivePrefetchStrategy() {
+        return this.adaptivePrefetchStrategy;
+    }
+
 
     public boolean isPrioritizedMessages() {
         return this.prioritizedMessages;
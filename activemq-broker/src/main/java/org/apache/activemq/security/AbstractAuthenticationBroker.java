@@ -39,6 +39,7 @@ public abstract class AbstractAuthenticationBroker extends BrokerFilter implemen
 
         for (SecurityContext sc : securityContexts) {
             sc.getAuthorizedWriteDests().remove(destination);
+            sc.getAuthorizedReadDests().remove(destination);
         }
     }
 
@@ -53,6 +54,7 @@ public abstract class AbstractAuthenticationBroker extends BrokerFilter implemen
     public void refresh() {
         for (SecurityContext sc : securityContexts) {
             sc.getAuthorizedWriteDests().clear();
+            sc.getAuthorizedReadDests().clear();
         }
     }
 }
@@ -96,6 +96,44 @@ public class AuthorizationBroker extends BrokerFilter implements SecurityAdminMB
         return true;
     }
 
+    private static long getVersion(AuthorizationMap map) {
+        if (map instanceof VersionedAuthorizationMap) {
+            return ((VersionedAuthorizationMap) map).getVersion();
+        }
+        return VersionedAuthorizationMap.UNKNOWN_VERSION;
+    }
+
+    /**
+     * Checks that the context can read from the destination. Decisions are
+     * cached in the context for maps that report a version, so they are made
+     * again once the map changes.
+     */
+    protected void checkRead(SecurityContext securityContext, ActiveMQDestination destination) throws SecurityException {
+        if (securityContext.isBrokerContext()) {
+            return;
+        }
+        final AuthorizationMap map = authorizationMap;
+        final long version = getVersion(map);
+        final boolean cached = version != VersionedAuthorizationMap.UNKNOWN_VERSION;
+        if (cached && securityContext.isAuthorizedToRead(destination, map, version)) {
+            return;
+        }
+
+        Set<?> allowedACLs = null;
+        if (!destination.isTemporary()) {
+            allowedACLs = map.getReadACLs(destination);
+        } else {
+            allowedACLs = map.getTempDestinationReadACLs();
+        }
+
+        if (allowedACLs != null && !securityContext.isInOneOf(allowedACLs)) {
+            throw new SecurityException("User " + securityContext.getUserName() + " is not authorized to read from: " + destination);
+        }
+        if (cached) {
+            securityContext.addAuthorizedRead(destination, map, version);
+        }
+    }
+
     @Override
     public void addDestinationInfo(ConnectionContext context, DestinationInfo info) throws Exception {
         final SecurityContext securityContext = checkSecurityContext(context);
@@ -127,6 +165,7 @@ public class AuthorizationBroker extends BrokerFilter implements SecurityAdminMB
         }
 
         securityContext.getAuthorizedWriteDests().remove(destination);
+        securityContext.getAuthorizedReadDests().remove(destination);
 
         super.removeDestination(context, destination, timeout);
     }
@@ -140,6 +179,7 @@ public class AuthorizationBroker extends BrokerFilter implements SecurityAdminMB
         }
 
         securityContext.getAuthorizedWriteDests().remove(info.getDestination());
+        securityContext.getAuthorizedReadDests().remove(info.getDestination());
 
         super.removeDestinationInfo(context, info);
     }
@@ -148,16 +188,7 @@ public class AuthorizationBroker extends BrokerFilter implements SecurityAdminMB
     public Subscription addConsumer(ConnectionContext context, ConsumerInfo info) throws Exception {
         final SecurityContext securityContext = checkSecurityContext(context);
 
-        Set<?> allowedACLs = null;
-        if (!info.getDestination().isTemporary()) {
-            allowedACLs = authorizationMap.getReadACLs(info.getDestination());
-        } else {
-            allowedACLs = authorizationMap.getTempDestinationReadACLs();
-        }
-
-        if (!securityContext.isBrokerContext() && allowedACLs != null && !securityContext.isInOneOf(allowedACLs) ) {
-            throw new SecurityException("User " + securityContext.getUserName() + " is not authorized to read from: " + info.getDestination());
-        }
+        checkRead(securityContext, info.getDestination());
 
         /*
          * Need to think about this a little more. We could do per message
@@ -188,17 +219,19 @@ public class AuthorizationBroker extends BrokerFilter implements SecurityAdminMB
         final SecurityContext securityContext = checkSecurityContext(context);
 
         if (!securityContext.isBrokerContext() && info.getDestination() != null) {
+            final AuthorizationMap map = authorizationMap;
+            final long version = getVersion(map);
 
             Set<?> allowedACLs = null;
             if (!info.getDestination().isTemporary()) {
-                allowedACLs = authorizationMap.getWriteACLs(info.getDestination());
+                allowedACLs = map.getWriteACLs(info.getDestination());
             } else {
-                allowedACLs = authorizationMap.getTempDestinationWriteACLs();
+                allowedACLs = map.getTempDestinationWriteACLs();
             }
             if (allowedACLs != null && !securityContext.isInOneOf(allowedACLs)) {
                 throw new SecurityException("User " + securityContext.getUserName() + " is not authorized to write to: " + info.getDestination());
             }
-            securityContext.getAuthorizedWriteDests().put(info.getDestination(), info.getDestination());
+            securityContext.addAuthorizedWrite(info.getDestination(), map, version);
         }
 
         super.addProducer(context, info);
@@ -208,19 +241,23 @@ public class AuthorizationBroker extends BrokerFilter implements SecurityAdminMB
     public void send(ProducerBrokerExchange producerExchange, Message messageSend) throws Exception {
         final SecurityContext securityContext = checkSecurityContext(producerExchange.getConnectionContext());
 
-        if (!securityContext.isBrokerContext() && !securityContext.getAuthorizedWriteDests().containsValue(messageSend.getDestination())) {
-
-            Set<?> allowedACLs = null;
-            if (!messageSend.getDestination().isTemporary()) {
-                allowedACLs = authorizationMap.getWriteACLs(messageSend.getDestination());
-            } else {
-                allowedACLs = authorizationMap.getTempDestinationWriteACLs();
-            }
-
-            if (allowedACLs != null && !securityContext.isInOneOf(allowedACLs)) {
-                throw new SecurityException("User " + securityContext.getUserName() + " is not authorized to write to: " + messageSend.getDestination());
+        if (!securityContext.isBrokerContext()) {
+            final AuthorizationMap map = authorizationMap;
+            final long version = getVersion(map);
+            final ActiveMQDestination destination = messageSend.getDestination();
+            if (!securityContext.isAuthorizedToWrite(destination, map, version)) {
+                Set<?> allowedACLs = null;
+                if (!destination.isTemporary()) {
+                    allowedACLs = map.getWriteACLs(destination);
+                } else {
+                    allowedACLs = map.getTempDestinationWriteACLs();
+                }
+
+                if (allowedACLs != null && !securityContext.isInOneOf(allowedACLs)) {
+                    throw new SecurityException("User " + securityContext.getUserName() + " is not authorized to write to: " + destination);
+                }
+                securityContext.addAuthorizedWrite(destination, map, version);
             }
-            securityContext.getAuthorizedWriteDests().put(messageSend.getDestination(), messageSend.getDestination());
         }
 
         super.send(producerExchange, messageSend);
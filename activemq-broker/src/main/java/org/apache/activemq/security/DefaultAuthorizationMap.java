@@ -33,7 +33,7 @@ import org.apache.activemq.filter.DestinationMapEntry;
  *
  *
  */
-public class DefaultAuthorizationMap extends DestinationMap implements AuthorizationMap {
+public class DefaultAuthorizationMap extends DestinationMap implements AuthorizationMap, VersionedAuthorizationMap {
 
     public static final String DEFAULT_GROUP_CLASS = "org.apache.activemq.jaas.GroupPrincipal";
 
@@ -54,6 +54,7 @@ public class DefaultAuthorizationMap extends DestinationMap implements Authoriza
 
     public void setTempDestinationAuthorizationEntry(TempDestinationAuthorizationEntry tempDestinationAuthorizationEntry) {
         this.tempDestinationAuthorizationEntry = tempDestinationAuthorizationEntry;
+        changed();
     }
 
     public TempDestinationAuthorizationEntry getTempDestinationAuthorizationEntry() {
@@ -153,7 +154,7 @@ public class DefaultAuthorizationMap extends DestinationMap implements Authoriza
      */
     @Override
     @SuppressWarnings("rawtypes")
-    public synchronized Set get(ActiveMQDestination key) {
+    public Set get(ActiveMQDestination key) {
         if (key.isComposite()) {
             ActiveMQDestination[] destinations = key.getCompositeDestinations();
             Set answer = null;
@@ -185,6 +186,7 @@ public class DefaultAuthorizationMap extends DestinationMap implements Authoriza
 
     public void setDefaultEntry(AuthorizationEntry defaultEntry) {
         this.defaultEntry = defaultEntry;
+        changed();
     }
 
     @Override
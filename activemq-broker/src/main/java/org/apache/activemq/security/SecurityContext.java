@@ -45,9 +45,33 @@ public abstract class SecurityContext {
         }
     };
 
+    /**
+     * The default number of destinations for which read and write
+     * authorizations are each cached.
+     */
+    public static final int DEFAULT_MAX_AUTHORIZED_DESTINATIONS = 10000;
+
+    // the destinations authorized against one version of an authorization map
+    private static final class AuthorizedDestinations {
+        final AuthorizationMap map;
+        final long version;
+        final ConcurrentMap<ActiveMQDestination, ActiveMQDestination> read = new ConcurrentHashMap<ActiveMQDestination, ActiveMQDestination>();
+        final ConcurrentMap<ActiveMQDestination, ActiveMQDestination> write = new ConcurrentHashMap<ActiveMQDestination, ActiveMQDestination>();
+
+        AuthorizedDestinations(AuthorizationMap map, long version) {
+            this.map = map;
+            this.version = version;
+        }
+
+        boolean isFor(AuthorizationMap map, long version) {
+            return this.map == map && this.version == version;
+        }
+    }
+
     final String userName;
 
-    final ConcurrentMap<ActiveMQDestination, ActiveMQDestination> authorizedWriteDests = new ConcurrentHashMap<ActiveMQDestination, ActiveMQDestination>();
+    private volatile AuthorizedDestinations authorizedDestinations = new AuthorizedDestinations(null, VersionedAuthorizationMap.UNKNOWN_VERSION);
+    private volatile int maxAuthorizedDestinations = DEFAULT_MAX_AUTHORIZED_DESTINATIONS;
 
     public SecurityContext(String userName) {
         this.userName = userName;
@@ -74,7 +98,84 @@ public abstract class SecurityContext {
     }
 
     public ConcurrentMap<ActiveMQDestination, ActiveMQDestination> getAuthorizedWriteDests() {
-        return authorizedWriteDests;
+        return authorizedDestinations.write;
+    }
+
+    public ConcurrentMap<ActiveMQDestination, ActiveMQDestination> getAuthorizedReadDests() {
+        return authorizedDestinations.read;
+    }
+
+    /**
+     * @return true if writing to the destination was authorized against the
+     *         given version of the authorization map
+     */
+    public boolean isAuthorizedToWrite(ActiveMQDestination destination, AuthorizationMap map, long version) {
+        return getAuthorizedDestinations(map, version).write.containsKey(destination);
+    }
+
+    /**
+     * @return true if reading from the destination was authorized against the
+     *         given version of the authorization map
+     */
+    public boolean isAuthorizedToRead(ActiveMQDestination destination, AuthorizationMap map, long version) {
+        return getAuthorizedDestinations(map, version).read.containsKey(destination);
+    }
+
+    /**
+     * Caches that writing to the destination was authorized against the given
+     * version of the authorization map. The version has to be read before the
+     * ACLs are, so that a decision is never cached under a later version.
+     */
+    public void addAuthorizedWrite(ActiveMQDestination destination, AuthorizationMap map, long version) {
+        add(getAuthorizedDestinations(map, version).write, destination);
+    }
+
+    /**
+     * Caches that reading from the destination was authorized against the
+     * given version of the authorization map. The version has to be read
+     * before the ACLs are, so that a decision is never cached under a later
+     * version.
+     */
+    public void addAuthorizedRead(ActiveMQDestination destination, AuthorizationMap map, long version) {
+        add(getAuthorizedDestinations(map, version).read, destination);
+    }
+
+    // drops what was authorized when the map or its version changed
+    private AuthorizedDestinations getAuthorizedDestinations(AuthorizationMap map, long version) {
+        AuthorizedDestinations current = authorizedDestinations;
+        if (!current.isFor(map, version)) {
+            current = new AuthorizedDestinations(map, version);
+            authorizedDestinations = current;
+        }
+        return current;
+    }
+
+    private void add(ConcurrentMap<ActiveMQDestination, ActiveMQDestination> destinations, ActiveMQDestination destination) {
+        int max = maxAuthorizedDestinations;
+        if (max <= 0) {
+            return;
+        }
+        if (destinations.size() >= max) {
+            // evict an arbitrary destination to make room
+            Iterator<ActiveMQDestination> iterator = destinations.keySet().iterator();
+            if (iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+        destinations.put(destination, destination);
+    }
+
+    public int getMaxAuthorizedDestinations() {
+        return maxAuthorizedDestinations;
+    }
+
+    /**
+     * Sets the number of destinations for which read and write authorizations
+     * are each cached, 0 disables the cache.
+     */
+    public void setMaxAuthorizedDestinations(int maxAuthorizedDestinations) {
+        this.maxAuthorizedDestinations = maxAuthorizedDestinations;
     }
 
     public boolean isBrokerContext() {
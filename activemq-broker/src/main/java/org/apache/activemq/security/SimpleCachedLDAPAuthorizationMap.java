@@ -26,6 +26,7 @@ import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -56,7 +57,7 @@ import org.apache.activemq.jaas.UserPrincipal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class SimpleCachedLDAPAuthorizationMap implements AuthorizationMap {
+public class SimpleCachedLDAPAuthorizationMap implements AuthorizationMap, VersionedAuthorizationMap {
 
     private static final Logger LOG = LoggerFactory.getLogger(SimpleCachedLDAPAuthorizationMap.class);
 
@@ -103,6 +104,8 @@ public class SimpleCachedLDAPAuthorizationMap implements AuthorizationMap {
 
     private final AtomicReference<DefaultAuthorizationMap> map =
         new AtomicReference<DefaultAuthorizationMap>(new DefaultAuthorizationMap());
+    // changed after every update, entries are also changed in place by the event handlers
+    private final AtomicLong version = new AtomicLong();
     private final ThreadPoolExecutor updaterService;
 
     protected Map<ActiveMQDestination, AuthorizationEntry> entries =
@@ -307,6 +310,7 @@ public class SimpleCachedLDAPAuthorizationMap implements AuthorizationMap {
      */
     protected void updated() {
         lastUpdated = System.currentTimeMillis();
+        version.incrementAndGet();
     }
 
     /**
@@ -782,6 +786,16 @@ public class SimpleCachedLDAPAuthorizationMap implements AuthorizationMap {
         return map.getWriteACLs(destination);
     }
 
+    /**
+     * Changes after every update of the ACLs, whether the map was queried again
+     * or changed by an event from the directory.
+     */
+    @Override
+    public long getVersion() {
+        checkForUpdates();
+        return version.get();
+    }
+
     /**
      * Handler for new policy entries in the directory.
      *
@@ -810,6 +824,7 @@ public class SimpleCachedLDAPAuthorizationMap implements AuthorizationMap {
         } catch (Exception e) {
             LOG.error("Policy not applied!  Error processing object addition for addition of {}", result.getName(), e);
         }
+        version.incrementAndGet();
     }
 
     /**
@@ -836,6 +851,7 @@ public class SimpleCachedLDAPAuthorizationMap implements AuthorizationMap {
         } catch (Exception e) {
             LOG.error("Policy not applied!  Error processing object removal for removal of {}", result.getName(), e);
         }
+        version.incrementAndGet();
     }
 
     /**
@@ -905,6 +921,7 @@ public class SimpleCachedLDAPAuthorizationMap implements AuthorizationMap {
         } catch (Exception e) {
             LOG.error("Policy not applied!  Error processing object rename for rename of {} to {}", oldBinding.getName(), newBinding.getName(), e);
         }
+        version.incrementAndGet();
     }
 
     /**
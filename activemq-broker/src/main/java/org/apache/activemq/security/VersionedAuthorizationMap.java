@@ -0,0 +1,36 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.security;
+
+/**
+ * Implemented by an {@link AuthorizationMap} that can tell when its ACLs
+ * change. Authorization decisions cached by a {@link SecurityContext} are only
+ * kept for maps that implement it, and are dropped when the version changes.
+ */
+public interface VersionedAuthorizationMap {
+
+    /**
+     * The version used for maps that can not tell when their ACLs change.
+     */
+    long UNKNOWN_VERSION = -1;
+
+    /**
+     * Returns a version that changes whenever the ACLs of the map change.
+     */
+    long getVersion();
+
+}
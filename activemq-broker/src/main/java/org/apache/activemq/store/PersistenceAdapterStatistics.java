@@ -16,6 +16,7 @@
  */
 package org.apache.activemq.store;
 
+import org.apache.activemq.management.HistogramStatisticImpl;
 import org.apache.activemq.management.StatsImpl;
 import org.apache.activemq.management.TimeStatisticImpl;
 
@@ -27,6 +28,12 @@ public class PersistenceAdapterStatistics extends StatsImpl {
     protected TimeStatisticImpl writeTime;
     protected TimeStatisticImpl readTime;
 
+    protected TimeStatisticImpl checkpointTime;
+    protected TimeStatisticImpl checkpointStallTime;
+
+    protected HistogramStatisticImpl journalBatchSize;
+    protected HistogramStatisticImpl journalSyncTime;
+
     public PersistenceAdapterStatistics() {
     	slowCleanupTime = new TimeStatisticImpl("slowCleanupTime", "Slow time to cleanup data in the PersistentAdapter.");
     	slowWriteTime = new TimeStatisticImpl("slowWriteTime", "Slow time to write data to the PersistentAdapter.");
@@ -39,6 +46,19 @@ public class PersistenceAdapterStatistics extends StatsImpl {
         readTime = new TimeStatisticImpl("readTime", "Time to read data from the PersistentAdapter.");
         addStatistic("writeTime", writeTime);
         addStatistic("readTime", readTime);
+
+        checkpointTime = new TimeStatisticImpl("checkpointTime", "Time to checkpoint the PersistentAdapter.");
+        checkpointStallTime = new TimeStatisticImpl("checkpointStallTime", "Time writes to the PersistentAdapter were held up by a checkpoint, from the checkpoint taking the index locks to releasing them.");
+        addStatistic("checkpointTime", checkpointTime);
+        addStatistic("checkpointStallTime", checkpointStallTime);
+
+        journalBatchSize = new HistogramStatisticImpl("journalBatchSize", "writes", "Number of records in a batch written to the journal.");
+        journalSyncTime = new HistogramStatisticImpl("journalSyncTime", "micros", "Time to force a batch written to the journal to disk.");
+        addStatistic("journalBatchSize", journalBatchSize);
+        addStatistic("journalSyncTime", journalSyncTime);
+        // recorded by default, like the time statistics above
+        journalBatchSize.setEnabled(true);
+        journalSyncTime.setEnabled(true);
     }
 
     public void addSlowCleanupTime(final long time) {
@@ -61,6 +81,14 @@ public class PersistenceAdapterStatistics extends StatsImpl {
         readTime.addTime(time);
     }
 
+    public void addCheckpointTime(final long time) {
+        checkpointTime.addTime(time);
+    }
+
+    public void addCheckpointStallTime(final long time) {
+        checkpointStallTime.addTime(time);
+    }
+
     @Override
     public void setEnabled(boolean enabled) {
         super.setEnabled(enabled);
@@ -69,6 +97,10 @@ public class PersistenceAdapterStatistics extends StatsImpl {
         slowReadTime.setEnabled(enabled);
         writeTime.setEnabled(enabled);
         readTime.setEnabled(enabled);
+        checkpointTime.setEnabled(enabled);
+        checkpointStallTime.setEnabled(enabled);
+        journalBatchSize.setEnabled(enabled);
+        journalSyncTime.setEnabled(enabled);
     }
     
     public TimeStatisticImpl getSlowCleanupTime() {
@@ -88,6 +120,22 @@ public class PersistenceAdapterStatistics extends StatsImpl {
 
     public TimeStatisticImpl getReadTime() { return readTime; }
 
+    public TimeStatisticImpl getCheckpointTime() {
+        return checkpointTime;
+    }
+
+    public TimeStatisticImpl getCheckpointStallTime() {
+        return checkpointStallTime;
+    }
+
+    public HistogramStatisticImpl getJournalBatchSize() {
+        return journalBatchSize;
+    }
+
+    public HistogramStatisticImpl getJournalSyncTime() {
+        return journalSyncTime;
+    }
+
     @Override
     public void reset() {
         if (isDoReset()) {
@@ -96,6 +144,10 @@ public class PersistenceAdapterStatistics extends StatsImpl {
             slowCleanupTime.reset();
             slowWriteTime.reset();
             slowReadTime.reset();
+            checkpointTime.reset();
+            checkpointStallTime.reset();
+            journalBatchSize.reset();
+            journalSyncTime.reset();
         }
     }
 
@@ -106,12 +158,16 @@ public class PersistenceAdapterStatistics extends StatsImpl {
             slowCleanupTime.setParent(parent.slowCleanupTime);
             slowWriteTime.setParent(parent.slowWriteTime);
             slowReadTime.setParent(parent.slowReadTime);
+            checkpointTime.setParent(parent.checkpointTime);
+            checkpointStallTime.setParent(parent.checkpointStallTime);
         } else {
             writeTime.setParent(null);
             readTime.setParent(null);
             slowCleanupTime.setParent(null);
             slowWriteTime.setParent(null);
             slowReadTime.setParent(null);
+            checkpointTime.setParent(null);
+            checkpointStallTime.setParent(null);
         }
 
     }
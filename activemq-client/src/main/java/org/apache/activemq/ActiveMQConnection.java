@@ -59,6 +59,8 @@ import org.apache.activemq.advisory.DestinationSource;
 import org.apache.activemq.blob.BlobTransferPolicy;
 import org.apache.activemq.broker.region.policy.RedeliveryPolicyMap;
 import org.apache.activemq.command.ActiveMQDestination;
+import org.apache.activemq.compression.CompressionCodec;
+import org.apache.activemq.compression.CompressionSupport;
 import org.apache.activemq.command.ActiveMQMessage;
 import org.apache.activemq.command.ActiveMQTempDestination;
 import org.apache.activemq.command.ActiveMQTempQueue;
@@ -144,6 +146,7 @@ public class ActiveMQConnection implements Connection, TopicConnection, QueueCon
     private boolean optimizedMessageDispatch = true;
     private boolean copyMessageOnSend = true;
     private boolean useCompression;
+    private CompressionCodec compressionCodec = CompressionSupport.DEFLATE;
     private boolean objectMessageSerializationDefered;
     private boolean useAsyncSend;
     private boolean optimizeAcknowledge;
@@ -2186,6 +2189,18 @@ public class ActiveMQConnection implements Connection, TopicConnection, QueueCon
         this.useCompression = useCompression;
     }
 
+    public CompressionCodec getCompressionCodec() {
+        return compressionCodec;
+    }
+
+    /**
+     * Sets the codec message bodies are compressed with when compression is
+     * enabled, consumers decode any codec regardless of this setting
+     */
+    public void setCompressionCodec(CompressionCodec compressionCodec) {
+        this.compressionCodec = compressionCodec;
+    }
+
     public void destroyDestination(ActiveMQDestination destination) throws JMSException {
 
         checkClosedOrFailed();
@@ -36,6 +36,8 @@ import jakarta.jms.TopicConnectionFactory;
 import javax.naming.Context;
 
 import org.apache.activemq.blob.BlobTransferPolicy;
+import org.apache.activemq.compression.CompressionSupport;
+import org.apache.activemq.compression.DeflateCompressionCodec;
 import org.apache.activemq.broker.region.policy.RedeliveryPolicyMap;
 import org.apache.activemq.jndi.JNDIBaseStorable;
 import org.apache.activemq.management.JMSStatsImpl;
@@ -149,6 +151,7 @@ public class ActiveMQConnectionFactory extends JNDIBaseStorable implements Conne
     private long optimizedAckScheduledAckInterval = 0;
     private boolean copyMessageOnSend = true;
     private boolean useCompression;
+    private String compressionCodec = DeflateCompressionCodec.NAME;
     private boolean objectMessageSerializationDefered;
     private boolean useAsyncSend;
     private boolean optimizeAcknowledge;
@@ -436,6 +439,7 @@ public class ActiveMQConnectionFactory extends JNDIBaseStorable implements Conne
         connection.setOptimizedMessageDispatch(isOptimizedMessageDispatch());
         connection.setCopyMessageOnSend(isCopyMessageOnSend());
         connection.setUseCompression(isUseCompression());
+        connection.setCompressionCodec(CompressionSupport.getCodec(getCompressionCodec()));
         connection.setObjectMessageSerializationDefered(isObjectMessageSerializationDefered());
         connection.setDispatchAsync(isDispatchAsync());
         connection.setUseAsyncSend(isUseAsyncSend());
@@ -868,6 +872,7 @@ public class ActiveMQConnectionFactory extends JNDIBaseStorable implements Conne
 
         props.setProperty("useAsyncSend", Boolean.toString(isUseAsyncSend()));
         props.setProperty("useCompression", Boolean.toString(isUseCompression()));
+        props.setProperty("compressionCodec", getCompressionCodec());
         props.setProperty("useRetroactiveConsumer", Boolean.toString(isUseRetroactiveConsumer()));
         props.setProperty("watchTopicAdvisories", Boolean.toString(isWatchTopicAdvisories()));
 
@@ -908,6 +913,23 @@ public class ActiveMQConnectionFactory extends JNDIBaseStorable implements Conne
         this.useCompression = useCompression;
     }
 
+    public String getCompressionCodec() {
+        return compressionCodec;
+    }
+
+    /**
+     * Sets the name of the codec used to compress message bodies when
+     * compression is enabled, <code>deflate</code> by default. The built in
+     * <code>lz4</code> codec is much faster at a lower compression ratio, but
+     * can only be read by clients that know it.
+     *
+     * @throws IllegalArgumentException if there is no codec with the name
+     */
+    public void setCompressionCodec(String compressionCodec) {
+        CompressionSupport.getCodec(compressionCodec);
+        this.compressionCodec = compressionCodec;
+    }
+
     public boolean isObjectMessageSerializationDefered() {
         return objectMessageSerializationDefered;
     }
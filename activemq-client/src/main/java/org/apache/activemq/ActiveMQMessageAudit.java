@@ -16,6 +16,10 @@
  */
 package org.apache.activemq;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import org.apache.activemq.command.MessageId;
 
 /**
@@ -86,4 +90,18 @@ public class ActiveMQMessageAudit extends ActiveMQMessageAuditNoSync {
             super.setMaximumNumberOfProducersToTrack(maximumNumberOfProducersToTrack);
         }
     }
+
+    @Override
+    public void writeToStream(DataOutput dataOut) throws IOException {
+        synchronized (this) {
+            super.writeToStream(dataOut);
+        }
+    }
+
+    @Override
+    public void readFromStream(DataInput dataIn) throws IOException {
+        synchronized (this) {
+            super.readFromStream(dataIn);
+        }
+    }
 }
@@ -16,7 +16,14 @@
  */
 package org.apache.activemq;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.util.Map;
 
 import jakarta.jms.JMSException;
 import jakarta.jms.Message;
@@ -30,16 +37,32 @@ import org.apache.activemq.util.LRUCache;
 
 /**
  * Provides basic audit functions for Messages without sync
+ * <p>
+ * Producers are tracked by their {@link ProducerId}, so checking a
+ * {@link MessageId} does not build the producer key string. Message id strings
+ * generated by ActiveMQ are tracked under the same producers, the producer id
+ * is only parsed the first time a seed is seen. The serialized
+ * form keys the producers by string as earlier versions did, while
+ * {@link #writeToStream(DataOutput)} gives a more compact form.
  */
 public class ActiveMQMessageAuditNoSync implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("auditDepth", int.class),
+        new ObjectStreamField("maximumNumberOfProducersToTrack", int.class),
+        new ObjectStreamField("map", LRUCache.class)
+    };
+
     public static final int DEFAULT_WINDOW_SIZE = 2048;
     public static final int MAXIMUM_PRODUCER_COUNT = 64;
     private int auditDepth;
     private int maximumNumberOfProducersToTrack;
-    private final LRUCache<String, BitArrayBin> map;
+    // keyed by ProducerId, or by the seed of a message id not generated by ActiveMQ
+    private LRUCache<Object, BitArrayBin> map;
+    // the producer key of each message id seed, so a message id string is not parsed every time
+    private transient LRUCache<String, Object> seedKeys;
     private transient boolean modified = true;
 
     /**
@@ -58,7 +81,8 @@ public class ActiveMQMessageAuditNoSync implements Serializable {
     public ActiveMQMessageAuditNoSync(int auditDepth, final int maximumNumberOfProducersToTrack) {
         this.auditDepth = auditDepth;
         this.maximumNumberOfProducersToTrack=maximumNumberOfProducersToTrack;
-        this.map = new LRUCache<String, BitArrayBin>(0, maximumNumberOfProducersToTrack, 0.75f, true);
+        this.map = new LRUCache<Object, BitArrayBin>(0, maximumNumberOfProducersToTrack, 0.75f, true);
+        this.seedKeys = new LRUCache<String, Object>(0, maximumNumberOfProducersToTrack, 0.75f, true);
     }
 
     /**
@@ -89,7 +113,7 @@ public class ActiveMQMessageAuditNoSync implements Serializable {
     public void setMaximumNumberOfProducersToTrack(int maximumNumberOfProducersToTrack) {
 
         if (maximumNumberOfProducersToTrack < this.maximumNumberOfProducersToTrack){
-            LRUCache<String, BitArrayBin> newMap = new LRUCache<String, BitArrayBin>(0,maximumNumberOfProducersToTrack,0.75f,true);
+            LRUCache<Object, BitArrayBin> newMap = new LRUCache<Object, BitArrayBin>(0,maximumNumberOfProducersToTrack,0.75f,true);
             /**
              * As putAll will access the entries in the right order,
              * this shouldn't result in wrong cache entries being removed
@@ -99,6 +123,7 @@ public class ActiveMQMessageAuditNoSync implements Serializable {
             this.map.putAll(newMap);
         }
         this.map.setMaxCacheSize(maximumNumberOfProducersToTrack);
+        this.seedKeys.setMaxCacheSize(maximumNumberOfProducersToTrack);
         this.maximumNumberOfProducersToTrack = maximumNumberOfProducersToTrack;
         this.modified = true;
     }
@@ -125,10 +150,11 @@ public class ActiveMQMessageAuditNoSync implements Serializable {
         boolean answer = false;
         String seed = IdGenerator.getSeedFromId(id);
         if (seed != null) {
-            BitArrayBin bab = map.get(seed);
+            Object key = seedKey(seed);
+            BitArrayBin bab = map.get(key);
             if (bab == null) {
                 bab = new BitArrayBin(auditDepth);
-                map.put(seed, bab);
+                map.put(key, bab);
                 modified = true;
             }
             long index = IdGenerator.getSequenceFromId(id);
@@ -163,10 +189,11 @@ public class ActiveMQMessageAuditNoSync implements Serializable {
         if (id != null) {
             ProducerId pid = id.getProducerId();
             if (pid != null) {
-                BitArrayBin bab = map.get(pid.toString());
+                Object key = producerKey(pid);
+                BitArrayBin bab = map.get(key);
                 if (bab == null) {
                     bab = new BitArrayBin(auditDepth);
-                    map.put(pid.toString(), bab);
+                    map.put(key, bab);
                     modified = true;
                 }
                 answer = bab.setBit(id.getProducerSequenceId(), true);
@@ -194,7 +221,7 @@ public class ActiveMQMessageAuditNoSync implements Serializable {
         if (id != null) {
             ProducerId pid = id.getProducerId();
             if (pid != null) {
-                BitArrayBin bab = map.get(pid.toString());
+                BitArrayBin bab = map.get(producerKey(pid));
                 if (bab != null) {
                     bab.setBit(id.getProducerSequenceId(), false);
                     modified = true;
@@ -206,7 +233,7 @@ public class ActiveMQMessageAuditNoSync implements Serializable {
     public void rollback(final String id) {
         String seed = IdGenerator.getSeedFromId(id);
         if (seed != null) {
-            BitArrayBin bab = map.get(seed);
+            BitArrayBin bab = map.get(seedKey(seed));
             if (bab != null) {
                 long index = IdGenerator.getSequenceFromId(id);
                 bab.setBit(index, false);
@@ -241,7 +268,7 @@ public class ActiveMQMessageAuditNoSync implements Serializable {
         if (id != null) {
             String seed = IdGenerator.getSeedFromId(id);
             if (seed != null) {
-                BitArrayBin bab = map.get(seed);
+                BitArrayBin bab = map.get(seedKey(seed));
                 if (bab != null) {
                     long index = IdGenerator.getSequenceFromId(id);
                     answer = bab.isInOrder(index);
@@ -276,10 +303,11 @@ public class ActiveMQMessageAuditNoSync implements Serializable {
         if (id != null) {
             ProducerId pid = id.getProducerId();
             if (pid != null) {
-                BitArrayBin bab = map.get(pid.toString());
+                Object key = producerKey(pid);
+                BitArrayBin bab = map.get(key);
                 if (bab == null) {
                     bab = new BitArrayBin(auditDepth);
-                    map.put(pid.toString(), bab);
+                    map.put(key, bab);
                     modified = true;
                 }
                 answer = bab.isInOrder(id.getProducerSequenceId());
@@ -291,7 +319,7 @@ public class ActiveMQMessageAuditNoSync implements Serializable {
 
     public long getLastSeqId(ProducerId id) {
         long result = -1;
-        BitArrayBin bab = map.get(id.toString());
+        BitArrayBin bab = map.get(producerKey(id));
         if (bab != null) {
             result = bab.getLastSetIndex();
         }
@@ -300,6 +328,7 @@ public class ActiveMQMessageAuditNoSync implements Serializable {
 
     public void clear() {
         map.clear();
+        seedKeys.clear();
     }
 
     /**
@@ -333,4 +362,116 @@ public class ActiveMQMessageAuditNoSync implements Serializable {
 
         return false;
     }
+
+    /**
+     * Writes the settings and the tracked producers, least recently used
+     * first.
+     *
+     * @param dataOut
+     * @throws IOException
+     */
+    public void writeToStream(DataOutput dataOut) throws IOException {
+        dataOut.writeInt(auditDepth);
+        dataOut.writeInt(maximumNumberOfProducersToTrack);
+        dataOut.writeInt(map.size());
+        for (Map.Entry<Object, BitArrayBin> entry : map.entrySet()) {
+            dataOut.writeUTF(entry.getKey().toString());
+            entry.getValue().writeToStream(dataOut);
+        }
+    }
+
+    /**
+     * Replaces the settings and the tracked producers with those written by
+     * {@link #writeToStream(DataOutput)}.
+     *
+     * @param dataIn
+     * @throws IOException
+     */
+    public void readFromStream(DataInput dataIn) throws IOException {
+        auditDepth = dataIn.readInt();
+        maximumNumberOfProducersToTrack = dataIn.readInt();
+        map = new LRUCache<Object, BitArrayBin>(0, maximumNumberOfProducersToTrack, 0.75f, true);
+        seedKeys = new LRUCache<String, Object>(0, maximumNumberOfProducersToTrack, 0.75f, true);
+        int size = dataIn.readInt();
+        for (int i = 0; i < size; i++) {
+            Object key = producerKey(dataIn.readUTF());
+            BitArrayBin bab = new BitArrayBin(auditDepth);
+            bab.readFromStream(dataIn);
+            map.put(key, bab);
+        }
+        modified = true;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        LRUCache<String, BitArrayBin> producers = new LRUCache<String, BitArrayBin>(0, maximumNumberOfProducersToTrack, 0.75f, true);
+        for (Map.Entry<Object, BitArrayBin> entry : map.entrySet()) {
+            producers.put(entry.getKey().toString(), entry.getValue());
+        }
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("auditDepth", auditDepth);
+        fields.put("maximumNumberOfProducersToTrack", maximumNumberOfProducersToTrack);
+        fields.put("map", producers);
+        out.writeFields();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        auditDepth = fields.get("auditDepth", DEFAULT_WINDOW_SIZE);
+        maximumNumberOfProducersToTrack = fields.get("maximumNumberOfProducersToTrack", MAXIMUM_PRODUCER_COUNT);
+        map = new LRUCache<Object, BitArrayBin>(0, maximumNumberOfProducersToTrack, 0.75f, true);
+        seedKeys = new LRUCache<String, Object>(0, maximumNumberOfProducersToTrack, 0.75f, true);
+        LRUCache<String, BitArrayBin> producers = (LRUCache<String, BitArrayBin>) fields.get("map", null);
+        if (producers != null) {
+            for (Map.Entry<String, BitArrayBin> entry : producers.entrySet()) {
+                map.put(producerKey(entry.getKey()), entry.getValue());
+            }
+        }
+        modified = true;
+    }
+
+    private Object seedKey(String seed) {
+        Object key = seedKeys.get(seed);
+        if (key == null) {
+            key = producerKey(seed);
+            seedKeys.put(seed, key);
+        }
+        return key;
+    }
+
+    // a producer id without a connection id can not be hashed
+    private static Object producerKey(ProducerId id) {
+        return id.getConnectionId() != null ? id : id.toString();
+    }
+
+    /**
+     * @return the {@link ProducerId} for a producer key in the form
+     *         connectionId:sessionId:value, or the key itself if it is not
+     *         in that form
+     */
+    private static Object producerKey(String key) {
+        int valueStart = key.lastIndexOf(':');
+        if (valueStart <= 0 || !isNumber(key, valueStart + 1, key.length())) {
+            return key;
+        }
+        int sessionStart = key.lastIndexOf(':', valueStart - 1);
+        if (sessionStart <= 0 || !isNumber(key, sessionStart + 1, valueStart)) {
+            return key;
+        }
+        return new ProducerId(key);
+    }
+
+    private static boolean isNumber(String text, int start, int end) {
+        // at most 18 digits so the value fits in a long
+        if (start >= end || end - start > 18) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
 }
@@ -17,15 +17,16 @@
 package org.apache.activemq;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
@@ -45,6 +46,7 @@ import org.apache.activemq.command.ActiveMQMessage;
 import org.apache.activemq.command.ActiveMQObjectMessage;
 import org.apache.activemq.command.ActiveMQTempDestination;
 import org.apache.activemq.command.CommandTypes;
+import org.apache.activemq.command.ConsumerControl;
 import org.apache.activemq.command.ConsumerId;
 import org.apache.activemq.command.ConsumerInfo;
 import org.apache.activemq.command.MessageAck;
@@ -133,8 +135,9 @@ public class ActiveMQMessageConsumer implements MessageAvailableConsumer, StatsC
 
     // The are the messages that were delivered to the consumer but that have
     // not been acknowledged. It's kept in reverse order since we
-    // Always walk list in reverse order.
-    protected final LinkedList<MessageDispatch> deliveredMessages = new LinkedList<MessageDispatch>();
+    // Always walk list in reverse order. An array deque rather than a linked
+    // list, so tracking a delivery does not allocate a node.
+    protected final ArrayDeque<MessageDispatch> deliveredMessages = new ArrayDeque<MessageDispatch>();
     // track duplicate deliveries in a transaction such that the tx integrity can be validated
     private PreviouslyDeliveredMap<MessageId, PreviouslyDelivered> previouslyDeliveredMessages;
     private int deliveredCounter;
@@ -149,6 +152,7 @@ public class ActiveMQMessageConsumer implements MessageAvailableConsumer, StatsC
     private final AtomicBoolean started = new AtomicBoolean(false);
 
     private MessageAvailableListener availableListener;
+    private volatile ActiveMQMessagePublisher publisher;
 
     private RedeliveryPolicy redeliveryPolicy;
     private boolean optimizeAcknowledge;
@@ -441,6 +445,10 @@ public class ActiveMQMessageConsumer implements MessageAvailableConsumer, StatsC
     @Override
     public void setMessageListener(MessageListener listener) throws JMSException {
         checkClosed();
+        // checked first, the publisher resizes the prefetch down to zero while it has no demand
+        if (listener != null && publisher != null) {
+            throw new IllegalStateException("Cannot set a message listener on a consumer that is subscribed to through its publisher");
+        }
         if (info.getPrefetchSize() == 0) {
             throw new JMSException("Illegal prefetch size of zero. This setting is not supported for asynchronous consumers please set a value of at least 1");
         }
@@ -476,6 +484,78 @@ public class ActiveMQMessageConsumer implements MessageAvailableConsumer, StatsC
         this.availableListener = availableListener;
     }
 
+    /**
+     * Returns a {@link Flow.Publisher} of the messages of this consumer, in
+     * which the demand of the subscriber is granted to the broker as credit to
+     * dispatch messages, see {@link ActiveMQMessagePublisher}.
+     *
+     * @return the publisher of this consumer, which accepts one subscriber
+     * @throws JMSException if the consumer is closed, has a message listener
+     *         or has a prefetch of zero
+     */
+    public Flow.Publisher<Message> asPublisher() throws JMSException {
+        return asPublisher(info.getPrefetchSize());
+    }
+
+    synchronized ActiveMQMessagePublisher asPublisher(int maximumCredit) throws JMSException {
+        checkClosed();
+        checkMessageListener();
+        if (info.getPrefetchSize() == 0) {
+            throw new IllegalStateException("Illegal prefetch size of zero. A publisher needs a prefetch of at least 1 to grant credit");
+        }
+        if (publisher == null) {
+            publisher = new ActiveMQMessagePublisher(this, maximumCredit);
+        }
+        return publisher;
+    }
+
+    void setPublisher(ActiveMQMessagePublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    /**
+     * Resizes the prefetch of this consumer on the broker, used to grant the
+     * demand of a publisher subscriber as credit.
+     */
+    void sendCredit(int credit) throws JMSException {
+        ConsumerControl control = new ConsumerControl();
+        control.setConsumerId(info.getConsumerId());
+        control.setDestination(info.getDestination());
+        control.setPrefetch(credit);
+        session.connection.asyncSendPacket(control);
+    }
+
+    /**
+     * Sends the acknowledgements a publisher deferred, all the messages that
+     * were delivered are acknowledged for an auto acknowledge session and
+     * marked delivered for the other acknowledge modes.
+     */
+    void acknowledgeDeferred() throws JMSException {
+        MessageAck ack = null;
+        MessageAck deferredAck = null;
+        synchronized (deliveredMessages) {
+            if (isAutoAcknowledgeEach()) {
+                ack = makeAckForAllDeliveredMessages(MessageAck.STANDARD_ACK_TYPE);
+                if (ack != null) {
+                    deliveredMessages.clear();
+                    ackCounter = 0;
+                }
+            }
+            if (pendingAck != null) {
+                deferredAck = pendingAck;
+                pendingAck = null;
+                deliveredCounter = 0;
+                additionalWindowSize = 0;
+            }
+        }
+        if (ack != null) {
+            session.sendAck(ack);
+        }
+        if (deferredAck != null) {
+            session.sendAck(deferredAck);
+        }
+    }
+
     /**
      * Used to get an enqueued message from the unconsumedMessages list. The
      * amount of time this method blocks is based on the timeout value. - if
@@ -706,6 +786,28 @@ public class ActiveMQMessageConsumer implements MessageAvailableConsumer, StatsC
         return createActiveMQMessage(md);
     }
 
+    /**
+     * Receives the next message the broker already dispatched to this
+     * consumer, used by a publisher which grants the broker the credit to
+     * dispatch instead of pulling messages when its credit is zero.
+     *
+     * @return the next prefetched message, or null if there is none
+     */
+    Message receivePrefetched() throws JMSException {
+        checkClosed();
+        checkMessageListener();
+        clearDeliveredList();
+
+        MessageDispatch md = dequeue(0);
+        if (md == null) {
+            return null;
+        }
+
+        beforeMessageIsConsumed(md);
+        afterMessageIsConsumed(md, false);
+        return createActiveMQMessage(md);
+    }
+
     /**
      * Closes the message consumer.
      * <P>
@@ -868,6 +970,10 @@ public class ActiveMQMessageConsumer implements MessageAvailableConsumer, StatsC
                 }
             }
             unconsumedMessages.close();
+            ActiveMQMessagePublisher publisher = this.publisher;
+            if (publisher != null) {
+                publisher.consumerClosed();
+            }
             this.session.removeConsumer(this);
             List<MessageDispatch> list = unconsumedMessages.removeAll();
             if (!this.info.isBrowser()) {
@@ -965,7 +1071,9 @@ public class ActiveMQMessageConsumer implements MessageAvailableConsumer, StatsC
             if (session.getTransacted()) {
                 // Do nothing.
             } else if (isAutoAcknowledgeEach()) {
-                if (deliveryingAcknowledgements.compareAndSet(false, true)) {
+                if (publisher != null) {
+                    // acknowledged when the subscriber of the publisher grants more credit
+                } else if (deliveryingAcknowledgements.compareAndSet(false, true)) {
                     synchronized (deliveredMessages) {
                         if (!deliveredMessages.isEmpty()) {
                             if (optimizeAcknowledge) {
@@ -1071,7 +1179,7 @@ public class ActiveMQMessageConsumer implements MessageAvailableConsumer, StatsC
             }
             // AMQ-3956 evaluate both expired and normal msgs as
             // otherwise consumer may get stalled
-            if ((0.5 * info.getPrefetchSize()) <= (deliveredCounter + ackCounter - additionalWindowSize)) {
+            if (publisher == null && (0.5 * info.getPrefetchSize()) <= (deliveredCounter + ackCounter - additionalWindowSize)) {
                 LOG.debug("ackLater: sending: {}", pendingAck);
                 session.sendAck(pendingAck);
                 pendingAck=null;
@@ -1293,8 +1401,8 @@ public class ActiveMQMessageConsumer implements MessageAvailableConsumer, StatsC
                         session.sendAck(ack,true);
                     }
 
-                    final LinkedList<MessageDispatch> pendingSessionRedelivery =
-                            new LinkedList<MessageDispatch>(deliveredMessages);
+                    final List<MessageDispatch> pendingSessionRedelivery =
+                            new ArrayList<MessageDispatch>(deliveredMessages);
 
                     captureDeliveredMessagesForDuplicateSuppressionWithRequireRedelivery(false);
 
@@ -1456,6 +1564,10 @@ public class ActiveMQMessageConsumer implements MessageAvailableConsumer, StatsC
                                     if (availableListener != null) {
                                         availableListener.onMessageAvailable(this);
                                     }
+                                    ActiveMQMessagePublisher publisher = this.publisher;
+                                    if (publisher != null) {
+                                        publisher.messageAvailable();
+                                    }
                                 } else {
                                     beforeMessageIsConsumed(md);
                                     afterMessageIsConsumed(md, true);
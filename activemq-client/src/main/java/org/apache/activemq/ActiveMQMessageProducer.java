@@ -16,7 +16,9 @@
  */
 package org.apache.activemq;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -292,6 +294,69 @@ public class ActiveMQMessageProducer extends ActiveMQMessageProducerSupport impl
     public void send(Destination destination, Message message, int deliveryMode, int priority, long timeToLive, boolean disableMessageID, boolean disableMessageTimestamp, AsyncCallback onComplete) throws JMSException {
 
         checkClosed();
+        ActiveMQDestination dest = toSendDestination(destination);
+        message = transform(message);
+        waitForProducerWindow();
+
+        this.session.send(this, dest, message, deliveryMode, priority, timeToLive, disableMessageID, disableMessageTimestamp, producerWindow, sendTimeout, onComplete);
+
+        stats.onMessage();
+    }
+
+    /**
+     * Sends a list of messages to the destination of this producer using the
+     * default delivery mode, priority and time to live.
+     *
+     * @see #send(Destination, List, int, int, long)
+     */
+    public void send(List<? extends Message> messages) throws JMSException {
+        this.send(this.getDestination(), messages, this.defaultDeliveryMode, this.defaultPriority, this.defaultTimeToLive);
+    }
+
+    /**
+     * Sends a list of messages to the destination using the default delivery
+     * mode, priority and time to live.
+     *
+     * @see #send(Destination, List, int, int, long)
+     */
+    public void send(Destination destination, List<? extends Message> messages) throws JMSException {
+        this.send(destination, messages, this.defaultDeliveryMode, this.defaultPriority, this.defaultTimeToLive);
+    }
+
+    /**
+     * Sends a list of messages with a single flush of the transport. This is
+     * client side batching: every message is still sent as a message send of
+     * its own and the broker handles and stores them one by one, there is no
+     * batch command. Unless the session is transacted, the sends are wrapped in
+     * a local transaction of their own that is committed before returning, so
+     * the commit is the only round trip to the broker and either all messages
+     * are delivered or none. In a transacted session the messages are part of
+     * the session's transaction and only the flush is shared.
+     *
+     * @param destination the destination to send to
+     * @param messages the messages to send, in order
+     * @param deliveryMode the delivery mode to use
+     * @param priority the priority for the messages
+     * @param timeToLive the messages' lifetime (in milliseconds)
+     * @throws JMSException if the messages could not be sent or committed
+     */
+    public void send(Destination destination, List<? extends Message> messages, int deliveryMode, int priority, long timeToLive) throws JMSException {
+        checkClosed();
+        ActiveMQDestination dest = toSendDestination(destination);
+        List<Message> batch = new ArrayList<Message>(messages.size());
+        for (Message message : messages) {
+            batch.add(transform(message));
+        }
+        waitForProducerWindow();
+
+        this.session.send(this, dest, batch, deliveryMode, priority, timeToLive, producerWindow);
+
+        for (int i = 0; i < batch.size(); i++) {
+            stats.onMessage();
+        }
+    }
+
+    private ActiveMQDestination toSendDestination(Destination destination) throws JMSException {
         if (destination == null) {
             if (info.getDestination() == null) {
                 throw new UnsupportedOperationException("A destination must be specified.");
@@ -310,14 +375,20 @@ public class ActiveMQMessageProducer extends ActiveMQMessageProducerSupport impl
         if (dest == null) {
             throw new JMSException("No destination specified");
         }
+        return dest;
+    }
 
+    private Message transform(Message message) throws JMSException {
         if (transformer != null) {
             Message transformedMessage = transformer.producerTransform(session, this, message);
             if (transformedMessage != null) {
-                message = transformedMessage;
+                return transformedMessage;
             }
         }
+        return message;
+    }
 
+    private void waitForProducerWindow() throws JMSException {
         if (producerWindow != null) {
             try {
                 producerWindow.waitForSpace();
@@ -325,10 +396,6 @@ public class ActiveMQMessageProducer extends ActiveMQMessageProducerSupport impl
                 throw new JMSException("Send aborted due to thread interrupt.");
             }
         }
-
-        this.session.send(this, dest, message, deliveryMode, priority, timeToLive, disableMessageID, disableMessageTimestamp, producerWindow, sendTimeout, onComplete);
-
-        stats.onMessage();
     }
 
     public MessageTransformer getTransformer() {
@@ -0,0 +1,273 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq;
+
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link Flow.Publisher} view of an {@link ActiveMQMessageConsumer} in which
+ * the demand signalled by the subscriber is the credit the broker has to
+ * dispatch messages to the consumer.
+ * <p>
+ * Each change in demand is sent to the broker as a
+ * {@link org.apache.activemq.command.ConsumerControl} that resizes the prefetch
+ * of the consumer to the outstanding demand, bounded by a maximum credit, so
+ * the broker only dispatches messages that were requested instead of filling
+ * the consumer's prefetch buffer. Without outstanding demand the prefetch is
+ * zero and the broker dispatches nothing until more messages are requested. The acknowledgements of the messages handed
+ * to the subscriber are deferred until it requests more messages, half of the
+ * credit was used or no more messages are buffered, and then sent in one
+ * batch right after the new credit. Messages are acknowledged as
+ * they are with {@link ActiveMQMessageConsumer#receiveNoWait()}, so a client
+ * acknowledge or transacted session keeps its usual semantics.
+ * <p>
+ * Messages are delivered from the session thread when they arrive or from the
+ * thread that calls {@link Flow.Subscription#request(long)}, never
+ * concurrently. A consumer can have one subscriber and can not have a message
+ * listener at the same time. Cancelling the subscription closes the consumer,
+ * closing the consumer completes the subscription.
+ * <p>
+ * A publisher of a consumer created with
+ * {@link ActiveMQMessageConsumer#asPublisher()} grants up to the prefetch of
+ * the consumer, and first delivers what the consumer prefetched before it was
+ * subscribed to. A publisher created with
+ * {@link ActiveMQSession#createConsumerPublisher(jakarta.jms.Destination, String)}
+ * starts from a prefetch of one and grants up to the prefetch of the
+ * connection's prefetch policy.
+ */
+public class ActiveMQMessagePublisher implements Flow.Publisher<Message> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ActiveMQMessagePublisher.class);
+
+    private final ActiveMQMessageConsumer consumer;
+    private final int maximumCredit;
+    private final AtomicReference<CreditSubscription> subscription = new AtomicReference<CreditSubscription>();
+
+    ActiveMQMessagePublisher(ActiveMQMessageConsumer consumer, int maximumCredit) {
+        this.consumer = consumer;
+        this.maximumCredit = Math.max(1, maximumCredit);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super Message> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("subscriber");
+        }
+        CreditSubscription creditSubscription = new CreditSubscription(subscriber);
+        if (!subscription.compareAndSet(null, creditSubscription)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("The publisher of consumer " + consumer.getConsumerId() + " already has a subscriber"));
+            return;
+        }
+        creditSubscription.start();
+    }
+
+    public ActiveMQMessageConsumer getConsumer() {
+        return consumer;
+    }
+
+    /**
+     * @return the largest credit that is granted to the broker
+     */
+    public int getMaximumCredit() {
+        return maximumCredit;
+    }
+
+    void consumerClosed() {
+        CreditSubscription creditSubscription = subscription.get();
+        if (creditSubscription != null) {
+            creditSubscription.closed = true;
+            creditSubscription.drain();
+        }
+    }
+
+    void messageAvailable() {
+        CreditSubscription creditSubscription = subscription.get();
+        if (creditSubscription != null) {
+            creditSubscription.drain();
+        }
+    }
+
+    private final class CreditSubscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super Message> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile boolean closed;
+        private volatile boolean requested;
+        private volatile Throwable failure;
+        private boolean done;
+
+        // only touched while draining
+        private int grantedCredit = -1;
+        private int unacknowledged;
+
+        CreditSubscription(Flow.Subscriber<? super Message> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        void start() {
+            subscriber.onSubscribe(this);
+            requested = true;
+            drain();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                failure = new IllegalArgumentException("Requested " + n + " messages, the number of requested messages must be positive");
+            } else {
+                long current;
+                long next;
+                do {
+                    current = demand.get();
+                    next = current + n;
+                    if (next < 0) {
+                        next = Long.MAX_VALUE;
+                    }
+                } while (!demand.compareAndSet(current, next));
+                requested = true;
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            drain();
+        }
+
+        void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                if (!done) {
+                    try {
+                        if (cancelled || failure != null) {
+                            terminate();
+                        } else {
+                            deliver();
+                        }
+                    } catch (JMSException e) {
+                        if (closed) {
+                            complete();
+                        } else {
+                            failure = e;
+                            terminate();
+                        }
+                    } catch (RuntimeException e) {
+                        LOG.warn("Subscriber of consumer {} failed, cancelling the subscription", consumer.getConsumerId(), e);
+                        cancelled = true;
+                        terminate();
+                    }
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void deliver() throws JMSException {
+            if (closed) {
+                complete();
+                return;
+            }
+            if (requested) {
+                requested = false;
+                grantCredit();
+            }
+            while (demand.get() > 0 && !cancelled && !closed) {
+                Message message = consumer.receivePrefetched();
+                if (message == null) {
+                    // nothing more to deliver for now, acknowledge what was delivered
+                    if (unacknowledged > 0) {
+                        grantCredit();
+                    }
+                    break;
+                }
+                if (demand.get() != Long.MAX_VALUE) {
+                    demand.decrementAndGet();
+                }
+                subscriber.onNext(message);
+                if (++unacknowledged >= Math.max(1, grantedCredit / 2)) {
+                    grantCredit();
+                }
+            }
+            if (closed) {
+                complete();
+            }
+        }
+
+        private void complete() {
+            done = true;
+            consumer.setPublisher(null);
+            subscriber.onComplete();
+        }
+
+        /**
+         * Resizes the broker side prefetch to the outstanding demand and then
+         * acknowledges the messages that were delivered, so the broker never
+         * sees more room than was requested.
+         */
+        private void grantCredit() throws JMSException {
+            // no demand is no credit, the broker stops dispatching until the
+            // subscriber requests more
+            int credit = (int) Math.min(demand.get(), maximumCredit);
+            if (credit != grantedCredit) {
+                consumer.sendCredit(credit);
+                grantedCredit = credit;
+            }
+            if (unacknowledged > 0) {
+                consumer.acknowledgeDeferred();
+                unacknowledged = 0;
+            }
+        }
+
+        private void terminate() {
+            done = true;
+            consumer.setPublisher(null);
+            if (!closed) {
+                try {
+                    consumer.close();
+                } catch (JMSException e) {
+                    LOG.debug("Failed to close consumer {} of a cancelled subscription", consumer.getConsumerId(), e);
+                }
+            }
+            if (!cancelled && failure != null) {
+                subscriber.onError(failure);
+            }
+        }
+    }
+}
@@ -91,6 +91,7 @@ import org.apache.activemq.management.StatsCapable;
 import org.apache.activemq.management.StatsImpl;
 import org.apache.activemq.thread.Scheduler;
 import org.apache.activemq.transaction.Synchronization;
+import org.apache.activemq.transport.tcp.TcpTransport;
 import org.apache.activemq.usage.MemoryUsage;
 import org.apache.activemq.util.Callback;
 import org.apache.activemq.util.LongSequenceGenerator;
@@ -1326,6 +1327,36 @@ public class ActiveMQSession implements Session, QueueSession, TopicSession, Sta
                 prefetch, prefetchPolicy.getMaximumPendingMessageLimit(), noLocal, false, isAsyncDispatch(), messageListener);
     }
 
+    /**
+     * Creates a consumer for the destination and returns it as a
+     * {@link java.util.concurrent.Flow.Publisher} in which the demand of the
+     * subscriber is granted to the broker as credit. The consumer starts with
+     * a prefetch of one, so no messages are buffered before they are
+     * requested, and is granted up to the prefetch of the connection's
+     * prefetch policy.
+     *
+     * @param destination the destination to consume from
+     * @param messageSelector only messages with properties matching the
+     *                message selector expression are delivered, or null
+     * @return the publisher, which accepts one subscriber
+     * @throws JMSException if the consumer could not be created
+     * @see ActiveMQMessagePublisher
+     */
+    public ActiveMQMessagePublisher createConsumerPublisher(Destination destination, String messageSelector) throws JMSException {
+        checkClosed();
+        ActiveMQPrefetchPolicy prefetchPolicy = connection.getPrefetchPolicy();
+        int prefetch;
+        if (destination instanceof Topic) {
+            prefetch = prefetchPolicy.getTopicPrefetch();
+        } else {
+            prefetch = prefetchPolicy.getQueuePrefetch();
+        }
+        ActiveMQDestination activemqDestination = ActiveMQMessageTransformation.transformDestination(destination);
+        ActiveMQMessageConsumer consumer = new ActiveMQMessageConsumer(this, getNextConsumerId(), activemqDestination, null, messageSelector,
+                1, prefetchPolicy.getMaximumPendingMessageLimit(), false, false, isAsyncDispatch(), null);
+        return consumer.asPublisher(prefetch);
+    }
+
     /**
      * Creates a queue identity given a <CODE>Queue</CODE> name.
      * <P>
@@ -1975,53 +2006,8 @@ public class ActiveMQSession implements Session, QueueSession, TopicSession, Sta
                 throw new IllegalStateException("transaction marked rollback only");
             }
             TransactionId txid = transactionContext.getTransactionId();
-            long sequenceNumber = producer.getMessageSequence();
-
-            //Set the "JMS" header fields on the original message, see 1.1 spec section 3.4.11
-            message.setJMSDeliveryMode(deliveryMode);
-            long expiration = 0L;
-            long timeStamp = System.currentTimeMillis();
-            if (timeToLive > 0) {
-                expiration = timeToLive + timeStamp;
-            }
-
-            // TODO: AMQ-8500 - update this when openwire supports JMSDeliveryTime
-            // ref: ActiveMQMessageTransformation#copyProperties
-            if(!(message instanceof ActiveMQMessage)) {
-                setForeignMessageDeliveryTime(message, timeStamp);
-            } else {
-                message.setJMSDeliveryTime(timeStamp);
-            }
-            if (!disableMessageTimestamp && !producer.getDisableMessageTimestamp()) {
-                message.setJMSTimestamp(timeStamp);
-            } else {
-                message.setJMSTimestamp(0l);
-            }
-            message.setJMSExpiration(expiration);
-            message.setJMSPriority(priority);
-            message.setJMSRedelivered(false);
-
-            // transform to our own message format here
-            ActiveMQMessage msg = ActiveMQMessageTransformation.transformMessage(message, connection);
-            msg.setDestination(destination);
-            msg.setMessageId(new MessageId(producer.getProducerInfo().getProducerId(), sequenceNumber));
-
-            // Set the message id.
-            if (msg != message) {
-                message.setJMSMessageID(msg.getMessageId().toString());
-                // Make sure the JMS destination is set on the foreign messages too.
-                message.setJMSDestination(destination);
-            }
-            //clear the brokerPath in case we are re-sending this message
-            msg.setBrokerPath(null);
-
-            msg.setTransactionId(txid);
-            if (connection.isCopyMessageOnSend()) {
-                msg = (ActiveMQMessage)msg.copy();
-            }
-            msg.setConnection(connection);
-            msg.onSend();
-            msg.setProducerId(msg.getMessageId().getProducerId());
+            ActiveMQMessage msg = prepareMessage(producer, destination, message, deliveryMode, priority, timeToLive,
+                                                 disableMessageID, disableMessageTimestamp, txid);
             if (LOG.isTraceEnabled()) {
                 LOG.trace(getSessionId() + " sending message: " + msg);
             }
@@ -2049,6 +2035,149 @@ public class ActiveMQSession implements Session, QueueSession, TopicSession, Sta
         }
     }
 
+    /**
+     * Sends the messages with a single flush of the transport. Each message is
+     * an ordinary message send that is written to the transport without
+     * waiting for the broker, the socket is only flushed after the last one.
+     * The broker handles the sends one by one, this only batches on the client.
+     * <p>
+     * In a transacted session the messages are part of the session's
+     * transaction. Otherwise the sends are wrapped in a local transaction of
+     * their own that is committed before returning, so the transacted adds are
+     * journaled without a sync, the commit carries the only sync and is the
+     * only response waited for; if a message fails none of them is delivered.
+     *
+     * @param producer - message producer.
+     * @param destination - message destination.
+     * @param messages - messages to be sent.
+     * @param deliveryMode - JMS message delivery mode.
+     * @param priority - message priority.
+     * @param timeToLive - message expiration.
+     * @param producerWindow
+     * @throws JMSException
+     */
+    protected void send(ActiveMQMessageProducer producer, ActiveMQDestination destination, List<? extends Message> messages, int deliveryMode, int priority,
+                        long timeToLive, MemoryUsage producerWindow) throws JMSException {
+
+        checkClosed();
+        if (destination.isTemporary() && connection.isDeleted(destination)) {
+            throw new InvalidDestinationException("Cannot publish to a deleted Destination: " + destination);
+        }
+        if (messages.isEmpty()) {
+            return;
+        }
+        synchronized (sendMutex) {
+            boolean transacted = isTransacted();
+            TransactionContext context = transacted ? transactionContext : new TransactionContext(connection);
+            if (transacted) {
+                doStartTransaction();
+                if (transactionContext.isRollbackOnly()) {
+                    throw new IllegalStateException("transaction marked rollback only");
+                }
+            } else {
+                context.begin();
+            }
+            TransactionId txid = context.getTransactionId();
+
+            TcpTransport tcpTransport = connection.getTransport().narrow(TcpTransport.class);
+            try {
+                for (int i = 0; i < messages.size(); i++) {
+                    ActiveMQMessage msg = prepareMessage(producer, destination, messages.get(i), deliveryMode, priority, timeToLive,
+                                                         producer.getDisableMessageID(), producer.getDisableMessageTimestamp(), txid);
+                    if (LOG.isTraceEnabled()) {
+                        LOG.trace(getSessionId() + " sending message: " + msg);
+                    }
+                    if (tcpTransport != null) {
+                        // the last message flushes the batch, unless the commit follows
+                        if (transacted && i == messages.size() - 1) {
+                            tcpTransport.stopDeferringFlush();
+                        } else {
+                            tcpTransport.deferFlush();
+                        }
+                    }
+                    this.connection.asyncSendPacket(msg);
+                    if (producerWindow != null) {
+                        producerWindow.increaseUsage(msg.getSize());
+                    }
+                }
+            } catch (JMSException e) {
+                if (!transacted) {
+                    try {
+                        context.rollback();
+                    } catch (JMSException ignore) {
+                        LOG.debug("Rollback of the batch failed", ignore);
+                    }
+                }
+                throw e;
+            } finally {
+                if (tcpTransport != null) {
+                    tcpTransport.stopDeferringFlush();
+                }
+            }
+
+            if (!transacted) {
+                context.commit();
+            }
+        }
+    }
+
+    /**
+     * Sets the JMS header fields on the message and transforms it into the
+     * ActiveMQ message that is sent to the broker.
+     */
+    private ActiveMQMessage prepareMessage(ActiveMQMessageProducer producer, ActiveMQDestination destination, Message message, int deliveryMode,
+                                           int priority, long timeToLive, boolean disableMessageID, boolean disableMessageTimestamp,
+                                           TransactionId txid) throws JMSException {
+        long sequenceNumber = producer.getMessageSequence();
+
+        //Set the "JMS" header fields on the original message, see 1.1 spec section 3.4.11
+        message.setJMSDeliveryMode(deliveryMode);
+        long expiration = 0L;
+        long timeStamp = System.currentTimeMillis();
+        if (timeToLive > 0) {
+            expiration = timeToLive + timeStamp;
+        }
+
+        // TODO: AMQ-8500 - update this when openwire supports JMSDeliveryTime
+        // ref: ActiveMQMessageTransformation#copyProperties
+        if(!(message instanceof ActiveMQMessage)) {
+            setForeignMessageDeliveryTime(message, timeStamp);
+        } else {
+            message.setJMSDeliveryTime(timeStamp);
+        }
+        if (!disableMessageTimestamp && !producer.getDisableMessageTimestamp()) {
+            message.setJMSTimestamp(timeStamp);
+        } else {
+            message.setJMSTimestamp(0l);
+        }
+        message.setJMSExpiration(expiration);
+        message.setJMSPriority(priority);
+        message.setJMSRedelivered(false);
+
+        // transform to our own message format here
+        ActiveMQMessage msg = ActiveMQMessageTransformation.transformMessage(message, connection);
+        msg.setDestination(destination);
+        msg.setMessageId(new MessageId(producer.getProducerInfo().getProducerId(), sequenceNumber));
+
+        // Set the message id.
+        if (msg != message) {
+            message.setJMSMessageID(msg.getMessageId().toString());
+            // Make sure the JMS destination is set on the foreign messages too.
+            message.setJMSDestination(destination);
+        }
+        //clear the brokerPath in case we are re-sending this message
+        msg.setBrokerPath(null);
+
+        msg.setTransactionId(txid);
+        if (connection.isCopyMessageOnSend()) {
+            msg = (ActiveMQMessage)msg.copy();
+        }
+        msg.setConnection(connection);
+        msg.onSend();
+        msg.setProducerId(msg.getMessageId().getProducerId());
+        return msg;
+    }
+
     /**
      * Send TransactionInfo to indicate transaction has started
      *
@@ -17,19 +17,31 @@
 package org.apache.activemq;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 import org.apache.activemq.command.MessageDispatch;
 
+/**
+ * A FIFO channel that keeps the messages in a ring buffer, so enqueuing a
+ * message does not allocate a list node. The size is published in a volatile
+ * field, which lets {@link #isEmpty()} and {@link #size()} skip the mutex, and
+ * an enqueue only notifies the mutex when a thread is waiting in
+ * {@link #dequeue(long)}.
+ * <p>
+ * Taking a message always locks the mutex, the consumer and the session hold
+ * it while they move messages between channels and a dequeue must not see the
+ * channel half way through such a move.
+ */
 public class FifoMessageDispatchChannel implements MessageDispatchChannel {
 
     private final Object mutex = new Object();
-    private final LinkedList<MessageDispatch> list;
+    private final MessageDispatchRing list;
+    private volatile int size;
+    private int waiters;
     private boolean closed;
     private boolean running;
 
     public FifoMessageDispatchChannel() {
-        this.list = new LinkedList<MessageDispatch>();
+        this.list = new MessageDispatchRing();
     }
 
     /* (non-Javadoc)
@@ -38,7 +50,10 @@ public class FifoMessageDispatchChannel implements MessageDispatchChannel {
     public void enqueue(MessageDispatch message) {
         synchronized (mutex) {
             list.addLast(message);
-            mutex.notify();
+            size = list.size();
+            if (waiters > 0) {
+                mutex.notify();
+            }
         }
     }
 
@@ -48,7 +63,10 @@ public class FifoMessageDispatchChannel implements MessageDispatchChannel {
     public void enqueueFirst(MessageDispatch message) {
         synchronized (mutex) {
             list.addFirst(message);
-            mutex.notify();
+            size = list.size();
+            if (waiters > 0) {
+                mutex.notify();
+            }
         }
     }
 
@@ -56,9 +74,7 @@ public class FifoMessageDispatchChannel implements MessageDispatchChannel {
      * @see org.apache.activemq.MessageDispatchChannelI#isEmpty()
      */
     public boolean isEmpty() {
-        synchronized (mutex) {
-            return list.isEmpty();
-        }
+        return size == 0;
     }
 
     /* (non-Javadoc)
@@ -68,17 +84,22 @@ public class FifoMessageDispatchChannel implements MessageDispatchChannel {
         synchronized (mutex) {
             // Wait until the consumer is ready to deliver messages.
             while (timeout != 0 && !closed && (list.isEmpty() || !running)) {
-                if (timeout == -1) {
-                    mutex.wait();
-                } else {
-                    mutex.wait(timeout);
-                    break;
+                waiters++;
+                try {
+                    if (timeout == -1) {
+                        mutex.wait();
+                    } else {
+                        mutex.wait(timeout);
+                        break;
+                    }
+                } finally {
+                    waiters--;
                 }
             }
             if (closed || !running || list.isEmpty()) {
                 return null;
             }
-            return list.removeFirst();
+            return removeFirst();
         }
     }
 
@@ -90,7 +111,7 @@ public class FifoMessageDispatchChannel implements MessageDispatchChannel {
             if (closed || !running || list.isEmpty()) {
                 return null;
             }
-            return list.removeFirst();
+            return removeFirst();
         }
     }
 
@@ -145,6 +166,7 @@ public class FifoMessageDispatchChannel implements MessageDispatchChannel {
     public void clear() {
         synchronized (mutex) {
             list.clear();
+            size = 0;
         }
     }
 
@@ -159,9 +181,7 @@ public class FifoMessageDispatchChannel implements MessageDispatchChannel {
      * @see org.apache.activemq.MessageDispatchChannelI#size()
      */
     public int size() {
-        synchronized (mutex) {
-            return list.size();
-        }
+        return size;
     }
 
     /* (non-Javadoc)
@@ -183,12 +203,19 @@ public class FifoMessageDispatchChannel implements MessageDispatchChannel {
      */
     public List<MessageDispatch> removeAll() {
         synchronized (mutex) {
-            ArrayList<MessageDispatch> rc = new ArrayList<MessageDispatch>(list);
-            list.clear();
+            ArrayList<MessageDispatch> rc = new ArrayList<MessageDispatch>(list.size());
+            list.drainTo(rc);
+            size = 0;
             return rc;
         }
     }
 
+    private MessageDispatch removeFirst() {
+        MessageDispatch message = list.removeFirst();
+        size = list.size();
+        return message;
+    }
+
     @Override
     public String toString() {
         synchronized (mutex) {
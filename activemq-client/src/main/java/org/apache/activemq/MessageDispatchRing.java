@@ -0,0 +1,121 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq;
+
+import java.util.List;
+
+import org.apache.activemq.command.MessageDispatch;
+
+/**
+ * A growable ring buffer of message dispatches, used by the dispatch channels
+ * in place of a linked list so adding a message does not allocate a node.
+ * Unlike {@link java.util.ArrayDeque} it holds null entries, which pull
+ * consumers enqueue to wake up a waiting receive.
+ * <p>
+ * Not thread safe, the channels guard it with their mutex.
+ */
+public final class MessageDispatchRing {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private MessageDispatch[] elements = new MessageDispatch[INITIAL_CAPACITY];
+    private int head;
+    private int size;
+
+    public void addLast(MessageDispatch message) {
+        ensureCapacity();
+        elements[(head + size) & (elements.length - 1)] = message;
+        size++;
+    }
+
+    public void addFirst(MessageDispatch message) {
+        ensureCapacity();
+        head = (head - 1) & (elements.length - 1);
+        elements[head] = message;
+        size++;
+    }
+
+    /**
+     * @return the first message, only to be called when the ring is not empty
+     */
+    public MessageDispatch removeFirst() {
+        MessageDispatch message = elements[head];
+        elements[head] = null;
+        head = (head + 1) & (elements.length - 1);
+        size--;
+        return message;
+    }
+
+    /**
+     * @return the first message, only to be called when the ring is not empty
+     */
+    public MessageDispatch getFirst() {
+        return elements[head];
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            elements[(head + i) & (elements.length - 1)] = null;
+        }
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * Moves all the messages to the given list, in order.
+     */
+    public void drainTo(List<MessageDispatch> target) {
+        for (int i = 0; i < size; i++) {
+            int index = (head + i) & (elements.length - 1);
+            target.add(elements[index]);
+            elements[index] = null;
+        }
+        head = 0;
+        size = 0;
+    }
+
+    private void ensureCapacity() {
+        if (size == elements.length) {
+            MessageDispatch[] grown = new MessageDispatch[elements.length << 1];
+            for (int i = 0; i < size; i++) {
+                grown[i] = elements[(head + i) & (elements.length - 1)];
+            }
+            elements = grown;
+            head = 0;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(elements[(head + i) & (elements.length - 1)]);
+        }
+        return builder.append(']').toString();
+    }
+}
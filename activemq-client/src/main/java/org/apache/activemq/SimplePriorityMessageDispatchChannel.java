@@ -17,24 +17,28 @@
 package org.apache.activemq;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 
 import org.apache.activemq.command.MessageDispatch;
 
+/**
+ * A channel that keeps a ring buffer per priority and hands out the messages
+ * of the highest priority first. Like {@link FifoMessageDispatchChannel} the
+ * size can be read without the mutex.
+ */
 public class SimplePriorityMessageDispatchChannel implements MessageDispatchChannel {
     private static final Integer MAX_PRIORITY = 10;
     private final Object mutex = new Object();
-    private final LinkedList<MessageDispatch>[] lists;
+    private final MessageDispatchRing[] lists;
     private boolean closed;
     private boolean running;
-    private int size = 0;
+    private volatile int size = 0;
+    private int waiters;
 
-    @SuppressWarnings("unchecked")
     public SimplePriorityMessageDispatchChannel() {
-        this.lists = new LinkedList[MAX_PRIORITY];
+        this.lists = new MessageDispatchRing[MAX_PRIORITY];
         for (int i = 0; i < MAX_PRIORITY; i++) {
-            lists[i] = new LinkedList<MessageDispatch>();
+            lists[i] = new MessageDispatchRing();
         }
     }
 
@@ -48,7 +52,9 @@ public class SimplePriorityMessageDispatchChannel implements MessageDispatchChan
         synchronized (mutex) {
             getList(message).addLast(message);
             this.size++;
-            mutex.notify();
+            if (waiters > 0) {
+                mutex.notify();
+            }
         }
     }
 
@@ -62,7 +68,9 @@ public class SimplePriorityMessageDispatchChannel implements MessageDispatchChan
         synchronized (mutex) {
             getList(message).addFirst(message);
             this.size++;
-            mutex.notify();
+            if (waiters > 0) {
+                mutex.notify();
+            }
         }
     }
 
@@ -86,11 +94,16 @@ public class SimplePriorityMessageDispatchChannel implements MessageDispatchChan
         synchronized (mutex) {
             // Wait until the consumer is ready to deliver messages.
             while (timeout != 0 && !closed && (isEmpty() || !running)) {
-                if (timeout == -1) {
-                    mutex.wait();
-                } else {
-                    mutex.wait(timeout);
-                    break;
+                waiters++;
+                try {
+                    if (timeout == -1) {
+                        mutex.wait();
+                    } else {
+                        mutex.wait(timeout);
+                        break;
+                    }
+                } finally {
+                    waiters--;
                 }
             }
             if (closed || !running || isEmpty()) {
@@ -204,9 +217,7 @@ public class SimplePriorityMessageDispatchChannel implements MessageDispatchChan
      */
     @Override
     public int size() {
-        synchronized (mutex) {
-            return this.size;
-        }
+        return this.size;
     }
 
     /*
@@ -239,11 +250,9 @@ public class SimplePriorityMessageDispatchChannel implements MessageDispatchChan
         synchronized (mutex) {
             ArrayList<MessageDispatch> result = new ArrayList<MessageDispatch>(size());
             for (int i = MAX_PRIORITY - 1; i >= 0; i--) {
-                List<MessageDispatch> list = lists[i];
-                result.addAll(list);
-                size -= list.size();
-                list.clear();
+                lists[i].drainTo(result);
             }
+            size = 0;
             return result;
         }
     }
@@ -266,14 +275,14 @@ public class SimplePriorityMessageDispatchChannel implements MessageDispatchChan
         return priority;
     }
 
-    protected LinkedList<MessageDispatch> getList(MessageDispatch md) {
+    protected MessageDispatchRing getList(MessageDispatch md) {
         return lists[getPriority(md)];
     }
 
     private final MessageDispatch removeFirst() {
         if (this.size > 0) {
             for (int i = MAX_PRIORITY - 1; i >= 0; i--) {
-                LinkedList<MessageDispatch> list = lists[i];
+                MessageDispatchRing list = lists[i];
                 if (!list.isEmpty()) {
                     this.size--;
                     return list.removeFirst();
@@ -286,7 +295,7 @@ public class SimplePriorityMessageDispatchChannel implements MessageDispatchChan
     private final MessageDispatch getFirst() {
         if (this.size > 0) {
             for (int i = MAX_PRIORITY - 1; i >= 0; i--) {
-                LinkedList<MessageDispatch> list = lists[i];
+                MessageDispatchRing list = lists[i];
                 if (!list.isEmpty()) {
                     return list.getFirst();
                 }
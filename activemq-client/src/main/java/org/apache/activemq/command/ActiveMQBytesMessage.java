@@ -23,8 +23,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Arrays;
-import java.util.zip.Deflater;
-import java.util.zip.Inflater;
 
 import jakarta.jms.BytesMessage;
 import jakarta.jms.JMSException;
@@ -34,6 +32,9 @@ import jakarta.jms.MessageNotReadableException;
 import jakarta.jms.MessageNotWriteableException;
 
 import org.apache.activemq.ActiveMQConnection;
+import org.apache.activemq.compression.CompressionCodec;
+import org.apache.activemq.compression.CompressionSupport;
+import org.apache.activemq.compression.DeflateCompressionCodec;
 import org.apache.activemq.util.ByteArrayInputStream;
 import org.apache.activemq.util.ByteArrayOutputStream;
 import org.apache.activemq.util.ByteSequence;
@@ -897,23 +898,28 @@ public class ActiveMQBytesMessage extends ActiveMQMessage implements BytesMessag
     }
 
     protected byte[] decompress(ByteSequence dataSequence) throws IOException {
-        Inflater inflater = new Inflater();
-        ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
-        try {
-            length = ByteSequenceData.readIntBig(dataSequence);
-            dataSequence.offset = 0;
-            byte[] data = Arrays.copyOfRange(dataSequence.getData(), 4, dataSequence.getLength());
-            inflater.setInput(data);
-            byte[] buffer = new byte[length];
-            int count = inflater.inflate(buffer);
-            decompressed.write(buffer, 0, count);
-            return decompressed.toByteArray();
-        } catch (Exception e) {
-            throw new IOException(e);
-        } finally {
-            inflater.end();
-            decompressed.close();
+        ByteSequence decompressed;
+        if (CompressionSupport.hasCodecHeader(dataSequence)) {
+            decompressed = decompressContent(dataSequence);
+        } else {
+            // deflate bodies start with the uncompressed length
+            if (dataSequence.getLength() < 4) {
+                throw new IOException("Truncated compressed message body");
+            }
+            byte[] data = dataSequence.getData();
+            int offset = dataSequence.getOffset();
+            int uncompressedLength = (data[offset] & 0xFF) << 24 | (data[offset + 1] & 0xFF) << 16 | (data[offset + 2] & 0xFF) << 8 | (data[offset + 3] & 0xFF);
+            if (uncompressedLength < 0) {
+                throw new IOException("Invalid uncompressed message body length: " + uncompressedLength);
+            }
+            ByteSequence deflated = new ByteSequence(data, offset + 4, dataSequence.getLength() - 4);
+            decompressed = CompressionSupport.DEFLATE.decompress(deflated, uncompressedLength);
+        }
+        length = decompressed.getLength();
+        if (decompressed.getOffset() == 0 && decompressed.getLength() == decompressed.getData().length) {
+            return decompressed.getData();
         }
+        return Arrays.copyOfRange(decompressed.getData(), decompressed.getOffset(), decompressed.getOffset() + decompressed.getLength());
     }
 
     @Override
@@ -933,27 +939,20 @@ public class ActiveMQBytesMessage extends ActiveMQMessage implements BytesMessag
         compressed = true;
         ByteSequence bytes = getContent();
         if (bytes != null) {
-            int length = bytes.getLength();
-            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
-            compressed.write(new byte[4]);
-            Deflater deflater = new Deflater();
-            try {
-                deflater.setInput(bytes.data);
-                deflater.finish();
-                byte[] buffer = new byte[1024];
-                while (!deflater.finished()) {
-                    int count = deflater.deflate(buffer);
-                    compressed.write(buffer, 0, count);
-                }
-
-                bytes = compressed.toByteSequence();
-                ByteSequenceData.writeIntBig(bytes, length);
-                bytes.offset = 0;
-                setContent(bytes);
-            } finally {
-                deflater.end();
-                compressed.close();
+            CompressionCodec codec = getCompressionCodec();
+            if (codec.getId() != DeflateCompressionCodec.ID) {
+                setContent(CompressionSupport.compress(codec, bytes));
+                return;
             }
+
+            // deflate bodies start with the uncompressed length
+            ByteSequence deflated = codec.compress(bytes);
+            byte[] data = new byte[4 + deflated.getLength()];
+            System.arraycopy(deflated.getData(), deflated.getOffset(), data, 4, deflated.getLength());
+            bytes = new ByteSequence(data);
+            ByteSequenceData.writeIntBig(bytes, getContent().getLength());
+            bytes.offset = 0;
+            setContent(bytes);
         }
     }
 
@@ -21,14 +21,11 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectStreamException;
-import java.io.OutputStream;
 import java.io.Serializable;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.zip.DeflaterOutputStream;
-import java.util.zip.InflaterInputStream;
 
 import jakarta.jms.JMSException;
 import jakarta.jms.MapMessage;
@@ -149,16 +146,14 @@ public class ActiveMQMapMessage extends ActiveMQMessage implements MapMessage {
         try {
             if (getContent() == null && !map.isEmpty()) {
                 ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
-                OutputStream os = bytesOut;
-                ActiveMQConnection connection = getConnection();
-                if (connection != null && connection.isUseCompression()) {
-                    compressed = true;
-                    os = new DeflaterOutputStream(os);
-                }
-                DataOutputStream dataOut = new DataOutputStream(os);
+                DataOutputStream dataOut = new DataOutputStream(bytesOut);
                 MarshallingSupport.marshalPrimitiveMap(map, dataOut);
                 dataOut.close();
                 setContent(bytesOut.toByteSequence());
+                ActiveMQConnection connection = getConnection();
+                if (connection != null && connection.isUseCompression()) {
+                    doCompress();
+                }
             }
         } catch (IOException e) {
             throw new RuntimeException(e);
@@ -187,10 +182,10 @@ public class ActiveMQMapMessage extends ActiveMQMessage implements MapMessage {
 
         try {
             if (content != null) {
-                InputStream is = new ByteArrayInputStream(content);
                 if (isCompressed()) {
-                    is = new InflaterInputStream(is);
+                    content = decompressContent(content);
                 }
+                InputStream is = new ByteArrayInputStream(content);
                 DataInputStream dataIn = new DataInputStream(is);
                 map = MarshallingSupport.unmarshalPrimitiveMap(dataIn);
                 dataIn.close();
@@ -22,12 +22,9 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectOutputStream;
-import java.io.OutputStream;
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.List;
-import java.util.zip.DeflaterOutputStream;
-import java.util.zip.InflaterInputStream;
 
 import jakarta.jms.JMSException;
 import jakarta.jms.ObjectMessage;
@@ -107,19 +104,17 @@ public class ActiveMQObjectMessage extends ActiveMQMessage implements ObjectMess
         if (bodyAsBytes == null && object != null) {
             try {
                 ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
-                OutputStream os = bytesOut;
-                ActiveMQConnection connection = getConnection();
-                if (connection != null && connection.isUseCompression()) {
-                    compressed = true;
-                    os = new DeflaterOutputStream(os);
-                }
-                DataOutputStream dataOut = new DataOutputStream(os);
+                DataOutputStream dataOut = new DataOutputStream(bytesOut);
                 ObjectOutputStream objOut = new ObjectOutputStream(dataOut);
                 objOut.writeObject(object);
                 objOut.flush();
                 objOut.reset();
                 objOut.close();
                 setContent(bytesOut.toByteSequence());
+                ActiveMQConnection connection = getConnection();
+                if (connection != null && connection.isUseCompression()) {
+                    doCompress();
+                }
             } catch (IOException ioe) {
                 throw new RuntimeException(ioe.getMessage(), ioe);
             }
@@ -206,10 +201,10 @@ public class ActiveMQObjectMessage extends ActiveMQMessage implements ObjectMess
 
         if (content != null) {
             try {
-                InputStream is = new ByteArrayInputStream(content);
                 if (isCompressed()) {
-                    is = new InflaterInputStream(is);
+                    content = decompressContent(content);
                 }
+                InputStream is = new ByteArrayInputStream(content);
                 DataInputStream dataIn = new DataInputStream(is);
                 ClassLoadingAwareObjectInputStream objIn = new ClassLoadingAwareObjectInputStream(dataIn);
                 objIn.setTrustedPackages(trustedPackages);
@@ -17,15 +17,11 @@
 
 package org.apache.activemq.command;
 
-import java.io.BufferedInputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
-import java.util.zip.DeflaterOutputStream;
-import java.util.zip.InflaterInputStream;
 
 import jakarta.jms.JMSException;
 import jakarta.jms.MessageEOFException;
@@ -147,6 +143,10 @@ public class ActiveMQStreamMessage extends ActiveMQMessage implements StreamMess
                 setContent(bytesOut.toByteSequence());
                 bytesOut = null;
                 dataOut = null;
+                ActiveMQConnection connection = getConnection();
+                if (connection != null && connection.isUseCompression()) {
+                    doCompress();
+                }
             } catch (IOException ioe) {
                 throw new RuntimeException(ioe);
             }
@@ -1149,34 +1149,19 @@ public class ActiveMQStreamMessage extends ActiveMQMessage implements StreamMess
         checkReadOnlyBody();
         if (this.dataOut == null) {
             this.bytesOut = new ByteArrayOutputStream();
-            OutputStream os = bytesOut;
-            ActiveMQConnection connection = getConnection();
-            if (connection != null && connection.isUseCompression()) {
-                compressed = true;
-                os = new DeflaterOutputStream(os);
-            }
-            this.dataOut = new DataOutputStream(os);
+            this.dataOut = new DataOutputStream(bytesOut);
         }
 
         // For a message that already had a body and was sent we need to restore the content
         // if the message is used again without having its clearBody method called.
         if (this.content != null && this.content.length > 0) {
             try {
+                ByteSequence toRestore = this.content;
                 if (compressed) {
-                    ByteArrayInputStream input = new ByteArrayInputStream(this.content.getData(), this.content.getOffset(), this.content.getLength());
-                    InflaterInputStream inflater = new InflaterInputStream(input);
-                    try {
-                        byte[] buffer = new byte[8*1024];
-                        int read = 0;
-                        while ((read = inflater.read(buffer)) != -1) {
-                            this.dataOut.write(buffer, 0, read);
-                        }
-                    } finally {
-                        inflater.close();
-                    }
-                } else {
-                    this.dataOut.write(this.content.getData(), this.content.getOffset(), this.content.getLength());
+                    toRestore = decompressContent(toRestore);
+                    compressed = false;
                 }
+                this.dataOut.write(toRestore.getData(), toRestore.getOffset(), toRestore.getLength());
                 // Free up the buffer from the old content, will be re-written when
                 // tbe message is sent again and storeContent() is called.
                 this.content = null;
@@ -1192,18 +1177,21 @@ public class ActiveMQStreamMessage extends ActiveMQMessage implements StreamMess
         }
     }
 
-    private void initializeReading() throws MessageNotReadableException {
+    private void initializeReading() throws JMSException {
         checkWriteOnlyBody();
         if (this.dataIn == null) {
             ByteSequence data = getContent();
             if (data == null) {
                 data = new ByteSequence(new byte[] {}, 0, 0);
             }
-            InputStream is = new ByteArrayInputStream(data);
             if (isCompressed()) {
-                is = new InflaterInputStream(is);
-                is = new BufferedInputStream(is);
+                try {
+                    data = decompressContent(data);
+                } catch (IOException e) {
+                    throw JMSExceptionSupport.create(e);
+                }
             }
+            InputStream is = new ByteArrayInputStream(data);
             this.dataIn = new DataInputStream(is);
         }
     }
@@ -20,10 +20,7 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.util.HashMap;
-import java.util.zip.DeflaterOutputStream;
-import java.util.zip.InflaterInputStream;
 
 import jakarta.jms.JMSException;
 import jakarta.jms.MessageNotWriteableException;
@@ -93,10 +90,10 @@ public class ActiveMQTextMessage extends ActiveMQMessage implements TextMessage
         if (bodyAsBytes != null) {
             InputStream is = null;
             try {
-                is = new ByteArrayInputStream(bodyAsBytes);
                 if (isCompressed()) {
-                    is = new InflaterInputStream(is);
+                    bodyAsBytes = decompressContent(bodyAsBytes);
                 }
+                is = new ByteArrayInputStream(bodyAsBytes);
                 DataInputStream dataIn = new DataInputStream(is);
                 text = MarshallingSupport.readUTF8(dataIn);
                 dataIn.close();
@@ -134,16 +131,14 @@ public class ActiveMQTextMessage extends ActiveMQMessage implements TextMessage
             String text = this.text;
             if (content == null && text != null) {
                 ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
-                OutputStream os = bytesOut;
-                ActiveMQConnection connection = getConnection();
-                if (connection != null && connection.isUseCompression()) {
-                    compressed = true;
-                    os = new DeflaterOutputStream(os);
-                }
-                DataOutputStream dataOut = new DataOutputStream(os);
+                DataOutputStream dataOut = new DataOutputStream(bytesOut);
                 MarshallingSupport.writeUTF8(dataOut, text);
                 dataOut.close();
                 setContent(bytesOut.toByteSequence());
+                ActiveMQConnection connection = getConnection();
+                if (connection != null && connection.isUseCompression()) {
+                    doCompress();
+                }
             }
         } catch (IOException e) {
             throw new RuntimeException(e);
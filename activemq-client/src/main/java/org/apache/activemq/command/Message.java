@@ -21,18 +21,19 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.ObjectStreamException;
-import java.io.OutputStream;
+import java.lang.ref.SoftReference;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.zip.DeflaterOutputStream;
 
 import jakarta.jms.JMSException;
 
 import org.apache.activemq.ActiveMQConnection;
 import org.apache.activemq.advisory.AdvisorySupport;
 import org.apache.activemq.broker.region.MessageReference;
+import org.apache.activemq.compression.CompressionCodec;
+import org.apache.activemq.compression.CompressionSupport;
 import org.apache.activemq.usage.MemoryUsage;
 import org.apache.activemq.util.ByteArrayInputStream;
 import org.apache.activemq.util.ByteArrayOutputStream;
@@ -98,6 +99,10 @@ public abstract class Message extends BaseCommand implements MarshallAware, Mess
     transient MessageDestination regionDestination;
     transient MemoryUsage memoryUsage;
     transient AtomicBoolean processAsExpired = new AtomicBoolean(false);
+    // single property lookups against marshalledProperties, see getProperty(String)
+    private transient volatile PropertyLookup propertyLookups;
+    // an encoding of this message cached by a protocol, see getCachedEncoding(Object)
+    private transient volatile CachedEncoding cachedEncoding;
 
     private BrokerId[] brokerPath;
     private BrokerId[] cluster;
@@ -191,10 +196,15 @@ public abstract class Message extends BaseCommand implements MarshallAware, Mess
 
     public Object getProperty(String name) throws IOException {
         if (properties == null) {
-            if (marshalledProperties == null) {
+            ByteSequence marshalled = marshalledProperties;
+            if (marshalled == null) {
                 return null;
             }
-            properties = unmarsallProperties(marshalledProperties);
+            Object result = lookupMarshalledProperty(marshalled, name);
+            if (result != PropertyLookup.UNMARSHAL) {
+                return result;
+            }
+            properties = unmarsallProperties(marshalled);
         }
         Object result = properties.get(name);
         if (result instanceof UTF8Buffer) {
@@ -204,6 +214,53 @@ public abstract class Message extends BaseCommand implements MarshallAware, Mess
         return result;
     }
 
+    /**
+     * Finds a single property in the marshalled properties without
+     * unmarshalling the whole map, caching the result so that repeated
+     * selector evaluation of the same property is cheap. Once more than a few
+     * distinct properties have been looked up the caller is asked to
+     * unmarshal the map instead.
+     */
+    private Object lookupMarshalledProperty(ByteSequence marshalled, String name) throws IOException {
+        PropertyLookup lookups = propertyLookups;
+        if (lookups != null && lookups.marshalled != marshalled) {
+            lookups = null;
+        }
+        int depth = 0;
+        for (PropertyLookup lookup = lookups; lookup != null; lookup = lookup.next) {
+            if (lookup.name.equals(name)) {
+                return lookup.value;
+            }
+            depth++;
+        }
+        if (depth >= PropertyLookup.MAX_LOOKUPS) {
+            return PropertyLookup.UNMARSHAL;
+        }
+        Object value = MarshallingSupport.lookupPrimitiveMapValue(marshalled, name);
+        if (value instanceof UTF8Buffer) {
+            value = value.toString();
+        }
+        propertyLookups = new PropertyLookup(marshalled, name, value, lookups);
+        return value;
+    }
+
+    private static final class PropertyLookup {
+        static final int MAX_LOOKUPS = 4;
+        static final Object UNMARSHAL = new Object();
+
+        final ByteSequence marshalled;
+        final String name;
+        final Object value;
+        final PropertyLookup next;
+
+        PropertyLookup(ByteSequence marshalled, String name, Object value, PropertyLookup next) {
+            this.marshalled = marshalled;
+            this.name = name;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
     @SuppressWarnings("unchecked")
     public Map<String, Object> getProperties() throws IOException {
         if (properties == null) {
@@ -218,6 +275,8 @@ public abstract class Message extends BaseCommand implements MarshallAware, Mess
     public void clearProperties() {
         marshalledProperties = null;
         properties = null;
+        propertyLookups = null;
+        cachedEncoding = null;
     }
 
     public void setProperty(String name, Object value) throws IOException {
@@ -231,6 +290,7 @@ public abstract class Message extends BaseCommand implements MarshallAware, Mess
     }
 
     protected void lazyCreateProperties() throws IOException {
+        cachedEncoding = null;
         if (properties == null) {
             if (marshalledProperties == null) {
                 properties = new HashMap<String, Object>();
@@ -297,6 +357,7 @@ public abstract class Message extends BaseCommand implements MarshallAware, Mess
 
     public void setDestination(ActiveMQDestination destination) {
         this.destination = destination;
+        clearCachedEncoding();
     }
 
     /**
@@ -335,6 +396,7 @@ public abstract class Message extends BaseCommand implements MarshallAware, Mess
 
     public void setMessageId(MessageId messageId) {
         this.messageId = messageId;
+        clearCachedEncoding();
     }
 
     /**
@@ -358,6 +420,7 @@ public abstract class Message extends BaseCommand implements MarshallAware, Mess
 
     public void setGroupID(String groupID) {
         this.groupID = groupID;
+        clearCachedEncoding();
     }
 
     /**
@@ -370,6 +433,7 @@ public abstract class Message extends BaseCommand implements MarshallAware, Mess
 
     public void setGroupSequence(int groupSequence) {
         this.groupSequence = groupSequence;
+        clearCachedEncoding();
     }
 
     /**
@@ -381,6 +445,7 @@ public abstract class Message extends BaseCommand implements MarshallAware, Mess
 
     public void setCorrelationId(String correlationId) {
         this.correlationId = correlationId;
+        clearCachedEncoding();
     }
 
     /**
@@ -393,6 +458,7 @@ public abstract class Message extends BaseCommand implements MarshallAware, Mess
 
     public void setPersistent(boolean deliveryMode) {
         this.persistent = deliveryMode;
+        clearCachedEncoding();
     }
 
     /**
@@ -405,6 +471,7 @@ public abstract class Message extends BaseCommand implements MarshallAware, Mess
 
     public void setExpiration(long expiration) {
         this.expiration = expiration;
+        clearCachedEncoding();
     }
 
     /**
@@ -422,6 +489,7 @@ public abstract class Message extends BaseCommand implements MarshallAware, Mess
         } else {
             this.priority = priority;
         }
+        clearCachedEncoding();
     }
 
     /**
@@ -433,6 +501,7 @@ public abstract class Message extends BaseCommand implements MarshallAware, Mess
 
     public void setReplyTo(ActiveMQDestination replyTo) {
         this.replyTo = replyTo;
+        clearCachedEncoding();
     }
 
     /**
@@ -444,6 +513,7 @@ public abstract class Message extends BaseCommand implements MarshallAware, Mess
 
     public void setTimestamp(long timestamp) {
         this.timestamp = timestamp;
+        clearCachedEncoding();
     }
 
     /**
@@ -455,6 +525,7 @@ public abstract class Message extends BaseCommand implements MarshallAware, Mess
 
     public void setType(String type) {
         this.type = type;
+        clearCachedEncoding();
     }
 
     /**
@@ -466,6 +537,7 @@ public abstract class Message extends BaseCommand implements MarshallAware, Mess
 
     public void setContent(ByteSequence content) {
         this.content = content;
+        this.cachedEncoding = null;
     }
 
     /**
@@ -477,6 +549,45 @@ public abstract class Message extends BaseCommand implements MarshallAware, Mess
 
     public void setMarshalledProperties(ByteSequence marshalledProperties) {
         this.marshalledProperties = marshalledProperties;
+        this.cachedEncoding = null;
+    }
+
+    /**
+     * Returns the encoding of this message that a protocol cached with
+     * {@link #setCachedEncoding(Object, Object)}, so a message that is
+     * dispatched to many consumers of that protocol is only encoded once. The
+     * cache holds one encoding, it is dropped when the content, the properties
+     * or a header that a protocol encodes changes and it is not copied. The encoding is
+     * softly referenced, as it is not counted in the memory usage of the
+     * message, so it is also dropped when the heap runs low.
+     *
+     * @param key identifies the protocol that cached the encoding
+     * @return the cached encoding or null if there is none for the key
+     */
+    public Object getCachedEncoding(Object key) {
+        CachedEncoding cached = cachedEncoding;
+        return cached != null && cached.key == key ? cached.get() : null;
+    }
+
+    public void setCachedEncoding(Object key, Object encoding) {
+        cachedEncoding = encoding != null ? new CachedEncoding(key, encoding) : null;
+    }
+
+    private void clearCachedEncoding() {
+        // read first, the setters run for every unmarshalled message and
+        // rarely find an encoding to drop
+        if (cachedEncoding != null) {
+            cachedEncoding = null;
+        }
+    }
+
+    private static final class CachedEncoding extends SoftReference<Object> {
+        final Object key;
+
+        CachedEncoding(Object key, Object encoding) {
+            super(encoding);
+            this.key = key;
+        }
     }
 
     /**
@@ -488,6 +599,7 @@ public abstract class Message extends BaseCommand implements MarshallAware, Mess
 
     public void setDataStructure(DataStructure data) {
         this.dataStructure = data;
+        clearCachedEncoding();
     }
 
     /**
@@ -628,6 +740,7 @@ public abstract class Message extends BaseCommand implements MarshallAware, Mess
 
     public void setUserID(String jmsxUserID) {
         this.userID = jmsxUserID;
+        clearCachedEncoding();
     }
 
     @Override
@@ -833,12 +946,25 @@ public abstract class Message extends BaseCommand implements MarshallAware, Mess
 
     protected void doCompress() throws IOException {
         compressed = true;
-        ByteSequence bytes = getContent();
-        ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
-        OutputStream os = new DeflaterOutputStream(bytesOut);
-        os.write(bytes.data, bytes.offset, bytes.length);
-        os.close();
-        setContent(bytesOut.toByteSequence());
+        setContent(CompressionSupport.compress(getCompressionCodec(), getContent()));
+    }
+
+    /**
+     * @return the codec of the connection the message is sent with, or
+     *         deflate when it is not sent by a client connection or the
+     *         connection has no codec
+     */
+    protected CompressionCodec getCompressionCodec() {
+        ActiveMQConnection connection = getConnection();
+        CompressionCodec codec = connection != null ? connection.getCompressionCodec() : null;
+        return codec != null ? codec : CompressionSupport.DEFLATE;
+    }
+
+    /**
+     * @return the content decompressed with the codec it was compressed with
+     */
+    protected ByteSequence decompressContent(ByteSequence content) throws IOException {
+        return CompressionSupport.decompress(content);
     }
 
     @Override
@@ -0,0 +1,57 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.compression;
+
+import java.io.IOException;
+
+import org.apache.activemq.util.ByteSequence;
+
+/**
+ * Compresses and decompresses message bodies.
+ * <p>
+ * A codec is looked up by name, see {@link CompressionSupport#getCodec(String)},
+ * and its id is written in front of every body it compressed so that a
+ * consumer can pick the matching codec without any configuration. Codec
+ * instances are shared by all connections and must be thread safe.
+ */
+public interface CompressionCodec {
+
+    /**
+     * @return the id written with the compressed body, between 1 and 127, or
+     *         0 for the deflate codec whose bodies are written without an id
+     *         to stay readable by clients that predate codecs
+     */
+    int getId();
+
+    /**
+     * @return the name the codec is configured with
+     */
+    String getName();
+
+    /**
+     * @return the compressed form of the data
+     */
+    ByteSequence compress(ByteSequence data) throws IOException;
+
+    /**
+     * @param data the compressed data
+     * @param uncompressedLength the length of the data once decompressed, or
+     *        -1 if it is not known
+     * @return the decompressed data
+     */
+    ByteSequence decompress(ByteSequence data, int uncompressedLength) throws IOException;
+}
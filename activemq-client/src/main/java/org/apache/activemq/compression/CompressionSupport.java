@@ -0,0 +1,184 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.compression;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.activemq.util.ByteSequence;
+import org.apache.activemq.util.FactoryFinder;
+
+/**
+ * Finds compression codecs and writes and reads the compressed message body
+ * layout.
+ * <p>
+ * A body compressed with deflate is written as it always was. Any other codec
+ * writes a header byte with the high bit set and the codec id in the low 7
+ * bits, followed by the uncompressed length as a 4 byte int and the codec
+ * output. The first byte of a deflate body never has its high bit set, it is
+ * either the zlib header or the top byte of the non negative length that
+ * {@link org.apache.activemq.command.ActiveMQBytesMessage} writes first, so
+ * the two layouts can always be told apart.
+ * <p>
+ * Codecs other than the built in ones are found with the
+ * <code>META-INF/services/org/apache/activemq/compression/&lt;name&gt;</code>
+ * resource, as transports are. A consumer can only decode a body compressed
+ * with such a codec once the codec was looked up by name, for example by
+ * configuring it on the connection factory.
+ */
+public final class CompressionSupport {
+
+    public static final CompressionCodec DEFLATE = new DeflateCompressionCodec();
+    public static final CompressionCodec LZ4 = new LZ4CompressionCodec();
+
+    private static final int CODEC_HEADER = 0x80;
+    private static final int HEADER_LENGTH = 5;
+    private static final int MAX_CODEC_ID = 127;
+
+    /**
+     * The largest length a message body may decompress to, 100 MB unless set
+     * with the <code>org.apache.activemq.compression.maxUncompressedLength</code>
+     * system property. The default matches the max frame size of the
+     * transport connectors in the default broker configuration.
+     */
+    public static final int MAX_UNCOMPRESSED_LENGTH = Integer.getInteger("org.apache.activemq.compression.maxUncompressedLength", 100 * 1024 * 1024);
+
+    private static final FactoryFinder CODEC_FINDER = new FactoryFinder("META-INF/services/org/apache/activemq/compression/");
+    private static final ConcurrentMap<String, CompressionCodec> CODECS_BY_NAME = new ConcurrentHashMap<String, CompressionCodec>();
+    private static final AtomicReferenceArray<CompressionCodec> CODECS_BY_ID = new AtomicReferenceArray<CompressionCodec>(MAX_CODEC_ID + 1);
+
+    static {
+        register(DEFLATE);
+        register(LZ4);
+    }
+
+    private CompressionSupport() {
+    }
+
+    /**
+     * Makes a codec available by name and, to decode bodies, by id.
+     *
+     * @throws IllegalArgumentException if the id is out of range or taken by
+     *         another codec
+     */
+    public static void register(CompressionCodec codec) {
+        int id = codec.getId();
+        if (id < 0 || id > MAX_CODEC_ID) {
+            throw new IllegalArgumentException("Compression codec id must be between 0 and " + MAX_CODEC_ID + ": " + codec.getName());
+        }
+        if (!CODECS_BY_ID.compareAndSet(id, null, codec)) {
+            CompressionCodec existing = CODECS_BY_ID.get(id);
+            if (existing.getClass() != codec.getClass()) {
+                throw new IllegalArgumentException("Compression codec id " + id + " of " + codec.getName() + " is already used by " + existing.getName());
+            }
+            codec = existing;
+        }
+        CODECS_BY_NAME.putIfAbsent(codec.getName(), codec);
+    }
+
+    /**
+     * @throws IllegalArgumentException if there is no codec with the name
+     */
+    public static CompressionCodec getCodec(String name) {
+        CompressionCodec codec = CODECS_BY_NAME.get(name);
+        if (codec == null) {
+            try {
+                codec = (CompressionCodec) CODEC_FINDER.newInstance(name);
+            } catch (Throwable e) {
+                throw new IllegalArgumentException("Unknown compression codec: " + name, e);
+            }
+            register(codec);
+            codec = CODECS_BY_NAME.get(name);
+        }
+        return codec;
+    }
+
+    /**
+     * @return the codec with the id, or null if no such codec was registered
+     */
+    public static CompressionCodec getCodec(int id) {
+        return id >= 0 && id <= MAX_CODEC_ID ? CODECS_BY_ID.get(id) : null;
+    }
+
+    /**
+     * Checks the uncompressed length a body declares before a buffer of that
+     * size is allocated, the length is read from the message and can not be
+     * trusted.
+     *
+     * @param maxLength the largest length the compressed data can decompress
+     *        to with the codec
+     * @throws IOException if the length is negative, larger than maxLength or
+     *         larger than {@link #MAX_UNCOMPRESSED_LENGTH}
+     */
+    public static void checkUncompressedLength(int length, long maxLength) throws IOException {
+        if (length < 0 || length > maxLength || length > MAX_UNCOMPRESSED_LENGTH) {
+            throw new IOException("Invalid uncompressed message body length: " + length);
+        }
+    }
+
+    /**
+     * Compresses a message body, deflate bodies are left to the caller to lay
+     * out as the message type always did.
+     */
+    public static ByteSequence compress(CompressionCodec codec, ByteSequence data) throws IOException {
+        ByteSequence compressed = codec.compress(data);
+        if (codec.getId() == DeflateCompressionCodec.ID) {
+            return compressed;
+        }
+        int length = data.getLength();
+        byte[] body = new byte[HEADER_LENGTH + compressed.getLength()];
+        body[0] = (byte) (CODEC_HEADER | codec.getId());
+        body[1] = (byte) (length >>> 24);
+        body[2] = (byte) (length >>> 16);
+        body[3] = (byte) (length >>> 8);
+        body[4] = (byte) length;
+        System.arraycopy(compressed.getData(), compressed.getOffset(), body, HEADER_LENGTH, compressed.getLength());
+        return new ByteSequence(body);
+    }
+
+    /**
+     * @return true if the body was compressed with a codec other than deflate
+     */
+    public static boolean hasCodecHeader(ByteSequence data) {
+        return data.getLength() > 0 && (data.getData()[data.getOffset()] & CODEC_HEADER) != 0;
+    }
+
+    /**
+     * Decompresses a message body compressed with any codec, a deflate body
+     * is expected to be a plain zlib stream.
+     */
+    public static ByteSequence decompress(ByteSequence data) throws IOException {
+        if (!hasCodecHeader(data)) {
+            return DEFLATE.decompress(data, -1);
+        }
+        if (data.getLength() < HEADER_LENGTH) {
+            throw new IOException("Truncated compressed message body");
+        }
+        int id = data.getData()[data.getOffset()] & MAX_CODEC_ID;
+        CompressionCodec codec = getCodec(id);
+        if (codec == null) {
+            throw new IOException("Message body is compressed with an unknown codec: " + id);
+        }
+        byte[] body = data.getData();
+        int offset = data.getOffset();
+        int length = (body[offset + 1] & 0xFF) << 24 | (body[offset + 2] & 0xFF) << 16 | (body[offset + 3] & 0xFF) << 8 | (body[offset + 4] & 0xFF);
+        ByteSequence compressed = new ByteSequence(data.getData(), data.getOffset() + HEADER_LENGTH, data.getLength() - HEADER_LENGTH);
+        return codec.decompress(compressed, length);
+    }
+}
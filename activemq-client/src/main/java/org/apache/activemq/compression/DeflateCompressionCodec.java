@@ -0,0 +1,128 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.compression;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.activemq.util.ByteArrayOutputStream;
+import org.apache.activemq.util.ByteSequence;
+
+/**
+ * The zlib codec messages have always been compressed with.
+ * <p>
+ * Deflaters and inflaters are taken from a small pool and reset between
+ * messages, rather than allocating and releasing their native state for every
+ * message. The pool is bounded, one that does not fit back in is ended, so
+ * their native memory does not grow with the number of threads that ever
+ * compressed a message.
+ */
+public class DeflateCompressionCodec implements CompressionCodec {
+
+    public static final String NAME = "deflate";
+    public static final int ID = 0;
+
+    private static final int POOL_SIZE = Runtime.getRuntime().availableProcessors();
+
+    private static final BlockingQueue<Deflater> DEFLATERS = new ArrayBlockingQueue<Deflater>(POOL_SIZE);
+    private static final BlockingQueue<Inflater> INFLATERS = new ArrayBlockingQueue<Inflater>(POOL_SIZE);
+
+    @Override
+    public int getId() {
+        return ID;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public ByteSequence compress(ByteSequence data) throws IOException {
+        Deflater deflater = DEFLATERS.poll();
+        if (deflater == null) {
+            deflater = new Deflater();
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, data.getLength() / 2));
+        try {
+            deflater.setInput(data.getData(), data.getOffset(), data.getLength());
+            deflater.finish();
+            byte[] buffer = new byte[Math.min(8 * 1024, data.getLength() + 64)];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                compressed.write(buffer, 0, count);
+            }
+            return compressed.toByteSequence();
+        } finally {
+            deflater.reset();
+            if (!DEFLATERS.offer(deflater)) {
+                deflater.end();
+            }
+        }
+    }
+
+    /**
+     * Decompresses into a buffer that grows with the inflated data, a known
+     * uncompressed length only bounds it: the length is read from the message
+     * and a few bytes could otherwise claim a body of gigabytes.
+     */
+    @Override
+    public ByteSequence decompress(ByteSequence data, int uncompressedLength) throws IOException {
+        if (uncompressedLength >= 0) {
+            CompressionSupport.checkUncompressedLength(uncompressedLength, Integer.MAX_VALUE);
+        }
+        int limit = uncompressedLength >= 0 ? uncompressedLength : CompressionSupport.MAX_UNCOMPRESSED_LENGTH;
+        Inflater inflater = INFLATERS.poll();
+        if (inflater == null) {
+            inflater = new Inflater();
+        }
+        try {
+            inflater.setInput(data.getData(), data.getOffset(), data.getLength());
+            byte[] result = new byte[(int) Math.min(limit, Math.max(64L, data.getLength() * 4L))];
+            int count = 0;
+            while (count < limit && !inflater.finished()) {
+                if (count == result.length) {
+                    result = Arrays.copyOf(result, (int) Math.min(limit, result.length * 2L));
+                }
+                int inflated = inflater.inflate(result, count, result.length - count);
+                if (inflated == 0 && !inflater.finished() && (inflater.needsInput() || inflater.needsDictionary())) {
+                    if (uncompressedLength < 0) {
+                        throw new IOException("Truncated deflate data");
+                    }
+                    break;
+                }
+                count += inflated;
+            }
+            if (uncompressedLength < 0 && !inflater.finished()) {
+                throw new IOException("Deflate data decompresses to more than " + limit + " bytes");
+            }
+            return new ByteSequence(result, 0, count);
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        } finally {
+            inflater.reset();
+            if (!INFLATERS.offer(inflater)) {
+                inflater.end();
+            }
+        }
+    }
+}
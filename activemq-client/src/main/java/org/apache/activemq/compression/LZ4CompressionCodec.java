@@ -0,0 +1,233 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.compression;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.activemq.util.ByteSequence;
+
+/**
+ * A pure Java codec that writes the LZ4 block format.
+ * <p>
+ * The compressor does a single greedy pass with a hash table of the last
+ * position every 4 byte sequence was seen at, which trades compression ratio
+ * for speed: it is many times faster than deflate on typical message bodies.
+ * The hash table is kept per thread and reused between messages. The
+ * uncompressed length is needed to decompress, it is carried next to the
+ * codec id, see {@link CompressionSupport}.
+ */
+public class LZ4CompressionCodec implements CompressionCodec {
+
+    public static final String NAME = "lz4";
+    public static final int ID = 1;
+
+    private static final int MIN_MATCH = 4;
+    // the last match has to start at least this far from the end of the input
+    private static final int MF_LIMIT = 12;
+    // and the input always ends with this many literals
+    private static final int LAST_LITERALS = 5;
+    private static final int MAX_DISTANCE = 65535;
+    private static final int HASH_LOG = 12;
+    private static final int SKIP_TRIGGER = 6;
+    private static final int RUN_MASK = 15;
+
+    private static final ThreadLocal<int[]> HASH_TABLE = ThreadLocal.withInitial(() -> new int[1 << HASH_LOG]);
+
+    @Override
+    public int getId() {
+        return ID;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * @return the largest size the given number of bytes can compress to
+     */
+    public static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * @return the largest size the given number of compressed bytes can
+     *         decompress to, a match can not copy more than 255 bytes for
+     *         each byte that encodes it
+     */
+    public static long maxUncompressedLength(int compressedLength) {
+        return 255L * compressedLength + 16;
+    }
+
+    @Override
+    public ByteSequence compress(ByteSequence data) throws IOException {
+        byte[] dst = new byte[maxCompressedLength(data.getLength())];
+        int length = compress(data.getData(), data.getOffset(), data.getLength(), dst, HASH_TABLE.get());
+        return new ByteSequence(dst, 0, length);
+    }
+
+    @Override
+    public ByteSequence decompress(ByteSequence data, int uncompressedLength) throws IOException {
+        if (uncompressedLength < 0) {
+            throw new IOException("The uncompressed length is required to decompress LZ4 data");
+        }
+        CompressionSupport.checkUncompressedLength(uncompressedLength, maxUncompressedLength(data.getLength()));
+        byte[] dst = new byte[uncompressedLength];
+        decompress(data.getData(), data.getOffset(), data.getLength(), dst);
+        return new ByteSequence(dst, 0, uncompressedLength);
+    }
+
+    static int compress(byte[] src, int srcOffset, int srcLength, byte[] dst, int[] table) {
+        final int end = srcOffset + srcLength;
+        final int matchLimit = end - LAST_LITERALS;
+        final int mfLimit = end - MF_LIMIT;
+        int anchor = srcOffset;
+        int dp = 0;
+
+        if (srcLength > MF_LIMIT) {
+            Arrays.fill(table, -1);
+            int sp = srcOffset;
+            int searchMatchCount = 1 << SKIP_TRIGGER;
+            while (sp < mfLimit) {
+                int sequence = readInt(src, sp);
+                int hash = hash(sequence);
+                int ref = table[hash];
+                table[hash] = sp;
+                if (ref < 0 || sp - ref > MAX_DISTANCE || readInt(src, ref) != sequence) {
+                    // skip faster over data that does not compress
+                    sp += searchMatchCount++ >>> SKIP_TRIGGER;
+                    continue;
+                }
+                searchMatchCount = 1 << SKIP_TRIGGER;
+
+                while (sp > anchor && ref > srcOffset && src[sp - 1] == src[ref - 1]) {
+                    sp--;
+                    ref--;
+                }
+                int matchLength = MIN_MATCH;
+                while (sp + matchLength < matchLimit && src[sp + matchLength] == src[ref + matchLength]) {
+                    matchLength++;
+                }
+
+                dp = writeLiterals(src, anchor, sp - anchor, dst, dp, matchLength - MIN_MATCH);
+                int distance = sp - ref;
+                dst[dp++] = (byte) distance;
+                dst[dp++] = (byte) (distance >>> 8);
+                dp = writeLength(matchLength - MIN_MATCH, dst, dp);
+
+                sp += matchLength;
+                anchor = sp;
+            }
+        }
+
+        return writeLiterals(src, anchor, end - anchor, dst, dp, 0);
+    }
+
+    // writes the token, which also holds the match length, and the literals
+    private static int writeLiterals(byte[] src, int offset, int length, byte[] dst, int dp, int matchLength) {
+        int token = (Math.min(length, RUN_MASK) << 4) | Math.min(matchLength, RUN_MASK);
+        dst[dp++] = (byte) token;
+        dp = writeLength(length, dst, dp);
+        System.arraycopy(src, offset, dst, dp, length);
+        return dp + length;
+    }
+
+    // writes the part of a length that does not fit in its 4 bits of the token
+    private static int writeLength(int length, byte[] dst, int dp) {
+        if (length >= RUN_MASK) {
+            length -= RUN_MASK;
+            while (length >= 255) {
+                dst[dp++] = (byte) 255;
+                length -= 255;
+            }
+            dst[dp++] = (byte) length;
+        }
+        return dp;
+    }
+
+    static void decompress(byte[] src, int srcOffset, int srcLength, byte[] dst) throws IOException {
+        final int end = srcOffset + srcLength;
+        int sp = srcOffset;
+        int dp = 0;
+        try {
+            while (true) {
+                int token = src[sp++] & 0xFF;
+
+                int literals = token >>> 4;
+                if (literals == RUN_MASK) {
+                    int b;
+                    do {
+                        b = src[sp++] & 0xFF;
+                        literals += b;
+                    } while (b == 255);
+                }
+                if (literals > end - sp || literals > dst.length - dp) {
+                    throw new IOException("Malformed LZ4 data: literals overrun the buffer");
+                }
+                System.arraycopy(src, sp, dst, dp, literals);
+                sp += literals;
+                dp += literals;
+                if (sp == end) {
+                    break;
+                }
+                if (end - sp < 2) {
+                    throw new IOException("Malformed LZ4 data: truncated input");
+                }
+
+                int distance = (src[sp] & 0xFF) | (src[sp + 1] & 0xFF) << 8;
+                sp += 2;
+                int matchLength = token & RUN_MASK;
+                if (matchLength == RUN_MASK) {
+                    int b;
+                    do {
+                        b = src[sp++] & 0xFF;
+                        matchLength += b;
+                    } while (b == 255);
+                }
+                matchLength += MIN_MATCH;
+                if (distance == 0 || distance > dp || matchLength > dst.length - dp) {
+                    throw new IOException("Malformed LZ4 data: match outside of the buffer");
+                }
+
+                int ref = dp - distance;
+                if (distance >= matchLength) {
+                    System.arraycopy(dst, ref, dst, dp, matchLength);
+                    dp += matchLength;
+                } else {
+                    // the match overlaps the bytes it produces
+                    for (int i = 0; i < matchLength; i++) {
+                        dst[dp++] = dst[ref++];
+                    }
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Malformed LZ4 data: truncated input", e);
+        }
+        if (dp != dst.length) {
+            throw new IOException("Malformed LZ4 data: decompressed " + dp + " of " + dst.length + " bytes");
+        }
+    }
+
+    private static int readInt(byte[] buffer, int offset) {
+        return (buffer[offset] & 0xFF) | (buffer[offset + 1] & 0xFF) << 8 | (buffer[offset + 2] & 0xFF) << 16 | (buffer[offset + 3] & 0xFF) << 24;
+    }
+
+    private static int hash(int sequence) {
+        return (sequence * -1640531535) >>> (32 - HASH_LOG);
+    }
+}
@@ -217,7 +217,7 @@ public abstract class ComparisonExpression extends BinaryExpression implements B
         return new EqualsExpression(left, right);
     }
 
-    private static class EqualsExpression extends ComparisonExpression {
+    static class EqualsExpression extends ComparisonExpression {
         EqualsExpression(Expression left, Expression right) {
             super(left, right);
         }
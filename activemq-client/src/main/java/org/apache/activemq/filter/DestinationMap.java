@@ -16,14 +16,13 @@
  */
 package org.apache.activemq.filter;
 
-import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.SortedSet;
-import java.util.TreeSet;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.activemq.command.ActiveMQDestination;
 
@@ -36,17 +35,26 @@ import org.apache.activemq.command.ActiveMQDestination;
  * destination steps. So looking up the values for "TEST.*" or "*.TEST" will be
  * pretty fast. <br>
  * Looking up of a value could return a single value or a List of matching
- * values if a wildcard or composite destination is used.
+ * values if a wildcard or composite destination is used. <br>
+ * Lookups do not lock and can run while the map is being changed, changes are
+ * serialized on the map.
  */
 public class DestinationMap {
     protected static final String ANY_DESCENDENT = DestinationFilter.ANY_DESCENDENT;
     protected static final String ANY_CHILD = DestinationFilter.ANY_CHILD;
+    public static final int DEFAULT_CHOOSE_VALUE_CACHE_SIZE = 10000;
 
-    private DestinationMapNode queueRootNode = new DestinationMapNode(null);
-    private DestinationMapNode tempQueueRootNode = new DestinationMapNode(null);
-    private DestinationMapNode topicRootNode = new DestinationMapNode(null);
-    private DestinationMapNode tempTopicRootNode = new DestinationMapNode(null);
+    private static final Object NO_VALUE = new Object();
 
+    private volatile DestinationMapNode queueRootNode = new DestinationMapNode(null);
+    private volatile DestinationMapNode tempQueueRootNode = new DestinationMapNode(null);
+    private volatile DestinationMapNode topicRootNode = new DestinationMapNode(null);
+    private volatile DestinationMapNode tempTopicRootNode = new DestinationMapNode(null);
+
+    // the values chosen per destination, replaced whenever the map changes
+    private volatile Map<ActiveMQDestination, Object> chooseValueCache = new ConcurrentHashMap<ActiveMQDestination, Object>();
+    private int chooseValueCacheSize = DEFAULT_CHOOSE_VALUE_CACHE_SIZE;
+    private final AtomicLong version = new AtomicLong();
 
     /**
      * Looks up the value(s) matching the given Destination key. For simple
@@ -60,9 +68,7 @@ public class DestinationMap {
      */
     @SuppressWarnings({"rawtypes", "unchecked"})
     public Set get(ActiveMQDestination key) {
-        synchronized (this) {
-            return unsynchronizedGet(key);
-        }
+        return unsynchronizedGet(key);
     }
 
     @SuppressWarnings({"rawtypes", "unchecked"})
@@ -101,6 +107,7 @@ public class DestinationMap {
         }
         String[] paths = key.getDestinationPaths();
         getRootNode(key).add(paths, 0, value);
+        changed();
     }
 
 
@@ -124,7 +131,7 @@ public class DestinationMap {
         }
         String[] paths = key.getDestinationPaths();
         getRootNode(key).remove(paths, 0, value);
-
+        changed();
     }
 
     public int getTopicRootChildCount() {
@@ -200,7 +207,7 @@ public class DestinationMap {
      * @return
      */
     @SuppressWarnings({"rawtypes", "unchecked"})
-    public Set removeAll(ActiveMQDestination key) {
+    public synchronized Set removeAll(ActiveMQDestination key) {
         Set rc = new HashSet();
         if (key.isComposite()) {
             ActiveMQDestination[] destinations = key.getCompositeDestinations();
@@ -211,6 +218,7 @@ public class DestinationMap {
         }
         String[] paths = key.getDestinationPaths();
         getRootNode(key).removeAll(rc, paths, 0);
+        changed();
         return rc;
     }
 
@@ -218,32 +226,53 @@ public class DestinationMap {
      * Returns the value which matches the given destination or null if there is
      * no matching value. If there are multiple values, the results are sorted
      * and the last item (the biggest) is returned.
+     * <p>
+     * The chosen values are cached per destination until the map changes.
      *
      * @param destination the destination to find the value for
      * @return the largest matching value or null if no value matches
      */
-    @SuppressWarnings({"rawtypes", "unchecked"})
+    @SuppressWarnings("rawtypes")
     public DestinationMapEntry chooseValue(final ActiveMQDestination destination) {
+        Map<ActiveMQDestination, Object> cache = chooseValueCache;
+        Object cached = cache.get(destination);
+        if (cached != null) {
+            return cached == NO_VALUE ? null : (DestinationMapEntry) cached;
+        }
+
+        DestinationMapEntry answer = resolveValue(destination);
+        if (chooseValueCacheSize > 0) {
+            if (cache.size() >= chooseValueCacheSize) {
+                cache.clear();
+            }
+            // a value resolved while the map changed goes into the replaced cache
+            cache.put(destination, answer != null ? answer : NO_VALUE);
+        }
+        return answer;
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private DestinationMapEntry resolveValue(final ActiveMQDestination destination) {
         Set<DestinationMapEntry> set = get(destination);
         if (set == null || set.isEmpty()) {
             return null;
         }
 
-        //Comparator to sort in order - we want to pick the exact match by destination or the
-        //closest parent that applies
-        final Comparator<DestinationMapEntry> comparator = new Comparator<DestinationMapEntry>() {
-            @Override
-            public int compare(DestinationMapEntry entry1, DestinationMapEntry entry2) {
-                return destination.equals(entry1.destination) ? -1 : (destination.equals(entry2.destination) ? 1 : entry1.compareTo(entry2));
+        //Pick the exact match by destination or the closest parent that applies,
+        //filtering out any children and non matching entries
+        DestinationMapEntry answer = null;
+        for (DestinationMapEntry entry : set) {
+            if (!isMatchOrParent(destination, entry)) {
+                continue;
             }
-        };
-
-        //Sort and filter out any children and non matching entries
-        final SortedSet<DestinationMapEntry> sortedSet = set.stream()
-            .filter(entry -> isMatchOrParent(destination, (DestinationMapEntry)entry))
-            .collect(Collectors.toCollection(() -> new TreeSet<DestinationMapEntry>(comparator)));
-
-        return sortedSet.size() > 0 ? sortedSet.first() : null;
+            if (destination.equals(entry.destination)) {
+                return entry;
+            }
+            if (answer == null || entry.compareTo(answer) < 0) {
+                answer = entry;
+            }
+        }
+        return answer;
     }
 
     @SuppressWarnings("rawtypes")
@@ -253,8 +282,43 @@ public class DestinationMap {
         if (entry.getDestination() == null) {
             return true;
         }
-        final DestinationFilter filter = DestinationFilter.parseFilter(entry.getDestination());
-        return destination.equals(entry.getDestination()) || filter.matches(destination);
+        return destination.equals(entry.getDestination()) || entry.getDestinationFilter().matches(destination);
+    }
+
+    /**
+     * Called whenever the map changes, moves the map to its next version and
+     * drops the values cached by {@link #chooseValue(ActiveMQDestination)}.
+     */
+    protected void changed() {
+        version.incrementAndGet();
+        clearChooseValueCache();
+    }
+
+    /**
+     * Drops the values cached by {@link #chooseValue(ActiveMQDestination)}.
+     */
+    protected void clearChooseValueCache() {
+        chooseValueCache = new ConcurrentHashMap<ActiveMQDestination, Object>();
+    }
+
+    /**
+     * @return a version that changes whenever the map changes
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    public int getChooseValueCacheSize() {
+        return chooseValueCacheSize;
+    }
+
+    /**
+     * Sets the number of destinations for which the chosen value is cached,
+     * 0 disables the cache.
+     */
+    public void setChooseValueCacheSize(int chooseValueCacheSize) {
+        this.chooseValueCacheSize = chooseValueCacheSize;
+        clearChooseValueCache();
     }
 
     /**
@@ -276,11 +340,12 @@ public class DestinationMap {
         }
     }
 
-    public void reset() {
+    public synchronized void reset() {
         queueRootNode = new DestinationMapNode(null);
         tempQueueRootNode = new DestinationMapNode(null);
         topicRootNode = new DestinationMapNode(null);
         tempTopicRootNode = new DestinationMapNode(null);
+        changed();
     }
 
     public boolean isEmpty() {
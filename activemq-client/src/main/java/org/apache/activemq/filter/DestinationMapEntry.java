@@ -28,6 +28,7 @@ import org.apache.activemq.command.*;
 public abstract class DestinationMapEntry<T> implements Comparable<T> {
 
     protected ActiveMQDestination destination;
+    private volatile DestinationFilter filter;
 
     public int compareTo(Object that) {
         if (that instanceof DestinationMapEntry) {
@@ -68,6 +69,19 @@ public abstract class DestinationMapEntry<T> implements Comparable<T> {
 
     public void setDestination(ActiveMQDestination destination) {
         this.destination = destination;
+        this.filter = null;
+    }
+
+    /**
+     * @return the filter for the destination, parsed once
+     */
+    DestinationFilter getDestinationFilter() {
+        DestinationFilter answer = filter;
+        if (answer == null) {
+            answer = DestinationFilter.parseFilter(destination);
+            filter = answer;
+        }
+        return answer;
     }
 
     public Comparable<T> getValue() {
@@ -18,25 +18,28 @@ package org.apache.activemq.filter;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * An implementation class used to implement {@link DestinationMap}
- *
- *
+ * <p>
+ * The children are kept in a concurrent map and the values in a copy on write
+ * list, so the tree can be searched while it is being changed. Changes have to
+ * be serialized by the owner of the tree.
  */
 public class DestinationMapNode implements DestinationNode {
     protected static final String ANY_CHILD = DestinationMap.ANY_CHILD;
     protected static final String ANY_DESCENDENT = DestinationMap.ANY_DESCENDENT;
 
-    // we synchronize at the DestinationMap level
+    // changes are serialized at the DestinationMap level, lookups do not lock
     private DestinationMapNode parent;
-    private List<Object> values = new ArrayList<Object>();
-    private Map<String, DestinationNode> childNodes = new HashMap<String, DestinationNode>();
+    private final List<Object> values = new CopyOnWriteArrayList<Object>();
+    private final Map<String, DestinationNode> childNodes = new ConcurrentHashMap<String, DestinationNode>();
     private String path = "Root";
     // private DestinationMapNode anyChild;
     private int pathLength;
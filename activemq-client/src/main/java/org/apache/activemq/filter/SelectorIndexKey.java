@@ -0,0 +1,170 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.filter;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The property and the set of values a selector requires a message to carry
+ * for the selector to have any chance of matching.
+ *
+ * A key can be extracted from selectors of the form <code>prop = value</code>,
+ * <code>prop IN (...)</code>, an OR of those on the same property, or an AND
+ * where at least one of the operands is one of those. Messages whose value for
+ * the property is not in the key can be skipped without evaluating the full
+ * selector, all other messages still need the selector to be evaluated.
+ */
+public final class SelectorIndexKey {
+
+    /**
+     * Returned by {@link #normalize(Object)} for values that can never be
+     * equal to an indexed value.
+     */
+    public static final Object NO_MATCH = new Object();
+
+    /**
+     * Returned by {@link #normalize(Object)} for values that may compare equal
+     * to an indexed value through numeric conversion, the selector has to be
+     * evaluated.
+     */
+    public static final Object UNKNOWN = new Object();
+
+    // largest magnitude at which every integral float is exactly representable
+    private static final double MAX_EXACT_FLOAT = 1 << 24;
+
+    private final PropertyExpression property;
+    private final Set<Object> values;
+
+    private SelectorIndexKey(PropertyExpression property, Set<Object> values) {
+        this.property = property;
+        this.values = Collections.unmodifiableSet(values);
+    }
+
+    /**
+     * @return the key for the selector, or null if the selector can not be
+     *         indexed
+     */
+    public static SelectorIndexKey create(BooleanExpression selector) {
+        if (selector instanceof ComparisonExpression.EqualsExpression) {
+            ComparisonExpression.EqualsExpression equals = (ComparisonExpression.EqualsExpression) selector;
+            if (equals.convertStringExpressions) {
+                return null;
+            }
+            if (equals.getLeft() instanceof PropertyExpression && equals.getRight() instanceof ConstantExpression) {
+                return create((PropertyExpression) equals.getLeft(), (ConstantExpression) equals.getRight());
+            }
+            if (equals.getRight() instanceof PropertyExpression && equals.getLeft() instanceof ConstantExpression) {
+                return create((PropertyExpression) equals.getRight(), (ConstantExpression) equals.getLeft());
+            }
+        } else if (selector instanceof UnaryExpression.InExpression) {
+            UnaryExpression.InExpression in = (UnaryExpression.InExpression) selector;
+            if (!in.not && in.getRight() instanceof PropertyExpression) {
+                Set<Object> values = new HashSet<Object>();
+                if (in.inList != null) {
+                    for (Object value : in.inList) {
+                        if (!(value instanceof String)) {
+                            return null;
+                        }
+                        values.add(value);
+                    }
+                }
+                return new SelectorIndexKey((PropertyExpression) in.getRight(), values);
+            }
+        } else if (selector instanceof LogicExpression.ORExpression) {
+            // every branch has to be restricted to the same property
+            SelectorIndexKey result = null;
+            Set<Object> values = new HashSet<Object>();
+            for (BooleanExpression expression : ((LogicExpression) selector).expressions) {
+                SelectorIndexKey key = create(expression);
+                if (key == null || (result != null && !result.property.equals(key.property))) {
+                    return null;
+                }
+                values.addAll(key.values);
+                result = key;
+            }
+            return result != null ? new SelectorIndexKey(result.property, values) : null;
+        } else if (selector instanceof LogicExpression.ANDExpression) {
+            // any restricted operand restricts the whole conjunction
+            for (BooleanExpression expression : ((LogicExpression) selector).expressions) {
+                SelectorIndexKey key = create(expression);
+                if (key != null) {
+                    return key;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static SelectorIndexKey create(PropertyExpression property, ConstantExpression constant) {
+        Object value = constant.getValue();
+        if (value instanceof String || value instanceof Integer || value instanceof Long) {
+            Set<Object> values = new HashSet<Object>();
+            values.add(normalize(value));
+            return new SelectorIndexKey(property, values);
+        }
+        return null;
+    }
+
+    /**
+     * Converts a message property value into the form used in the index so
+     * that values which compare equal in a selector map to the same key.
+     *
+     * @return the normalized value, {@link #NO_MATCH} or {@link #UNKNOWN}
+     */
+    public static Object normalize(Object value) {
+        if (value == null || value instanceof Boolean) {
+            return NO_MATCH;
+        } else if (value instanceof String || value instanceof Long) {
+            return value;
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return Long.valueOf(((Number) value).longValue());
+        } else if (value instanceof Float || value instanceof Double) {
+            double d = ((Number) value).doubleValue();
+            if (d != Math.rint(d)) {
+                return NO_MATCH;
+            }
+            if (Math.abs(d) >= MAX_EXACT_FLOAT) {
+                return UNKNOWN;
+            }
+            return Long.valueOf((long) d);
+        }
+        return UNKNOWN;
+    }
+
+    public PropertyExpression getProperty() {
+        return property;
+    }
+
+    public Set<Object> getValues() {
+        return values;
+    }
+
+    /**
+     * @param normalizedValue a value returned by {@link #normalize(Object)}
+     * @return false if a message carrying the value can not match the selector
+     */
+    public boolean mayMatch(Object normalizedValue) {
+        return normalizedValue == UNKNOWN || values.contains(normalizedValue);
+    }
+
+    @Override
+    public String toString() {
+        return property + " IN " + values;
+    }
+}
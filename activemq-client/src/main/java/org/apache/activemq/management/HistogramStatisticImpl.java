@@ -0,0 +1,277 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.management;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram statistic that counts the recorded values in log-linear buckets,
+ * as HdrHistogram does: every power of two range is split into 32 linear sub
+ * buckets, so a bucket is never wider than 1/32 of the values it holds. Values
+ * below 64 get a bucket each.
+ * <p>
+ * Recording a value does not lock, so values can be recorded from a hot path
+ * while the statistic is read. The buckets of a power of two range are only
+ * allocated once a value falls in it, as most statistics only ever see a few
+ * ranges. A percentile is interpolated within the bucket it falls in, which
+ * keeps it within {@link #MAX_RELATIVE_ERROR} of the recorded value.
+ * <p>
+ * A value is only recorded in the statistic it is recorded with. A parent
+ * merges the values of its children when it is read, and takes over the values
+ * of a child when the child is detached from it. Resetting a parent does not
+ * reset its children.
+ */
+public class HistogramStatisticImpl extends StatisticImpl {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // row 0 holds the values below SUB_BUCKETS, row r > 0 those in [2^(r+4), 2^(r+5))
+    private static final int ROWS = 64 - SUB_BUCKET_BITS;
+
+    /**
+     * The largest error of a reported percentile, relative to the recorded
+     * value it stands for.
+     */
+    public static final double MAX_RELATIVE_ERROR = 1.0 / SUB_BUCKETS;
+
+    private final AtomicReferenceArray<LongAdder[]> rows = new AtomicReferenceArray<LongAdder[]>(ROWS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+    private final List<HistogramStatisticImpl> children = new CopyOnWriteArrayList<HistogramStatisticImpl>();
+    private HistogramStatisticImpl parent;
+
+    public HistogramStatisticImpl(String name, String unit, String description) {
+        super(name, unit, description);
+    }
+
+    public HistogramStatisticImpl(HistogramStatisticImpl parent, String name, String unit, String description) {
+        this(name, unit, description);
+        setParent(parent);
+    }
+
+    @Override
+    public synchronized void reset() {
+        if (isDoReset()) {
+            super.reset();
+            for (int i = 0; i < ROWS; i++) {
+                LongAdder[] row = rows.get(i);
+                if (row != null) {
+                    for (LongAdder bucket : row) {
+                        bucket.reset();
+                    }
+                }
+            }
+            count.reset();
+            total.reset();
+            max.set(0);
+        }
+    }
+
+    /**
+     * Records a value, negative values are recorded as 0.
+     */
+    public void record(long value) {
+        if (!isEnabled()) {
+            return;
+        }
+        if (value < 0) {
+            value = 0;
+        }
+        int row = rowOf(value);
+        getRow(row)[subBucketOf(value, row)].increment();
+        count.increment();
+        total.add(value);
+        if (value > max.get()) {
+            updateMax(max, value);
+        }
+        // the sample time only has a millisecond resolution, only write it once it moved on
+        if (System.currentTimeMillis() != getLastSampleTime()) {
+            updateSampleTime();
+        }
+    }
+
+    public long getCount() {
+        long result = count.sum();
+        for (HistogramStatisticImpl child : children) {
+            result += child.getCount();
+        }
+        return result;
+    }
+
+    public long getTotal() {
+        long result = total.sum();
+        for (HistogramStatisticImpl child : children) {
+            result += child.getTotal();
+        }
+        return result;
+    }
+
+    public long getMax() {
+        long result = max.get();
+        for (HistogramStatisticImpl child : children) {
+            result = Math.max(result, child.getMax());
+        }
+        return result;
+    }
+
+    public double getAverage() {
+        long c = getCount();
+        if (c == 0) {
+            return 0;
+        }
+        double d = getTotal();
+        return d / c;
+    }
+
+    /**
+     * @param percentile the percentile, between 0 and 100
+     * @return the given percentile of the recorded values, to within
+     *         {@link #MAX_RELATIVE_ERROR}, or 0 if nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        long[] snapshot = getBucketCounts();
+        long recorded = 0;
+        for (long bucketCount : snapshot) {
+            recorded += bucketCount;
+        }
+        if (recorded == 0) {
+            return 0;
+        }
+        long maximum = getMax();
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * recorded));
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            long bucketCount = snapshot[i];
+            if (bucketCount > 0 && seen + bucketCount >= rank) {
+                int row = i >>> SUB_BUCKET_BITS;
+                int subBucket = i & (SUB_BUCKETS - 1);
+                // the values of a bucket are taken to be spread evenly over it
+                double offset = (rank - seen - 0.5) / bucketCount * bucketWidth(row);
+                return Math.min(lowerBound(row, subBucket) + (long) offset, maximum);
+            }
+            seen += bucketCount;
+        }
+        return maximum;
+    }
+
+    /**
+     * @return the number of recorded values per bucket, the buckets of a power
+     *         of two range follow each other in value order
+     */
+    public long[] getBucketCounts() {
+        long[] result = new long[ROWS * SUB_BUCKETS];
+        addBucketCounts(result);
+        return result;
+    }
+
+    private void addBucketCounts(long[] result) {
+        for (int i = 0; i < ROWS; i++) {
+            LongAdder[] row = rows.get(i);
+            if (row != null) {
+                for (int j = 0; j < SUB_BUCKETS; j++) {
+                    result[i * SUB_BUCKETS + j] += row[j].sum();
+                }
+            }
+        }
+        for (HistogramStatisticImpl child : children) {
+            child.addBucketCounts(result);
+        }
+    }
+
+    public HistogramStatisticImpl getParent() {
+        return parent;
+    }
+
+    public synchronized void setParent(HistogramStatisticImpl parent) {
+        if (this.parent != null) {
+            this.parent.children.remove(this);
+            this.parent.takeOver(this);
+        }
+        this.parent = parent;
+        if (parent != null) {
+            parent.children.add(this);
+        }
+    }
+
+    /**
+     * Adds the values recorded so far by a child that is detached from this
+     * statistic.
+     */
+    private void takeOver(HistogramStatisticImpl child) {
+        long[] childBuckets = child.getBucketCounts();
+        for (int i = 0; i < childBuckets.length; i++) {
+            if (childBuckets[i] > 0) {
+                getRow(i >>> SUB_BUCKET_BITS)[i & (SUB_BUCKETS - 1)].add(childBuckets[i]);
+            }
+        }
+        count.add(child.getCount());
+        total.add(child.getTotal());
+        updateMax(max, child.getMax());
+    }
+
+    private LongAdder[] getRow(int index) {
+        LongAdder[] row = rows.get(index);
+        if (row == null) {
+            row = new LongAdder[SUB_BUCKETS];
+            for (int i = 0; i < SUB_BUCKETS; i++) {
+                row[i] = new LongAdder();
+            }
+            if (!rows.compareAndSet(index, null, row)) {
+                row = rows.get(index);
+            }
+        }
+        return row;
+    }
+
+    static int rowOf(long value) {
+        return value < SUB_BUCKETS ? 0 : 64 - SUB_BUCKET_BITS - Long.numberOfLeadingZeros(value);
+    }
+
+    static int subBucketOf(long value, int row) {
+        return row == 0 ? (int) value : (int) (value >>> (row - 1)) - SUB_BUCKETS;
+    }
+
+    static long lowerBound(int row, int subBucket) {
+        return row == 0 ? subBucket : (long) (SUB_BUCKETS + subBucket) << (row - 1);
+    }
+
+    static long bucketWidth(int row) {
+        return row == 0 ? 1 : 1L << (row - 1);
+    }
+
+    @Override
+    protected synchronized void appendFieldDescription(StringBuffer buffer) {
+        buffer.append(" count: ");
+        buffer.append(Long.toString(getCount()));
+        buffer.append(" max: ");
+        buffer.append(Long.toString(getMax()));
+        buffer.append(" average: ");
+        buffer.append(Double.toString(getAverage()));
+        buffer.append(" p50: ");
+        buffer.append(Long.toString(getPercentile(50)));
+        buffer.append(" p99: ");
+        buffer.append(Long.toString(getPercentile(99)));
+        buffer.append(" p999: ");
+        buffer.append(Long.toString(getPercentile(99.9)));
+        super.appendFieldDescription(buffer);
+    }
+}
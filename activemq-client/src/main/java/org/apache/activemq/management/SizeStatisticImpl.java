@@ -16,12 +16,21 @@
  */
 package org.apache.activemq.management;
 
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A size statistic implementation
+ * <p>
+ * Adding a size does not lock, see {@link TimeStatisticImpl}. The setters that
+ * restore recovered values are expected to be used before sizes are added.
+ */
 public class SizeStatisticImpl extends StatisticImpl {
 
-    private long count;
-    private volatile long maxSize;
-    private volatile long minSize;
-    private long totalSize;
+    private final LongAdder count = new LongAdder();
+    private final AtomicLong maxSize = new AtomicLong();
+    private final AtomicLong minSize = new AtomicLong();
+    private final LongAdder totalSize = new LongAdder();
     private SizeStatisticImpl parent;
 
     public SizeStatisticImpl(String name, String description) {
@@ -41,26 +50,22 @@ public class SizeStatisticImpl extends StatisticImpl {
     public synchronized void reset() {
         if (isDoReset()) {
             super.reset();
-            count = 0;
-            maxSize = 0;
-            minSize = 0;
-            totalSize = 0;
+            count.reset();
+            maxSize.set(0);
+            minSize.set(0);
+            totalSize.reset();
         }
     }
 
-    public synchronized long getCount() {
-        return count;
+    public long getCount() {
+        return count.sum();
     }
 
-    public synchronized void addSize(long size) {
-        count++;
-        totalSize += size;
-        if (size > maxSize) {
-            maxSize = size;
-        }
-        if (size < minSize || minSize == 0) {
-            minSize = size;
-        }
+    public void addSize(long size) {
+        count.increment();
+        totalSize.add(size);
+        updateMax(maxSize, size);
+        updateMin(minSize, size);
         updateSampleTime();
         if (parent != null) {
             parent.addSize(size);
@@ -73,14 +78,11 @@ public class SizeStatisticImpl extends StatisticImpl {
      * @param size
      */
     public synchronized void setTotalSize(long size) {
-        count++;
-        totalSize = size;
-        if (size > maxSize) {
-            maxSize = size;
-        }
-        if (size < minSize || minSize == 0) {
-            minSize = size;
-        }
+        count.increment();
+        totalSize.reset();
+        totalSize.add(size);
+        updateMax(maxSize, size);
+        updateMin(minSize, size);
         updateSampleTime();
     }
 
@@ -88,63 +90,66 @@ public class SizeStatisticImpl extends StatisticImpl {
      * @return the maximum size of any step
      */
     public long getMaxSize() {
-        return maxSize;
+        return maxSize.get();
     }
 
     /**
      * @return the maximum size of any step
      */
     public void setMaxSize(long size) {
-        maxSize = size;
+        maxSize.set(size);
     }
 
     /**
      * @return the minimum size of any step
      */
     public long getMinSize() {
-        return minSize;
+        return minSize.get();
     }
 
     /**
      * @return the maximum size of any step
      */
     public void setMinSize(long size) {
-        minSize = size;
+        minSize.set(size);
     }
 
     /**
      * @return the total size of all the steps added together
      */
-    public synchronized long getTotalSize() {
-        return totalSize;
+    public long getTotalSize() {
+        return totalSize.sum();
     }
 
     public synchronized void setCount(long count) {
-        this.count = count;
+        this.count.reset();
+        this.count.add(count);
     }
 
     /**
      * @return the average size calculated by dividing the total size by the
      *         number of counts
      */
-    public synchronized double getAverageSize() {
-        if (count == 0) {
+    public double getAverageSize() {
+        long c = getCount();
+        if (c == 0) {
             return 0;
         }
-        double d = totalSize;
-        return d / count;
+        double d = getTotalSize();
+        return d / c;
     }
 
     /**
      * @return the average size calculated by dividing the total size by the
      *         number of counts but excluding the minimum and maximum sizes.
      */
-    public synchronized double getAverageSizeExcludingMinMax() {
-        if (count <= 2) {
+    public double getAverageSizeExcludingMinMax() {
+        long c = getCount();
+        if (c <= 2) {
             return 0;
         }
-        double d = totalSize - minSize - maxSize;
-        return d / (count - 2);
+        double d = getTotalSize() - getMinSize() - getMaxSize();
+        return d / (c - 2);
     }
 
     /**
@@ -183,13 +188,13 @@ public class SizeStatisticImpl extends StatisticImpl {
     @Override
     protected synchronized void appendFieldDescription(StringBuffer buffer) {
         buffer.append(" count: ");
-        buffer.append(Long.toString(count));
+        buffer.append(Long.toString(getCount()));
         buffer.append(" maxSize: ");
-        buffer.append(Long.toString(maxSize));
+        buffer.append(Long.toString(getMaxSize()));
         buffer.append(" minSize: ");
-        buffer.append(Long.toString(minSize));
+        buffer.append(Long.toString(getMinSize()));
         buffer.append(" totalSize: ");
-        buffer.append(Long.toString(totalSize));
+        buffer.append(Long.toString(getTotalSize()));
         buffer.append(" averageSize: ");
         buffer.append(Double.toString(getAverageSize()));
         buffer.append(" averageTimeExMinMax: ");
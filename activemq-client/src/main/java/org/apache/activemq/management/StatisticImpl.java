@@ -16,6 +16,8 @@
  */
 package org.apache.activemq.management;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Base class for a Statistic implementation
  * 
@@ -28,8 +30,8 @@ public class StatisticImpl implements Statistic, Resettable {
     private String name;
     private String unit;
     private String description;
-    private long startTime;
-    private long lastSampleTime;
+    private volatile long startTime;
+    private volatile long lastSampleTime;
     private boolean doReset = true;
 
     public StatisticImpl(String name, String unit, String description) {
@@ -47,10 +49,31 @@ public class StatisticImpl implements Statistic, Resettable {
         }
     }
 
-    protected synchronized void updateSampleTime() {
+    protected void updateSampleTime() {
         this.lastSampleTime = System.currentTimeMillis();
     }
 
+    /**
+     * Raises the given maximum to the value if it is larger, without locking.
+     */
+    protected static void updateMax(AtomicLong max, long value) {
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Lowers the given minimum to the value if it is smaller or if no minimum
+     * was recorded yet, which is the case while it is 0, without locking.
+     */
+    protected static void updateMin(AtomicLong min, long value) {
+        long current = min.get();
+        while ((value < current || current == 0) && value != current && !min.compareAndSet(current, value)) {
+            current = min.get();
+        }
+    }
+
     public synchronized String toString() {
         StringBuffer buffer = new StringBuffer();
         buffer.append(name);
@@ -72,11 +95,11 @@ public class StatisticImpl implements Statistic, Resettable {
         return this.description;
     }
 
-    public synchronized long getStartTime() {
+    public long getStartTime() {
         return this.startTime;
     }
 
-    public synchronized long getLastSampleTime() {
+    public long getLastSampleTime() {
         return this.lastSampleTime;
     }
 
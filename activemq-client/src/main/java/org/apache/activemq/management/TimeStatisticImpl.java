@@ -16,17 +16,22 @@
  */
 package org.apache.activemq.management;
 
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * A time statistic implementation
- *
- * 
+ * <p>
+ * Adding a time does not lock: the count and total are striped adders and the
+ * minimum and maximum are updated with compare and set, so threads that
+ * update the statistic of the same destination do not contend on a monitor.
+ * The values read while times are being added are not a consistent snapshot.
  */
 public class TimeStatisticImpl extends StatisticImpl {
-    private long count;
-    private long maxTime;
-    private long minTime;
-    private long totalTime;
+    private final LongAdder count = new LongAdder();
+    private final AtomicLong maxTime = new AtomicLong();
+    private final AtomicLong minTime = new AtomicLong();
+    private final LongAdder totalTime = new LongAdder();
     private TimeStatisticImpl parent;
 
     public TimeStatisticImpl(String name, String description) {
@@ -45,26 +50,22 @@ public class TimeStatisticImpl extends StatisticImpl {
     public synchronized void reset() {
         if(isDoReset()) {
             super.reset();
-            count = 0;
-            maxTime = 0;
-            minTime = 0;
-            totalTime = 0;
+            count.reset();
+            maxTime.set(0);
+            minTime.set(0);
+            totalTime.reset();
         }
     }
 
-    public synchronized long getCount() {
-        return count;
+    public long getCount() {
+        return count.sum();
     }
 
-    public synchronized void addTime(long time) {
-        count++;
-        totalTime += time;
-        if (time > maxTime) {
-            maxTime = time;
-        }
-        if (time < minTime || minTime == 0) {
-            minTime = time;
-        }
+    public void addTime(long time) {
+        count.increment();
+        totalTime.add(time);
+        updateMax(maxTime, time);
+        updateMin(minTime, time);
         updateSampleTime();
         if (parent != null) {
             parent.addTime(time);
@@ -75,33 +76,34 @@ public class TimeStatisticImpl extends StatisticImpl {
      * @return the maximum time of any step
      */
     public long getMaxTime() {
-        return maxTime;
+        return maxTime.get();
     }
 
     /**
      * @return the minimum time of any step
      */
-    public synchronized long getMinTime() {
-        return minTime;
+    public long getMinTime() {
+        return minTime.get();
     }
 
     /**
      * @return the total time of all the steps added together
      */
-    public synchronized long getTotalTime() {
-        return totalTime;
+    public long getTotalTime() {
+        return totalTime.sum();
     }
 
     /**
      * @return the average time calculated by dividing the
      *         total time by the number of counts
      */
-    public synchronized double getAverageTime() {
-        if (count == 0) {
+    public double getAverageTime() {
+        long c = getCount();
+        if (c == 0) {
             return 0;
         }
-        double d = totalTime;
-        return d / count;
+        double d = getTotalTime();
+        return d / c;
     }
 
 
@@ -110,12 +112,13 @@ public class TimeStatisticImpl extends StatisticImpl {
      *         total time by the number of counts but excluding the
      *         minimum and maximum times.
      */
-    public synchronized double getAverageTimeExcludingMinMax() {
-        if (count <= 2) {
+    public double getAverageTimeExcludingMinMax() {
+        long c = getCount();
+        if (c <= 2) {
             return 0;
         }
-        double d = totalTime - minTime - maxTime;
-        return d / (count - 2);
+        double d = getTotalTime() - getMinTime() - getMaxTime();
+        return d / (c - 2);
     }
 
 
@@ -153,13 +156,13 @@ public class TimeStatisticImpl extends StatisticImpl {
 
     protected synchronized void appendFieldDescription(StringBuffer buffer) {
         buffer.append(" count: ");
-        buffer.append(Long.toString(count));
+        buffer.append(Long.toString(getCount()));
         buffer.append(" maxTime: ");
-        buffer.append(Long.toString(maxTime));
+        buffer.append(Long.toString(getMaxTime()));
         buffer.append(" minTime: ");
-        buffer.append(Long.toString(minTime));
+        buffer.append(Long.toString(getMinTime()));
         buffer.append(" totalTime: ");
-        buffer.append(Long.toString(totalTime));
+        buffer.append(Long.toString(getTotalTime()));
         buffer.append(" averageTime: ");
         buffer.append(Double.toString(getAverageTime()));
         buffer.append(" averageTimeExMinMax: ");
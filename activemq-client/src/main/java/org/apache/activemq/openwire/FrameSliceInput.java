@@ -0,0 +1,142 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.openwire;
+
+import java.io.DataInput;
+import java.io.EOFException;
+import java.io.IOException;
+
+import org.apache.activemq.util.ByteSequence;
+import org.apache.activemq.util.DataByteArrayInputStream;
+
+/**
+ * Reads a frame that was received into an array of its own. Byte sequences
+ * such as message bodies and marshalled properties are unmarshalled as
+ * slices of the frame instead of being copied, so the array must not be
+ * reused once the frame was handed over.
+ *
+ * @see OpenWireFormat#unmarshalFrame(ByteSequence)
+ */
+public final class FrameSliceInput implements DataInput {
+
+    private byte[] data;
+    private int limit;
+    private final DataByteArrayInputStream input;
+
+    public FrameSliceInput(ByteSequence frame) {
+        this.data = frame.getData();
+        this.limit = frame.getOffset() + frame.getLength();
+        this.input = new DataByteArrayInputStream(frame);
+    }
+
+    /**
+     * Starts reading another frame with this input.
+     */
+    void restart(ByteSequence frame) {
+        this.data = frame.getData();
+        this.limit = frame.getOffset() + frame.getLength();
+        this.input.restart(frame);
+    }
+
+    /**
+     * @return the next <code>length</code> bytes of the frame, sharing the
+     *         frame's array
+     */
+    public ByteSequence readSlice(int length) throws IOException {
+        int position = input.position();
+        if (length < 0 || position + length > limit) {
+            throw new EOFException();
+        }
+        input.skipBytes(length);
+        return new ByteSequence(data, position, length);
+    }
+
+    @Override
+    public void readFully(byte[] b) throws IOException {
+        input.readFully(b);
+    }
+
+    @Override
+    public void readFully(byte[] b, int off, int len) throws IOException {
+        input.readFully(b, off, len);
+    }
+
+    @Override
+    public int skipBytes(int n) throws IOException {
+        return input.skipBytes(n);
+    }
+
+    @Override
+    public boolean readBoolean() throws IOException {
+        return input.readBoolean();
+    }
+
+    @Override
+    public byte readByte() throws IOException {
+        return input.readByte();
+    }
+
+    @Override
+    public int readUnsignedByte() throws IOException {
+        return input.readUnsignedByte();
+    }
+
+    @Override
+    public short readShort() throws IOException {
+        return input.readShort();
+    }
+
+    @Override
+    public int readUnsignedShort() throws IOException {
+        return input.readUnsignedShort();
+    }
+
+    @Override
+    public char readChar() throws IOException {
+        return input.readChar();
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        return input.readInt();
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        return input.readLong();
+    }
+
+    @Override
+    public float readFloat() throws IOException {
+        return input.readFloat();
+    }
+
+    @Override
+    public double readDouble() throws IOException {
+        return input.readDouble();
+    }
+
+    @Override
+    public String readLine() throws IOException {
+        return input.readLine();
+    }
+
+    @Override
+    public String readUTF() throws IOException {
+        return input.readUTF();
+    }
+}
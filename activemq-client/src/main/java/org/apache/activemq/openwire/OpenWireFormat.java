@@ -22,6 +22,8 @@ import java.io.IOException;
 import java.lang.reflect.Method;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.activemq.command.CommandTypes;
 import org.apache.activemq.command.DataStructure;
@@ -34,8 +36,15 @@ import org.apache.activemq.util.IOExceptionSupport;
 import org.apache.activemq.wireformat.WireFormat;
 
 /**
- *
- *
+ * The OpenWire {@link WireFormat}.
+ * <p>
+ * When the marshal cache is disabled an instance holds no per frame state, so
+ * commands can be marshalled and unmarshalled from several threads at once,
+ * for instance to encode frames on the dispatch threads and hand them over to
+ * the transport. The cache assigns indexes in the order the frames are written
+ * and read, so while it is enabled marshalling and unmarshalling are
+ * serialized on the instance and the frames have to reach the wire in the
+ * order they were marshalled.
  */
 public final class OpenWireFormat implements WireFormat {
 
@@ -47,27 +56,32 @@ public final class OpenWireFormat implements WireFormat {
     static final byte NULL_TYPE = CommandTypes.NULL;
     private static final int MARSHAL_CACHE_SIZE = Short.MAX_VALUE / 2;
     private static final int MARSHAL_CACHE_FREE_SPACE = 100;
+    private static final ByteSequence EMPTY_SEQUENCE = new ByteSequence(new byte[0]);
 
     private DataStreamMarshaller dataMarshallers[];
     private int version;
     private boolean stackTraceEnabled;
     private boolean tcpNoDelayEnabled;
-    private boolean cacheEnabled;
+    private volatile boolean cacheEnabled;
     private boolean tightEncodingEnabled;
     private boolean sizePrefixDisabled;
     private boolean maxFrameSizeEnabled = true;
     private long maxFrameSize = DEFAULT_MAX_FRAME_SIZE;
 
-    // The following fields are used for value caching
+    // The following fields are used for value caching and guarded by the lock
+    private final ReentrantLock lock = new ReentrantLock();
     private short nextMarshallCacheIndex;
     private short nextMarshallCacheEvictionIndex;
     private Map<DataStructure, Short> marshallCacheMap = new HashMap<DataStructure, Short>();
     private DataStructure marshallCache[] = null;
     private DataStructure unmarshallCache[] = null;
-    private DataByteArrayOutputStream bytesOut = new DataByteArrayOutputStream();
-    private DataByteArrayInputStream bytesIn = new DataByteArrayInputStream();
     private WireFormatInfo preferedWireFormatInfo;
 
+    // Readers kept for the next unmarshal. An unmarshal takes the reader while
+    // it uses it, so concurrent unmarshals without the cache allocate their own.
+    private final AtomicReference<DataByteArrayInputStream> spareBytesIn = new AtomicReference<DataByteArrayInputStream>();
+    private final AtomicReference<FrameSliceInput> spareFrameIn = new AtomicReference<FrameSliceInput>();
+
     public OpenWireFormat() {
         this(DEFAULT_STORE_VERSION);
     }
@@ -124,12 +138,20 @@ public final class OpenWireFormat implements WireFormat {
     }
 
     @Override
-    public synchronized ByteSequence marshal(Object command) throws IOException {
-
+    public ByteSequence marshal(Object command) throws IOException {
         if (cacheEnabled) {
-            runMarshallCacheEvictionSweep();
+            lock.lock();
+            try {
+                runMarshallCacheEvictionSweep();
+                return doMarshal(command);
+            } finally {
+                lock.unlock();
+            }
         }
+        return doMarshal(command);
+    }
 
+    private ByteSequence doMarshal(Object command) throws IOException {
         ByteSequence sequence = null;
         int size = 1;
         if (command != null) {
@@ -150,7 +172,7 @@ public final class OpenWireFormat implements WireFormat {
                     throw IOExceptionSupport.createFrameSizeException(size, maxFrameSize);
                 }
 
-                bytesOut.restart(size);
+                DataByteArrayOutputStream bytesOut = new DataByteArrayOutputStream(size);
                 if (!sizePrefixDisabled) {
                     bytesOut.writeInt(size);
                 }
@@ -160,7 +182,7 @@ public final class OpenWireFormat implements WireFormat {
                 sequence = bytesOut.toByteSequence();
 
             } else {
-                bytesOut.restart();
+                DataByteArrayOutputStream bytesOut = new DataByteArrayOutputStream();
                 if (!sizePrefixDisabled) {
                     bytesOut.writeInt(0); // we don't know the final size
                     // yet but write this here for
@@ -179,7 +201,7 @@ public final class OpenWireFormat implements WireFormat {
             }
 
         } else {
-            bytesOut.restart(5);
+            DataByteArrayOutputStream bytesOut = new DataByteArrayOutputStream(5);
             bytesOut.writeInt(size);
             bytesOut.writeByte(NULL_TYPE);
             sequence = bytesOut.toByteSequence();
@@ -189,8 +211,55 @@ public final class OpenWireFormat implements WireFormat {
     }
 
     @Override
-    public synchronized Object unmarshal(ByteSequence sequence) throws IOException {
-        bytesIn.restart(sequence);
+    public Object unmarshal(ByteSequence sequence) throws IOException {
+        DataByteArrayInputStream bytesIn = spareBytesIn.getAndSet(null);
+        if (bytesIn == null) {
+            bytesIn = new DataByteArrayInputStream(sequence);
+        } else {
+            bytesIn.restart(sequence);
+        }
+        try {
+            return unmarshalSequence(sequence, bytesIn);
+        } finally {
+            bytesIn.restart(EMPTY_SEQUENCE);
+            spareBytesIn.set(bytesIn);
+        }
+    }
+
+    /**
+     * Unmarshals a frame that was received into an array of its own. The
+     * message bodies and marshalled properties of the command are slices of
+     * the frame rather than copies, so the frame's array must not be reused
+     * or modified afterwards.
+     */
+    public Object unmarshalFrame(ByteSequence frame) throws IOException {
+        FrameSliceInput frameIn = spareFrameIn.getAndSet(null);
+        if (frameIn == null) {
+            frameIn = new FrameSliceInput(frame);
+        } else {
+            frameIn.restart(frame);
+        }
+        try {
+            return unmarshalSequence(frame, frameIn);
+        } finally {
+            frameIn.restart(EMPTY_SEQUENCE);
+            spareFrameIn.set(frameIn);
+        }
+    }
+
+    private Object unmarshalSequence(ByteSequence sequence, DataInput bytesIn) throws IOException {
+        if (cacheEnabled) {
+            lock.lock();
+            try {
+                return doUnmarshal(sequence, bytesIn);
+            } finally {
+                lock.unlock();
+            }
+        }
+        return doUnmarshal(sequence, bytesIn);
+    }
+
+    private Object doUnmarshal(ByteSequence sequence, DataInput bytesIn) throws IOException {
         // DataInputStream dis = new DataInputStream(new
         // ByteArrayInputStream(sequence));
 
@@ -214,12 +283,23 @@ public final class OpenWireFormat implements WireFormat {
     }
 
     @Override
-    public synchronized void marshal(Object o, DataOutput dataOut) throws IOException {
-
+    public void marshal(Object o, DataOutput dataOut) throws IOException {
         if (cacheEnabled) {
-            runMarshallCacheEvictionSweep();
+            // held while writing to the transport's stream, a lock rather than
+            // a monitor so a virtual thread blocked on the socket is not pinned
+            lock.lock();
+            try {
+                runMarshallCacheEvictionSweep();
+                doMarshal(o, dataOut);
+            } finally {
+                lock.unlock();
+            }
+        } else {
+            doMarshal(o, dataOut);
         }
+    }
 
+    private void doMarshal(Object o, DataOutput dataOut) throws IOException {
         int size = 1;
         if (o != null) {
 
@@ -248,9 +328,10 @@ public final class OpenWireFormat implements WireFormat {
 
             } else {
                 DataOutput looseOut = dataOut;
+                DataByteArrayOutputStream bytesOut = null;
 
                 if (!sizePrefixDisabled) {
-                    bytesOut.restart();
+                    bytesOut = new DataByteArrayOutputStream();
                     looseOut = bytesOut;
                 }
 
@@ -632,57 +713,60 @@ public final class OpenWireFormat implements WireFormat {
     }
 
     public void renegotiateWireFormat(WireFormatInfo info) throws IOException {
+        lock.lock();
+        try {
+            if (preferedWireFormatInfo == null) {
+                throw new IllegalStateException("Wireformat cannot not be renegotiated.");
+            }
 
-        if (preferedWireFormatInfo == null) {
-            throw new IllegalStateException("Wireformat cannot not be renegotiated.");
-        }
+            this.setVersion(min(preferedWireFormatInfo.getVersion(), info.getVersion()));
+            info.setVersion(this.getVersion());
 
-        this.setVersion(min(preferedWireFormatInfo.getVersion(), info.getVersion()));
-        info.setVersion(this.getVersion());
+            this.setMaxFrameSize(min(preferedWireFormatInfo.getMaxFrameSize(), info.getMaxFrameSize()));
+            info.setMaxFrameSize(this.getMaxFrameSize());
+            //Note: Don't negotiate maxFrameSizeEnabled so the client and server can set independently
 
-        this.setMaxFrameSize(min(preferedWireFormatInfo.getMaxFrameSize(), info.getMaxFrameSize()));
-        info.setMaxFrameSize(this.getMaxFrameSize());
-        //Note: Don't negotiate maxFrameSizeEnabled so the client and server can set independently
+            this.stackTraceEnabled = info.isStackTraceEnabled() && preferedWireFormatInfo.isStackTraceEnabled();
+            info.setStackTraceEnabled(this.stackTraceEnabled);
 
-        this.stackTraceEnabled = info.isStackTraceEnabled() && preferedWireFormatInfo.isStackTraceEnabled();
-        info.setStackTraceEnabled(this.stackTraceEnabled);
+            this.tcpNoDelayEnabled = info.isTcpNoDelayEnabled() && preferedWireFormatInfo.isTcpNoDelayEnabled();
+            info.setTcpNoDelayEnabled(this.tcpNoDelayEnabled);
 
-        this.tcpNoDelayEnabled = info.isTcpNoDelayEnabled() && preferedWireFormatInfo.isTcpNoDelayEnabled();
-        info.setTcpNoDelayEnabled(this.tcpNoDelayEnabled);
+            this.cacheEnabled = info.isCacheEnabled() && preferedWireFormatInfo.isCacheEnabled();
+            info.setCacheEnabled(this.cacheEnabled);
 
-        this.cacheEnabled = info.isCacheEnabled() && preferedWireFormatInfo.isCacheEnabled();
-        info.setCacheEnabled(this.cacheEnabled);
+            this.tightEncodingEnabled = info.isTightEncodingEnabled()
+                                        && preferedWireFormatInfo.isTightEncodingEnabled();
+            info.setTightEncodingEnabled(this.tightEncodingEnabled);
 
-        this.tightEncodingEnabled = info.isTightEncodingEnabled()
-                                    && preferedWireFormatInfo.isTightEncodingEnabled();
-        info.setTightEncodingEnabled(this.tightEncodingEnabled);
+            this.sizePrefixDisabled = info.isSizePrefixDisabled()
+                                      && preferedWireFormatInfo.isSizePrefixDisabled();
+            info.setSizePrefixDisabled(this.sizePrefixDisabled);
 
-        this.sizePrefixDisabled = info.isSizePrefixDisabled()
-                                  && preferedWireFormatInfo.isSizePrefixDisabled();
-        info.setSizePrefixDisabled(this.sizePrefixDisabled);
+            if (cacheEnabled) {
 
-        if (cacheEnabled) {
+                int size = Math.min(preferedWireFormatInfo.getCacheSize(), info.getCacheSize());
+                info.setCacheSize(size);
 
-            int size = Math.min(preferedWireFormatInfo.getCacheSize(), info.getCacheSize());
-            info.setCacheSize(size);
+                if (size == 0) {
+                    size = MARSHAL_CACHE_SIZE;
+                }
 
-            if (size == 0) {
-                size = MARSHAL_CACHE_SIZE;
+                marshallCache = new DataStructure[size];
+                unmarshallCache = new DataStructure[size];
+                nextMarshallCacheIndex = 0;
+                nextMarshallCacheEvictionIndex = 0;
+                marshallCacheMap = new HashMap<DataStructure, Short>();
+            } else {
+                marshallCache = null;
+                unmarshallCache = null;
+                nextMarshallCacheIndex = 0;
+                nextMarshallCacheEvictionIndex = 0;
+                marshallCacheMap = null;
             }
-
-            marshallCache = new DataStructure[size];
-            unmarshallCache = new DataStructure[size];
-            nextMarshallCacheIndex = 0;
-            nextMarshallCacheEvictionIndex = 0;
-            marshallCacheMap = new HashMap<DataStructure, Short>();
-        } else {
-            marshallCache = null;
-            unmarshallCache = null;
-            nextMarshallCacheIndex = 0;
-            nextMarshallCacheEvictionIndex = 0;
-            marshallCacheMap = null;
+        } finally {
+            lock.unlock();
         }
-
     }
 
     protected int min(int version1, int version2) {
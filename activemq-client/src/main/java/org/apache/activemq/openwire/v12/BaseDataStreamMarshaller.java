@@ -25,6 +25,7 @@ import java.lang.reflect.Constructor;
 import org.apache.activemq.command.DataStructure;
 import org.apache.activemq.openwire.BooleanStream;
 import org.apache.activemq.openwire.DataStreamMarshaller;
+import org.apache.activemq.openwire.FrameSliceInput;
 import org.apache.activemq.openwire.OpenWireFormat;
 import org.apache.activemq.openwire.OpenWireUtil;
 import org.apache.activemq.util.ByteSequence;
@@ -443,6 +444,9 @@ public abstract class BaseDataStreamMarshaller implements DataStreamMarshaller {
         ByteSequence rc = null;
         if (bs.readBoolean()) {
             int size = dataIn.readInt();
+            if (dataIn instanceof FrameSliceInput) {
+                return ((FrameSliceInput) dataIn).readSlice(size);
+            }
             byte[] t = new byte[size];
             dataIn.readFully(t);
             return new ByteSequence(t, 0, size);
@@ -642,6 +646,9 @@ public abstract class BaseDataStreamMarshaller implements DataStreamMarshaller {
         ByteSequence rc = null;
         if (dataIn.readBoolean()) {
             int size = dataIn.readInt();
+            if (dataIn instanceof FrameSliceInput) {
+                return ((FrameSliceInput) dataIn).readSlice(size);
+            }
             byte[] t = new byte[size];
             dataIn.readFully(t);
             rc = new ByteSequence(t, 0, size);
@@ -50,6 +50,7 @@ public class TaskRunnerFactory implements Executor {
     private boolean daemon;
     private final AtomicLong id = new AtomicLong(0);
     private boolean dedicatedTaskRunner;
+    private boolean virtualThreads;
     private long shutdownAwaitTermination = 30000;
     private final AtomicBoolean initDone = new AtomicBoolean(false);
     private int maxThreadPoolSize = getDefaultMaximumPoolSize();
@@ -90,7 +91,10 @@ public class TaskRunnerFactory implements Executor {
             synchronized(this) {
                 //need to recheck if initDone is true under the lock
                 if (!initDone.get()) {
-                    if (dedicatedTaskRunner || "true".equalsIgnoreCase(System.getProperty("org.apache.activemq.UseDedicatedTaskRunner"))) {
+                    if (VirtualThreads.isEnabled(virtualThreads)) {
+                        // a virtual thread per task, cheap enough that dedicated runners buy nothing
+                        executorRef.set(VirtualThreads.newThreadPerTaskExecutor(name + "-"));
+                    } else if (dedicatedTaskRunner || "true".equalsIgnoreCase(System.getProperty("org.apache.activemq.UseDedicatedTaskRunner"))) {
                         executorRef.set(null);
                     } else {
                         executorRef.compareAndSet(null, createDefaultExecutor());
@@ -265,6 +269,19 @@ public class TaskRunnerFactory implements Executor {
         this.dedicatedTaskRunner = dedicatedTaskRunner;
     }
 
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Runs the tasks on virtual threads, one per task execution, when the JVM
+     * supports them. Takes precedence over the dedicated task runner and the
+     * thread pool settings.
+     */
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
     public int getMaxThreadPoolSize() {
         return maxThreadPoolSize;
     }
@@ -0,0 +1,155 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.thread;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates virtual threads when the JVM supports them.
+ * <p>
+ * The project is built for a JVM that has no virtual threads, so the
+ * <code>Thread.ofVirtual()</code> builder is looked up reflectively. On a JVM
+ * without virtual threads {@link #isSupported()} returns false and the callers
+ * keep using platform threads.
+ */
+public final class VirtualThreads {
+
+    /**
+     * Enables virtual threads wherever they are supported as an option, as if
+     * the option was set.
+     */
+    public static final String USE_VIRTUAL_THREADS_PROPERTY = "org.apache.activemq.UseVirtualThreads";
+
+    private static final Logger LOG = LoggerFactory.getLogger(VirtualThreads.class);
+    private static final AtomicBoolean WARNED = new AtomicBoolean();
+
+    private static final Method OF_VIRTUAL;
+    private static final Method NAME;
+    private static final Method NAME_WITH_COUNTER;
+    private static final Method UNSTARTED;
+    private static final Method FACTORY;
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+
+    static {
+        Method ofVirtual = null;
+        Method name = null;
+        Method nameWithCounter = null;
+        Method unstarted = null;
+        Method factory = null;
+        Method newThreadPerTaskExecutor = null;
+        try {
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            name = builder.getMethod("name", String.class);
+            nameWithCounter = builder.getMethod("name", String.class, long.class);
+            unstarted = builder.getMethod("unstarted", Runnable.class);
+            factory = builder.getMethod("factory");
+            newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            // fails when virtual threads are a preview feature that is not enabled
+            ofVirtual.invoke(null);
+        } catch (Throwable e) {
+            LOG.debug("Virtual threads are not supported by this JVM: {}", e.toString());
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        NAME_WITH_COUNTER = nameWithCounter;
+        UNSTARTED = unstarted;
+        FACTORY = factory;
+        NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+    }
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return true if this JVM can create virtual threads
+     */
+    public static boolean isSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * Decides if an option to use virtual threads takes effect, logs a warning
+     * the first time virtual threads are requested on a JVM that does not
+     * support them.
+     *
+     * @param requested true if the option is set
+     * @return true if virtual threads should be used
+     */
+    public static boolean isEnabled(boolean requested) {
+        if (!requested && !Boolean.getBoolean(USE_VIRTUAL_THREADS_PROPERTY)) {
+            return false;
+        }
+        if (!isSupported()) {
+            if (WARNED.compareAndSet(false, true)) {
+                LOG.warn("Virtual threads were requested but are not supported by this JVM, using platform threads");
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return a new virtual thread that is not started
+     */
+    public static Thread newThread(String name, Runnable runnable) {
+        try {
+            Object builder = NAME.invoke(OF_VIRTUAL.invoke(null), name);
+            return (Thread) UNSTARTED.invoke(builder, runnable);
+        } catch (Exception e) {
+            throw unsupported(e);
+        }
+    }
+
+    /**
+     * @return a factory of virtual threads named prefix followed by a counter
+     */
+    public static ThreadFactory newThreadFactory(String prefix) {
+        try {
+            Object builder = NAME_WITH_COUNTER.invoke(OF_VIRTUAL.invoke(null), prefix, 1L);
+            return (ThreadFactory) FACTORY.invoke(builder);
+        } catch (Exception e) {
+            throw unsupported(e);
+        }
+    }
+
+    /**
+     * @return an executor that runs each task in a new virtual thread
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String prefix) {
+        try {
+            return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, newThreadFactory(prefix));
+        } catch (Exception e) {
+            throw unsupported(e);
+        }
+    }
+
+    private static UnsupportedOperationException unsupported(Exception cause) {
+        if (!isSupported()) {
+            return new UnsupportedOperationException("Virtual threads are not supported by this JVM");
+        }
+        return new UnsupportedOperationException("Could not create a virtual thread", cause);
+    }
+}
@@ -16,6 +16,8 @@
  */
 package org.apache.activemq.transport;
 
+import org.apache.activemq.thread.VirtualThreads;
+
 /**
  * A useful base class for a transport implementation which has a background
  * reading thread.
@@ -28,6 +30,7 @@ public abstract class TransportThreadSupport extends TransportSupport implements
     private Thread runner;
     // should be a multiple of 128k
     private long stackSize;
+    private boolean useVirtualThreads;
 
     public boolean isDaemon() {
         return daemon;
@@ -38,8 +41,13 @@ public abstract class TransportThreadSupport extends TransportSupport implements
     }
 
     protected void doStart() throws Exception {
-        runner = new Thread(null, this, "ActiveMQ Transport: " + toString(), stackSize);
-        runner.setDaemon(daemon);
+        if (VirtualThreads.isEnabled(useVirtualThreads)) {
+            // virtual threads are always daemon threads and have no fixed stack
+            runner = VirtualThreads.newThread("ActiveMQ Transport: " + toString(), this);
+        } else {
+            runner = new Thread(null, this, "ActiveMQ Transport: " + toString(), stackSize);
+            runner.setDaemon(daemon);
+        }
         runner.start();
     }
 
@@ -56,4 +64,19 @@ public abstract class TransportThreadSupport extends TransportSupport implements
     public void setStackSize(long stackSize) {
         this.stackSize = stackSize;
     }
+
+    /**
+     * @return true if the background reading thread is a virtual thread when
+     *         the JVM supports them
+     */
+    public boolean isUseVirtualThreads() {
+        return this.useVirtualThreads;
+    }
+
+    /**
+     * @param useVirtualThreads read on a virtual thread when the JVM supports them
+     */
+    public void setUseVirtualThreads(boolean useVirtualThreads) {
+        this.useVirtualThreads = useVirtualThreads;
+    }
 }
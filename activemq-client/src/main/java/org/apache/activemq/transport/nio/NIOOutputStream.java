@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
 import java.nio.channels.WritableByteChannel;
 
 import javax.net.ssl.SSLEngine;
@@ -106,6 +107,15 @@ public class NIOOutputStream extends OutputStream implements TimeStampStream {
     @Override
     public void write(byte b[], int off, int len) throws IOException {
         checkClosed();
+        if (len > buffer.length && count > 0 && engine == null && out instanceof GatheringByteChannel) {
+            // write what is buffered, usually the frame header, together with
+            // the data in a single gathering write
+            byteBuffer.position(0);
+            byteBuffer.limit(count);
+            write(new ByteBuffer[] {byteBuffer, ByteBuffer.wrap(b, off, len)});
+            count = 0;
+            return;
+        }
         if (availableBufferToWrite() < len) {
             flush();
         }
@@ -166,8 +176,8 @@ public class NIOOutputStream extends OutputStream implements TimeStampStream {
         return buffer.length - count;
     }
 
-    protected void write(ByteBuffer data) throws IOException {
-        ByteBuffer plain;
+    protected void write(final ByteBuffer data) throws IOException {
+        final ByteBuffer plain;
         if (engine != null) {
             plain = ByteBuffer.allocate(engine.getSession().getPacketBufferSize());
             plain.clear();
@@ -177,12 +187,69 @@ public class NIOOutputStream extends OutputStream implements TimeStampStream {
             plain = data;
         }
 
-        int remaining = plain.remaining();
+        writeFully(new ChannelWrite() {
+            @Override
+            public boolean hasRemaining() {
+                return plain.hasRemaining();
+            }
+
+            @Override
+            public long write() throws IOException {
+                int written = out.write(plain);
+
+                // if the data buffer was larger than the packet buffer we might
+                // need to wrap more packets until we reach the end of data, but only
+                // when plain has no more space since we are non-blocking and a write
+                // might not have written anything.
+                if (engine != null && data.hasRemaining() && !plain.hasRemaining()) {
+                    plain.clear();
+                    engine.wrap(data, plain);
+                    plain.flip();
+                }
+                return written;
+            }
+        });
+    }
+
+    private void write(final ByteBuffer[] data) throws IOException {
+        final GatheringByteChannel channel = (GatheringByteChannel) out;
+        writeFully(new ChannelWrite() {
+            @Override
+            public boolean hasRemaining() {
+                for (ByteBuffer buffer : data) {
+                    if (buffer.hasRemaining()) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            @Override
+            public long write() throws IOException {
+                return channel.write(data);
+            }
+        });
+    }
+
+    /**
+     * One non-blocking write of the data that is still to be written.
+     */
+    private interface ChannelWrite {
+
+        boolean hasRemaining();
+
+        /**
+         * @return the number of bytes written, which may be 0
+         */
+        long write() throws IOException;
+    }
+
+    private void writeFully(ChannelWrite channelWrite) throws IOException {
         long delay = 1;
-        int lastWriteSize = -1;
+        long lastWriteSize = -1;
         try {
             writeTimestamp = System.currentTimeMillis();
-            while (remaining > 0) {
+            while (channelWrite.hasRemaining()) {
 
                 // We may need to do a little bit of sleeping to avoid a busy
                 // loop. Slow down if no data was written out..
@@ -203,19 +270,7 @@ public class NIOOutputStream extends OutputStream implements TimeStampStream {
 
                 // Since the write is non-blocking, all the data may not have
                 // been written.
-                lastWriteSize = out.write(plain);
-
-                // if the data buffer was larger than the packet buffer we might
-                // need to wrap more packets until we reach the end of data, but only
-                // when plain has no more space since we are non-blocking and a write
-                // might not have written anything.
-                if (engine != null && data.hasRemaining() && !plain.hasRemaining()) {
-                    plain.clear();
-                    engine.wrap(data, plain);
-                    plain.flip();
-                }
-
-                remaining = plain.remaining();
+                lastWriteSize = channelWrite.write();
             }
         } finally {
             writeTimestamp = -1;
@@ -33,6 +33,7 @@ import org.apache.activemq.MaxFrameSizeExceededException;
 import org.apache.activemq.openwire.OpenWireFormat;
 import org.apache.activemq.transport.Transport;
 import org.apache.activemq.transport.tcp.TcpTransport;
+import org.apache.activemq.util.ByteSequence;
 import org.apache.activemq.util.IOExceptionSupport;
 import org.apache.activemq.util.ServiceStopper;
 import org.apache.activemq.wireformat.WireFormat;
@@ -50,6 +51,7 @@ public class NIOTransport extends TcpTransport {
     protected ByteBuffer inputBuffer;
     protected ByteBuffer currentBuffer;
     protected int nextFrameSize;
+    protected boolean retainFrameSlices;
 
     public NIOTransport(WireFormat wireFormat, SocketFactory socketFactory, URI remoteLocation, URI localLocation) throws UnknownHostException, IOException {
         super(wireFormat, socketFactory, remoteLocation, localLocation);
@@ -149,7 +151,11 @@ public class NIOTransport extends TcpTransport {
                     }
 
                     if (nextFrameSize > inputBuffer.capacity()) {
-                        currentBuffer = ByteBuffer.allocateDirect(nextFrameSize);
+                        if (isSlicingFrames()) {
+                            currentBuffer = ByteBuffer.allocate(nextFrameSize);
+                        } else {
+                            currentBuffer = ByteBuffer.allocateDirect(nextFrameSize);
+                        }
                         currentBuffer.putInt(nextFrameSize);
                     } else {
                         inputBuffer.limit(nextFrameSize);
@@ -158,7 +164,13 @@ public class NIOTransport extends TcpTransport {
                 } else {
                     currentBuffer.flip();
 
-                    Object command = wireFormat.unmarshal(new DataInputStream(new NIOInputStream(currentBuffer)));
+                    Object command;
+                    if (currentBuffer != inputBuffer && currentBuffer.hasArray()) {
+                        // the frame has an array of its own which the command can keep
+                        command = ((OpenWireFormat) wireFormat).unmarshalFrame(new ByteSequence(currentBuffer.array(), 0, nextFrameSize));
+                    } else {
+                        command = wireFormat.unmarshal(new DataInputStream(new NIOInputStream(currentBuffer)));
+                    }
                     doConsume(command);
 
                     nextFrameSize = -1;
@@ -176,6 +188,26 @@ public class NIOTransport extends TcpTransport {
         }
     }
 
+    private boolean isSlicingFrames() {
+        return retainFrameSlices && wireFormat instanceof OpenWireFormat;
+    }
+
+    public boolean isRetainFrameSlices() {
+        return retainFrameSlices;
+    }
+
+    /**
+     * When enabled, a frame larger than the io buffer is read into a heap
+     * array of its own and the message body and properties of the command are
+     * kept as slices of that array rather than being copied out of a direct
+     * buffer allocated for the frame. Only applies to the OpenWire format.
+     *
+     * @param retainFrameSlices
+     */
+    public void setRetainFrameSlices(boolean retainFrameSlices) {
+        this.retainFrameSlices = retainFrameSlices;
+    }
+
     @Override
     protected void doStart() throws Exception {
         connect();
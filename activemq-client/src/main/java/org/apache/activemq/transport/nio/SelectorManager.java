@@ -29,6 +29,8 @@ import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
+import org.apache.activemq.thread.VirtualThreads;
+
 /**
  * The SelectorManager will manage one Selector and the thread that checks the
  * selector.
@@ -41,7 +43,7 @@ public final class SelectorManager {
     public static final SelectorManager SINGLETON = new SelectorManager();
 
     private Executor selectorExecutor = createDefaultExecutor();
-    private Executor channelExecutor = selectorExecutor;
+    private Executor channelExecutor = useVirtualThreads() ? VirtualThreads.newThreadPerTaskExecutor("ActiveMQ NIO Channel Worker ") : selectorExecutor;
     private final LinkedList<SelectorWorker> freeWorkers = new LinkedList<SelectorWorker>();
     private int maxChannelsPerWorker = -1;
 
@@ -75,6 +77,10 @@ public final class SelectorManager {
         return Boolean.getBoolean("org.apache.activemq.transport.nio.SelectorManager.rejectWork");
     }
 
+    private static boolean useVirtualThreads() {
+        return VirtualThreads.isEnabled(Boolean.getBoolean("org.apache.activemq.transport.nio.SelectorManager.useVirtualThreads"));
+    }
+
     private static int getDefaultWorkQueueCapacity() {
         return Integer.getInteger("org.apache.activemq.transport.nio.SelectorManager.workQueueCapacity", 0);
     }
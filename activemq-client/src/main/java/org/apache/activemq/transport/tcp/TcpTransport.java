@@ -132,6 +132,8 @@ public class TcpTransport extends TransportThreadSupport implements Transport, S
     protected SocketFactory socketFactory;
     protected final AtomicReference<CountDownLatch> stoppedLatch = new AtomicReference<CountDownLatch>();
     protected volatile int receiveCounter;
+    // the thread whose commands are not flushed, see deferFlush()
+    private final AtomicReference<Thread> flushDeferredThread = new AtomicReference<Thread>();
 
     protected Map<String, Object> socketOptions;
     private int soLinger = Integer.MIN_VALUE;
@@ -191,7 +193,32 @@ public class TcpTransport extends TransportThreadSupport implements Transport, S
     public void oneway(Object command) throws IOException {
         checkStarted();
         wireFormat.marshal(command, dataOut);
-        dataOut.flush();
+        if (flushDeferredThread.get() != Thread.currentThread()) {
+            dataOut.flush();
+        }
+    }
+
+    /**
+     * Lets the calling thread send a batch of commands with one flush of the
+     * socket: until it calls {@link #stopDeferringFlush()}, the commands it
+     * sends are only buffered, and the next command it sends after that
+     * flushes them. Commands sent from other threads are always flushed. Only
+     * one thread at a time defers its flushes.
+     *
+     * @return true if the calling thread defers its flushes, false if another
+     *         thread already does, in which case its commands are flushed
+     */
+    public boolean deferFlush() {
+        Thread current = Thread.currentThread();
+        return flushDeferredThread.get() == current || flushDeferredThread.compareAndSet(null, current);
+    }
+
+    /**
+     * Stops deferring the flushes of the calling thread, does nothing if
+     * another thread defers its flushes.
+     */
+    public void stopDeferringFlush() {
+        flushDeferredThread.compareAndSet(Thread.currentThread(), null);
     }
 
     /**
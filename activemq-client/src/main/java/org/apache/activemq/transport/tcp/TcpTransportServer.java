@@ -80,6 +80,7 @@ public class TcpTransportServer extends TransportServerThreadSupport implements
     protected long maxInactivityDurationInitalDelay = 10000;
     protected int minmumWireFormatVersion;
     protected boolean useQueueForAccept = true;
+    protected boolean useVirtualThreads;
     protected boolean allowLinkStealing;
     protected boolean verifyHostName = false;
 
@@ -324,6 +325,22 @@ public class TcpTransportServer extends TransportServerThreadSupport implements
         this.useQueueForAccept = useQueueForAccept;
     }
 
+    /**
+     * @return true if accepted transports read on virtual threads
+     */
+    public boolean isUseVirtualThreads() {
+        return useVirtualThreads;
+    }
+
+    /**
+     * @param useVirtualThreads
+     *            read each accepted transport on a virtual thread when the JVM
+     *            supports them, instead of a platform thread per connection
+     */
+    public void setUseVirtualThreads(boolean useVirtualThreads) {
+        this.useVirtualThreads = useVirtualThreads;
+    }
+
     /**
      * pull Sockets from the ServerSocket
      */
@@ -607,6 +624,9 @@ public class TcpTransportServer extends TransportServerThreadSupport implements
             options.put("dynamicManagement", dynamicManagement);
             options.put("startLogging", startLogging);
             options.put("jmxPort", jmxPort);
+            if (useVirtualThreads) {
+                options.put("useVirtualThreads", useVirtualThreads);
+            }
             options.putAll(transportOptions);
 
             TransportInfo transportInfo = configureTransport(this, socket);
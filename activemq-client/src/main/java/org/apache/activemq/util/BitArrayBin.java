@@ -16,22 +16,47 @@
  */
 package org.apache.activemq.util;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.LinkedList;
 
 /**
  * Holder for many bitArrays - used for message audit
- *
- *
+ * <p>
+ * The arrays are kept as a ring of longs, so moving the window on does not
+ * allocate and finding the array for an index does not walk a list. The
+ * serialized form is still a list of {@link BitArray}, so audits serialized by
+ * earlier versions can be read.
  */
 public class BitArrayBin implements Serializable {
 
     private static final long serialVersionUID = 1L;
-    private final LinkedList<BitArray> list;
+
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("list", LinkedList.class),
+        new ObjectStreamField("maxNumberOfArrays", int.class),
+        new ObjectStreamField("firstIndex", int.class),
+        new ObjectStreamField("lastInOrderBit", long.class),
+        new ObjectStreamField("longFirstIndex", long.class)
+    };
+
+    // the length of an array that was never used
+    private static final int UNUSED = -1;
+
     private int maxNumberOfArrays;
-    private int firstIndex = -1;  // leave 'int' for old serialization compatibility and introduce new 'long' field
+    // the bits and length of each array, the first array is at head
+    private long[] bits;
+    private int[] lengths;
+    private int head;
     private long lastInOrderBit=-1;
     private long longFirstIndex=-1;
+
     /**
      * Create a BitArrayBin to a certain window size (number of messages to
      * keep)
@@ -41,10 +66,9 @@ public class BitArrayBin implements Serializable {
     public BitArrayBin(int windowSize) {
         maxNumberOfArrays = ((windowSize + 1) / BitArray.LONG_SIZE) + 1;
         maxNumberOfArrays = Math.max(maxNumberOfArrays, 1);
-        list = new LinkedList<BitArray>();
-        for (int i = 0; i < maxNumberOfArrays; i++) {
-            list.add(null);
-        }
+        bits = new long[maxNumberOfArrays];
+        lengths = new int[maxNumberOfArrays];
+        Arrays.fill(lengths, UNUSED);
     }
 
     /**
@@ -56,11 +80,18 @@ public class BitArrayBin implements Serializable {
      */
     public boolean setBit(long index, boolean value) {
         boolean answer = false;
-        BitArray ba = getBitArray(index);
-        if (ba != null) {
+        int slot = getBitArray(index);
+        if (slot >= 0) {
             int offset = getOffset(index);
             if (offset >= 0) {
-                answer = ba.set(offset, value);
+                lengths[slot] = Math.max(lengths[slot], offset + 1);
+                long mask = 1L << offset;
+                answer = (bits[slot] & mask) != 0;
+                if (value) {
+                    bits[slot] |= mask;
+                } else {
+                    bits[slot] &= ~mask;
+                }
             }
         }
         return answer;
@@ -91,11 +122,11 @@ public class BitArrayBin implements Serializable {
      */
     public boolean getBit(long index) {
         boolean answer = index >= longFirstIndex;
-        BitArray ba = getBitArray(index);
-        if (ba != null) {
+        int slot = getBitArray(index);
+        if (slot >= 0) {
             int offset = getOffset(index);
             if (offset >= 0) {
-                answer = ba.get(offset);
+                answer = (bits[slot] & (1L << offset)) != 0;
                 return answer;
             }
         } else {
@@ -106,30 +137,39 @@ public class BitArrayBin implements Serializable {
     }
 
     /**
-     * Get the BitArray for the index
+     * Get the position in the ring of the array for the index, moving the
+     * window on if the index is past it
      *
      * @param index
-     * @return BitArray
+     * @return the position of the array or -1 if the index is before the window
      */
-    private BitArray getBitArray(long index) {
+    private int getBitArray(long index) {
         int bin = getBin(index);
-        BitArray answer = null;
+        int answer = -1;
         if (bin >= 0) {
             if (bin >= maxNumberOfArrays) {
                 int overShoot = bin - maxNumberOfArrays + 1;
-                while (overShoot > 0) {
-                    list.removeFirst();
-                    longFirstIndex += BitArray.LONG_SIZE;
-                    list.add(new BitArray());
-                    overShoot--;
+                if (overShoot >= maxNumberOfArrays) {
+                    // the whole window is dropped
+                    Arrays.fill(bits, 0);
+                    Arrays.fill(lengths, 0);
+                    longFirstIndex += (long) overShoot * BitArray.LONG_SIZE;
+                } else {
+                    while (overShoot > 0) {
+                        // the first array becomes an empty last array
+                        bits[head] = 0;
+                        lengths[head] = 0;
+                        head = (head + 1) % maxNumberOfArrays;
+                        longFirstIndex += BitArray.LONG_SIZE;
+                        overShoot--;
+                    }
                 }
 
                 bin = maxNumberOfArrays - 1;
             }
-            answer = list.get(bin);
-            if (answer == null) {
-                answer = new BitArray();
-                list.set(bin, answer);
+            answer = (head + bin) % maxNumberOfArrays;
+            if (lengths[answer] == UNUSED) {
+                lengths[answer] = 0;
             }
         }
         return answer;
@@ -170,11 +210,10 @@ public class BitArrayBin implements Serializable {
 
         if (longFirstIndex >=0) {
             result = longFirstIndex;
-            BitArray last = null;
             for (int lastBitArrayIndex = maxNumberOfArrays -1; lastBitArrayIndex >= 0; lastBitArrayIndex--) {
-                last = list.get(lastBitArrayIndex);
-                if (last != null) {
-                    result += last.length() -1;
+                int length = lengths[(head + lastBitArrayIndex) % maxNumberOfArrays];
+                if (length != UNUSED) {
+                    result += length -1;
                     result += lastBitArrayIndex * (long) BitArray.LONG_SIZE;
                     break;
                 }
@@ -182,4 +221,114 @@ public class BitArrayBin implements Serializable {
         }
         return result;
     }
+
+    /**
+     * write the bin to an output stream
+     *
+     * @param dataOut
+     * @throws IOException
+     */
+    public void writeToStream(DataOutput dataOut) throws IOException {
+        dataOut.writeInt(maxNumberOfArrays);
+        dataOut.writeLong(longFirstIndex);
+        dataOut.writeLong(lastInOrderBit);
+        for (int i = 0; i < maxNumberOfArrays; i++) {
+            int slot = (head + i) % maxNumberOfArrays;
+            int length = lengths[slot];
+            dataOut.writeByte(length);
+            if (length <= 0) {
+                continue;
+            } else if (length <= BitArray.BYTE_SIZE) {
+                dataOut.writeByte((byte) bits[slot]);
+            } else if (length <= BitArray.SHORT_SIZE) {
+                dataOut.writeShort((short) bits[slot]);
+            } else if (length <= BitArray.INT_SIZE) {
+                dataOut.writeInt((int) bits[slot]);
+            } else {
+                dataOut.writeLong(bits[slot]);
+            }
+        }
+    }
+
+    /**
+     * read the bin from an input stream
+     *
+     * @param dataIn
+     * @throws IOException
+     */
+    public void readFromStream(DataInput dataIn) throws IOException {
+        int arrays = dataIn.readInt();
+        if (arrays < 1) {
+            throw new IOException("Invalid number of bit arrays: " + arrays);
+        }
+        maxNumberOfArrays = arrays;
+        longFirstIndex = dataIn.readLong();
+        lastInOrderBit = dataIn.readLong();
+        bits = new long[arrays];
+        lengths = new int[arrays];
+        head = 0;
+        for (int i = 0; i < arrays; i++) {
+            int length = dataIn.readByte();
+            lengths[i] = length;
+            if (length <= 0) {
+                continue;
+            } else if (length <= BitArray.BYTE_SIZE) {
+                bits[i] = dataIn.readByte() & 0xFFL;
+            } else if (length <= BitArray.SHORT_SIZE) {
+                bits[i] = dataIn.readShort() & 0xFFFFL;
+            } else if (length <= BitArray.INT_SIZE) {
+                bits[i] = dataIn.readInt() & 0xFFFFFFFFL;
+            } else {
+                bits[i] = dataIn.readLong();
+            }
+        }
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        LinkedList<BitArray> list = new LinkedList<BitArray>();
+        for (int i = 0; i < maxNumberOfArrays; i++) {
+            int slot = (head + i) % maxNumberOfArrays;
+            BitArray array = null;
+            if (lengths[slot] != UNUSED) {
+                array = new BitArray();
+                if (lengths[slot] > 0) {
+                    array.set(lengths[slot] - 1, false);
+                }
+                array.reset(bits[slot]);
+            }
+            list.add(array);
+        }
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("list", list);
+        fields.put("maxNumberOfArrays", maxNumberOfArrays);
+        fields.put("firstIndex", -1);
+        fields.put("lastInOrderBit", lastInOrderBit);
+        fields.put("longFirstIndex", longFirstIndex);
+        out.writeFields();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        LinkedList<BitArray> list = (LinkedList<BitArray>) fields.get("list", null);
+        if (list == null || list.isEmpty()) {
+            throw new IOException("No bit arrays in serialized BitArrayBin");
+        }
+        maxNumberOfArrays = list.size();
+        lastInOrderBit = fields.get("lastInOrderBit", -1L);
+        longFirstIndex = fields.get("longFirstIndex", (long) fields.get("firstIndex", -1));
+        bits = new long[maxNumberOfArrays];
+        lengths = new int[maxNumberOfArrays];
+        head = 0;
+        int i = 0;
+        for (BitArray array : list) {
+            if (array == null) {
+                lengths[i] = UNUSED;
+            } else {
+                lengths[i] = array.length();
+                bits[i] = array.getBits();
+            }
+            i++;
+        }
+    }
 }
@@ -20,6 +20,7 @@ import java.io.DataInput;
 import java.io.DataInputStream;
 import java.io.DataOutput;
 import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.UTFDataFormatException;
 import java.util.ArrayList;
@@ -101,6 +102,141 @@ public final class MarshallingSupport {
         }
     }
 
+    /**
+     * Looks up a single entry of a map encoded with
+     * {@link #marshalPrimitiveMap(Map, DataOutputStream)} without unmarshalling
+     * the other entries. Only the value of the matching entry is decoded.
+     *
+     * @param marshalled the encoded map
+     * @param name the key to look for
+     * @return the unmarshalled value, or null if the key is not present
+     * @throws IOException if the encoded map is malformed
+     */
+    public static Object lookupPrimitiveMapValue(ByteSequence marshalled, String name) throws IOException {
+        byte[] data = marshalled.getData();
+        int end = marshalled.getOffset() + marshalled.getLength();
+        int pos = marshalled.getOffset();
+
+        int size = readInt(data, pos, end);
+        pos += 4;
+        for (int i = 0; i < size; i++) {
+            int keyLength = readUnsignedShort(data, pos, end);
+            pos += 2;
+            checkAvailable(pos, keyLength, end);
+            boolean found = utfEquals(data, pos, keyLength, name);
+            pos += keyLength;
+            if (found) {
+                return unmarshalPrimitive(new DataInputStream(new ByteArrayInputStream(data, pos, end - pos)));
+            }
+            pos = skipPrimitive(data, pos, end);
+        }
+        return null;
+    }
+
+    private static int skipPrimitive(byte[] data, int pos, int end) throws IOException {
+        checkAvailable(pos, 1, end);
+        byte type = data[pos++];
+        int length;
+        switch (type) {
+        case NULL:
+            length = 0;
+            break;
+        case BYTE_TYPE:
+        case BOOLEAN_TYPE:
+            length = 1;
+            break;
+        case CHAR_TYPE:
+        case SHORT_TYPE:
+            length = 2;
+            break;
+        case INTEGER_TYPE:
+        case FLOAT_TYPE:
+            length = 4;
+            break;
+        case LONG_TYPE:
+        case DOUBLE_TYPE:
+            length = 8;
+            break;
+        case STRING_TYPE:
+            length = readUnsignedShort(data, pos, end);
+            pos += 2;
+            break;
+        case BYTE_ARRAY_TYPE:
+        case BIG_STRING_TYPE:
+            length = readInt(data, pos, end);
+            pos += 4;
+            break;
+        case MAP_TYPE: {
+            int size = readInt(data, pos, end);
+            pos += 4;
+            for (int i = 0; i < size; i++) {
+                int keyLength = readUnsignedShort(data, pos, end);
+                pos += 2 + keyLength;
+                pos = skipPrimitive(data, pos, end);
+            }
+            return pos;
+        }
+        case LIST_TYPE: {
+            int size = readInt(data, pos, end);
+            pos += 4;
+            for (int i = 0; i < size; i++) {
+                pos = skipPrimitive(data, pos, end);
+            }
+            return pos;
+        }
+        default:
+            throw new IOException("Unknown primitive type: " + type);
+        }
+        checkAvailable(pos, length, end);
+        return pos + length;
+    }
+
+    /**
+     * Compares modified UTF-8 encoded bytes, as written by
+     * {@link DataOutput#writeUTF(String)}, with a string without decoding
+     * them into a new string.
+     */
+    private static boolean utfEquals(byte[] data, int pos, int length, String value) throws IOException {
+        int end = pos + length;
+        int index = 0;
+        int count = value.length();
+        while (pos < end) {
+            int a = data[pos++] & 0xFF;
+            char c;
+            if (a < 0x80) {
+                c = (char) a;
+            } else if ((a & 0xE0) == 0xC0) {
+                checkAvailable(pos, 1, end);
+                c = (char) (((a & 0x1F) << 6) | (data[pos++] & 0x3F));
+            } else if ((a & 0xF0) == 0xE0) {
+                checkAvailable(pos, 2, end);
+                c = (char) (((a & 0x0F) << 12) | ((data[pos++] & 0x3F) << 6) | (data[pos++] & 0x3F));
+            } else {
+                throw new UTFDataFormatException("bad string");
+            }
+            if (index >= count || value.charAt(index++) != c) {
+                return false;
+            }
+        }
+        return index == count;
+    }
+
+    private static int readInt(byte[] data, int pos, int end) throws IOException {
+        checkAvailable(pos, 4, end);
+        return ((data[pos] & 0xFF) << 24) | ((data[pos + 1] & 0xFF) << 16) | ((data[pos + 2] & 0xFF) << 8) | (data[pos + 3] & 0xFF);
+    }
+
+    private static int readUnsignedShort(byte[] data, int pos, int end) throws IOException {
+        checkAvailable(pos, 2, end);
+        return ((data[pos] & 0xFF) << 8) | (data[pos + 1] & 0xFF);
+    }
+
+    private static void checkAvailable(int pos, int length, int end) throws IOException {
+        if (length < 0 || pos + length > end) {
+            throw new EOFException();
+        }
+    }
+
     public static void marshalPrimitiveList(List<Object> list, DataOutputStream out) throws IOException {
         out.writeInt(list.size());
         for (Object element : list) {
@@ -17,13 +17,24 @@
 
 package org.apache.activemq;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+
 import org.apache.activemq.command.ConnectionId;
 import org.apache.activemq.command.MessageId;
 import org.apache.activemq.command.ProducerId;
 import org.apache.activemq.command.SessionId;
+import org.apache.activemq.util.ByteSequence;
+import org.apache.activemq.util.DataByteArrayInputStream;
+import org.apache.activemq.util.DataByteArrayOutputStream;
 import org.apache.activemq.util.IdGenerator;
 import org.apache.activemq.util.LongSequenceGenerator;
 import org.junit.After;
@@ -67,4 +78,84 @@ public class ActiveMQMessageAuditNotSyncTest {
             assertTrue(audit.isDuplicate(msgId));
         }
     }
+
+    @Test
+    public void testMessageIdAndStringShareProducers() {
+        ProducerId producerId = createProducerId();
+        ActiveMQMessageAuditNoSync audit = new ActiveMQMessageAuditNoSync();
+
+        assertFalse(audit.isDuplicate(new MessageId(producerId, 1)));
+        assertTrue(audit.isDuplicate(new MessageId(producerId, 1).toString()));
+        // a copy of the producer id, as unmarshalled from another message
+        assertTrue(audit.isDuplicate(new MessageId(new ProducerId(producerId.toString()), 1)));
+        assertFalse(audit.isDuplicate(new MessageId(producerId, 2).toString()));
+        assertEquals(2, audit.getLastSeqId(producerId));
+
+        // the producer of a string id seen before is found without parsing it again
+        assertTrue(audit.isDuplicate(new MessageId(producerId, 2).toString()));
+        assertFalse(audit.isDuplicate(new MessageId(producerId, 3).toString()));
+        assertTrue(audit.isDuplicate(new MessageId(producerId, 3)));
+
+        // ids that were not generated by ActiveMQ are tracked by their seed
+        assertFalse(audit.isDuplicate("ID:custom:producer:7"));
+        assertTrue(audit.isDuplicate("ID:custom:producer:7"));
+    }
+
+    @Test
+    public void testWriteAndReadStream() throws Exception {
+        ActiveMQMessageAuditNoSync audit = createAudit();
+
+        DataByteArrayOutputStream dataOut = new DataByteArrayOutputStream();
+        audit.writeToStream(dataOut);
+        ActiveMQMessageAuditNoSync read = new ActiveMQMessageAuditNoSync();
+        read.readFromStream(new DataByteArrayInputStream(dataOut.toByteSequence()));
+
+        assertAudited(audit, read);
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        ActiveMQMessageAuditNoSync audit = createAudit();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream objectOut = new ObjectOutputStream(bytes);
+        objectOut.writeObject(audit);
+        objectOut.close();
+        ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        ActiveMQMessageAuditNoSync read = (ActiveMQMessageAuditNoSync) objectIn.readObject();
+
+        assertAudited(audit, read);
+    }
+
+    private ProducerId createProducerId() {
+        ConnectionId connectionId = new ConnectionId(connectionIdGenerator.generateId());
+        SessionId sessionId = new SessionId(connectionId, sessionIdGenerator.getNextSequenceId());
+        return new ProducerId(sessionId, producerIdGenerator.getNextSequenceId());
+    }
+
+    private ActiveMQMessageAuditNoSync createAudit() {
+        ActiveMQMessageAuditNoSync audit = new ActiveMQMessageAuditNoSync(512, 10);
+        for (int p = 0; p < 5; p++) {
+            ProducerId producerId = createProducerId();
+            for (int i = 0; i < 1000; i += p + 1) {
+                audit.isDuplicate(new MessageId(producerId, i));
+            }
+        }
+        audit.isDuplicate("ID:custom:producer:7");
+        return audit;
+    }
+
+    private void assertAudited(ActiveMQMessageAuditNoSync expected, ActiveMQMessageAuditNoSync actual) throws Exception {
+        assertEquals(expected.getAuditDepth(), actual.getAuditDepth());
+        assertEquals(expected.getMaximumNumberOfProducersToTrack(), actual.getMaximumNumberOfProducersToTrack());
+        assertArrayEquals(toBytes(expected), toBytes(actual));
+        assertTrue(actual.isDuplicate("ID:custom:producer:7"));
+    }
+
+    private byte[] toBytes(ActiveMQMessageAuditNoSync audit) throws Exception {
+        DataByteArrayOutputStream dataOut = new DataByteArrayOutputStream();
+        audit.writeToStream(dataOut);
+        ByteSequence data = dataOut.toByteSequence();
+        return Arrays.copyOfRange(data.getData(), data.getOffset(), data.getOffset() + data.getLength());
+    }
 }
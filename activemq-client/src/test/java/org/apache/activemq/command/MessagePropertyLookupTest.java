@@ -0,0 +1,88 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.command;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.activemq.openwire.OpenWireFormat;
+import org.junit.Test;
+
+/**
+ * Test single property lookups against marshalled message properties
+ */
+public class MessagePropertyLookupTest {
+
+    private ActiveMQMessage createMarshalledMessage() throws Exception {
+        ActiveMQMessage message = new ActiveMQMessage();
+        for (int i = 0; i < 40; i++) {
+            message.setStringProperty("header" + i, "value" + i);
+        }
+        message.setIntProperty("tenant", 42);
+        message.setStringProperty("region", "EU");
+        message.beforeMarshall(new OpenWireFormat());
+
+        ActiveMQMessage received = new ActiveMQMessage();
+        received.setMarshalledProperties(message.getMarshalledProperties());
+        return received;
+    }
+
+    @Test
+    public void testLookupWithoutUnmarshal() throws Exception {
+        ActiveMQMessage message = createMarshalledMessage();
+
+        assertEquals(42, message.getProperty("tenant"));
+        assertEquals("EU", message.getProperty("region"));
+        assertEquals("EU", message.getProperty("region"));
+        assertNull(message.getProperty("missing"));
+        assertNull(message.properties);
+        assertTrue(message.isPropertiesMarshalled());
+    }
+
+    @Test
+    public void testManyLookupsUnmarshal() throws Exception {
+        ActiveMQMessage message = createMarshalledMessage();
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals("value" + i, message.getProperty("header" + i));
+        }
+        assertEquals(42, message.getProperty("tenant"));
+        assertEquals(42, message.getProperties().size());
+    }
+
+    @Test
+    public void testLookupAfterPropertiesChange() throws Exception {
+        ActiveMQMessage message = createMarshalledMessage();
+
+        assertEquals("EU", message.getProperty("region"));
+        message.setReadOnlyProperties(false);
+        message.setStringProperty("region", "US");
+        assertEquals("US", message.getProperty("region"));
+
+        message.beforeMarshall(new OpenWireFormat());
+        ActiveMQMessage received = new ActiveMQMessage();
+        received.setMarshalledProperties(message.getMarshalledProperties());
+        assertEquals("US", received.getProperty("region"));
+
+        received.setMarshalledProperties(createMarshalledMessage().getMarshalledProperties());
+        assertEquals("EU", received.getProperty("region"));
+
+        received.clearProperties();
+        assertNull(received.getProperty("region"));
+    }
+}
@@ -0,0 +1,163 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.compression;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.util.ByteSequence;
+import org.junit.Test;
+
+public class CompressionSupportTest {
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void testLZ4RoundTrip() throws Exception {
+        for (int length : new int[] {0, 1, 12, 13, 17, 100, 1000, 70000, 300000}) {
+            assertRoundTrip(CompressionSupport.LZ4, compressible(length));
+            assertRoundTrip(CompressionSupport.LZ4, incompressible(length));
+        }
+    }
+
+    @Test
+    public void testDeflateRoundTrip() throws Exception {
+        for (int length : new int[] {0, 1, 100, 70000}) {
+            assertRoundTrip(CompressionSupport.DEFLATE, compressible(length));
+            assertRoundTrip(CompressionSupport.DEFLATE, incompressible(length));
+        }
+    }
+
+    @Test
+    public void testLZ4CompressesRepeatedContent() throws Exception {
+        byte[] data = compressible(64 * 1024);
+        ByteSequence compressed = CompressionSupport.compress(CompressionSupport.LZ4, new ByteSequence(data));
+        assertTrue("compressed to " + compressed.getLength(), compressed.getLength() < data.length / 4);
+    }
+
+    @Test
+    public void testCodecHeader() throws Exception {
+        ByteSequence data = new ByteSequence(compressible(1000));
+        ByteSequence lz4 = CompressionSupport.compress(CompressionSupport.LZ4, data);
+        assertTrue(CompressionSupport.hasCodecHeader(lz4));
+
+        // deflate bodies are written as they were before codecs
+        ByteSequence deflate = CompressionSupport.compress(CompressionSupport.DEFLATE, data);
+        assertFalse(CompressionSupport.hasCodecHeader(deflate));
+        assertArrayEquals(data.getData(), toArray(CompressionSupport.decompress(deflate)));
+    }
+
+    @Test
+    public void testMalformedLZ4() throws Exception {
+        byte[] data = compressible(1000);
+        ByteSequence compressed = CompressionSupport.compress(CompressionSupport.LZ4, new ByteSequence(data));
+        ByteSequence truncated = new ByteSequence(compressed.getData(), 0, compressed.getLength() - 10);
+        try {
+            CompressionSupport.decompress(truncated);
+            fail("truncated data must not decompress");
+        } catch (IOException expected) {
+        }
+
+        byte[] unknown = toArray(compressed);
+        unknown[0] = (byte) 0xFF;
+        try {
+            CompressionSupport.decompress(new ByteSequence(unknown));
+            fail("unknown codec must not decompress");
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void testDeclaredLengthIsNotTrusted() throws Exception {
+        // a few bytes of LZ4 can not decompress to 2 GB
+        byte[] lz4 = new byte[] {(byte) (0x80 | LZ4CompressionCodec.ID), 0x7F, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x10, 0x41};
+        try {
+            CompressionSupport.decompress(new ByteSequence(lz4));
+            fail("a length beyond what the data can decompress to must be rejected");
+        } catch (IOException expected) {
+        }
+
+        byte[] data = compressible(100);
+        ByteSequence deflated = CompressionSupport.DEFLATE.compress(new ByteSequence(data));
+        try {
+            CompressionSupport.DEFLATE.decompress(deflated, CompressionSupport.MAX_UNCOMPRESSED_LENGTH + 1);
+            fail("a length beyond the max uncompressed length must be rejected");
+        } catch (IOException expected) {
+        }
+
+        // the buffer grows with the inflated data rather than the declared length
+        ByteSequence decompressed = CompressionSupport.DEFLATE.decompress(deflated, CompressionSupport.MAX_UNCOMPRESSED_LENGTH);
+        assertArrayEquals(data, toArray(decompressed));
+        assertTrue(decompressed.getData().length < 64 * 1024);
+    }
+
+    @Test
+    public void testGetCodec() throws Exception {
+        assertSame(CompressionSupport.LZ4, CompressionSupport.getCodec(LZ4CompressionCodec.NAME));
+        assertSame(CompressionSupport.LZ4, CompressionSupport.getCodec(LZ4CompressionCodec.ID));
+        assertSame(CompressionSupport.DEFLATE, CompressionSupport.getCodec(DeflateCompressionCodec.NAME));
+
+        ActiveMQConnectionFactory factory = new ActiveMQConnectionFactory("vm://localhost");
+        factory.setCompressionCodec(LZ4CompressionCodec.NAME);
+        assertEquals(LZ4CompressionCodec.NAME, factory.getCompressionCodec());
+        try {
+            factory.setCompressionCodec("unknown");
+            fail("unknown codec must be rejected");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private void assertRoundTrip(CompressionCodec codec, byte[] data) throws IOException {
+        // compress from the middle of a larger buffer
+        byte[] buffer = new byte[data.length + 20];
+        System.arraycopy(data, 0, buffer, 7, data.length);
+        ByteSequence compressed = CompressionSupport.compress(codec, new ByteSequence(buffer, 7, data.length));
+
+        byte[] shifted = new byte[compressed.getLength() + 3];
+        System.arraycopy(compressed.getData(), compressed.getOffset(), shifted, 3, compressed.getLength());
+        ByteSequence decompressed = CompressionSupport.decompress(new ByteSequence(shifted, 3, compressed.getLength()));
+        assertArrayEquals(codec.getName() + " of " + data.length + " bytes", data, toArray(decompressed));
+    }
+
+    private byte[] compressible(int length) {
+        byte[] data = new byte[length];
+        byte[] words = "message body with some repeated words ".getBytes();
+        for (int i = 0; i < length; i++) {
+            data[i] = i % 97 == 0 ? (byte) random.nextInt() : words[i % words.length];
+        }
+        return data;
+    }
+
+    private byte[] incompressible(int length) {
+        byte[] data = new byte[length];
+        random.nextBytes(data);
+        return data;
+    }
+
+    private static byte[] toArray(ByteSequence sequence) {
+        return Arrays.copyOfRange(sequence.getData(), sequence.getOffset(), sequence.getOffset() + sequence.getLength());
+    }
+}
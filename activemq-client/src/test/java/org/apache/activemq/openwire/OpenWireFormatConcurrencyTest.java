@@ -0,0 +1,132 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.openwire;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.apache.activemq.command.CommandTypes;
+import org.apache.activemq.command.MessageId;
+import org.apache.activemq.command.ProducerId;
+import org.apache.activemq.util.ByteSequence;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Marshals and unmarshals commands from several threads with one
+ * {@link OpenWireFormat} that does not use the marshal cache.
+ */
+@RunWith(Parameterized.class)
+public class OpenWireFormatConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int MESSAGES = 2000;
+
+    private final boolean tightEncoding;
+    private OpenWireFormat format;
+    private ExecutorService executor;
+
+    @Parameters(name = "tightEncoding={0}")
+    public static Collection<Object[]> data() {
+        return Arrays.asList(new Object[][] {{true}, {false}});
+    }
+
+    public OpenWireFormatConcurrencyTest(boolean tightEncoding) {
+        this.tightEncoding = tightEncoding;
+    }
+
+    @Before
+    public void setUp() {
+        format = new OpenWireFormat(CommandTypes.PROTOCOL_VERSION);
+        format.setTightEncodingEnabled(tightEncoding);
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testConcurrentMarshalAndUnmarshal() throws Exception {
+        final CyclicBarrier start = new CyclicBarrier(THREADS);
+        List<Future<Void>> results = new ArrayList<Future<Void>>();
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            results.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    ProducerId producerId = new ProducerId("ID:test-" + thread + ":1:1:1");
+                    start.await();
+                    for (int i = 0; i < MESSAGES; i++) {
+                        ActiveMQTextMessage message = createMessage(producerId, i);
+                        ByteSequence frame = format.marshal(message);
+                        ActiveMQTextMessage copy = (ActiveMQTextMessage) format.unmarshal(frame);
+                        assertEquals(message.getMessageId(), copy.getMessageId());
+                        assertEquals(message.getDestination(), copy.getDestination());
+                        assertEquals(message.getText(), copy.getText());
+                        assertEquals(i, copy.getIntProperty("index"));
+                    }
+                    return null;
+                }
+            }));
+        }
+        for (Future<Void> result : results) {
+            result.get(60, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testFramesAreNotShared() throws Exception {
+        ProducerId producerId = new ProducerId("ID:test:1:1:1");
+        ByteSequence first = format.marshal(createMessage(producerId, 1));
+        byte[] expected = toBytes(first);
+        format.marshal(createMessage(producerId, 2));
+        assertTrue(Arrays.equals(expected, toBytes(first)));
+    }
+
+    private static byte[] toBytes(ByteSequence sequence) {
+        return Arrays.copyOfRange(sequence.getData(), sequence.getOffset(), sequence.getOffset() + sequence.getLength());
+    }
+
+    private ActiveMQTextMessage createMessage(ProducerId producerId, int index) throws Exception {
+        ActiveMQTextMessage message = new ActiveMQTextMessage();
+        message.setMessageId(new MessageId(producerId, index));
+        message.setDestination(new ActiveMQQueue("TEST." + producerId.getConnectionId()));
+        message.setText("message " + index + " of " + producerId);
+        message.setIntProperty("index", index);
+        return message;
+    }
+}
@@ -16,6 +16,8 @@
  */
 package org.apache.activemq.thread;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
@@ -24,6 +26,8 @@ import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.Test;
 
@@ -74,4 +78,49 @@ public class TaskRunnerFactoryTest {
             assertTrue(runner instanceof PooledTaskRunner);
         }
     }
+
+    @Test
+    public void testVirtualThreads() throws Exception {
+        final TaskRunnerFactory factory = new TaskRunnerFactory("virtual");
+        factory.setVirtualThreads(true);
+        factory.setDedicatedTaskRunner(true);
+        try {
+            final CountDownLatch iterated = new CountDownLatch(1);
+            final AtomicReference<Thread> thread = new AtomicReference<Thread>();
+            TaskRunner runner = factory.createTaskRunner(new Task() {
+
+                @Override
+                public boolean iterate() {
+                    thread.set(Thread.currentThread());
+                    iterated.countDown();
+                    return false;
+                }
+            }, "task");
+            runner.wakeup();
+            assertTrue(iterated.await(10, TimeUnit.SECONDS));
+            runner.shutdown();
+
+            // falls back to the dedicated runner on a JVM without virtual threads
+            assertEquals(VirtualThreads.isSupported(), runner instanceof PooledTaskRunner);
+            assertEquals(VirtualThreads.isSupported(), isVirtual(thread.get()));
+        } finally {
+            factory.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testVirtualThreadsNotRequested() throws Exception {
+        assertFalse(VirtualThreads.isEnabled(false));
+        if (!VirtualThreads.isSupported()) {
+            assertFalse(VirtualThreads.isEnabled(true));
+        }
+    }
+
+    private static boolean isVirtual(Thread thread) throws Exception {
+        try {
+            return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
 }
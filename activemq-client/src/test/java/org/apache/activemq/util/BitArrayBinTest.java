@@ -17,8 +17,14 @@
 package org.apache.activemq.util;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
 import org.junit.Test;
 
 public class BitArrayBinTest {
@@ -181,4 +187,51 @@ public class BitArrayBinTest {
         toTest.setBit(largeNum, true);
         assertTrue(toTest.getBit(largeNum));
     }
+
+    @Test
+    public void testWriteAndReadStream() throws Exception {
+        BitArrayBin toTest = createSparseBin();
+
+        DataByteArrayOutputStream dataOut = new DataByteArrayOutputStream();
+        toTest.writeToStream(dataOut);
+        BitArrayBin read = new BitArrayBin(1);
+        read.readFromStream(new DataByteArrayInputStream(dataOut.toByteSequence()));
+
+        assertSameBits(toTest, read);
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        BitArrayBin toTest = createSparseBin();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream objectOut = new ObjectOutputStream(bytes);
+        objectOut.writeObject(toTest);
+        objectOut.close();
+        ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        BitArrayBin read = (BitArrayBin) objectIn.readObject();
+
+        assertSameBits(toTest, read);
+    }
+
+    // a window that has moved on, with arrays of every encoded width
+    private BitArrayBin createSparseBin() {
+        BitArrayBin toTest = new BitArrayBin(500);
+        for (int i = 0; i < 1500; i += 3) {
+            toTest.setBit(i, true);
+        }
+        toTest.setBit(1507, true);
+        toTest.setBit(1525, true);
+        toTest.setBit(1560, true);
+        return toTest;
+    }
+
+    private void assertSameBits(BitArrayBin expected, BitArrayBin actual) {
+        assertEquals(expected.getLastSetIndex(), actual.getLastSetIndex());
+        for (int i = 1000; i < 1600; i++) {
+            assertEquals("bit " + i, expected.getBit(i), actual.getBit(i));
+        }
+        assertFalse(actual.setBit(1561, true));
+        assertTrue(actual.setBit(1560, true));
+    }
 }
@@ -16,8 +16,15 @@
  */
 package org.apache.activemq.util;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 import org.junit.Test;
@@ -42,4 +49,56 @@ public class MarshallingSupportTest {
         Properties props2 = MarshallingSupport.stringToProperties(str);
         assertEquals(props, props2);
     }
+
+    @Test
+    public void testLookupPrimitiveMapValue() throws Exception {
+        Map<String, Object> nested = new HashMap<String, Object>();
+        nested.put("inner", "value");
+        List<Object> list = new ArrayList<Object>();
+        list.add(1);
+        list.add("two");
+
+        StringBuilder big = new StringBuilder();
+        for (int i = 0; i < Short.MAX_VALUE / 4; i++) {
+            big.append('x');
+        }
+
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put("null", null);
+        map.put("boolean", Boolean.TRUE);
+        map.put("byte", (byte) 1);
+        map.put("char", 'c');
+        map.put("short", (short) 2);
+        map.put("int", 3);
+        map.put("long", 4L);
+        map.put("float", 5.0f);
+        map.put("double", 6.0d);
+        map.put("string", "text");
+        map.put("bigString", big.toString());
+        map.put("bytes", new byte[] {1, 2, 3});
+        map.put("map", nested);
+        map.put("list", list);
+        map.put("r\u00e9gion", "EU");
+        map.put("\u4e2d", "zh");
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(baos);
+        MarshallingSupport.marshalPrimitiveMap(map, out);
+        out.close();
+        ByteSequence marshalled = baos.toByteSequence();
+
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            Object value = MarshallingSupport.lookupPrimitiveMapValue(marshalled, entry.getKey());
+            if (entry.getValue() instanceof byte[]) {
+                assertArrayEquals((byte[]) entry.getValue(), (byte[]) value);
+            } else if (entry.getValue() instanceof String) {
+                assertEquals(entry.getKey(), entry.getValue(), value.toString());
+            } else {
+                assertEquals(entry.getKey(), entry.getValue(), value);
+            }
+        }
+        assertNull(MarshallingSupport.lookupPrimitiveMapValue(marshalled, "missing"));
+        assertNull(MarshallingSupport.lookupPrimitiveMapValue(marshalled, "regio"));
+        assertNull(MarshallingSupport.lookupPrimitiveMapValue(marshalled, "inner"));
+    }
 }
@@ -524,6 +524,22 @@ public class KahaDBPersistenceAdapter extends LockableServiceSupport implements
         this.letter.setIndexCacheSize(indexCacheSize);
     }
 
+    public int getIndexLockStripes() {
+        return this.letter.getIndexLockStripes();
+    }
+
+    /**
+     * Set the number of locks that index updates of different destinations are
+     * spread across, so that sends to unrelated destinations update the index
+     * concurrently. 0 serializes all index updates.
+     *
+     * @param indexLockStripes
+     *            the number of index lock stripes
+     */
+    public void setIndexLockStripes(int indexLockStripes) {
+        this.letter.setIndexLockStripes(indexLockStripes);
+    }
+
     /**
      * Get the ignoreMissingJournalfiles
      *
@@ -589,6 +605,59 @@ public class KahaDBPersistenceAdapter extends LockableServiceSupport implements
         this.letter.setPreallocationStrategy(preallocationStrategy);
     }
 
+    public boolean isJournalMemoryMappedReads() {
+        return letter.isJournalMemoryMappedReads();
+    }
+
+    /**
+     * Read journal records through a memory mapping of the data files rather
+     * than a seek and read per record, which reduces the cost of paging in
+     * large backlogs of messages.
+     */
+    public void setJournalMemoryMappedReads(boolean journalMemoryMappedReads) {
+        this.letter.setJournalMemoryMappedReads(journalMemoryMappedReads);
+    }
+
+    public long getJournalGroupCommitMaxLatency() {
+        return letter.getJournalGroupCommitMaxLatency();
+    }
+
+    /**
+     * Group commit: the maximum time, in microseconds, a journal batch that
+     * has to be synced is held open so that concurrent producers share one
+     * disk sync. Batches are only held open while writes arrive faster than
+     * this latency. 0, the default, disables group commit.
+     */
+    public void setJournalGroupCommitMaxLatency(long journalGroupCommitMaxLatency) {
+        this.letter.setJournalGroupCommitMaxLatency(journalGroupCommitMaxLatency);
+    }
+
+    public boolean isConcurrentCheckpoint() {
+        return letter.isConcurrentCheckpoint();
+    }
+
+    /**
+     * When enabled, a checkpoint only holds up updates to the store while it
+     * records its state and takes a snapshot of the updated index pages. The
+     * pages are written to disk after updates resume. Disabled by default, in
+     * which case updates wait until the index pages are on disk.
+     */
+    public void setConcurrentCheckpoint(boolean concurrentCheckpoint) {
+        this.letter.setConcurrentCheckpoint(concurrentCheckpoint);
+    }
+
+    public int getJournalGroupCommitMaxBatchSize() {
+        return letter.getJournalGroupCommitMaxBatchSize();
+    }
+
+    /**
+     * The number of writes that completes a journal batch held open for group
+     * commit before its latency window ends, 0 for no limit.
+     */
+    public void setJournalGroupCommitMaxBatchSize(int journalGroupCommitMaxBatchSize) {
+        this.letter.setJournalGroupCommitMaxBatchSize(journalGroupCommitMaxBatchSize);
+    }
+
     public boolean isArchiveDataLogs() {
         return letter.isArchiveDataLogs();
     }
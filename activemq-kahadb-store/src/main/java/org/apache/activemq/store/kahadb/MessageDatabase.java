@@ -58,6 +58,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.activemq.ActiveMQMessageAuditNoSync;
@@ -140,6 +141,10 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
 
     static final byte COMPACTED_JOURNAL_FILE = DataFile.STANDARD_LOG_FILE + 1;
 
+    // leads a producer audit written with ActiveMQMessageAuditNoSync.writeToStream,
+    // audits written by earlier versions are java serialized
+    static final int PRODUCER_AUDIT_MAGIC = 0x4B415544;
+
     protected class Metadata {
         protected Page<Metadata> page;
         protected int state;
@@ -278,6 +283,10 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
     int setIndexWriteBatchSize = PageFile.DEFAULT_WRITE_BATCH_SIZE;
     private String preallocationScope = Journal.PreallocationScope.ENTIRE_JOURNAL.name();
     private String preallocationStrategy = Journal.PreallocationStrategy.SPARSE_FILE.name();
+    private boolean journalMemoryMappedReads = false;
+    private long journalGroupCommitMaxLatency = 0;
+    private boolean concurrentCheckpoint = false;
+    private int journalGroupCommitMaxBatchSize = 0;
 
     protected AtomicBoolean opened = new AtomicBoolean();
     private boolean ignoreMissingJournalfiles = false;
@@ -824,10 +833,18 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
         if (metadata.producerSequenceIdTrackerLocation != null) {
             try {
                 KahaProducerAuditCommand audit = (KahaProducerAuditCommand) load(metadata.producerSequenceIdTrackerLocation);
-                ObjectInputStream objectIn = new MessageDatabaseObjectInputStream(audit.getAudit().newInput());
+                Buffer data = audit.getAudit();
+                DataByteArrayInputStream dataIn = new DataByteArrayInputStream(new ByteSequence(data.data, data.offset, data.length));
                 int maxNumProducers = getMaxFailoverProducersToTrack();
                 int maxAuditDepth = getFailoverProducersAuditDepth();
-                metadata.producerSequenceIdTracker = (ActiveMQMessageAuditNoSync) objectIn.readObject();
+                if (data.length >= 4 && dataIn.readInt() == PRODUCER_AUDIT_MAGIC) {
+                    ActiveMQMessageAuditNoSync tracker = new ActiveMQMessageAuditNoSync();
+                    tracker.readFromStream(dataIn);
+                    metadata.producerSequenceIdTracker = tracker;
+                } else {
+                    ObjectInputStream objectIn = new MessageDatabaseObjectInputStream(data.newInput());
+                    metadata.producerSequenceIdTracker = (ActiveMQMessageAuditNoSync) objectIn.readObject();
+                }
                 metadata.producerSequenceIdTracker.setAuditDepth(maxAuditDepth);
                 metadata.producerSequenceIdTracker.setMaximumNumberOfProducersToTrack(maxNumProducers);
                 requiresReplay = false;
@@ -1334,55 +1351,39 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
             List<Operation> inflightTx = getInflightTx(command.getTransactionInfo());
             inflightTx.add(new AddOperation(command, location, runWithIndexLock));
         } else {
-            this.indexLock.writeLock().lock();
-            try {
-                pageFile.tx().execute(new Transaction.Closure<IOException>() {
-                    @Override
-                    public void execute(Transaction tx) throws IOException {
-                        long assignedIndex = updateIndex(tx, command, location);
-                        if (runWithIndexLock != null) {
-                            runWithIndexLock.sequenceAssignedWithIndexLocked(assignedIndex);
-                        }
-                    }
-                });
-
-            } finally {
-                this.indexLock.writeLock().unlock();
-            }
-        }
-    }
-
-    protected void process(final KahaUpdateMessageCommand command, final Location location) throws IOException {
-        this.indexLock.writeLock().lock();
-        try {
-            pageFile.tx().execute(new Transaction.Closure<IOException>() {
+            updateDestinationIndex(command.getDestination(), new Transaction.Closure<IOException>() {
                 @Override
                 public void execute(Transaction tx) throws IOException {
-                    updateIndex(tx, command, location);
+                    long assignedIndex = updateIndex(tx, command, location);
+                    if (runWithIndexLock != null) {
+                        runWithIndexLock.sequenceAssignedWithIndexLocked(assignedIndex);
+                    }
                 }
             });
-        } finally {
-            this.indexLock.writeLock().unlock();
         }
     }
 
+    protected void process(final KahaUpdateMessageCommand command, final Location location) throws IOException {
+        updateDestinationIndex(command.getMessage().getDestination(), new Transaction.Closure<IOException>() {
+            @Override
+            public void execute(Transaction tx) throws IOException {
+                updateIndex(tx, command, location);
+            }
+        });
+    }
+
     @SuppressWarnings("rawtypes")
     protected void process(final KahaRemoveMessageCommand command, final Location location) throws IOException {
         if (command.hasTransactionInfo()) {
            List<Operation> inflightTx = getInflightTx(command.getTransactionInfo());
            inflightTx.add(new RemoveOperation(command, location));
         } else {
-            this.indexLock.writeLock().lock();
-            try {
-                pageFile.tx().execute(new Transaction.Closure<IOException>() {
-                    @Override
-                    public void execute(Transaction tx) throws IOException {
-                        updateIndex(tx, command, location);
-                    }
-                });
-            } finally {
-                this.indexLock.writeLock().unlock();
-            }
+            updateDestinationIndex(command.getDestination(), new Transaction.Closure<IOException>() {
+                @Override
+                public void execute(Transaction tx) throws IOException {
+                    updateIndex(tx, command, location);
+                }
+            });
         }
     }
 
@@ -1526,6 +1527,59 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
     protected final ReentrantReadWriteLock indexLock = new ReentrantReadWriteLock();
     private final HashSet<Integer> journalFilesBeingReplicated = new HashSet<>();
 
+    // Message adds, updates and removes only touch the StoredDestination they target, so they
+    // hold the indexLock read lock plus the lock of the destination's stripe. Everything else,
+    // checkpoints, destination and subscription changes and transaction outcomes, takes the
+    // indexLock write lock which excludes all of them.
+    public static final int DEFAULT_INDEX_LOCK_STRIPES = 32;
+    private ReentrantLock[] destinationIndexLocks = createDestinationIndexLocks(DEFAULT_INDEX_LOCK_STRIPES);
+    // guards the metadata shared by concurrent destination updates
+    private final Object sharedIndexStateMutex = new Object();
+
+    private static ReentrantLock[] createDestinationIndexLocks(int stripes) {
+        ReentrantLock[] locks = new ReentrantLock[Math.max(stripes, 0)];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        return locks;
+    }
+
+    /**
+     * Executes an index update that is confined to the StoredDestination of the given destination.
+     * Updates of unrelated destinations can run concurrently when index lock striping is enabled,
+     * updates of destinations that are not loaded yet are done under the global index lock as
+     * they modify the shared destination index.
+     */
+    protected void updateDestinationIndex(KahaDestination destination, Transaction.Closure<IOException> closure) throws IOException {
+        ReentrantLock[] locks = this.destinationIndexLocks;
+        if (locks.length > 0) {
+            String key = key(destination);
+            this.indexLock.readLock().lock();
+            try {
+                // storedDestinations is only modified with the write lock held
+                if (storedDestinations.containsKey(key)) {
+                    ReentrantLock lock = locks[(key.hashCode() & Integer.MAX_VALUE) % locks.length];
+                    lock.lock();
+                    try {
+                        pageFile.tx().execute(closure);
+                    } finally {
+                        lock.unlock();
+                    }
+                    return;
+                }
+            } finally {
+                this.indexLock.readLock().unlock();
+            }
+        }
+
+        this.indexLock.writeLock().lock();
+        try {
+            pageFile.tx().execute(closure);
+        } finally {
+            this.indexLock.writeLock().unlock();
+        }
+    }
+
     long updateIndex(Transaction tx, KahaAddMessageCommand command, Location location) throws IOException {
         StoredDestination sd = getExistingStoredDestination(command.getDestination(), tx);
         if (sd == null) {
@@ -1550,7 +1604,7 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
                 if (sd.subscriptions != null && !sd.subscriptions.isEmpty(tx)) {
                     addAckLocationForNewMessage(tx, command.getDestination(), sd, id);
                 }
-                metadata.lastUpdate = location;
+                recordLastUpdate(location);
             } else {
                 MessageKeys messageKeys = sd.orderIndex.get(tx, previous);
                 if (messageKeys != null && messageKeys.location.compareTo(location) < 0) {
@@ -1570,10 +1624,12 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
             sd.locationIndex.put(tx, location, previous);
             // ensure sequence is not broken
             sd.orderIndex.revertNextMessageId();
-            metadata.lastUpdate = location;
+            recordLastUpdate(location);
         }
         // record this id in any event, initial send or recovery
-        metadata.producerSequenceIdTracker.isDuplicate(command.getMessageId());
+        synchronized (sharedIndexStateMutex) {
+            metadata.producerSequenceIdTracker.isDuplicate(command.getMessageId());
+        }
 
        return id;
     }
@@ -1628,7 +1684,7 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
                     sd.locationIndex.remove(tx, previousKeys.location);
                 }
             }
-            metadata.lastUpdate = location;
+            recordLastUpdate(location);
         } else {
             //Add the message if it can't be found
             this.updateIndex(tx, command, location);
@@ -1647,7 +1703,7 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
                     sd.locationIndex.remove(tx, keys.location);
                     decrementAndSubSizeToStoreStat(tx, command.getDestination(), keys.location.getSize());
                     recordAckMessageReferenceLocation(ackLocation, keys.location);
-                    metadata.lastUpdate = ackLocation;
+                    recordLastUpdate(ackLocation);
                 }  else if (LOG.isDebugEnabled()) {
                     LOG.debug("message not found in order index: " + sequenceId  + " for: " + command.getMessageId());
                 }
@@ -1674,7 +1730,7 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
                 }
                 // The following method handles deleting un-referenced messages.
                 removeAckLocation(command, tx, sd, subscriptionKey, sequence);
-                metadata.lastUpdate = ackLocation;
+                recordLastUpdate(ackLocation);
             } else if (LOG.isDebugEnabled()) {
                 LOG.debug("on ack, no message sequence exists for id: " + command.getMessageId() + " and sub: " + command.getSubscriptionKey());
             }
@@ -1682,18 +1738,30 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
         }
     }
 
+    // updates of different destinations can run concurrently and finish out of journal order, so
+    // the last update only ever moves forward
+    private void recordLastUpdate(Location location) {
+        synchronized (sharedIndexStateMutex) {
+            if (metadata.lastUpdate == null || metadata.lastUpdate.compareTo(location) < 0) {
+                metadata.lastUpdate = location;
+            }
+        }
+    }
+
     private void recordAckMessageReferenceLocation(Location ackLocation, Location messageLocation) {
-        Set<Integer> referenceFileIds = metadata.ackMessageFileMap.get(ackLocation.getDataFileId());
-        if (referenceFileIds == null) {
-            referenceFileIds = new HashSet<>();
-            referenceFileIds.add(messageLocation.getDataFileId());
-            metadata.ackMessageFileMap.put(ackLocation.getDataFileId(), referenceFileIds);
-            metadata.ackMessageFileMapDirtyFlag.lazySet(true);
+        synchronized (sharedIndexStateMutex) {
+            Set<Integer> referenceFileIds = metadata.ackMessageFileMap.get(ackLocation.getDataFileId());
+            if (referenceFileIds == null) {
+                referenceFileIds = new HashSet<>();
+                referenceFileIds.add(messageLocation.getDataFileId());
+                metadata.ackMessageFileMap.put(ackLocation.getDataFileId(), referenceFileIds);
+                metadata.ackMessageFileMapDirtyFlag.lazySet(true);
 
-        } else {
-            Integer id = messageLocation.getDataFileId();
-            if (!referenceFileIds.contains(id)) {
-                referenceFileIds.add(id);
+            } else {
+                Integer id = messageLocation.getDataFileId();
+                if (!referenceFileIds.contains(id)) {
+                    referenceFileIds.add(id);
+                }
             }
         }
     }
@@ -1784,9 +1852,16 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
     }
 
     private void checkpointUpdate(final boolean cleanup) throws IOException {
+        if (concurrentCheckpoint) {
+            concurrentCheckpointUpdate(cleanup);
+            return;
+        }
+        long start = System.currentTimeMillis();
+        long locked = start;
         checkpointLock.writeLock().lock();
         try {
             this.indexLock.writeLock().lock();
+            locked = System.currentTimeMillis();
             try {
                 Set<Integer> filesToGc = pageFile.tx().execute(new Transaction.CallableClosure<Set<Integer>, IOException>() {
                     @Override
@@ -1803,6 +1878,56 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
 
         } finally {
             checkpointLock.writeLock().unlock();
+            long end = System.currentTimeMillis();
+            persistenceAdapterStatistics.addCheckpointStallTime(end - locked);
+            persistenceAdapterStatistics.addCheckpointTime(end - start);
+        }
+    }
+
+    /**
+     * Checkpoints without holding up updates while the index pages are written
+     * to disk. The checkpoint state is recorded and the updated index pages are
+     * snapshot with updates locked out, the snapshot is written and synced after
+     * updates are let through again. Journal files that are no longer needed are
+     * only removed once the snapshot that stops referencing them is on disk.
+     */
+    private void concurrentCheckpointUpdate(final boolean cleanup) throws IOException {
+        long start = System.currentTimeMillis();
+        long locked = start;
+        Set<Integer> filesToGc;
+        PageFile.PendingFlush flush;
+        checkpointLock.writeLock().lock();
+        try {
+            this.indexLock.writeLock().lock();
+            locked = System.currentTimeMillis();
+            try {
+                filesToGc = pageFile.tx().execute(new Transaction.CallableClosure<Set<Integer>, IOException>() {
+                    @Override
+                    public Set<Integer> execute(Transaction tx) throws IOException {
+                        return checkpointUpdate(tx, cleanup);
+                    }
+                });
+                flush = pageFile.beginFlush();
+            } finally {
+                this.indexLock.writeLock().unlock();
+            }
+        } finally {
+            checkpointLock.writeLock().unlock();
+            persistenceAdapterStatistics.addCheckpointStallTime(System.currentTimeMillis() - locked);
+        }
+
+        try {
+            flush.complete();
+            if (!filesToGc.isEmpty()) {
+                this.indexLock.writeLock().lock();
+                try {
+                    journal.removeDataFiles(filesToGc);
+                } finally {
+                    this.indexLock.writeLock().unlock();
+                }
+            }
+        } finally {
+            persistenceAdapterStatistics.addCheckpointTime(System.currentTimeMillis() - start);
         }
     }
 
@@ -2265,13 +2390,22 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
 
     private Location checkpointProducerAudit() throws IOException {
         if (metadata.producerSequenceIdTracker == null || metadata.producerSequenceIdTracker.modified()) {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ObjectOutputStream oout = new ObjectOutputStream(baos);
-            oout.writeObject(metadata.producerSequenceIdTracker);
-            oout.flush();
-            oout.close();
+            ByteSequence data;
+            if (metadata.producerSequenceIdTracker != null) {
+                DataByteArrayOutputStream dataOut = new DataByteArrayOutputStream();
+                dataOut.writeInt(PRODUCER_AUDIT_MAGIC);
+                metadata.producerSequenceIdTracker.writeToStream(dataOut);
+                data = dataOut.toByteSequence();
+            } else {
+                // no audit to stream, record its absence java serialized as before
+                ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                ObjectOutputStream oout = new ObjectOutputStream(baos);
+                oout.writeObject(null);
+                oout.close();
+                data = new ByteSequence(baos.toByteArray());
+            }
             // using completion callback allows a disk sync to be avoided when enableJournalDiskSyncs = false
-            Location location = store(new KahaProducerAuditCommand().setAudit(new Buffer(baos.toByteArray())), nullCompletionCallback);
+            Location location = store(new KahaProducerAuditCommand().setAudit(new Buffer(data.getData(), data.getOffset(), data.getLength())), nullCompletionCallback);
             try {
                 location.getLatch().await();
                 if (location.getException().get() != null) {
@@ -3417,6 +3551,11 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
         manager.setPreallocationStrategy(
                 Journal.PreallocationStrategy.valueOf(preallocationStrategy.trim().toUpperCase()));
         manager.setJournalDiskSyncStrategy(journalDiskSyncStrategy);
+        manager.setMemoryMappedReads(journalMemoryMappedReads);
+        manager.setGroupCommitMaxLatency(journalGroupCommitMaxLatency);
+        manager.setGroupCommitMaxBatchSize(journalGroupCommitMaxBatchSize);
+        manager.setBatchSizeStatistic(persistenceAdapterStatistics.getJournalBatchSize());
+        manager.setSyncTimeStatistic(persistenceAdapterStatistics.getJournalSyncTime());
         if (getDirectoryArchive() != null) {
             IOHelper.mkdirs(getDirectoryArchive());
             manager.setDirectoryArchive(getDirectoryArchive());
@@ -3601,6 +3740,18 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
         return indexCacheSize;
     }
 
+    public int getIndexLockStripes() {
+        return destinationIndexLocks.length;
+    }
+
+    /**
+     * Sets the number of locks message index updates of different destinations are
+     * spread across, 0 serializes all index updates on the global index lock.
+     */
+    public void setIndexLockStripes(int indexLockStripes) {
+        this.destinationIndexLocks = createDestinationIndexLocks(indexLockStripes);
+    }
+
     public void setIndexCacheSize(int indexCacheSize) {
         this.indexCacheSize = indexCacheSize;
     }
@@ -4180,6 +4331,38 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
         this.preallocationStrategy = preallocationStrategy;
     }
 
+    public boolean isJournalMemoryMappedReads() {
+        return journalMemoryMappedReads;
+    }
+
+    public void setJournalMemoryMappedReads(boolean journalMemoryMappedReads) {
+        this.journalMemoryMappedReads = journalMemoryMappedReads;
+    }
+
+    public long getJournalGroupCommitMaxLatency() {
+        return journalGroupCommitMaxLatency;
+    }
+
+    public void setJournalGroupCommitMaxLatency(long journalGroupCommitMaxLatency) {
+        this.journalGroupCommitMaxLatency = journalGroupCommitMaxLatency;
+    }
+
+    public boolean isConcurrentCheckpoint() {
+        return concurrentCheckpoint;
+    }
+
+    public void setConcurrentCheckpoint(boolean concurrentCheckpoint) {
+        this.concurrentCheckpoint = concurrentCheckpoint;
+    }
+
+    public int getJournalGroupCommitMaxBatchSize() {
+        return journalGroupCommitMaxBatchSize;
+    }
+
+    public void setJournalGroupCommitMaxBatchSize(int journalGroupCommitMaxBatchSize) {
+        this.journalGroupCommitMaxBatchSize = journalGroupCommitMaxBatchSize;
+    }
+
     public int getCompactAcksAfterNoGC() {
         return compactAcksAfterNoGC;
     }
@@ -100,6 +100,7 @@ class CallerBufferingDataFileAppender extends DataFileAppender {
                 synchronized (enqueueMutex) {
                     while (true) {
                         if (nextWriteBatch != null) {
+                            awaitGroupCommit();
                             o = nextWriteBatch;
                             nextWriteBatch = null;
                             break;
@@ -161,8 +162,9 @@ class CallerBufferingDataFileAppender extends DataFileAppender {
                     replicationTarget.replicate(wb.writes.getHead().location, sequence, forceToDisk);
                 }
 
+                batchSizeStatistic.record(wb.writeCount);
                 if (forceToDisk) {
-                    file.sync();
+                    sync(file);
                 }
 
                 Journal.WriteCommand lastWrite = wb.writes.getTail();
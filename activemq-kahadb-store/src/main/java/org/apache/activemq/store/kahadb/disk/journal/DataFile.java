@@ -16,19 +16,30 @@
  */
 package org.apache.activemq.store.kahadb.disk.journal;
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 
 import org.apache.activemq.store.kahadb.disk.util.LinkedNode;
 import org.apache.activemq.store.kahadb.disk.util.SequenceSet;
 import org.apache.activemq.util.IOHelper;
 import org.apache.activemq.util.RecoverableRandomAccessFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * DataFile
  */
 public class DataFile extends LinkedNode<DataFile> implements Comparable<DataFile> {
 
+    private static final Logger LOG = LoggerFactory.getLogger(DataFile.class);
+
     public final static byte STANDARD_LOG_FILE = 0x0;
 
     protected final File file;
@@ -37,6 +48,9 @@ public class DataFile extends LinkedNode<DataFile> implements Comparable<DataFil
     protected int typeCode = STANDARD_LOG_FILE;
     protected final SequenceSet corruptedBlocks = new SequenceSet();
     protected RecoverableRandomAccessFile appendRandomAccessFile;
+    // read without locking, only replaced under the lock of the data file
+    private volatile MappedByteBuffer readMapping;
+    private boolean readMappingClosed;
 
     DataFile(File file, int number) {
         this.file = file;
@@ -99,6 +113,83 @@ public class DataFile extends LinkedNode<DataFile> implements Comparable<DataFil
         }
     }
 
+    /**
+     * Returns a read only mapping of the file that is shared by all readers of
+     * the file. Readers must only use absolute get operations on it. The
+     * current mapping is returned without locking when it covers the required
+     * length, the file is only mapped again once a read goes past its end.
+     *
+     * @param requiredLength the length of the file the mapping has to cover
+     * @throws EOFException if the file is shorter than the required length
+     */
+    ByteBuffer getReadMapping(long requiredLength) throws IOException {
+        MappedByteBuffer mapping = readMapping;
+        if (mapping != null && mapping.capacity() >= requiredLength) {
+            return mapping;
+        }
+        return mapForRead(requiredLength);
+    }
+
+    private synchronized ByteBuffer mapForRead(long requiredLength) throws IOException {
+        if (readMappingClosed) {
+            throw new IOException("Data file has been removed: " + file);
+        }
+        if (readMapping == null || readMapping.capacity() < requiredLength) {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                long size = Math.min(channel.size(), Integer.MAX_VALUE);
+                if (size < requiredLength) {
+                    throw new EOFException("Read past end of " + file + ", length: " + size + ", required: " + requiredLength);
+                }
+                // a mapping replaced as the file grew may still be read by a concurrent
+                // reader, it is released once it is garbage collected
+                readMapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+        }
+        return readMapping;
+    }
+
+    /**
+     * Releases the read mapping of the file. Must only be called once no reader
+     * can access the mapping any more as the file is being removed.
+     */
+    synchronized void closeReadMapping() {
+        readMappingClosed = true;
+        if (readMapping != null) {
+            unmap(readMapping);
+            readMapping = null;
+        }
+    }
+
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (Throwable e) {
+            LOG.debug("Mapped journal files can not be unmapped eagerly: {}", e.toString());
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private static void unmap(MappedByteBuffer buffer) {
+        // without an explicit unmap the file stays mapped until the buffer is collected
+        if (INVOKE_CLEANER != null) {
+            try {
+                INVOKE_CLEANER.invoke(UNSAFE, buffer);
+            } catch (Throwable e) {
+                LOG.debug("Failed to unmap journal file: {}", e.toString());
+            }
+        }
+    }
+
     public synchronized boolean delete() throws IOException {
         return file.delete();
     }
@@ -17,6 +17,7 @@
 package org.apache.activemq.store.kahadb.disk.journal;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Map;
 
 import java.util.Objects;
@@ -35,6 +36,7 @@ final class DataFileAccessor {
     private final DataFile dataFile;
     private final Map<Journal.WriteKey, Journal.WriteCommand> inflightWrites;
     private final RecoverableRandomAccessFile file;
+    private final boolean memoryMappedReads;
     private boolean disposed;
 
     /**
@@ -46,6 +48,7 @@ final class DataFileAccessor {
         this.dataFile = dataFile;
         this.inflightWrites = dataManager.getInflightWrites();
         this.file = dataFile.openRandomAccessFile();
+        this.memoryMappedReads = dataManager.isMemoryMappedReads();
     }
 
     public DataFile getDataFile() {
@@ -76,6 +79,9 @@ final class DataFileAccessor {
         }
 
         try {
+            if (memoryMappedReads) {
+                return readMappedRecord(location);
+            }
             if (location.getSize() == Location.NOT_SET) {
                 file.seek(location.getOffset());
                 location.setSize(file.readInt());
@@ -93,6 +99,23 @@ final class DataFileAccessor {
         }
     }
 
+    private ByteSequence readMappedRecord(Location location) throws IOException {
+        if (location.getSize() == Location.NOT_SET) {
+            readMappedLocationDetails(location);
+        }
+        validateFileLength(location);
+        ByteBuffer mapping = dataFile.getReadMapping((long) location.getOffset() + location.getSize());
+        byte[] data = new byte[location.getSize() - Journal.RECORD_HEAD_SPACE];
+        mapping.get(location.getOffset() + Journal.RECORD_HEAD_SPACE, data, 0, data.length);
+        return new ByteSequence(data, 0, data.length);
+    }
+
+    private void readMappedLocationDetails(Location location) throws IOException {
+        ByteBuffer mapping = dataFile.getReadMapping((long) location.getOffset() + Journal.RECORD_HEAD_SPACE);
+        location.setSize(mapping.getInt(location.getOffset()));
+        location.setType(mapping.get(location.getOffset() + 4));
+    }
+
     public void readFully(long offset, byte data[]) throws IOException {
        file.seek(offset);
        file.readFully(data);
@@ -108,6 +131,8 @@ final class DataFileAccessor {
         if (asyncWrite != null) {
             location.setSize(asyncWrite.location.getSize());
             location.setType(asyncWrite.location.getType());
+        } else if (memoryMappedReads) {
+            readMappedLocationDetails(location);
         } else {
             file.seek(location.getOffset());
             location.setSize(file.readInt());
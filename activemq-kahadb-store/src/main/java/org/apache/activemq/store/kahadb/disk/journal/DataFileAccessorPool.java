@@ -115,6 +115,8 @@ public class DataFileAccessorPool {
                 throw new IllegalStateException("The data file is still in use: " + dataFile + ", use count: " + pool.getOpenCounter());
             }
         }
+        // no reader has the file open, so its mapping can be released
+        dataFile.closeReadMapping();
     }
 
     synchronized DataFileAccessor openDataFileAccessor(DataFile dataFile) throws IOException {
@@ -20,10 +20,12 @@ import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.zip.Adler32;
 import java.util.zip.Checksum;
 
+import org.apache.activemq.management.HistogramStatisticImpl;
 import org.apache.activemq.store.kahadb.disk.journal.Journal.JournalDiskSyncStrategy;
 import org.apache.activemq.store.kahadb.disk.util.DataByteArrayOutputStream;
 import org.apache.activemq.store.kahadb.disk.util.LinkedNodeList;
@@ -60,6 +62,16 @@ class DataFileAppender implements FileAppender {
     protected boolean running;
     private Thread thread;
 
+    protected final long groupCommitMaxLatency;
+    protected final int groupCommitMaxBatchSize;
+    protected final HistogramStatisticImpl batchSizeStatistic;
+    protected final HistogramStatisticImpl syncTimeStatistic;
+    // moving average of the time between writes, guarded by enqueueMutex
+    private long lastArrival;
+    private long arrivalInterval;
+    private int groupCommitBackoff;
+    private int groupCommitSkips;
+
     public class WriteBatch {
 
         public final DataFile dataFile;
@@ -69,6 +81,9 @@ class DataFileAppender implements FileAppender {
         protected final int offset;
         public int size = Journal.BATCH_CONTROL_RECORD_SIZE;
         public AtomicReference<IOException> exception = new AtomicReference<IOException>();
+        protected int writeCount;
+        protected boolean syncRequired;
+        protected boolean full;
 
         public WriteBatch(DataFile dataFile,int offset) {
             this.dataFile = dataFile;
@@ -97,6 +112,8 @@ class DataFileAppender implements FileAppender {
             write.location.setOffset(offset+size);
             int s = write.location.getSize();
             size += s;
+            writeCount++;
+            syncRequired |= write.sync | (syncOnComplete && write.onComplete != null);
             dataFile.incrementLength(s);
             journal.addToTotalLength(s);
         }
@@ -112,6 +129,10 @@ class DataFileAppender implements FileAppender {
         this.syncOnComplete = this.journal.isEnableAsyncDiskSync();
         this.periodicSync = JournalDiskSyncStrategy.PERIODIC.equals(
                 this.journal.getJournalDiskSyncStrategy());
+        this.groupCommitMaxLatency = TimeUnit.MICROSECONDS.toNanos(this.journal.getGroupCommitMaxLatency());
+        this.groupCommitMaxBatchSize = this.journal.getGroupCommitMaxBatchSize();
+        this.batchSizeStatistic = this.journal.getBatchSizeStatistic();
+        this.syncTimeStatistic = this.journal.getSyncTimeStatistic();
     }
 
     @Override
@@ -178,6 +199,10 @@ class DataFileAppender implements FileAppender {
                 thread.start();
             }
 
+            if (groupCommitMaxLatency > 0) {
+                recordArrival();
+            }
+
             while ( true ) {
                 if (nextWriteBatch == null) {
                     DataFile file = journal.getCurrentDataFile(write.location.getSize());
@@ -188,8 +213,14 @@ class DataFileAppender implements FileAppender {
                     // Append to current batch if possible..
                     if (nextWriteBatch.canAppend(write)) {
                         nextWriteBatch.append(write);
+                        if (groupCommitMaxBatchSize > 0 && nextWriteBatch.writeCount >= groupCommitMaxBatchSize) {
+                            enqueueMutex.notifyAll();
+                        }
                         break;
                     } else {
+                        // release a batch held open for group commit
+                        nextWriteBatch.full = true;
+                        enqueueMutex.notifyAll();
                         // Otherwise wait for the queuedCommand to be null
                         try {
                             while (nextWriteBatch != null) {
@@ -220,6 +251,69 @@ class DataFileAppender implements FileAppender {
         return new WriteBatch(file, file.getLength(), write);
     }
 
+    private void recordArrival() {
+        long now = System.nanoTime();
+        if (lastArrival != 0) {
+            arrivalInterval += (now - lastArrival - arrivalInterval) / 8;
+        }
+        lastArrival = now;
+    }
+
+    /**
+     * Holds the next write batch open to let more writes join it before it is
+     * forced to disk, must be called with the enqueueMutex held.
+     * <p>
+     * The batch is only held open while writes arrive faster than the group
+     * commit latency, and is released as soon as no write arrived for twice
+     * the average interval between writes, the batch reaches the group commit
+     * batch size or cannot take the next write. When holding batches open does
+     * not collect more writes the following batches are written straight away,
+     * backing off exponentially, so a lone synchronous writer does not pay
+     * the latency.
+     */
+    protected void awaitGroupCommit() throws InterruptedException {
+        WriteBatch batch = nextWriteBatch;
+        if (groupCommitMaxLatency <= 0 || batch == null || !batch.syncRequired) {
+            return;
+        }
+        if (groupCommitSkips > 0) {
+            groupCommitSkips--;
+            return;
+        }
+        if (arrivalInterval >= groupCommitMaxLatency) {
+            return;
+        }
+
+        final int initialCount = batch.writeCount;
+        final long deadline = System.nanoTime() + groupCommitMaxLatency;
+        while (!shutdown && nextWriteBatch == batch && !batch.full
+                && (groupCommitMaxBatchSize <= 0 || batch.writeCount < groupCommitMaxBatchSize)) {
+            long now = System.nanoTime();
+            long quietDeadline = lastArrival + 2 * arrivalInterval;
+            long remaining = Math.min(deadline, quietDeadline) - now;
+            if (remaining <= 0) {
+                break;
+            }
+            TimeUnit.NANOSECONDS.timedWait(enqueueMutex, remaining);
+        }
+
+        if (batch.writeCount > initialCount) {
+            groupCommitBackoff = 0;
+        } else {
+            groupCommitBackoff = Math.min(Math.max(1, groupCommitBackoff * 2), 64);
+            groupCommitSkips = groupCommitBackoff;
+        }
+    }
+
+    /**
+     * Forces the file to disk, recording the time it took.
+     */
+    protected void sync(RecoverableRandomAccessFile file) throws IOException {
+        long start = System.nanoTime();
+        file.sync();
+        syncTimeStatistic.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+    }
+
     @Override
     public void close() throws IOException {
         synchronized (enqueueMutex) {
@@ -241,6 +335,8 @@ class DataFileAppender implements FileAppender {
 
     }
 
+    // the batch buffer of the writer thread
+    private DataByteArrayOutputStream buff;
     int statIdx = 0;
     int[] stats = new int[maxStat];
     /**
@@ -255,7 +351,7 @@ class DataFileAppender implements FileAppender {
         DataFile dataFile = null;
         RecoverableRandomAccessFile file = null;
         WriteBatch wb = null;
-        try (DataByteArrayOutputStream buff = new DataByteArrayOutputStream(maxWriteBatchSize);) {
+        try {
 
             while (true) {
 
@@ -263,6 +359,7 @@ class DataFileAppender implements FileAppender {
                 synchronized (enqueueMutex) {
                     while (true) {
                         if (nextWriteBatch != null) {
+                            awaitGroupCommit();
                             wb = nextWriteBatch;
                             nextWriteBatch = null;
                             break;
@@ -289,58 +386,11 @@ class DataFileAppender implements FileAppender {
                     file = dataFile.appendRandomAccessFile();
                 }
 
-                Journal.WriteCommand write = wb.writes.getHead();
-
-                // Write an empty batch control record.
-                buff.reset();
-                buff.write(EMPTY_BATCH_CONTROL_RECORD);
-
-                boolean forceToDisk = false;
-                while (write != null) {
-                    forceToDisk |= write.sync | (syncOnComplete && write.onComplete != null);
-                    buff.writeInt(write.location.getSize());
-                    buff.writeByte(write.location.getType());
-                    buff.write(write.data.getData(), write.data.getOffset(), write.data.getLength());
-                    write = write.getNext();
-                }
-
-                // append 'unset', zero length next batch so read can always find eof
-                buff.write(Journal.EOF_RECORD);
-
-                ByteSequence sequence = buff.toByteSequence();
-
-                // Now we can fill in the batch control record properly.
-                buff.reset();
-                buff.skip(RECORD_HEAD_SPACE + Journal.BATCH_CONTROL_RECORD_MAGIC.length);
-                buff.writeInt(sequence.getLength() - Journal.BATCH_CONTROL_RECORD_SIZE - Journal.EOF_RECORD.length);
-                if( journal.isChecksum() ) {
-                    Checksum checksum = new Adler32();
-                    checksum.update(sequence.getData(), sequence.getOffset()+Journal.BATCH_CONTROL_RECORD_SIZE, sequence.getLength()-Journal.BATCH_CONTROL_RECORD_SIZE-Journal.EOF_RECORD.length);
-                    buff.writeLong(checksum.getValue());
-                }
-
-                // Now do the 1 big write.
-                file.seek(wb.offset);
-                if (maxStat > 0) {
-                    if (statIdx < maxStat) {
-                        stats[statIdx++] = sequence.getLength();
-                    } else {
-                        long all = 0;
-                        for (;statIdx > 0;) {
-                            all+= stats[--statIdx];
-                        }
-                        logger.info("Ave writeSize: " + all/maxStat);
-                    }
-                }
-                file.write(sequence.getData(), sequence.getOffset(), sequence.getLength());
-
-                ReplicationTarget replicationTarget = journal.getReplicationTarget();
-                if( replicationTarget!=null ) {
-                    replicationTarget.replicate(wb.writes.getHead().location, sequence, forceToDisk);
-                }
+                boolean forceToDisk = writeBatch(wb, file);
 
+                batchSizeStatistic.record(wb.writeCount);
                 if (forceToDisk) {
-                    file.sync();
+                    sync(file);
                 }
 
                 Journal.WriteCommand lastWrite = wb.writes.getTail();
@@ -373,11 +423,82 @@ class DataFileAppender implements FileAppender {
                 }
             } catch (Throwable ignore) {
             }
+            try {
+                if (buff != null) {
+                    buff.close();
+                    buff = null;
+                }
+            } catch (Throwable ignore) {
+            }
             shutdownDone.countDown();
             running = false;
         }
     }
 
+    /**
+     * Writes a batch at its offset in the file: the batch control record, the
+     * records and the eof record, and hands the batch to the replication
+     * target. Called from the writer thread only.
+     *
+     * @return true if the batch has to be forced to disk
+     */
+    protected boolean writeBatch(WriteBatch wb, RecoverableRandomAccessFile file) throws IOException {
+        Journal.WriteCommand write = wb.writes.getHead();
+
+        // Write an empty batch control record.
+        if (buff == null) {
+            buff = new DataByteArrayOutputStream(maxWriteBatchSize);
+        }
+        buff.reset();
+        buff.write(EMPTY_BATCH_CONTROL_RECORD);
+
+        boolean forceToDisk = false;
+        while (write != null) {
+            forceToDisk |= write.sync | (syncOnComplete && write.onComplete != null);
+            buff.writeInt(write.location.getSize());
+            buff.writeByte(write.location.getType());
+            buff.write(write.data.getData(), write.data.getOffset(), write.data.getLength());
+            write = write.getNext();
+        }
+
+        // append 'unset', zero length next batch so read can always find eof
+        buff.write(Journal.EOF_RECORD);
+
+        ByteSequence sequence = buff.toByteSequence();
+
+        // Now we can fill in the batch control record properly.
+        buff.reset();
+        buff.skip(RECORD_HEAD_SPACE + Journal.BATCH_CONTROL_RECORD_MAGIC.length);
+        buff.writeInt(sequence.getLength() - Journal.BATCH_CONTROL_RECORD_SIZE - Journal.EOF_RECORD.length);
+        if( journal.isChecksum() ) {
+            Checksum checksum = new Adler32();
+            checksum.update(sequence.getData(), sequence.getOffset()+Journal.BATCH_CONTROL_RECORD_SIZE, sequence.getLength()-Journal.BATCH_CONTROL_RECORD_SIZE-Journal.EOF_RECORD.length);
+            buff.writeLong(checksum.getValue());
+        }
+
+        // Now do the 1 big write.
+        file.seek(wb.offset);
+        if (maxStat > 0) {
+            if (statIdx < maxStat) {
+                stats[statIdx++] = sequence.getLength();
+            } else {
+                long all = 0;
+                for (;statIdx > 0;) {
+                    all+= stats[--statIdx];
+                }
+                logger.info("Ave writeSize: " + all/maxStat);
+            }
+        }
+        file.write(sequence.getData(), sequence.getOffset(), sequence.getLength());
+
+        ReplicationTarget replicationTarget = journal.getReplicationTarget();
+        if( replicationTarget!=null ) {
+            replicationTarget.replicate(wb.writes.getHead().location, sequence, forceToDisk);
+        }
+
+        return forceToDisk;
+    }
+
     protected void signalDone(WriteBatch wb) {
         // Now that the data is on disk, remove the writes from the in
         // flight
@@ -0,0 +1,182 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.store.kahadb.disk.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Adler32;
+
+import org.apache.activemq.util.ByteSequence;
+import org.apache.activemq.util.RecoverableRandomAccessFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.apache.activemq.store.kahadb.disk.journal.Journal.EMPTY_BATCH_CONTROL_RECORD;
+import static org.apache.activemq.store.kahadb.disk.journal.Journal.RECORD_HEAD_SPACE;
+
+/**
+ * A batch appender that assembles each batch in a reused direct buffer and
+ * writes it with a single gathering write through the data file.
+ * <p>
+ * The batch control record is filled in place once the batch is complete. A
+ * record payload that does not fit in the direct buffer, which can only happen
+ * for a record larger than the write batch size, is added to the gathering
+ * write from the heap. {@link DataFileAppender} copies every payload into a heap
+ * buffer that the channel then copies again into a temporary direct buffer,
+ * here payloads are copied once.
+ */
+class GatheringDataFileAppender extends DataFileAppender {
+
+    private static final Logger logger = LoggerFactory.getLogger(GatheringDataFileAppender.class);
+
+    private final ByteBuffer batchBuffer;
+    private final List<ByteBuffer> segments = new ArrayList<ByteBuffer>();
+
+    public GatheringDataFileAppender(Journal dataManager) {
+        super(dataManager);
+        this.batchBuffer = ByteBuffer.allocateDirect(maxWriteBatchSize + EMPTY_BATCH_CONTROL_RECORD.length + Journal.EOF_RECORD.length);
+    }
+
+    /**
+     * Writes the batch with a single gathering write, see
+     * {@link DataFileAppender#writeBatch(WriteBatch, RecoverableRandomAccessFile)}.
+     */
+    @Override
+    protected boolean writeBatch(WriteBatch wb, RecoverableRandomAccessFile file) throws IOException {
+        boolean forceToDisk = assembleBatch(wb);
+        long length = 0;
+        for (ByteBuffer segment : segments) {
+            length += segment.remaining();
+        }
+
+        if (maxStat > 0) {
+            if (statIdx < maxStat) {
+                stats[statIdx++] = (int) length;
+            } else {
+                long all = 0;
+                for (;statIdx > 0;) {
+                    all+= stats[--statIdx];
+                }
+                logger.info("Ave writeSize: " + all/maxStat);
+            }
+        }
+
+        ReplicationTarget replicationTarget = journal.getReplicationTarget();
+        ByteSequence replicated = replicationTarget != null ? toByteSequence(length) : null;
+
+        // Now do the 1 big write.
+        file.write(segments.toArray(new ByteBuffer[segments.size()]), wb.offset);
+
+        if (replicationTarget != null) {
+            replicationTarget.replicate(wb.writes.getHead().location, replicated, forceToDisk);
+        }
+        return forceToDisk;
+    }
+
+    /**
+     * Lays out the batch as a list of segments: ranges of the direct buffer
+     * interleaved with the payloads that did not fit in it.
+     *
+     * @return true if the batch has to be forced to disk
+     */
+    private boolean assembleBatch(WriteBatch wb) {
+        final ByteBuffer buffer = batchBuffer;
+        segments.clear();
+        buffer.clear();
+
+        // Write an empty batch control record.
+        buffer.put(EMPTY_BATCH_CONTROL_RECORD);
+        int segmentStart = 0;
+
+        boolean forceToDisk = false;
+        Journal.WriteCommand write = wb.writes.getHead();
+        while (write != null) {
+            forceToDisk |= write.sync | (syncOnComplete && write.onComplete != null);
+            ByteSequence data = write.data;
+            buffer.putInt(write.location.getSize());
+            buffer.put(write.location.getType());
+            // keep room for the header of the next record and the eof record
+            if (buffer.remaining() - data.getLength() >= RECORD_HEAD_SPACE + Journal.EOF_RECORD.length) {
+                buffer.put(data.getData(), data.getOffset(), data.getLength());
+            } else {
+                segments.add(slice(buffer, segmentStart, buffer.position()));
+                segments.add(ByteBuffer.wrap(data.getData(), data.getOffset(), data.getLength()));
+                segmentStart = buffer.position();
+            }
+            write = write.getNext();
+        }
+
+        // append 'unset', zero length next batch so read can always find eof
+        buffer.put(Journal.EOF_RECORD);
+        segments.add(slice(buffer, segmentStart, buffer.position()));
+
+        // Now we can fill in the batch control record properly.
+        long batchLength = -Journal.BATCH_CONTROL_RECORD_SIZE - Journal.EOF_RECORD.length;
+        for (ByteBuffer segment : segments) {
+            batchLength += segment.remaining();
+        }
+        int sizePosition = RECORD_HEAD_SPACE + Journal.BATCH_CONTROL_RECORD_MAGIC.length;
+        buffer.putInt(sizePosition, (int) batchLength);
+        if (journal.isChecksum()) {
+            buffer.putLong(sizePosition + 4, checksum(batchLength));
+        }
+        return forceToDisk;
+    }
+
+    // Adler32 of the batch records, which follow the control record
+    private long checksum(long batchLength) {
+        Adler32 checksum = new Adler32();
+        long skip = Journal.BATCH_CONTROL_RECORD_SIZE;
+        long remaining = batchLength;
+        for (ByteBuffer segment : segments) {
+            if (remaining == 0) {
+                break;
+            }
+            ByteBuffer view = segment.duplicate();
+            if (skip > 0) {
+                int skipped = (int) Math.min(skip, view.remaining());
+                view.position(view.position() + skipped);
+                skip -= skipped;
+            }
+            int length = (int) Math.min(remaining, view.remaining());
+            view.limit(view.position() + length);
+            checksum.update(view);
+            remaining -= length;
+        }
+        return checksum.getValue();
+    }
+
+    private ByteSequence toByteSequence(long length) {
+        byte[] data = new byte[(int) length];
+        int offset = 0;
+        for (ByteBuffer segment : segments) {
+            int size = segment.remaining();
+            segment.duplicate().get(data, offset, size);
+            offset += size;
+        }
+        return new ByteSequence(data);
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int start, int end) {
+        ByteBuffer slice = buffer.duplicate();
+        slice.limit(end);
+        slice.position(start);
+        return slice;
+    }
+}
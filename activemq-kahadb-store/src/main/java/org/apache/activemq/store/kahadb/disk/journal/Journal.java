@@ -46,6 +46,7 @@ import java.util.concurrent.atomic.AtomicReference;
 import java.util.zip.Adler32;
 import java.util.zip.Checksum;
 
+import org.apache.activemq.management.HistogramStatisticImpl;
 import org.apache.activemq.store.kahadb.disk.util.LinkedNode;
 import org.apache.activemq.store.kahadb.disk.util.LinkedNodeList;
 import org.apache.activemq.store.kahadb.disk.util.Sequence;
@@ -64,6 +65,13 @@ import org.slf4j.LoggerFactory;
 public class Journal {
     public static final String CALLER_BUFFER_APPENDER = "org.apache.kahadb.journal.CALLER_BUFFER_APPENDER";
     public static final boolean callerBufferAppender = Boolean.parseBoolean(System.getProperty(CALLER_BUFFER_APPENDER, "false"));
+    /**
+     * Selects the {@link GatheringDataFileAppender}. The two appender options
+     * are exclusive, when both are set the caller buffer appender is used and
+     * a warning is logged.
+     */
+    public static final String GATHERING_WRITE_APPENDER = "org.apache.kahadb.journal.GATHERING_WRITE_APPENDER";
+    public static final boolean gatheringWriteAppender = Boolean.parseBoolean(System.getProperty(GATHERING_WRITE_APPENDER, "false"));
 
     private static final int PREALLOC_CHUNK_SIZE = 1024*1024;
 
@@ -229,6 +237,11 @@ public class Journal {
     protected boolean checksum;
     protected boolean checkForCorruptionOnStartup;
     protected boolean enableAsyncDiskSync = true;
+    protected boolean memoryMappedReads = false;
+    protected long groupCommitMaxLatency = 0;
+    protected int groupCommitMaxBatchSize = 0;
+    private HistogramStatisticImpl batchSizeStatistic = newEnabledStatistic("batchSize", "writes", "Number of records in a batch written to the journal.");
+    private HistogramStatisticImpl syncTimeStatistic = newEnabledStatistic("syncTime", "micros", "Time to force a batch written to the journal to disk.");
     private int nextDataFileId = 1;
     private Object dataFileIdLock = new Object();
     private final AtomicReference<DataFile> currentDataFile = new AtomicReference<>(null);
@@ -248,6 +261,19 @@ public class Journal {
 
     private DataFileRemovedListener dataFileRemovedListener;
 
+    protected FileAppender createAppender() {
+        if (callerBufferAppender) {
+            if (gatheringWriteAppender) {
+                LOG.warn("Both {} and {} are set, only one journal appender can be used, using the caller buffer appender",
+                         CALLER_BUFFER_APPENDER, GATHERING_WRITE_APPENDER);
+            }
+            return new CallerBufferingDataFileAppender(this);
+        } else if (gatheringWriteAppender) {
+            return new GatheringDataFileAppender(this);
+        }
+        return new DataFileAppender(this);
+    }
+
     public synchronized void start() throws IOException {
         if (started) {
             return;
@@ -257,7 +283,7 @@ public class Journal {
         accessorPool = new DataFileAccessorPool(this);
         started = true;
 
-        appender = callerBufferAppender ? new CallerBufferingDataFileAppender(this) : new DataFileAppender(this);
+        appender = createAppender();
 
         File[] files = directory.listFiles(new FilenameFilter() {
             @Override
@@ -1140,6 +1166,76 @@ public class Journal {
        this.totalLength = storeSizeAccumulator;
     }
 
+    public boolean isMemoryMappedReads() {
+        return memoryMappedReads;
+    }
+
+    /**
+     * When enabled, records are read through a read only memory mapping of each
+     * data file that is shared by all readers of the file, instead of a seek and
+     * read on a file handle for every record.
+     */
+    public void setMemoryMappedReads(boolean memoryMappedReads) {
+        this.memoryMappedReads = memoryMappedReads;
+    }
+
+    public long getGroupCommitMaxLatency() {
+        return groupCommitMaxLatency;
+    }
+
+    /**
+     * The maximum time, in microseconds, a batch that has to be forced to disk
+     * is held open to collect more writes before it is written. The batch is
+     * only held open while writes arrive faster than this latency, and only
+     * for as long as they keep arriving, so a lone writer is not delayed.
+     * 0, the default, writes every batch as soon as the writer thread is free.
+     */
+    public void setGroupCommitMaxLatency(long groupCommitMaxLatency) {
+        this.groupCommitMaxLatency = groupCommitMaxLatency;
+    }
+
+    public int getGroupCommitMaxBatchSize() {
+        return groupCommitMaxBatchSize;
+    }
+
+    /**
+     * The number of writes after which a batch held open for group commit is
+     * written without waiting for the rest of the latency window. 0, the
+     * default, only bounds the batch by the write batch size.
+     */
+    public void setGroupCommitMaxBatchSize(int groupCommitMaxBatchSize) {
+        this.groupCommitMaxBatchSize = groupCommitMaxBatchSize;
+    }
+
+    private static HistogramStatisticImpl newEnabledStatistic(String name, String unit, String description) {
+        HistogramStatisticImpl statistic = new HistogramStatisticImpl(name, unit, description);
+        statistic.setEnabled(true);
+        return statistic;
+    }
+
+    /**
+     * @return the histogram of the number of records per written batch
+     */
+    public HistogramStatisticImpl getBatchSizeStatistic() {
+        return batchSizeStatistic;
+    }
+
+    public void setBatchSizeStatistic(HistogramStatisticImpl batchSizeStatistic) {
+        this.batchSizeStatistic = batchSizeStatistic;
+    }
+
+    /**
+     * @return the histogram of the time, in microseconds, taken to force
+     *         written batches to disk
+     */
+    public HistogramStatisticImpl getSyncTimeStatistic() {
+        return syncTimeStatistic;
+    }
+
+    public void setSyncTimeStatistic(HistogramStatisticImpl syncTimeStatistic) {
+        this.syncTimeStatistic = syncTimeStatistic;
+    }
+
     public void setEnableAsyncDiskSync(boolean val) {
         this.enableAsyncDiskSync = val;
     }
@@ -37,28 +37,31 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.zip.Adler32;
 import java.util.zip.Checksum;
 
 import org.apache.activemq.store.kahadb.disk.util.Sequence;
 import org.apache.activemq.store.kahadb.disk.util.SequenceSet;
+import org.apache.activemq.util.ClockCache;
 import org.apache.activemq.util.DataByteArrayOutputStream;
 import org.apache.activemq.util.IOExceptionSupport;
 import org.apache.activemq.util.IOHelper;
 import org.apache.activemq.util.IntrospectionSupport;
 import org.apache.activemq.util.LFUCache;
-import org.apache.activemq.util.LRUCache;
 import org.apache.activemq.util.RecoverableRandomAccessFile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * A PageFile provides you random access to fixed sized disk pages. This object is not thread safe and therefore access to it should
- * be externally synchronized.
+ * be externally synchronized. Page allocation and release are synchronized internally, so transactions that update disjoint
+ * sets of pages may run concurrently.
  * <p/>
  * The file has 3 parts:
  * Metadata Space: 4k : Reserved metadata area. Used to store persistent config about the file.
@@ -132,10 +135,20 @@ public class PageFile {
 
     // Keeps track of writes that are being written to disk.
     private final TreeMap<Long, PageWrite> writes = new TreeMap<Long, PageWrite>();
+    // The same writes by page id, updated under the writes lock so that page
+    // lookups do not have to take it while a batch is being built.
+    private final Map<Long, PageWrite> pendingWrites = new ConcurrentHashMap<Long, PageWrite>();
+    // Serializes write batches, a batch is taken and written to disk while holding it.
+    private final ReentrantLock batchLock = new ReentrantLock();
+    // Set when a long transaction found a batch being written, the holder of the
+    // batch lock writes another batch for it once it is done.
+    private final AtomicBoolean longTxBatchPending = new AtomicBoolean();
 
     // Keeps track of free pages.
     private final AtomicLong nextFreePageId = new AtomicLong();
     private SequenceSet freeList = new SequenceSet();
+    // page allocation and release may be done by concurrent transactions
+    private final Object freeListMutex = new Object();
 
     private AtomicReference<SequenceSet> recoveredFreeList = new AtomicReference<SequenceSet>();
     private AtomicReference<SequenceSet> trackingFreeDuringRecovery = new AtomicReference<SequenceSet>();
@@ -154,7 +167,7 @@ public class PageFile {
      * Use to keep track of updated pages which have not yet been committed.
      */
     static class PageWrite {
-        Page page;
+        volatile Page page;
         byte[] current;
         byte[] diskBound;
         long currentLocation = -1;
@@ -382,7 +395,7 @@ public class PageFile {
                 if (isUseLFRUEviction()) {
                     pageCache = Collections.synchronizedMap(new LFUCache<Long, Page>(pageCacheSize, getLFUEvictionFactor()));
                 } else {
-                    pageCache = Collections.synchronizedMap(new LRUCache<Long, Page>(pageCacheSize, pageCacheSize, 0.75f, true));
+                    pageCache = new ClockCache<Long, Page>(pageCacheSize);
                 }
             }
 
@@ -549,6 +562,7 @@ public class PageFile {
                 }
                 synchronized (writes) {
                     writes.clear();
+                    pendingWrites.clear();
                 }
             }
         } else {
@@ -579,17 +593,7 @@ public class PageFile {
             throw new IOException("Page file already stopped: checkpointing is not allowed");
         }
 
-        SequenceSet recovered = recoveredFreeList.get();
-        if (recovered != null) {
-            recoveredFreeList.lazySet(null);
-            SequenceSet inUse = trackingFreeDuringRecovery.get();
-            recovered.remove(inUse);
-            freeList.merge(recovered);
-
-            // all set for clean shutdown
-            trackingFreeDuringRecovery.set(null);
-            inUse.clear();
-        }
+        mergeRecoveredFreeList();
 
         // Setup a latch that gets notified when all buffered writes hits the disk.
         CountDownLatch checkpointLatch;
@@ -604,10 +608,13 @@ public class PageFile {
                 checkpointLatch = this.checkpointLatch;
                 writes.notify();
             } else {
-                writeBatch();
-                return;
+                checkpointLatch = null;
             }
         }
+        if (checkpointLatch == null) {
+            writeBatch();
+            return;
+        }
         try {
             checkpointLatch.await();
         } catch (InterruptedException e) {
@@ -617,6 +624,85 @@ public class PageFile {
         }
     }
 
+    /**
+     * Takes a snapshot of all the page updates not yet written to disk, for a
+     * flush that is completed with {@link PendingFlush#complete()}. Taking the
+     * snapshot only holds the write cache for as long as it takes to list the
+     * updated pages, so the caller can take it while it keeps the pages from
+     * being updated, and write it to disk after it lets updates proceed. Later
+     * updates are left for the next flush.
+     * <p>
+     * No other batch is written until the flush is completed, which has to be
+     * done by the thread that began it.
+     *
+     * @throws IOException If the page file is stopped.
+     */
+    public PendingFlush beginFlush() throws IOException {
+        if (enabledWriteThread && stopWriter.get()) {
+            throw new IOException("Page file already stopped: checkpointing is not allowed");
+        }
+
+        mergeRecoveredFreeList();
+        return takeBatch();
+    }
+
+    /**
+     * A snapshot of page updates taken by {@link PageFile#beginFlush()}.
+     */
+    public final class PendingFlush {
+        private final ArrayList<PageWrite> batch;
+        private final CountDownLatch checkpointLatch;
+        private boolean completed;
+
+        private PendingFlush(ArrayList<PageWrite> batch, CountDownLatch checkpointLatch) {
+            this.batch = batch;
+            this.checkpointLatch = checkpointLatch;
+        }
+
+        /**
+         * Writes and syncs the snapshot of page updates to disk.
+         *
+         * @throws IOException If an disk error occurred.
+         */
+        public void complete() throws IOException {
+            if (completed) {
+                return;
+            }
+            completed = true;
+            try {
+                writeBatch(batch, checkpointLatch);
+            } finally {
+                batchLock.unlock();
+            }
+            if (!batchLock.isHeldByCurrentThread()) {
+                writeLongTxBatches();
+            }
+        }
+
+        /**
+         * @return the number of pages in the snapshot
+         */
+        public int size() {
+            return batch.size();
+        }
+    }
+
+    private void mergeRecoveredFreeList() {
+        SequenceSet recovered = recoveredFreeList.get();
+        if (recovered != null) {
+            recoveredFreeList.lazySet(null);
+            SequenceSet inUse = trackingFreeDuringRecovery.get();
+            synchronized (freeListMutex) {
+                recovered.remove(inUse);
+                freeList.merge(recovered);
+            }
+
+            // all set for clean shutdown
+            trackingFreeDuringRecovery.set(null);
+            inUse.clear();
+        }
+    }
+
 
     @Override
     public String toString() {
@@ -837,7 +923,9 @@ public class PageFile {
     }
 
     public boolean isFreePage(long pageId) {
-        return freeList.contains(pageId);
+        synchronized (freeListMutex) {
+            return freeList.contains(pageId);
+        }
     }
     /**
      * @return the number of pages allocated in the PageFile
@@ -852,7 +940,9 @@ public class PageFile {
 
     public long getFreePageCount() {
         assertLoaded();
-        return freeList.rangeSize();
+        synchronized (freeListMutex) {
+            return freeList.rangeSize();
+        }
     }
 
     public void setRecoveryFileMinPageCount(int recoveryFileMinPageCount) {
@@ -926,7 +1016,10 @@ public class PageFile {
             throw new IllegalArgumentException("The allocation count must be larger than zero");
         }
 
-        Sequence seq = freeList.removeFirstSequence(count);
+        Sequence seq;
+        synchronized (freeListMutex) {
+            seq = freeList.removeFirstSequence(count);
+        }
 
         // We may need to create new free pages...
         if (seq == null) {
@@ -973,12 +1066,14 @@ public class PageFile {
     }
 
     public void freePage(long pageId) {
-        freeList.add(pageId);
-        removeFromCache(pageId);
+        synchronized (freeListMutex) {
+            freeList.add(pageId);
+            removeFromCache(pageId);
 
-        SequenceSet trackFreeDuringRecovery = trackingFreeDuringRecovery.get();
-        if (trackFreeDuringRecovery != null) {
-            trackFreeDuringRecovery.add(pageId);
+            SequenceSet trackFreeDuringRecovery = trackingFreeDuringRecovery.get();
+            if (trackFreeDuringRecovery != null) {
+                trackFreeDuringRecovery.add(pageId);
+            }
         }
     }
 
@@ -1006,6 +1101,8 @@ public class PageFile {
     }
 
     void write(Collection<Map.Entry<Long, PageWrite>> updates) throws IOException {
+        boolean longTx = false;
+        boolean startBatch = false;
         synchronized (writes) {
             if (enabledWriteThread) {
                 while (writes.size() >= writeBatchSize && !stopWriter.get()) {
@@ -1018,14 +1115,13 @@ public class PageFile {
                 }
             }
 
-            boolean longTx = false;
-
             for (Map.Entry<Long, PageWrite> entry : updates) {
                 Long key = entry.getKey();
                 PageWrite value = entry.getValue();
                 PageWrite write = writes.get(key);
                 if (write == null) {
                     writes.put(key, value);
+                    pendingWrites.put(key, value);
                 } else {
                     if (value.currentLocation != -1) {
                         write.setCurrentLocation(value.page, value.currentLocation, value.length);
@@ -1044,7 +1140,24 @@ public class PageFile {
                 if (enabledWriteThread) {
                     writes.notify();
                 } else {
-                    writeBatch();
+                    startBatch = true;
+                }
+            }
+        }
+
+        // write outside of the write cache lock so that other updates are not
+        // held up by the disk writes
+        if (startBatch) {
+            if (longTx) {
+                // a long transaction must not wait for a checkpoint flush in progress
+                longTxBatchPending.set(true);
+                writeLongTxBatches();
+            } else if (batchLock.tryLock()) {
+                // otherwise a batch is being written and these updates go to disk with the next one
+                try {
+                    takeBatch().complete();
+                } finally {
+                    batchLock.unlock();
                 }
             }
         }
@@ -1067,11 +1180,9 @@ public class PageFile {
     ///////////////////////////////////////////////////////////////////
     @SuppressWarnings("unchecked")
     <T> Page<T> getFromCache(long pageId) {
-        synchronized (writes) {
-            PageWrite pageWrite = writes.get(pageId);
-            if (pageWrite != null) {
-                return pageWrite.page;
-            }
+        PageWrite pageWrite = pendingWrites.get(pageId);
+        if (pageWrite != null) {
+            return pageWrite.page;
         }
 
         Page<T> result = null;
@@ -1123,7 +1234,29 @@ public class PageFile {
     }
 
     private void writeBatch() throws IOException {
+        takeBatch().complete();
+    }
 
+    /**
+     * Writes a batch for the long transactions that asked for one, unless a
+     * batch is being written. The thread writing that batch checks again once
+     * it released the batch lock, so the request is not lost.
+     */
+    private void writeLongTxBatches() throws IOException {
+        while (longTxBatchPending.get() && batchLock.tryLock()) {
+            try {
+                if (longTxBatchPending.compareAndSet(true, false)) {
+                    takeBatch().complete();
+                }
+            } finally {
+                batchLock.unlock();
+            }
+        }
+    }
+
+    // the batch lock is held until the returned flush is completed
+    private PendingFlush takeBatch() {
+        batchLock.lock();
         CountDownLatch checkpointLatch;
         ArrayList<PageWrite> batch;
         synchronized (writes) {
@@ -1132,12 +1265,11 @@ public class PageFile {
             batch = new ArrayList<PageWrite>(writes.size());
             // build a write batch from the current write cache.
             for (PageWrite write : writes.values()) {
-                batch.add(write);
                 // Move the current write to the diskBound write, this lets folks update the
                 // page again without blocking for this write.
                 write.begin();
-                if (write.diskBound == null && write.diskBoundLocation == -1) {
-                    batch.remove(write);
+                if (write.diskBound != null || write.diskBoundLocation != -1) {
+                    batch.add(write);
                 }
             }
 
@@ -1146,7 +1278,10 @@ public class PageFile {
             checkpointLatch = this.checkpointLatch;
             this.checkpointLatch = null;
         }
+        return new PendingFlush(batch, checkpointLatch);
+    }
 
+    private void writeBatch(ArrayList<PageWrite> batch, CountDownLatch checkpointLatch) throws IOException {
         try {
 
             // First land the writes in the recovery file
@@ -1210,6 +1345,7 @@ public class PageFile {
                     // the write cache.
                     if (w.isDone()) {
                         writes.remove(w.page.getPageId());
+                        pendingWrites.remove(w.page.getPageId());
                         if (w.tmpFile != null && tmpFilesForRemoval.containsKey(w.tmpFile)) {
                             tmpFilesForRemoval.get(w.tmpFile).close();
                             if (!w.tmpFile.delete()) {
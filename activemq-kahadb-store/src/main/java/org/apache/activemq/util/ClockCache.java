@@ -0,0 +1,164 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.util;
+
+import java.util.AbstractMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A thread safe cache that approximates LRU eviction with the CLOCK algorithm.
+ * <p>
+ * The entries sit in a ring of slots, each with a reference bit that is set
+ * when the entry is read. To make room the clock hand sweeps the ring,
+ * clearing reference bits until it finds an entry that was not read since the
+ * last sweep, which is evicted. Unlike an access ordered map, a read does not
+ * reorder anything, so reads do not lock and do not contend with each other;
+ * only puts and removes are serialized.
+ */
+public class ClockCache<Key, Value> extends AbstractMap<Key, Value> {
+
+    private static final class Slot<Key, Value> {
+        final Key key;
+        final int index;
+        volatile Value value;
+        volatile boolean referenced;
+
+        Slot(Key key, Value value, int index) {
+            this.key = key;
+            this.value = value;
+            this.index = index;
+        }
+    }
+
+    private final ConcurrentHashMap<Key, Slot<Key, Value>> cache;
+    private final int maxCacheSize;
+
+    // the ring and free slot stack are guarded by this
+    private final Slot<Key, Value>[] ring;
+    private final int[] freeSlots;
+    private int freeCount;
+    private int hand;
+
+    @SuppressWarnings("unchecked")
+    public ClockCache(int maxCacheSize) {
+        if (maxCacheSize < 1) {
+            throw new IllegalArgumentException("Cache size must be at least 1");
+        }
+        this.maxCacheSize = maxCacheSize;
+        this.cache = new ConcurrentHashMap<Key, Slot<Key, Value>>(maxCacheSize);
+        this.ring = new Slot[maxCacheSize];
+        this.freeSlots = new int[maxCacheSize];
+        for (int i = 0; i < maxCacheSize; i++) {
+            freeSlots[i] = maxCacheSize - 1 - i;
+        }
+        this.freeCount = maxCacheSize;
+    }
+
+    @Override
+    public Value get(Object key) {
+        Slot<Key, Value> slot = cache.get(key);
+        if (slot == null) {
+            return null;
+        }
+        if (!slot.referenced) {
+            slot.referenced = true;
+        }
+        return slot.value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return cache.containsKey(key);
+    }
+
+    @Override
+    public synchronized Value put(Key key, Value value) {
+        Slot<Key, Value> slot = cache.get(key);
+        if (slot != null) {
+            Value old = slot.value;
+            slot.value = value;
+            slot.referenced = true;
+            return old;
+        }
+
+        int index = freeCount > 0 ? freeSlots[--freeCount] : evict();
+        slot = new Slot<Key, Value>(key, value, index);
+        ring[index] = slot;
+        cache.put(key, slot);
+        return null;
+    }
+
+    // sweeps the ring for an entry that was not referenced since the last sweep
+    private int evict() {
+        while (true) {
+            Slot<Key, Value> slot = ring[hand];
+            int index = hand;
+            hand = (hand + 1) % maxCacheSize;
+            if (slot.referenced) {
+                slot.referenced = false;
+            } else {
+                cache.remove(slot.key);
+                ring[index] = null;
+                return index;
+            }
+        }
+    }
+
+    @Override
+    public synchronized Value remove(Object key) {
+        Slot<Key, Value> slot = cache.remove(key);
+        if (slot == null) {
+            return null;
+        }
+        ring[slot.index] = null;
+        freeSlots[freeCount++] = slot.index;
+        return slot.value;
+    }
+
+    @Override
+    public synchronized void clear() {
+        for (Slot<Key, Value> slot : cache.values()) {
+            ring[slot.index] = null;
+            freeSlots[freeCount++] = slot.index;
+        }
+        cache.clear();
+    }
+
+    @Override
+    public int size() {
+        return cache.size();
+    }
+
+    public int getMaxCacheSize() {
+        return maxCacheSize;
+    }
+
+    /**
+     * @return a snapshot of the cached entries
+     */
+    @Override
+    public Set<Map.Entry<Key, Value>> entrySet() {
+        Set<Map.Entry<Key, Value>> entries = new LinkedHashSet<Map.Entry<Key, Value>>();
+        for (Slot<Key, Value> slot : cache.values()) {
+            entries.add(new SimpleImmutableEntry<Key, Value>(slot.key, slot.value));
+        }
+        return entries;
+    }
+}
@@ -21,6 +21,7 @@ import java.io.FileDescriptor;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 
 public class RecoverableRandomAccessFile implements java.io.DataOutput, java.io.DataInput, java.io.Closeable {
@@ -405,6 +406,27 @@ public class RecoverableRandomAccessFile implements java.io.DataOutput, java.io.
         }
     }
 
+    /**
+     * Writes the remaining bytes of the buffers at the given position in the
+     * file, with gathering writes on the file's channel.
+     */
+    public void write(ByteBuffer[] buffers, long position) throws IOException {
+        try {
+            FileChannel channel = getRaf().getChannel();
+            long remaining = 0;
+            for (ByteBuffer buffer : buffers) {
+                remaining += buffer.remaining();
+            }
+            channel.position(position);
+            while (remaining > 0) {
+                remaining -= channel.write(buffers);
+            }
+        } catch (IOException ioe) {
+            handleException();
+            throw ioe;
+        }
+    }
+
     public FileChannel getChannel() throws IOException {
         try {
             return getRaf().getChannel();
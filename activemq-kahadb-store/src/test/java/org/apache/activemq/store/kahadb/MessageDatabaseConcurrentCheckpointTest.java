@@ -0,0 +1,152 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.store.kahadb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.activemq.broker.ConnectionContext;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.apache.activemq.command.MessageAck;
+import org.apache.activemq.command.MessageId;
+import org.apache.activemq.store.MessageStore;
+import org.apache.activemq.store.PersistenceAdapterStatistics;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Verifies the index and the journal cleanup stay consistent when checkpoints
+ * write the index pages while messages are added and removed.
+ */
+public class MessageDatabaseConcurrentCheckpointTest {
+
+    private static final int DESTINATIONS = 4;
+    private static final int MESSAGES = 1000;
+    private static final int KEPT = 100;
+
+    @Rule
+    public TemporaryFolder dataDir = new TemporaryFolder(new File("target"));
+
+    private final ConnectionContext context = new ConnectionContext();
+    private KahaDBStore store;
+
+    @After
+    public void tearDown() throws Exception {
+        if (store != null) {
+            store.stop();
+        }
+    }
+
+    private KahaDBStore startStore(boolean concurrentCheckpoint) throws Exception {
+        KahaDBStore store = new KahaDBStore();
+        store.setDirectory(dataDir.getRoot());
+        store.setJournalMaxFileLength(64 * 1024);
+        store.setCheckpointInterval(20);
+        store.setCleanupInterval(100);
+        store.setConcurrentCheckpoint(concurrentCheckpoint);
+        store.start();
+        return store;
+    }
+
+    @Test(timeout = 120000)
+    public void testCheckpointWhileUpdating() throws Exception {
+        store = startStore(true);
+
+        final AtomicBoolean done = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(DESTINATIONS + 1);
+        try {
+            List<Future<Void>> results = new ArrayList<>();
+            for (int i = 0; i < DESTINATIONS; i++) {
+                final ActiveMQQueue destination = new ActiveMQQueue("Queue-" + i);
+                final MessageStore messageStore = store.createQueueMessageStore(destination);
+                messageStore.start();
+                final String producerId = "ID:producer-" + i + ":1:1";
+                results.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        for (int j = 0; j < MESSAGES; j++) {
+                            ActiveMQTextMessage message = new ActiveMQTextMessage();
+                            message.setMessageId(new MessageId(producerId, j));
+                            message.setDestination(destination);
+                            message.setText("message " + j + new String(new char[512]));
+                            messageStore.addMessage(context, message);
+                            // keep the last messages, so the early journal files can be removed
+                            if (j < MESSAGES - KEPT) {
+                                MessageAck ack = new MessageAck();
+                                ack.setDestination(destination);
+                                ack.setLastMessageId(message.getMessageId());
+                                messageStore.removeMessage(context, ack);
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            Future<Void> checkpoints = executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    while (!done.get()) {
+                        store.checkpoint(true);
+                    }
+                    return null;
+                }
+            });
+            for (Future<Void> result : results) {
+                result.get();
+            }
+            done.set(true);
+            checkpoints.get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        store.checkpoint(true);
+        assertMessageCounts();
+        assertTrue("unused journal files were removed: " + store.getJournal().getFileMap().keySet(),
+            new TreeSet<Integer>(store.getJournal().getFileMap().keySet()).first() > 1);
+
+        PersistenceAdapterStatistics statistics = store.getPersistenceAdapterStatistics();
+        assertTrue(statistics.getCheckpointStallTime().getCount() > 0);
+        assertEquals(statistics.getCheckpointStallTime().getCount(), statistics.getCheckpointTime().getCount());
+
+        // the index has to be intact after a restart
+        store.stop();
+        store = startStore(false);
+        assertMessageCounts();
+    }
+
+    private void assertMessageCounts() throws Exception {
+        for (int i = 0; i < DESTINATIONS; i++) {
+            MessageStore messageStore = store.createQueueMessageStore(new ActiveMQQueue("Queue-" + i));
+            messageStore.start();
+            assertEquals("Queue-" + i, KEPT, messageStore.getMessageCount());
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.store.kahadb;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.activemq.broker.ConnectionContext;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.apache.activemq.command.MessageAck;
+import org.apache.activemq.command.MessageId;
+import org.apache.activemq.store.MessageStore;
+import org.apache.activemq.store.kahadb.disk.journal.Journal.JournalDiskSyncStrategy;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Verifies the index stays consistent when messages of different destinations
+ * are added and removed concurrently.
+ */
+public class MessageDatabaseConcurrentIndexTest {
+
+    private static final int DESTINATIONS = 16;
+    private static final int MESSAGES = 500;
+
+    @Rule
+    public TemporaryFolder dataDir = new TemporaryFolder(new File("target"));
+
+    private final ConnectionContext context = new ConnectionContext();
+    private KahaDBStore store;
+
+    @After
+    public void tearDown() throws Exception {
+        if (store != null) {
+            store.stop();
+        }
+    }
+
+    private KahaDBStore startStore(int indexLockStripes) throws Exception {
+        KahaDBStore store = new KahaDBStore();
+        store.setDirectory(dataDir.getRoot());
+        store.setJournalDiskSyncStrategy(JournalDiskSyncStrategy.NEVER.name());
+        store.setJournalMaxFileLength(64 * 1024);
+        store.setIndexLockStripes(indexLockStripes);
+        store.start();
+        return store;
+    }
+
+    @Test(timeout = 120000)
+    public void testConcurrentAddAndRemove() throws Exception {
+        store = startStore(4);
+
+        ExecutorService executor = Executors.newFixedThreadPool(DESTINATIONS);
+        try {
+            List<Future<Void>> results = new ArrayList<>();
+            for (int i = 0; i < DESTINATIONS; i++) {
+                final ActiveMQQueue destination = new ActiveMQQueue("Queue-" + i);
+                final MessageStore messageStore = store.createQueueMessageStore(destination);
+                messageStore.start();
+                final String producerId = "ID:producer-" + i + ":1:1";
+                results.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        for (int j = 0; j < MESSAGES; j++) {
+                            ActiveMQTextMessage message = new ActiveMQTextMessage();
+                            message.setMessageId(new MessageId(producerId, j));
+                            message.setDestination(destination);
+                            message.setText("message " + j);
+                            messageStore.addMessage(context, message);
+                            if (j % 2 == 0) {
+                                messageStore.updateMessage(message);
+                            } else {
+                                MessageAck ack = new MessageAck();
+                                ack.setDestination(destination);
+                                ack.setLastMessageId(message.getMessageId());
+                                messageStore.removeMessage(context, ack);
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertMessageCounts();
+        // updates finishing out of order must not move the last update back
+        assertEquals(store.getJournal().getLastAppendLocation(), store.getLastUpdatePosition());
+
+        // the index has to be intact after a restart
+        store.stop();
+        store = startStore(0);
+        assertMessageCounts();
+    }
+
+    private void assertMessageCounts() throws Exception {
+        for (int i = 0; i < DESTINATIONS; i++) {
+            MessageStore messageStore = store.createQueueMessageStore(new ActiveMQQueue("Queue-" + i));
+            messageStore.start();
+            assertEquals("Queue-" + i, MESSAGES / 2, messageStore.getMessageCount());
+        }
+    }
+}
@@ -19,14 +19,19 @@ package org.apache.activemq.store.kahadb;
 
 import org.apache.activemq.ActiveMQMessageAuditNoSync;
 import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.protobuf.Buffer;
+import org.apache.activemq.store.kahadb.data.KahaProducerAuditCommand;
 import org.apache.activemq.store.kahadb.disk.journal.Journal;
 import org.apache.activemq.util.ByteSequence;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -117,6 +122,67 @@ public class MessageDatabaseTest {
         }
     }
 
+    @Test
+    public void testRecoverCompactProducerAudit() throws Exception {
+        KahaDBStore kaha = createStore("kaha4");
+        kaha.start();
+        final String messageId = "ID:host-1234-5678-0:1:1:1:5";
+        kaha.getMetadata().producerSequenceIdTracker.isDuplicate(messageId);
+        kaha.checkpoint(true);
+
+        KahaProducerAuditCommand audit = (KahaProducerAuditCommand) kaha.load(kaha.getMetadata().producerSequenceIdTrackerLocation);
+        assertEquals("written in the compact form", MessageDatabase.PRODUCER_AUDIT_MAGIC,
+            new DataInputStream(audit.getAudit().newInput()).readInt());
+
+        kaha.stop();
+        kaha = createStore("kaha4");
+        try {
+            kaha.start();
+            assertTrue("audit recovered", kaha.getMetadata().producerSequenceIdTracker.isDuplicate(messageId));
+        } finally {
+            kaha.stop();
+        }
+    }
+
+    @Test
+    public void testRecoverSerializedProducerAudit() throws Exception {
+        KahaDBStore kaha = createStore("kaha5");
+        kaha.start();
+
+        // an audit checkpointed by an earlier version
+        ActiveMQMessageAuditNoSync audit = new ActiveMQMessageAuditNoSync();
+        final String messageId = "ID:host-1234-5678-0:1:1:1:5";
+        audit.isDuplicate(messageId);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream objectOut = new ObjectOutputStream(bytes);
+        objectOut.writeObject(audit);
+        objectOut.close();
+        kaha.getMetadata().producerSequenceIdTrackerLocation =
+            kaha.store(new KahaProducerAuditCommand().setAudit(new Buffer(bytes.toByteArray())), true, null, null);
+        kaha.getMetadata().producerSequenceIdTracker.setModified(false);
+
+        kaha.stop();
+        kaha = createStore("kaha5");
+        try {
+            kaha.start();
+            assertTrue("audit recovered", kaha.getMetadata().producerSequenceIdTracker.isDuplicate(messageId));
+        } finally {
+            kaha.stop();
+        }
+    }
+
+    private KahaDBStore createStore(String name) {
+        KahaDBStore kaha = new KahaDBStore();
+        kaha.setDirectory(new File(temporaryFolder.getRoot(), name));
+        kaha.setCheckpointInterval(0l); // disable periodic checkpoint
+        kaha.setBrokerService(new BrokerService() {
+            public void handleIOException(IOException exception) {
+                exception.printStackTrace();
+            }
+        });
+        return kaha;
+    }
+
     @Test
     public void testKahaStartAndSizeCreatingStoreDirectoryConcurrently() throws Exception {
         // given mkdirs() will execute in parallel
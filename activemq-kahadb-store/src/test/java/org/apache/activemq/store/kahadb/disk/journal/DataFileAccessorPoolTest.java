@@ -50,7 +50,10 @@ public class DataFileAccessorPoolTest {
 
         DataFileAccessorPool underTest = new DataFileAccessorPool(journal);
 
-        context.checking(new Expectations(){{exactly(1).of(journal).getInflightWrites();}});
+        context.checking(new Expectations(){{
+            exactly(1).of(journal).getInflightWrites();
+            exactly(1).of(journal).isMemoryMappedReads();
+        }});
 
         DataFile dataFile = new DataFile(new File(temporaryFolder.getRoot(), "aa"), 1);
         underTest.closeDataFileAccessor(underTest.openDataFileAccessor(dataFile));
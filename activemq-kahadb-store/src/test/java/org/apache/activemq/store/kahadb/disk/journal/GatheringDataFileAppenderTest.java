@@ -0,0 +1,120 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.store.kahadb.disk.journal;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.apache.activemq.util.ByteSequence;
+import org.apache.activemq.util.IOHelper;
+
+public class GatheringDataFileAppenderTest extends TestCase {
+
+    private static final int WRITE_BATCH_SIZE = 64 * 1024;
+
+    private Journal journal;
+    private File dir;
+
+    @Override
+    public void setUp() throws Exception {
+        dir = new File("target/tests/GatheringDataFileAppenderTest");
+        IOHelper.delete(dir);
+        dir.mkdirs();
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        if (journal != null) {
+            journal.close();
+        }
+        IOHelper.delete(dir);
+    }
+
+    private Journal startJournal(final boolean gathering) throws Exception {
+        Journal journal = new Journal() {
+            @Override
+            protected FileAppender createAppender() {
+                return gathering ? new GatheringDataFileAppender(this) : new DataFileAppender(this);
+            }
+        };
+        journal.setDirectory(dir);
+        journal.setMaxFileLength(1024 * 1024);
+        journal.setWriteBatchSize(WRITE_BATCH_SIZE);
+        journal.setChecksum(true);
+        journal.setCheckForCorruptionOnStartup(true);
+        journal.start();
+        return journal;
+    }
+
+    private byte[] payload(int index) {
+        // mix records that are batched with records larger than the batch buffer
+        int size = index % 7 == 0 ? WRITE_BATCH_SIZE + index : 100 + index * 13;
+        byte[] data = new byte[size];
+        Arrays.fill(data, (byte) index);
+        return data;
+    }
+
+    public void testWrittenRecordsReadBackAndRecover() throws Exception {
+        journal = startJournal(true);
+
+        final int count = 100;
+        final CountDownLatch done = new CountDownLatch(count / 2);
+        List<Location> locations = new ArrayList<Location>();
+        for (int i = 0; i < count; i++) {
+            if (i % 2 == 0) {
+                locations.add(journal.write(new ByteSequence(payload(i)), true));
+            } else {
+                locations.add(journal.write(new ByteSequence(payload(i)), new Runnable() {
+                    @Override
+                    public void run() {
+                        done.countDown();
+                    }
+                }));
+            }
+        }
+        assertTrue("async writes complete", done.await(30, TimeUnit.SECONDS));
+
+        for (int i = 0; i < count; i++) {
+            assertPayload(i, journal.read(locations.get(i)));
+        }
+        journal.close();
+
+        // the default appender replays what was written, with the batch checksums verified
+        journal = startJournal(false);
+        for (DataFile dataFile : journal.getFileMap().values()) {
+            assertTrue("no corruption in " + dataFile, dataFile.getCorruptedBlocks().isEmpty());
+        }
+        int index = 0;
+        for (Location location = journal.getNextLocation(null); location != null; location = journal.getNextLocation(location)) {
+            assertPayload(index++, journal.read(location));
+        }
+        assertEquals(count, index);
+    }
+
+    private void assertPayload(int index, ByteSequence data) {
+        byte[] expected = payload(index);
+        assertEquals("size of record " + index, expected.length, data.getLength());
+        assertTrue("content of record " + index,
+            Arrays.equals(expected, Arrays.copyOfRange(data.getData(), data.getOffset(), data.getOffset() + data.getLength())));
+    }
+}
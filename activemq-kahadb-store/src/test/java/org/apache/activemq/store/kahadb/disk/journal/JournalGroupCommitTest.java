@@ -0,0 +1,114 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.store.kahadb.disk.journal;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.apache.activemq.management.HistogramStatisticImpl;
+import org.apache.activemq.util.ByteSequence;
+import org.apache.activemq.util.IOHelper;
+
+public class JournalGroupCommitTest extends TestCase {
+
+    private Journal journal;
+    private File dir;
+
+    @Override
+    public void setUp() throws Exception {
+        dir = new File("target/tests/JournalGroupCommitTest");
+        IOHelper.delete(dir);
+        dir.mkdirs();
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        if (journal != null) {
+            journal.close();
+        }
+        IOHelper.delete(dir);
+    }
+
+    private Journal startJournal(long maxLatency, int maxBatchSize) throws Exception {
+        Journal journal = new Journal();
+        journal.setDirectory(dir);
+        journal.setGroupCommitMaxLatency(maxLatency);
+        journal.setGroupCommitMaxBatchSize(maxBatchSize);
+        journal.start();
+        return journal;
+    }
+
+    public void testConcurrentSyncWritesShareBatches() throws Exception {
+        journal = startJournal(TimeUnit.MILLISECONDS.toMicros(5), 8);
+
+        final int threads = 8;
+        final int writesPerThread = 100;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<List<Location>>> results = new ArrayList<Future<List<Location>>>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                final int thread = i;
+                results.add(executor.submit(new Callable<List<Location>>() {
+                    @Override
+                    public List<Location> call() throws Exception {
+                        List<Location> locations = new ArrayList<Location>();
+                        for (int j = 0; j < writesPerThread; j++) {
+                            locations.add(journal.write(new ByteSequence(("record-" + thread + "-" + j).getBytes()), true));
+                        }
+                        return locations;
+                    }
+                }));
+            }
+            for (int i = 0; i < threads; i++) {
+                List<Location> locations = results.get(i).get(60, TimeUnit.SECONDS);
+                for (int j = 0; j < writesPerThread; j++) {
+                    assertEquals("record-" + i + "-" + j, new String(journal.read(locations.get(j)).getData()));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        HistogramStatisticImpl batchSize = journal.getBatchSizeStatistic();
+        HistogramStatisticImpl syncTime = journal.getSyncTimeStatistic();
+        assertEquals("every write is in a batch", threads * writesPerThread, batchSize.getTotal());
+        assertTrue("writes were grouped: " + batchSize, batchSize.getCount() < threads * writesPerThread);
+        assertTrue("batches are limited by the group commit batch size: " + batchSize, batchSize.getMax() <= 8);
+        assertEquals("every batch was synced", batchSize.getCount(), syncTime.getCount());
+    }
+
+    public void testLoneWriterIsNotHeldBack() throws Exception {
+        // a window this long would be obvious if a lone writer had to wait for it
+        journal = startJournal(TimeUnit.SECONDS.toMicros(1), 0);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 50; i++) {
+            journal.write(new ByteSequence(("record-" + i).getBytes()), true);
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start);
+        assertTrue("writes took " + elapsed + "s", elapsed < 10);
+        assertEquals(50, journal.getBatchSizeStatistic().getCount());
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.store.kahadb.disk.journal;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.activemq.util.ByteSequence;
+import org.apache.activemq.util.IOHelper;
+
+public class JournalMemoryMappedReadTest extends TestCase {
+
+    private Journal journal;
+    private File dir;
+
+    @Override
+    public void setUp() throws Exception {
+        dir = new File("target/tests/JournalMemoryMappedReadTest");
+        IOHelper.delete(dir);
+        dir.mkdirs();
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        if (journal != null) {
+            journal.close();
+        }
+        IOHelper.delete(dir);
+    }
+
+    private Journal startJournal(Journal.PreallocationScope preallocationScope) throws Exception {
+        Journal journal = new Journal();
+        journal.setDirectory(dir);
+        journal.setMaxFileLength(64 * 1024);
+        journal.setPreallocationScope(preallocationScope);
+        journal.setMemoryMappedReads(true);
+        journal.start();
+        return journal;
+    }
+
+    public void testReadAndReplay() throws Exception {
+        doTestReadAndReplay(Journal.PreallocationScope.ENTIRE_JOURNAL);
+    }
+
+    public void testReadAndReplayGrowingFiles() throws Exception {
+        // files are not preallocated, so mappings have to follow the file length
+        doTestReadAndReplay(Journal.PreallocationScope.NONE);
+    }
+
+    private void doTestReadAndReplay(Journal.PreallocationScope preallocationScope) throws Exception {
+        journal = startJournal(preallocationScope);
+        List<Location> locations = new ArrayList<Location>();
+        for (int i = 0; i < 200; i++) {
+            locations.add(journal.write(new ByteSequence(("message-" + i + "-" + new String(new byte[i * 10])).getBytes()), true));
+            // read back the last record while the file is still being appended to
+            assertTrue(journal.read(locations.get(i)).toString().length() > 0);
+        }
+        assertTrue("spans multiple data files", journal.getFileMap().size() > 1);
+
+        for (int i = 0; i < locations.size(); i++) {
+            assertRecord(i, journal.read(locations.get(i)));
+        }
+
+        journal.close();
+        journal = startJournal(preallocationScope);
+        int count = 0;
+        for (Location location = journal.getNextLocation(null); location != null; location = journal.getNextLocation(location)) {
+            assertRecord(count++, journal.read(location));
+        }
+        assertEquals(locations.size(), count);
+    }
+
+    public void testRemovedDataFileCanNotBeRead() throws Exception {
+        journal = startJournal(Journal.PreallocationScope.ENTIRE_JOURNAL);
+        List<Location> locations = new ArrayList<Location>();
+        for (int i = 0; i < 100; i++) {
+            locations.add(journal.write(new ByteSequence(new byte[2048]), true));
+        }
+        Location first = locations.get(0);
+        journal.read(first);
+        DataFile dataFile = journal.getDataFileById(first.getDataFileId());
+
+        journal.removeDataFiles(Collections.singleton(first.getDataFileId()));
+        assertNull(journal.getDataFileById(first.getDataFileId()));
+        try {
+            dataFile.getReadMapping(first.getOffset() + first.getSize());
+            fail("mapping of a removed file must not be used");
+        } catch (IOException expected) {
+        }
+
+        Location last = locations.get(locations.size() - 1);
+        assertEquals(2048, journal.read(last).getLength());
+    }
+
+    private void assertRecord(int index, ByteSequence data) {
+        String text = new String(data.getData(), data.getOffset(), data.getLength());
+        assertTrue(text, text.startsWith("message-" + index + "-"));
+        assertEquals(("message-" + index + "-").length() + index * 10, data.getLength());
+    }
+}
@@ -39,6 +39,7 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 @SuppressWarnings("rawtypes")
 public class PageFileTest extends TestCase {
@@ -137,6 +138,79 @@ public class PageFileTest extends TestCase {
         pf.unload();
     }
 
+    public void testConcurrentReadsWhileWriting() throws Exception {
+        final PageFile pf = new PageFile(new File("target/test-data"), getName());
+        pf.delete();
+        pf.setPageCacheSize(16);
+        pf.setEnableWriteThread(true);
+        pf.setWriteBatchSize(32);
+        pf.load();
+
+        final int pages = 64;
+        Transaction tx = pf.tx();
+        for (int i = 0; i < pages; i++) {
+            Page<String> page = tx.allocate();
+            page.set("page:" + page.getPageId() + ":0");
+            tx.store(page, StringMarshaller.INSTANCE, false);
+        }
+        tx.commit();
+        pf.flush();
+
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        List<Thread> readers = new LinkedList<Thread>();
+        for (int r = 0; r < 4; r++) {
+            final int seed = r;
+            Thread reader = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        Transaction readTx = pf.tx();
+                        for (long i = seed; !done.get(); i++) {
+                            long pageId = i % pages;
+                            Page<String> page = readTx.load(pageId, StringMarshaller.INSTANCE);
+                            if (!page.get().startsWith("page:" + pageId + ":")) {
+                                throw new AssertionError("page " + pageId + " read as " + page.get());
+                            }
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            };
+            readers.add(reader);
+            reader.start();
+        }
+
+        // keep updating the pages, flushing now and then, while they are read
+        for (int version = 1; version <= 50; version++) {
+            tx = pf.tx();
+            for (long pageId = 0; pageId < pages; pageId++) {
+                Page<String> page = tx.load(pageId, StringMarshaller.INSTANCE);
+                page.set("page:" + pageId + ":" + version);
+                tx.store(page, StringMarshaller.INSTANCE, false);
+            }
+            tx.commit();
+            if (version % 10 == 0) {
+                pf.flush();
+            }
+        }
+        done.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertNull(failure.get());
+
+        pf.flush();
+        pf.unload();
+        pf.load();
+        tx = pf.tx();
+        for (long pageId = 0; pageId < pages; pageId++) {
+            assertEquals("page:" + pageId + ":50", tx.load(pageId, StringMarshaller.INSTANCE).get());
+        }
+        pf.unload();
+    }
+
     public void testStreams() throws IOException {
 
         PageFile pf = new PageFile(new File("target/test-data"), getName());
@@ -19,6 +19,7 @@ package org.apache.activemq.store.kahadb.disk.page;
 
 import junit.framework.TestCase;
 import org.apache.activemq.store.kahadb.disk.util.Marshaller;
+import org.apache.activemq.store.kahadb.disk.util.StringMarshaller;
 
 import java.io.DataInput;
 import java.io.DataOutput;
@@ -26,6 +27,11 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 public class TransactionTest  extends TestCase {
 
@@ -122,6 +128,57 @@ public class TransactionTest  extends TestCase {
 
     }
 
+    public void testLongTransactionDoesNotWaitForFlush() throws Exception {
+        final PageFile pf = new PageFile(new File("target/test-data"), getName());
+        pf.delete();
+        pf.setEnablePageCaching(false);
+        pf.load();
+
+        Transaction tx = pf.tx();
+        final Page<String> page = tx.allocate();
+        page.set("before");
+        tx.store(page, StringMarshaller.INSTANCE, true);
+        tx.commit();
+
+        // a checkpoint took its snapshot and is writing it
+        PageFile.PendingFlush flush = pf.beginFlush();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        String maxTxSize = System.getProperty("maxKahaDBTxSize");
+        System.setProperty("maxKahaDBTxSize", "-1");
+        try {
+            Future<File> commit = executor.submit(new Callable<File>() {
+                @Override
+                public File call() throws Exception {
+                    // every page of this transaction goes to its temp file
+                    Transaction longTx = pf.tx();
+                    page.set("after");
+                    longTx.store(page, StringMarshaller.INSTANCE, true);
+                    File tempFile = longTx.getTempFile();
+                    longTx.commit();
+                    return tempFile;
+                }
+            });
+            File tempFile = commit.get(30, TimeUnit.SECONDS);
+            assertTrue(tempFile.exists());
+
+            flush.complete();
+            assertFalse("the long transaction was written once the flush completed", tempFile.exists());
+        } finally {
+            executor.shutdownNow();
+            if (maxTxSize == null) {
+                System.clearProperty("maxKahaDBTxSize");
+            } else {
+                System.setProperty("maxKahaDBTxSize", maxTxSize);
+            }
+        }
+
+        pf.unload();
+        pf.load();
+        assertEquals("after", pf.tx().load(page.getPageId(), StringMarshaller.INSTANCE).get());
+        pf.unload();
+    }
+
     private List<Byte> getBytes() {
         List<Byte> bytes = new ArrayList<>();
         byte b = 0;
@@ -0,0 +1,110 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class ClockCacheTest {
+
+    @Test
+    public void testEvictsEntriesThatWereNotRead() throws Exception {
+        ClockCache<Long, String> cache = new ClockCache<Long, String>(4);
+        for (long i = 0; i < 4; i++) {
+            cache.put(i, "v" + i);
+        }
+        assertEquals(4, cache.size());
+
+        // a read gives an entry a second chance
+        assertEquals("v0", cache.get(0L));
+        cache.put(4L, "v4");
+
+        assertEquals(4, cache.size());
+        assertEquals("v0", cache.get(0L));
+        assertFalse("least recently used entry is evicted", cache.containsKey(1L));
+        assertEquals("v4", cache.get(4L));
+    }
+
+    @Test
+    public void testPutReplacesAndRemoveFreesSlot() throws Exception {
+        ClockCache<Long, String> cache = new ClockCache<Long, String>(2);
+        assertNull(cache.put(1L, "a"));
+        assertEquals("a", cache.put(1L, "b"));
+        assertEquals("b", cache.get(1L));
+        assertEquals(1, cache.size());
+
+        cache.put(2L, "c");
+        assertEquals("b", cache.remove(1L));
+        assertNull(cache.remove(1L));
+        cache.put(3L, "d");
+        assertTrue("removal left room without evicting", cache.containsKey(2L));
+        assertEquals(2, cache.entrySet().size());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        cache.put(4L, "e");
+        cache.put(5L, "f");
+        assertEquals(2, cache.size());
+    }
+
+    @Test(timeout = 60000)
+    public void testConcurrentAccessStaysBounded() throws Exception {
+        final ClockCache<Long, Long> cache = new ClockCache<Long, Long>(100);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < 8; t++) {
+            final long seed = t;
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (long i = 0; i < 100000; i++) {
+                            long key = (i * 31 + seed) % 500;
+                            Long value = cache.get(key);
+                            if (value == null) {
+                                cache.put(key, key);
+                            } else if (value != key) {
+                                throw new AssertionError("key " + key + " has value " + value);
+                            }
+                            if (i % 97 == 0) {
+                                cache.remove(key);
+                            }
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(failure.get());
+        assertTrue("size " + cache.size(), cache.size() <= 100);
+    }
+}
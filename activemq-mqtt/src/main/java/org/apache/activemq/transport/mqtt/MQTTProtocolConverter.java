@@ -22,7 +22,6 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.zip.DataFormatException;
-import java.util.zip.Inflater;
 
 import jakarta.jms.InvalidClientIDException;
 import jakarta.jms.JMSException;
@@ -51,8 +50,8 @@ import org.apache.activemq.command.Response;
 import org.apache.activemq.command.SessionId;
 import org.apache.activemq.command.SessionInfo;
 import org.apache.activemq.command.ShutdownInfo;
+import org.apache.activemq.compression.CompressionSupport;
 import org.apache.activemq.transport.mqtt.strategy.MQTTSubscriptionStrategy;
-import org.apache.activemq.util.ByteArrayOutputStream;
 import org.apache.activemq.util.ByteSequence;
 import org.apache.activemq.util.FactoryFinder;
 import org.apache.activemq.util.IOExceptionSupport;
@@ -630,16 +629,7 @@ public class MQTTProtocolConverter {
             ByteSequence byteSequence = message.getContent();
             if (byteSequence != null && byteSequence.getLength() > 0) {
                 if (message.isCompressed()) {
-                    Inflater inflater = new Inflater();
-                    inflater.setInput(byteSequence.data, byteSequence.offset, byteSequence.length);
-                    byte[] data = new byte[4096];
-                    int read;
-                    ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
-                    while ((read = inflater.inflate(data)) != 0) {
-                        bytesOut.write(data, 0, read);
-                    }
-                    byteSequence = bytesOut.toByteSequence();
-                    bytesOut.close();
+                    byteSequence = CompressionSupport.decompress(byteSequence);
                 }
                 result.payload(new Buffer(byteSequence.data, byteSequence.offset, byteSequence.length));
             }
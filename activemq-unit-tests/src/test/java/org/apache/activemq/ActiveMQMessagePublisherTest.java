@@ -0,0 +1,243 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.jms.IllegalStateException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageListener;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.broker.region.Subscription;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.util.Wait;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ActiveMQMessagePublisherTest {
+
+    private static final int MESSAGE_COUNT = 100;
+
+    private final ActiveMQQueue queue = new ActiveMQQueue("PUBLISHER.QUEUE");
+    private BrokerService broker;
+    private ActiveMQConnection connection;
+    private Session session;
+
+    @Before
+    public void setUp() throws Exception {
+        broker = new BrokerService();
+        broker.setPersistent(false);
+        broker.setUseJmx(false);
+        broker.setAdvisorySupport(false);
+        broker.start();
+        broker.waitUntilStarted();
+
+        connection = (ActiveMQConnection) new ActiveMQConnectionFactory("vm://localhost?create=false").createConnection();
+        connection.start();
+        session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+
+        MessageProducer producer = session.createProducer(queue);
+        for (int i = 0; i < MESSAGE_COUNT; i++) {
+            producer.send(session.createTextMessage("message " + i));
+        }
+        producer.close();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (connection != null) {
+            connection.close();
+        }
+        if (broker != null) {
+            broker.stop();
+            broker.waitUntilStopped();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testDemandIsGrantedAsCredit() throws Exception {
+        ActiveMQMessagePublisher publisher = ((ActiveMQSession) session).createConsumerPublisher(queue, null);
+        TestSubscriber subscriber = new TestSubscriber();
+        publisher.subscribe(subscriber);
+
+        subscriber.subscription.request(10);
+        assertTrue(subscriber.awaitMessages(10));
+        TimeUnit.MILLISECONDS.sleep(500);
+        assertEquals(10, subscriber.messages.size());
+        // without demand there is no credit left, nothing more is dispatched
+        assertEquals("dispatched only what was requested", 10, getSubscription().getSubscriptionStatistics().getDispatched().getCount());
+
+        subscriber.subscription.request(MESSAGE_COUNT - 10);
+        assertTrue(subscriber.awaitMessages(MESSAGE_COUNT));
+        assertQueueDrained();
+        assertEquals(0, subscriber.completions);
+    }
+
+    @Test(timeout = 60000)
+    public void testUnboundedDemand() throws Exception {
+        ActiveMQMessageConsumer consumer = (ActiveMQMessageConsumer) session.createConsumer(queue);
+        TestSubscriber subscriber = new TestSubscriber();
+        consumer.asPublisher().subscribe(subscriber);
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertTrue(subscriber.awaitMessages(MESSAGE_COUNT));
+        assertQueueDrained();
+    }
+
+    @Test(timeout = 60000)
+    public void testRequestOneAtATimeInClientAcknowledgeSession() throws Exception {
+        ActiveMQSession clientAckSession = (ActiveMQSession) connection.createSession(false, Session.CLIENT_ACKNOWLEDGE);
+        final TestSubscriber subscriber = new TestSubscriber() {
+            @Override
+            public void onNext(Message message) {
+                super.onNext(message);
+                try {
+                    message.acknowledge();
+                } catch (Exception e) {
+                    onError(e);
+                }
+                subscription.request(1);
+            }
+        };
+        clientAckSession.createConsumerPublisher(queue, null).subscribe(subscriber);
+
+        subscriber.subscription.request(1);
+        assertTrue(subscriber.awaitMessages(MESSAGE_COUNT));
+        assertQueueDrained();
+        assertEquals(0, subscriber.errors.size());
+    }
+
+    @Test(timeout = 60000)
+    public void testCancelClosesConsumer() throws Exception {
+        ActiveMQMessageConsumer consumer = (ActiveMQMessageConsumer) session.createConsumer(queue);
+        TestSubscriber subscriber = new TestSubscriber();
+        consumer.asPublisher().subscribe(subscriber);
+
+        subscriber.subscription.request(5);
+        assertTrue(subscriber.awaitMessages(5));
+        subscriber.subscription.cancel();
+        try {
+            consumer.receiveNoWait();
+            fail("the consumer of a cancelled subscription is closed");
+        } catch (IllegalStateException expected) {
+        }
+
+        MessageConsumer next = session.createConsumer(queue);
+        for (int i = 5; i < MESSAGE_COUNT; i++) {
+            assertNotNull("message " + i, next.receive(5000));
+        }
+        assertEquals(5, subscriber.messages.size());
+    }
+
+    @Test(timeout = 60000)
+    public void testClosingConsumerCompletes() throws Exception {
+        ActiveMQMessageConsumer consumer = (ActiveMQMessageConsumer) session.createConsumer(queue);
+        TestSubscriber subscriber = new TestSubscriber();
+        consumer.asPublisher().subscribe(subscriber);
+
+        consumer.close();
+        assertEquals(1, subscriber.completions);
+    }
+
+    @Test(timeout = 60000)
+    public void testOneSubscriberAndNoListener() throws Exception {
+        ActiveMQMessageConsumer consumer = (ActiveMQMessageConsumer) session.createConsumer(queue);
+        Flow.Publisher<Message> publisher = consumer.asPublisher();
+        publisher.subscribe(new TestSubscriber());
+
+        TestSubscriber second = new TestSubscriber();
+        publisher.subscribe(second);
+        assertEquals(1, second.errors.size());
+
+        try {
+            consumer.setMessageListener(new MessageListener() {
+                @Override
+                public void onMessage(Message message) {
+                }
+            });
+            fail("a consumer with a publisher can not have a listener");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    private Subscription getSubscription() throws Exception {
+        return broker.getDestination(queue).getConsumers().get(0);
+    }
+
+    private void assertQueueDrained() throws Exception {
+        assertTrue("all messages acknowledged", Wait.waitFor(new Wait.Condition() {
+            @Override
+            public boolean isSatisified() throws Exception {
+                return broker.getDestination(queue).getDestinationStatistics().getMessages().getCount() == 0;
+            }
+        }));
+    }
+
+    private static class TestSubscriber implements Flow.Subscriber<Message> {
+
+        final List<Message> messages = new CopyOnWriteArrayList<Message>();
+        final List<Throwable> errors = new CopyOnWriteArrayList<Throwable>();
+        volatile int completions;
+        volatile Flow.Subscription subscription;
+        private final CountDownLatch[] latches = new CountDownLatch[MESSAGE_COUNT + 1];
+
+        TestSubscriber() {
+            for (int i = 0; i < latches.length; i++) {
+                latches[i] = new CountDownLatch(1);
+            }
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(Message message) {
+            messages.add(message);
+            latches[messages.size()].countDown();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            errors.add(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            completions++;
+        }
+
+        boolean awaitMessages(int count) throws InterruptedException {
+            return latches[count].await(30, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.jms.DeliveryMode;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+
+import org.apache.activemq.broker.BrokerPlugin;
+import org.apache.activemq.broker.BrokerPluginSupport;
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.broker.ConnectionContext;
+import org.apache.activemq.broker.ProducerBrokerExchange;
+import org.apache.activemq.broker.TransportConnector;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.command.TransactionId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ProducerBatchSendTest {
+
+    private static final int BATCH_SIZE = 100;
+
+    private final ActiveMQQueue queue = new ActiveMQQueue("BATCH.QUEUE");
+    private final AtomicInteger begins = new AtomicInteger();
+    private final AtomicInteger commits = new AtomicInteger();
+    private BrokerService broker;
+    private ActiveMQConnection connection;
+
+    @Before
+    public void setUp() throws Exception {
+        broker = new BrokerService();
+        broker.setPersistent(true);
+        broker.setDeleteAllMessagesOnStartup(true);
+        broker.setUseJmx(false);
+        broker.setAdvisorySupport(false);
+        broker.setPlugins(new BrokerPlugin[] {new BrokerPluginSupport() {
+            @Override
+            public void beginTransaction(ConnectionContext context, TransactionId xid) throws Exception {
+                begins.incrementAndGet();
+                super.beginTransaction(context, xid);
+            }
+
+            @Override
+            public void commitTransaction(ConnectionContext context, TransactionId xid, boolean onePhase) throws Exception {
+                commits.incrementAndGet();
+                super.commitTransaction(context, xid, onePhase);
+            }
+
+            @Override
+            public void send(ProducerBrokerExchange producerExchange, org.apache.activemq.command.Message messageSend) throws Exception {
+                if (messageSend.getProperty("fail") != null) {
+                    throw new IllegalStateException("Rejected " + messageSend.getMessageId());
+                }
+                super.send(producerExchange, messageSend);
+            }
+        }});
+        TransportConnector connector = broker.addConnector("tcp://localhost:0");
+        broker.start();
+        broker.waitUntilStarted();
+
+        connection = (ActiveMQConnection) new ActiveMQConnectionFactory(connector.getPublishableConnectString()).createConnection();
+        connection.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (connection != null) {
+            connection.close();
+        }
+        if (broker != null) {
+            broker.stop();
+            broker.waitUntilStopped();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testBatchIsCommittedInOneTransaction() throws Exception {
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        ActiveMQMessageProducer producer = (ActiveMQMessageProducer) session.createProducer(queue);
+        producer.setDeliveryMode(DeliveryMode.PERSISTENT);
+
+        producer.send(createBatch(session, -1));
+
+        assertEquals(1, begins.get());
+        assertEquals(1, commits.get());
+        assertReceived(session, BATCH_SIZE);
+
+        // the session is not left in a transaction
+        producer.send(session.createTextMessage("single"));
+        assertEquals(1, begins.get());
+        assertReceived(session, 1);
+    }
+
+    @Test(timeout = 60000)
+    public void testFailedMessageRollsBackTheBatch() throws Exception {
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        ActiveMQMessageProducer producer = (ActiveMQMessageProducer) session.createProducer(queue);
+
+        try {
+            producer.send(createBatch(session, BATCH_SIZE / 2));
+            fail("Batch with a rejected message should fail");
+        } catch (JMSException expected) {
+        }
+        assertReceived(session, 0);
+
+        // the connection can still be used
+        producer.send(createBatch(session, -1));
+        assertReceived(session, BATCH_SIZE);
+    }
+
+    @Test(timeout = 60000)
+    public void testBatchJoinsTheSessionTransaction() throws Exception {
+        Session session = connection.createSession(true, Session.SESSION_TRANSACTED);
+        ActiveMQMessageProducer producer = (ActiveMQMessageProducer) session.createProducer(queue);
+
+        producer.send(createBatch(session, -1));
+        producer.send(createBatch(session, -1));
+        assertEquals(0, commits.get());
+
+        Session consumerSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        assertReceived(consumerSession, 0);
+        session.commit();
+        assertEquals(1, commits.get());
+        assertReceived(consumerSession, 2 * BATCH_SIZE);
+    }
+
+    private List<Message> createBatch(Session session, int failAt) throws JMSException {
+        List<Message> batch = new ArrayList<Message>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            TextMessage message = session.createTextMessage("message " + i);
+            if (i == failAt) {
+                message.setBooleanProperty("fail", true);
+            }
+            batch.add(message);
+        }
+        return batch;
+    }
+
+    private void assertReceived(Session session, int count) throws JMSException {
+        MessageConsumer consumer = session.createConsumer(queue);
+        try {
+            for (int i = 0; i < count; i++) {
+                Message message = consumer.receive(5000);
+                assertNotNull("message " + i + " of " + count, message);
+            }
+            assertNull(consumer.receive(200));
+        } finally {
+            consumer.close();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.broker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import jakarta.jms.ConnectionFactory;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.thread.Task;
+import org.apache.activemq.thread.TaskRunnerFactory;
+import org.apache.activemq.util.Wait;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class EventLoopDispatchQueueSubscriptionTest extends QueueSubscriptionTest {
+
+    private TransportConnector connector;
+
+    @Override
+    protected ConnectionFactory createConnectionFactory() throws Exception {
+        return new ActiveMQConnectionFactory(connector.getPublishableConnectString());
+    }
+
+    @Override
+    protected BrokerService createBroker() throws Exception {
+        BrokerService answer = new BrokerService();
+        answer.setPersistent(false);
+        answer.getManagementContext().setCreateConnector(false);
+        connector = answer.addConnector("tcp://localhost:0");
+        connector.setEventLoopDispatch(true);
+        connector.setDispatchEventLoopCount(2);
+        return answer;
+    }
+
+    @Test(timeout = 60 * 1000)
+    public void testConnectionsShareEventLoops() throws Exception {
+        consumerCount = 5;
+        producerCount = 5;
+        messageCount = 100;
+        messageSize = 1024;
+
+        doMultipleClientsTest();
+
+        assertTotalMessagesReceived(messageCount * producerCount);
+
+        // the broker registered the managed connector in place of the one it was given
+        TransportConnector started = broker.getTransportConnectors().get(0);
+        DispatchEventLoopGroup loops = started.getDispatchEventLoops();
+        assertNotNull(loops);
+        assertEquals(2, loops.getLoopCount());
+        assertTrue(started.getConnections().size() > 2);
+        for (TransportConnection connection : started.getConnections()) {
+            assertNotNull(connection.dispatchRegistration);
+        }
+    }
+
+    @Test(timeout = 60 * 1000)
+    public void testStalledTaskIsTakenOffItsLoop() throws Exception {
+        TaskRunnerFactory taskRunnerFactory = new TaskRunnerFactory("Stalled Task Runner");
+        DispatchEventLoopGroup loops = new DispatchEventLoopGroup("Stall Test Loop", 1, 100);
+        loops.start();
+        try {
+            final CountDownLatch stalled = new CountDownLatch(1);
+            final CountDownLatch release = new CountDownLatch(1);
+            final AtomicReference<Thread> lastIterator = new AtomicReference<>();
+            final AtomicInteger otherIterations = new AtomicInteger();
+
+            DispatchEventLoopGroup.Registration blocking = loops.register(new Task() {
+                @Override
+                public boolean iterate() {
+                    lastIterator.set(Thread.currentThread());
+                    stalled.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return false;
+                }
+            }, taskRunnerFactory, "Stalled Task");
+            final DispatchEventLoopGroup.Registration other = loops.register(new Task() {
+                @Override
+                public boolean iterate() {
+                    otherIterations.incrementAndGet();
+                    return false;
+                }
+            }, taskRunnerFactory, "Other Task");
+
+            blocking.schedule();
+            assertTrue(stalled.await(10, TimeUnit.SECONDS));
+            final Thread stalledThread = lastIterator.get();
+            other.schedule();
+
+            // the other task of the loop is iterated while the first one is still blocked
+            assertTrue(Wait.waitFor(new Wait.Condition() {
+                @Override
+                public boolean isSatisified() throws Exception {
+                    return otherIterations.get() == 1;
+                }
+            }, 10000, 10));
+            assertTrue(blocking.isDetached());
+            assertFalse(other.isDetached());
+
+            release.countDown();
+            blocking.schedule();
+            assertTrue(Wait.waitFor(new Wait.Condition() {
+                @Override
+                public boolean isSatisified() throws Exception {
+                    return lastIterator.get() != stalledThread;
+                }
+            }, 10000, 10));
+            blocking.shutdown(1000);
+        } finally {
+            loops.shutdown(1000);
+            taskRunnerFactory.shutdown();
+        }
+    }
+}
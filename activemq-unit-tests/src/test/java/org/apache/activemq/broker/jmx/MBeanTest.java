@@ -1234,6 +1234,42 @@ public class MBeanTest extends EmbeddedBrokerTestSupport {
         }
     }
 
+    public void testLatencyPercentiles() throws Exception {
+        connection = connectionFactory.createConnection();
+        connection.start();
+        Session session = connection.createSession(false, Session.CLIENT_ACKNOWLEDGE);
+        Destination queue = session.createQueue(getDestinationString() + ".Latency");
+        MessageProducer producer = session.createProducer(queue);
+        for (int i = 0; i < 10; i++) {
+            producer.send(session.createTextMessage("Message: " + i));
+        }
+
+        MessageConsumer consumer = session.createConsumer(queue);
+        Message message = null;
+        for (int i = 0; i < 10; i++) {
+            message = consumer.receive(5000);
+            assertNotNull(message);
+        }
+        Thread.sleep(100);
+        message.acknowledge();
+
+        ObjectName queueViewMBeanName = assertRegisteredObjectName(domain + ":type=Broker,brokerName=localhost,destinationType=Queue,destinationName=" + getDestinationString() + ".Latency");
+        final QueueViewMBean queueView = MBeanServerInvocationHandler.newProxyInstance(mbeanServer, queueViewMBeanName, QueueViewMBean.class, true);
+        assertTrue("messages acked", Wait.waitFor(new Wait.Condition() {
+            @Override
+            public boolean isSatisified() throws Exception {
+                return queueView.getDequeueCount() == 10;
+            }
+        }));
+
+        assertTrue(queueView.getAckTimeP50() >= 100);
+        assertTrue(queueView.getAckTimeP99() >= queueView.getAckTimeP50());
+        assertTrue(queueView.getAckTimeP999() >= queueView.getAckTimeP99());
+        assertTrue(queueView.getEnqueueTimeP999() >= queueView.getEnqueueTimeP50());
+        assertTrue(queueView.getEnqueueTimeP999() <= queueView.getMaxEnqueueTime());
+        assertEquals(0, queueView.getBlockedTimeP99());
+    }
+
     // Test for AMQ-3029
     public void testBrowseBlobMessages() throws Exception {
         connection = connectionFactory.createConnection();
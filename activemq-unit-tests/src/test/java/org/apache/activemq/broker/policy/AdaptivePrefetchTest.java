@@ -0,0 +1,205 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.broker.policy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import jakarta.jms.Connection;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageListener;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import javax.management.ObjectName;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.ActiveMQMessageConsumer;
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.broker.jmx.SubscriptionViewMBean;
+import org.apache.activemq.broker.region.policy.AdaptivePrefetchStrategy;
+import org.apache.activemq.broker.region.policy.PolicyEntry;
+import org.apache.activemq.broker.region.policy.PolicyMap;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.command.ConsumerId;
+import org.apache.activemq.util.Wait;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AdaptivePrefetchTest {
+
+    private static final int QUEUE_PREFETCH = 100;
+
+    private final ActiveMQQueue queue = new ActiveMQQueue("AdaptivePrefetchTest");
+    private final AtomicBoolean producing = new AtomicBoolean(true);
+    private BrokerService broker;
+    private Connection connection;
+    private Thread producer;
+
+    @Before
+    public void setUp() throws Exception {
+        AdaptivePrefetchStrategy strategy = new AdaptivePrefetchStrategy();
+        strategy.setCheckPeriod(200);
+        strategy.setTargetLatency(100);
+        strategy.setMinimumPrefetch(1);
+        strategy.setMaximumPrefetch(500);
+
+        PolicyEntry policy = new PolicyEntry();
+        policy.setQueuePrefetch(QUEUE_PREFETCH);
+        policy.setAdaptivePrefetchStrategy(strategy);
+        PolicyMap policyMap = new PolicyMap();
+        policyMap.setDefaultEntry(policy);
+
+        broker = new BrokerService();
+        broker.setPersistent(false);
+        broker.setUseJmx(true);
+        broker.getManagementContext().setCreateConnector(false);
+        broker.setDestinationPolicy(policyMap);
+        broker.start();
+        broker.waitUntilStarted();
+
+        connection = new ActiveMQConnectionFactory("vm://localhost?create=false").createConnection();
+        connection.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        producing.set(false);
+        if (producer != null) {
+            producer.join(5000);
+        }
+        if (connection != null) {
+            connection.close();
+        }
+        if (broker != null) {
+            broker.stop();
+            broker.waitUntilStopped();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testSlowConsumerShrinksAndFastConsumerGrows() throws Exception {
+        startProducer();
+
+        Session slowSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        ActiveMQMessageConsumer slow = (ActiveMQMessageConsumer) slowSession.createConsumer(queue);
+        slow.setMessageListener(new MessageListener() {
+            @Override
+            public void onMessage(Message message) {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        Session fastSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        ActiveMQMessageConsumer fast = (ActiveMQMessageConsumer) fastSession.createConsumer(queue);
+        fast.setMessageListener(new MessageListener() {
+            @Override
+            public void onMessage(Message message) {
+            }
+        });
+
+        final SubscriptionViewMBean slowView = getSubscriptionView(slow.getConsumerId());
+        final SubscriptionViewMBean fastView = getSubscriptionView(fast.getConsumerId());
+
+        assertTrue("slow consumer prefetch shrinks", Wait.waitFor(new Wait.Condition() {
+            @Override
+            public boolean isSatisified() throws Exception {
+                return slowView.getPrefetchSize() < QUEUE_PREFETCH / 4;
+            }
+        }, 20000, 100));
+        assertTrue("fast consumer prefetch grows", Wait.waitFor(new Wait.Condition() {
+            @Override
+            public boolean isSatisified() throws Exception {
+                return fastView.getPrefetchSize() > QUEUE_PREFETCH;
+            }
+        }, 20000, 100));
+        assertTrue(slowView.getTargetPrefetchSize() >= 1);
+        assertTrue(fastView.getTargetPrefetchSize() <= 500);
+    }
+
+    @Test(timeout = 60000)
+    public void testConsumerThatDoesNotAckDropsToMinimum() throws Exception {
+        startProducer();
+
+        Session session = connection.createSession(false, Session.CLIENT_ACKNOWLEDGE);
+        ActiveMQMessageConsumer consumer = (ActiveMQMessageConsumer) session.createConsumer(queue);
+        assertNotNull(consumer.receive(5000));
+
+        final SubscriptionViewMBean view = getSubscriptionView(consumer.getConsumerId());
+        assertTrue("stalled consumer prefetch drops to the minimum", Wait.waitFor(new Wait.Condition() {
+            @Override
+            public boolean isSatisified() throws Exception {
+                return view.getPrefetchSize() == 1;
+            }
+        }, 20000, 100));
+        assertEquals(1, view.getTargetPrefetchSize());
+    }
+
+    @Test(timeout = 60000)
+    public void testTargetIsCurrentPrefetchWhenNotAdapted() throws Exception {
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        ActiveMQMessageConsumer consumer = (ActiveMQMessageConsumer) session.createConsumer(queue);
+
+        SubscriptionViewMBean view = getSubscriptionView(consumer.getConsumerId());
+        assertEquals(QUEUE_PREFETCH, view.getPrefetchSize());
+        assertEquals(QUEUE_PREFETCH, view.getTargetPrefetchSize());
+    }
+
+    private void startProducer() {
+        producer = new Thread("AdaptivePrefetchTest producer") {
+            @Override
+            public void run() {
+                try {
+                    Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+                    MessageProducer messageProducer = session.createProducer(queue);
+                    while (producing.get()) {
+                        if (broker.getDestination(queue).getDestinationStatistics().getMessages().getCount() < 2000) {
+                            messageProducer.send(session.createTextMessage("test"));
+                        } else {
+                            Thread.sleep(10);
+                        }
+                    }
+                } catch (JMSException e) {
+                    // the connection is closed at the end of the test
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+        producer.start();
+    }
+
+    private SubscriptionViewMBean getSubscriptionView(ConsumerId consumerId) throws Exception {
+        for (ObjectName name : broker.getAdminView().getQueueSubscribers()) {
+            SubscriptionViewMBean view = (SubscriptionViewMBean)
+                broker.getManagementContext().newProxyInstance(name, SubscriptionViewMBean.class, true);
+            if (view.getConnectionId().equals(consumerId.getConnectionId())
+                    && view.getSessionId() == consumerId.getSessionId()
+                    && view.getSubscriptionId() == consumerId.getValue()) {
+                return view;
+            }
+        }
+        throw new IllegalStateException("no subscription view for " + consumerId);
+    }
+}
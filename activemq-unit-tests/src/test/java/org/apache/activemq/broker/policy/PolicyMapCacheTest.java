@@ -0,0 +1,100 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.broker.policy;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.apache.activemq.broker.region.policy.PolicyEntry;
+import org.apache.activemq.broker.region.policy.PolicyMap;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.command.ActiveMQTempQueue;
+import org.apache.activemq.command.ActiveMQTopic;
+
+public class PolicyMapCacheTest extends TestCase {
+
+    private PolicyMap map;
+    private PolicyEntry defaultEntry;
+    private PolicyEntry fooEntry;
+    private PolicyEntry fooBarEntry;
+
+    @Override
+    protected void setUp() throws Exception {
+        map = new PolicyMap();
+        defaultEntry = new PolicyEntry();
+        map.setDefaultEntry(defaultEntry);
+        fooEntry = queueEntry("FOO.>");
+        fooBarEntry = queueEntry("FOO.BAR");
+        map.setPolicyEntries(Arrays.asList(fooEntry, fooBarEntry));
+    }
+
+    private PolicyEntry queueEntry(String name) {
+        PolicyEntry entry = new PolicyEntry();
+        entry.setQueue(name);
+        return entry;
+    }
+
+    public void testLookupsAreCached() {
+        ActiveMQQueue queue = new ActiveMQQueue("FOO.BAR");
+        assertSame(fooBarEntry, map.getEntryFor(queue));
+        assertSame(fooBarEntry, map.getEntryFor(new ActiveMQQueue("FOO.BAR")));
+        assertSame(fooEntry, map.getEntryFor(new ActiveMQQueue("FOO.BAZ")));
+        assertSame(defaultEntry, map.getEntryFor(new ActiveMQQueue("BAR")));
+        assertSame(defaultEntry, map.getEntryFor(new ActiveMQTopic("FOO.BAR")));
+    }
+
+    public void testDefaultEntryChangeIsSeen() {
+        ActiveMQQueue queue = new ActiveMQQueue("BAR");
+        assertSame(defaultEntry, map.getEntryFor(queue));
+        PolicyEntry replacement = new PolicyEntry();
+        map.setDefaultEntry(replacement);
+        assertSame(replacement, map.getEntryFor(queue));
+    }
+
+    public void testChangesInvalidateCachedLookups() {
+        ActiveMQQueue queue = new ActiveMQQueue("FOO.BAZ.QUX");
+        assertSame(fooEntry, map.getEntryFor(queue));
+
+        PolicyEntry fooBazEntry = queueEntry("FOO.BAZ.*");
+        map.put(fooBazEntry.getDestination(), fooBazEntry);
+        assertSame(fooBazEntry, map.getEntryFor(queue));
+
+        map.remove(fooBazEntry.getDestination(), fooBazEntry);
+        assertSame(fooEntry, map.getEntryFor(queue));
+
+        map.removeAll(fooEntry.getDestination());
+        assertSame(defaultEntry, map.getEntryFor(queue));
+
+        map.put(fooEntry.getDestination(), fooEntry);
+        assertSame(fooEntry, map.getEntryFor(queue));
+
+        map.reset();
+        assertSame(defaultEntry, map.getEntryFor(queue));
+    }
+
+    public void testCacheIsBounded() {
+        map.setChooseValueCacheSize(10);
+        for (int i = 0; i < 100; i++) {
+            assertSame(defaultEntry, map.getEntryFor(new ActiveMQTempQueue("ID:temp:" + i)));
+            assertSame(fooEntry, map.getEntryFor(new ActiveMQQueue("FOO.TENANT" + i)));
+        }
+
+        map.setChooseValueCacheSize(0);
+        assertSame(fooBarEntry, map.getEntryFor(new ActiveMQQueue("FOO.BAR")));
+    }
+}
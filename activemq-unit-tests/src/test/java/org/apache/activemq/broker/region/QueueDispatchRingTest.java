@@ -0,0 +1,146 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.broker.region;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.activemq.command.ConsumerInfo;
+import org.junit.Test;
+
+public class QueueDispatchRingTest {
+
+    private Subscription createSubscription(int priority) {
+        ConsumerInfo info = new ConsumerInfo();
+        info.setPriority((byte) priority);
+        return (Subscription) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Subscription.class},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getConsumerInfo":
+                        return info;
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        return null;
+                }
+            });
+    }
+
+    @Test
+    public void testEmpty() {
+        QueueDispatchRing ring = new QueueDispatchRing();
+        ring.rebuild(new ArrayList<Subscription>(), true);
+        assertTrue(ring.isEmpty());
+        assertEquals(0, ring.getBandCount());
+    }
+
+    @Test
+    public void testRoundRobinWithinBand() {
+        List<Subscription> consumers = new ArrayList<Subscription>();
+        for (int i = 0; i < 3; i++) {
+            consumers.add(createSubscription(0));
+        }
+
+        QueueDispatchRing ring = new QueueDispatchRing();
+        ring.rebuild(consumers, true);
+        assertEquals(1, ring.getBandCount());
+        assertEquals(3, ring.getBandSize(0));
+
+        for (int i = 0; i < 9; i++) {
+            assertSame(consumers.get(i % 3), ring.get(0, 0));
+            ring.advance(0, 0);
+        }
+
+        // skipping a consumer moves the cursor past the one that was chosen
+        ring.advance(0, 1);
+        assertSame(consumers.get(2), ring.get(0, 0));
+        assertSame(consumers.get(0), ring.get(0, 1));
+    }
+
+    @Test
+    public void testPriorityBands() {
+        Subscription high1 = createSubscription(9);
+        Subscription high2 = createSubscription(9);
+        Subscription low = createSubscription(4);
+        List<Subscription> consumers = new ArrayList<Subscription>();
+        consumers.add(high1);
+        consumers.add(high2);
+        consumers.add(low);
+
+        QueueDispatchRing ring = new QueueDispatchRing();
+        ring.rebuild(consumers, true);
+        assertEquals(2, ring.getBandCount());
+        assertEquals(2, ring.getBandSize(0));
+        assertEquals(1, ring.getBandSize(1));
+
+        ring.advance(0, 0);
+        assertSame(high2, ring.get(0, 0));
+        assertSame(low, ring.get(1, 0));
+
+        ring.rebuild(consumers, false);
+        assertEquals(1, ring.getBandCount());
+        assertEquals(3, ring.getBandSize(0));
+    }
+
+    @Test
+    public void testRebuildKeepsRotation() {
+        List<Subscription> consumers = new ArrayList<Subscription>();
+        for (int i = 0; i < 4; i++) {
+            consumers.add(createSubscription(0));
+        }
+
+        QueueDispatchRing ring = new QueueDispatchRing();
+        ring.rebuild(consumers, true);
+        ring.advance(0, 1);
+        assertSame(consumers.get(2), ring.get(0, 0));
+
+        consumers.add(createSubscription(0));
+        ring.rebuild(consumers, true);
+        assertSame(consumers.get(2), ring.get(0, 0));
+
+        ring.invalidate();
+        assertTrue(ring.isStale());
+        ring.rebuild(consumers, true);
+        assertSame(consumers.get(0), ring.get(0, 0));
+    }
+
+    @Test
+    public void testReorderStartsFromCurrentRotation() {
+        List<Subscription> consumers = new ArrayList<Subscription>();
+        for (int i = 0; i < 3; i++) {
+            consumers.add(createSubscription(0));
+        }
+        List<Subscription> original = new ArrayList<Subscription>(consumers);
+
+        QueueDispatchRing ring = new QueueDispatchRing();
+        ring.rebuild(consumers, true);
+        ring.advance(0, 0);
+
+        ring.reorder(consumers, (s1, s2) -> 0, true);
+        assertSame(original.get(1), consumers.get(0));
+        assertSame(original.get(2), consumers.get(1));
+        assertSame(original.get(0), consumers.get(2));
+        assertSame(original.get(1), ring.get(0, 0));
+    }
+}
@@ -0,0 +1,187 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.broker.region;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import jakarta.jms.Connection;
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.command.ActiveMQMessage;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.command.MessageId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class QueueSelectorIndexTest {
+
+    private static final int TENANTS = 20;
+
+    private BrokerService brokerService;
+    private Connection connection;
+    private final ActiveMQQueue destination = new ActiveMQQueue("TEST");
+
+    @Before
+    public void setUp() throws Exception {
+        brokerService = new BrokerService();
+        brokerService.setPersistent(false);
+        brokerService.setUseJmx(false);
+        brokerService.start();
+
+        connection = new ActiveMQConnectionFactory(brokerService.getVmConnectorURI()).createConnection();
+        connection.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (connection != null) {
+            connection.close();
+        }
+        if (brokerService != null) {
+            brokerService.stop();
+            brokerService.waitUntilStopped();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testIndexedAndUnindexedSelectors() throws Exception {
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        MessageConsumer[] tenants = new MessageConsumer[TENANTS];
+        for (int i = 0; i < TENANTS; i++) {
+            tenants[i] = session.createConsumer(destination, "tenant = " + i);
+        }
+        MessageConsumer regions = session.createConsumer(destination, "region IN ('EU', 'US') AND tenant > 100");
+        MessageConsumer large = session.createConsumer(destination, "tenant >= 1000");
+
+        MessageProducer producer = session.createProducer(destination);
+        for (int i = 0; i < TENANTS; i++) {
+            Message message = session.createMessage();
+            message.setIntProperty("tenant", i);
+            producer.send(message);
+
+            // numeric conversion still has to match the indexed value
+            message = session.createMessage();
+            message.setDoubleProperty("tenant", i);
+            producer.send(message);
+        }
+        Message message = session.createMessage();
+        message.setStringProperty("region", "EU");
+        message.setLongProperty("tenant", 101);
+        producer.send(message);
+
+        message = session.createMessage();
+        message.setLongProperty("tenant", 1000);
+        producer.send(message);
+
+        for (int i = 0; i < TENANTS; i++) {
+            for (int j = 0; j < 2; j++) {
+                Message received = tenants[i].receive(5000);
+                assertNotNull("tenant " + i + " received", received);
+                assertEquals(i, ((Number) received.getObjectProperty("tenant")).intValue());
+            }
+            assertNull(tenants[i].receiveNoWait());
+        }
+
+        message = regions.receive(5000);
+        assertNotNull(message);
+        assertEquals("EU", message.getStringProperty("region"));
+        assertNull(regions.receiveNoWait());
+
+        message = large.receive(5000);
+        assertNotNull(message);
+        assertEquals(1000, message.getLongProperty("tenant"));
+        assertNull(large.receiveNoWait());
+    }
+
+    @Test(timeout = 60000)
+    public void testOnlyCandidatesAreVisited() throws Exception {
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        for (int i = 0; i < TENANTS; i++) {
+            session.createConsumer(destination, "tenant = " + i);
+        }
+        session.createConsumer(destination, "tenant IN ('3', 'x') OR tenant = 3");
+        session.createConsumer(destination, "tenant >= 1000");
+
+        Queue queue = (Queue) brokerService.getDestination(destination);
+        List<Subscription> consumers = new ArrayList<Subscription>(queue.getConsumers());
+        QueueDispatchRing ring = new QueueDispatchRing();
+        ring.rebuild(consumers, false);
+        QueueSelectorIndex index = new QueueSelectorIndex(destination);
+        for (Subscription consumer : consumers) {
+            index.addSubscription(consumer);
+        }
+        index.update(ring);
+        assertEquals(TENANTS + 1, index.size());
+
+        ActiveMQMessage message = new ActiveMQMessage();
+        message.setMessageId(new MessageId("ID:producer:1:1:1", 1));
+        message.setIntProperty("tenant", 3);
+        index.selectCandidates(new IndirectMessageReference(message));
+
+        // the tenant 3 consumer, the OR on the same property and the consumer that can not be indexed
+        Set<Subscription> expected = new HashSet<Subscription>();
+        for (Subscription consumer : consumers) {
+            String selector = consumer.getConsumerInfo().getSelector();
+            if (selector.equals("tenant = 3") || selector.startsWith("tenant IN") || selector.startsWith("tenant >=")) {
+                expected.add(consumer);
+            }
+        }
+        assertEquals(3, index.selectBand(ring, 0));
+        Set<Subscription> visited = new HashSet<Subscription>();
+        int previous = -1;
+        for (int i = 0; i < 3; i++) {
+            int offset = index.getOffset(i);
+            assertTrue("visited in ring order", offset > previous);
+            previous = offset;
+            visited.add(ring.get(0, offset));
+        }
+        assertEquals(expected, visited);
+
+        // starting from the cursor of the band, candidates before it come last
+        ring.advance(0, consumers.indexOf(consumers.get(TENANTS / 2)));
+        index.update(ring);
+        index.selectCandidates(new IndirectMessageReference(message));
+        assertEquals(3, index.selectBand(ring, 0));
+        visited.clear();
+        previous = -1;
+        for (int i = 0; i < 3; i++) {
+            int offset = index.getOffset(i);
+            assertTrue("visited in ring order", offset > previous);
+            previous = offset;
+            visited.add(ring.get(0, offset));
+        }
+        assertEquals(expected, visited);
+
+        message.setIntProperty("tenant", 5000);
+        index.selectCandidates(new IndirectMessageReference(message));
+        assertEquals(1, index.selectBand(ring, 0));
+    }
+}
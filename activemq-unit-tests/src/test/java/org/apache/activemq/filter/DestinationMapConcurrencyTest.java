@@ -0,0 +1,96 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.filter;
+
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+import org.apache.activemq.command.ActiveMQDestination;
+import org.apache.activemq.command.ActiveMQTopic;
+
+/**
+ * Looks up destinations while wildcard entries are added and removed, the
+ * lookups do not lock and must always find the entries that stay in the map.
+ */
+public class DestinationMapConcurrencyTest extends TestCase {
+
+    private static final int READERS = 4;
+
+    private final DestinationMap map = new DestinationMap();
+
+    public void testLookupsWhileChangingTheMap() throws Exception {
+        final ActiveMQDestination stable = new ActiveMQTopic("sensors.>");
+        final Object stableValue = "stable";
+        map.put(stable, stableValue);
+
+        final ActiveMQDestination[] destinations = new ActiveMQDestination[100];
+        for (int i = 0; i < destinations.length; i++) {
+            destinations[i] = new ActiveMQTopic("sensors." + i + ".temperature");
+        }
+
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicReference<String> failure = new AtomicReference<String>();
+        final CountDownLatch finished = new CountDownLatch(READERS);
+        for (int r = 0; r < READERS; r++) {
+            new Thread("DestinationMap reader " + r) {
+                @Override
+                public void run() {
+                    try {
+                        int i = 0;
+                        while (!done.get() && failure.get() == null) {
+                            ActiveMQDestination destination = destinations[i++ % destinations.length];
+                            Set<?> values = map.get(destination);
+                            if (!values.contains(stableValue)) {
+                                failure.set("lost the stable value for " + destination + ": " + values);
+                            }
+                        }
+                    } catch (Throwable e) {
+                        failure.set(e.toString());
+                    } finally {
+                        finished.countDown();
+                    }
+                }
+            }.start();
+        }
+
+        try {
+            for (int i = 0; i < 20000 && failure.get() == null; i++) {
+                ActiveMQDestination subscription = new ActiveMQTopic(i % 2 == 0 ? "sensors." + (i % 100) + ".*" : "sensors.*.temperature");
+                Object value = "subscription-" + i;
+                map.put(subscription, value);
+                map.put(destinations[i % destinations.length], value);
+                map.remove(destinations[i % destinations.length], value);
+                map.remove(subscription, value);
+            }
+        } finally {
+            done.set(true);
+        }
+        assertTrue("readers finished", finished.await(30, TimeUnit.SECONDS));
+        assertNull(failure.get(), failure.get());
+
+        for (ActiveMQDestination destination : destinations) {
+            Set<?> values = map.get(destination);
+            assertEquals("only the stable value is left for " + destination, 1, values.size());
+            assertTrue(values.contains(stableValue));
+        }
+    }
+}
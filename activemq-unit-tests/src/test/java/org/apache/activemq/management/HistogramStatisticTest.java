@@ -0,0 +1,109 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.management;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class HistogramStatisticTest extends StatisticTestSupport {
+
+    /**
+     * Use case for HistogramStatisticImpl class.
+     * @throws Exception
+     */
+    public void testStatistic() throws Exception {
+        HistogramStatisticImpl stat = new HistogramStatisticImpl("myHistogram", "micros", "myDescription");
+        stat.setEnabled(true);
+        assertStatistic(stat, "myHistogram", "micros", "myDescription");
+
+        assertEquals(0, stat.getCount());
+        assertEquals(0, stat.getPercentile(50));
+
+        for (int i = 1; i <= 100; i++) {
+            stat.record(i);
+        }
+        stat.record(10000);
+
+        assertEquals(101, stat.getCount());
+        assertEquals(5050 + 10000, stat.getTotal());
+        assertEquals(10000, stat.getMax());
+        assertEquals((5050 + 10000) / 101.0, stat.getAverage(), 0.001);
+
+        // values below 64 have a bucket each
+        assertEquals(51, stat.getPercentile(50));
+        assertEquals(1, stat.getPercentile(0));
+        assertEquals(100, stat.getPercentile(99), 100 * HistogramStatisticImpl.MAX_RELATIVE_ERROR);
+        // never above the largest value
+        assertEquals(10000, stat.getPercentile(100));
+
+        stat.reset();
+        assertEquals(0, stat.getCount());
+        assertEquals(0, stat.getMax());
+        assertEquals(0, stat.getPercentile(99));
+
+        stat.record(0);
+        stat.record(-5);
+        assertEquals(2, stat.getCount());
+        assertEquals(0, stat.getPercentile(100));
+
+        stat.setEnabled(false);
+        stat.record(5);
+        assertEquals(2, stat.getCount());
+    }
+
+    public void testPercentileAccuracy() throws Exception {
+        HistogramStatisticImpl stat = new HistogramStatisticImpl("myHistogram", "micros", "myDescription");
+        stat.setEnabled(true);
+
+        // a long tailed latency distribution spanning several powers of ten
+        Random random = new Random(42);
+        long[] values = new long[100000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) Math.exp(4 + 2 * random.nextGaussian());
+            stat.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        for (double percentile : new double[] {1, 10, 50, 90, 99, 99.9, 99.99}) {
+            long expected = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+            long actual = stat.getPercentile(percentile);
+            assertEquals("p" + percentile, expected, actual, expected * HistogramStatisticImpl.MAX_RELATIVE_ERROR);
+        }
+        assertEquals(values[values.length - 1], stat.getPercentile(100));
+    }
+
+    public void testParent() throws Exception {
+        HistogramStatisticImpl parent = new HistogramStatisticImpl("parent", "millis", "myDescription");
+        HistogramStatisticImpl stat = new HistogramStatisticImpl(parent, "myHistogram", "millis", "myDescription");
+        parent.setEnabled(true);
+        stat.setEnabled(true);
+
+        for (int i = 1; i <= 1000; i++) {
+            stat.record(i);
+        }
+        assertEquals(1000, parent.getCount());
+        assertEquals(stat.getTotal(), parent.getTotal());
+        assertEquals(1000, parent.getMax());
+        assertEquals(1000, parent.getPercentile(99.9));
+        assertEquals(stat.getPercentile(50), parent.getPercentile(50));
+
+        stat.setParent(null);
+        stat.record(5);
+        assertEquals(1001, stat.getCount());
+        assertEquals(1000, parent.getCount());
+    }
+}
@@ -72,4 +72,35 @@ public class TimeStatisticTest extends StatisticTestSupport {
         assertEquals(100, stat.getTotalTime());
 
     }
+
+    public void testConcurrentAddTime() throws Exception {
+        final TimeStatisticImpl parent = new TimeStatisticImpl("parent", "millis", "myDescription");
+        final TimeStatisticImpl stat = new TimeStatisticImpl(parent, "myTimer", "myDescription");
+        final int threads = 4;
+        final int times = 10000;
+
+        Thread[] adders = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            adders[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 1; i <= times; i++) {
+                        stat.addTime(i);
+                    }
+                }
+            };
+            adders[t].start();
+        }
+        for (Thread adder : adders) {
+            adder.join();
+        }
+
+        long total = (long) threads * times * (times + 1) / 2;
+        assertEquals(threads * times, stat.getCount());
+        assertEquals(total, stat.getTotalTime());
+        assertEquals(1, stat.getMinTime());
+        assertEquals(times, stat.getMaxTime());
+        assertEquals(threads * times, parent.getCount());
+        assertEquals(total, parent.getTotalTime());
+    }
 }
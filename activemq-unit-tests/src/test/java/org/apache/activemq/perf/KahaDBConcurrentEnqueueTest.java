@@ -0,0 +1,110 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.perf;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+import org.apache.activemq.broker.ConnectionContext;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.apache.activemq.command.MessageAck;
+import org.apache.activemq.command.MessageId;
+import org.apache.activemq.store.MessageStore;
+import org.apache.activemq.store.kahadb.KahaDBStore;
+import org.apache.activemq.util.IOHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures the rate at which concurrent producers, each sending to its own
+ * queue, get their messages added to and removed from the KahaDB index, with
+ * all index updates serialized and with index lock striping.
+ */
+public class KahaDBConcurrentEnqueueTest extends TestCase {
+
+    private static final Logger LOG = LoggerFactory.getLogger(KahaDBConcurrentEnqueueTest.class);
+    private static final int MESSAGES_PER_THREAD = 20000;
+    private static final int[] THREAD_COUNTS = new int[] {1, 2, 4, 8, 16, 32};
+
+    private final File dataDirectory = new File(IOHelper.getDefaultDataDirectory(), "KahaDBConcurrentEnqueueTest");
+
+    public void testEnqueueRateByThreadCount() throws Exception {
+        for (int threads : THREAD_COUNTS) {
+            long serialized = runEnqueue(threads, 0);
+            long striped = runEnqueue(threads, KahaDBStore.DEFAULT_INDEX_LOCK_STRIPES);
+            LOG.info("threads: {}, serialized index: {} msg/s, striped index: {} msg/s", threads, serialized, striped);
+        }
+    }
+
+    protected long runEnqueue(int threadCount, int indexLockStripes) throws Exception {
+        IOHelper.deleteChildren(dataDirectory);
+        final KahaDBStore store = new KahaDBStore();
+        store.setDirectory(dataDirectory);
+        store.setEnableJournalDiskSyncs(false);
+        store.setIndexLockStripes(indexLockStripes);
+        store.start();
+        try {
+            final ConnectionContext context = new ConnectionContext();
+            final CountDownLatch start = new CountDownLatch(1);
+            final CountDownLatch done = new CountDownLatch(threadCount);
+            final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+            for (int i = 0; i < threadCount; i++) {
+                final ActiveMQQueue destination = new ActiveMQQueue(getName() + "." + i);
+                final MessageStore messageStore = store.createQueueMessageStore(destination);
+                messageStore.start();
+                final String producerId = "ID:producer-" + i + ":1:1";
+                new Thread("Producer-" + i) {
+                    @Override
+                    public void run() {
+                        try {
+                            start.await();
+                            for (int j = 0; j < MESSAGES_PER_THREAD; j++) {
+                                ActiveMQTextMessage message = new ActiveMQTextMessage();
+                                message.setMessageId(new MessageId(producerId, j));
+                                message.setDestination(destination);
+                                message.setText("message " + j);
+                                messageStore.addMessage(context, message);
+
+                                MessageAck ack = new MessageAck();
+                                ack.setDestination(destination);
+                                ack.setLastMessageId(message.getMessageId());
+                                messageStore.removeMessage(context, ack);
+                            }
+                        } catch (Throwable e) {
+                            failure.compareAndSet(null, e);
+                        } finally {
+                            done.countDown();
+                        }
+                    }
+                }.start();
+            }
+
+            long startTime = System.nanoTime();
+            start.countDown();
+            done.await();
+            long elapsed = System.nanoTime() - startTime;
+            assertNull("producer failed", failure.get());
+            return (long) threadCount * MESSAGES_PER_THREAD * 1000000000L / elapsed;
+        } finally {
+            store.stop();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.perf;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.jms.Connection;
+import jakarta.jms.DeliveryMode;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Queue;
+import jakarta.jms.Session;
+
+import junit.framework.TestCase;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.broker.BrokerService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures the per message dispatch cost of a queue as the number of competing
+ * consumers grows. With round robin dispatch the cost should stay roughly flat.
+ */
+public class QueueConsumerScalingTest extends TestCase {
+
+    private static final Logger LOG = LoggerFactory.getLogger(QueueConsumerScalingTest.class);
+    private static final int MESSAGE_COUNT = 100000;
+    private static final int[] CONSUMER_COUNTS = new int[] {1, 10, 50, 100, 250};
+
+    protected BrokerService broker;
+    protected String bindAddress = "vm://localhost";
+
+    public void testDispatchCostPerConsumerCount() throws Exception {
+        for (int consumerCount : CONSUMER_COUNTS) {
+            long nanosPerMessage = runDispatch(consumerCount);
+            LOG.info("consumers: {}, dispatch cost: {} ns/msg", consumerCount, nanosPerMessage);
+        }
+    }
+
+    protected long runDispatch(int consumerCount) throws Exception {
+        ActiveMQConnectionFactory factory = new ActiveMQConnectionFactory(bindAddress);
+        factory.setAlwaysSessionAsync(false);
+        Connection connection = factory.createConnection();
+        try {
+            connection.start();
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue(getClass().getName() + "." + consumerCount);
+
+            final CountDownLatch received = new CountDownLatch(MESSAGE_COUNT);
+            for (int i = 0; i < consumerCount; i++) {
+                MessageConsumer consumer = session.createConsumer(queue);
+                consumer.setMessageListener(message -> received.countDown());
+            }
+
+            Session producerSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageProducer producer = producerSession.createProducer(queue);
+            producer.setDeliveryMode(DeliveryMode.NON_PERSISTENT);
+
+            long start = System.nanoTime();
+            for (int i = 0; i < MESSAGE_COUNT; i++) {
+                producer.send(producerSession.createTextMessage("message " + i));
+            }
+            assertTrue("all messages received", received.await(5, TimeUnit.MINUTES));
+            return (System.nanoTime() - start) / MESSAGE_COUNT;
+        } finally {
+            connection.close();
+        }
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        broker = new BrokerService();
+        broker.setPersistent(false);
+        broker.setUseJmx(false);
+        broker.setAdvisorySupport(false);
+        broker.addConnector(bindAddress);
+        broker.start();
+        super.setUp();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        if (broker != null) {
+            broker.stop();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.security;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import jakarta.jms.Connection;
+import jakarta.jms.JMSSecurityException;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.broker.BrokerPlugin;
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.filter.DestinationMapEntry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Authorization decisions are cached per connection until the authorization
+ * map changes.
+ */
+public class AuthorizationCacheTest {
+
+    private BrokerService brokerService;
+    private DefaultAuthorizationMap authorizationMap;
+    private AuthorizationEntry dataEntry;
+    private Connection connection;
+
+    @Before
+    public void setUp() throws Exception {
+        List<AuthenticationUser> users = new ArrayList<>();
+        users.add(new AuthenticationUser("device", "password", "devices"));
+
+        @SuppressWarnings("rawtypes")
+        List<DestinationMapEntry> entries = new ArrayList<>();
+        dataEntry = createEntry("DATA.>", "devices", "devices");
+        entries.add(dataEntry);
+        AuthorizationEntry advisories = new AuthorizationEntry();
+        advisories.setTopic("ActiveMQ.Advisory.>");
+        advisories.setRead("devices");
+        advisories.setWrite("devices");
+        advisories.setAdmin("devices");
+        entries.add(advisories);
+        authorizationMap = new DefaultAuthorizationMap(entries);
+
+        brokerService = new BrokerService();
+        brokerService.setPersistent(false);
+        brokerService.setUseJmx(false);
+        brokerService.setPlugins(new BrokerPlugin[] {new SimpleAuthenticationPlugin(users), new AuthorizationPlugin(authorizationMap)});
+        brokerService.start();
+        brokerService.waitUntilStarted();
+
+        connection = new ActiveMQConnectionFactory("vm://localhost?create=false").createConnection("device", "password");
+        connection.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (connection != null) {
+            connection.close();
+        }
+        if (brokerService != null) {
+            brokerService.stop();
+            brokerService.waitUntilStopped();
+        }
+    }
+
+    private AuthorizationEntry createEntry(String queue, String read, String write) throws Exception {
+        AuthorizationEntry entry = new AuthorizationEntry();
+        entry.setQueue(queue);
+        entry.setRead(read);
+        entry.setWrite(write);
+        entry.setAdmin("devices");
+        return entry;
+    }
+
+    private void replaceDataEntry(String read, String write) throws Exception {
+        authorizationMap.remove(dataEntry.getDestination(), dataEntry);
+        dataEntry = createEntry("DATA.>", read, write);
+        authorizationMap.put(dataEntry.getDestination(), dataEntry);
+    }
+
+    @Test(timeout = 60000)
+    public void testRevokedWriteIsEnforcedOnCachedDestinations() throws Exception {
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        MessageProducer producer = session.createProducer(null);
+        for (int i = 0; i < 100; i++) {
+            producer.send(new ActiveMQQueue("DATA.device" + i), session.createTextMessage("reading " + i));
+        }
+
+        replaceDataEntry("devices", "admins");
+        try {
+            producer.send(new ActiveMQQueue("DATA.device1"), session.createTextMessage("denied"));
+            fail("write was revoked");
+        } catch (JMSSecurityException expected) {
+        }
+
+        replaceDataEntry("devices", "devices");
+        producer.send(new ActiveMQQueue("DATA.device1"), session.createTextMessage("allowed again"));
+    }
+
+    @Test(timeout = 60000)
+    public void testRevokedReadIsEnforcedOnCachedDestinations() throws Exception {
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        session.createConsumer(new ActiveMQQueue("DATA.device1")).close();
+
+        replaceDataEntry("admins", "devices");
+        try {
+            session.createConsumer(new ActiveMQQueue("DATA.device1"));
+            fail("read was revoked");
+        } catch (JMSSecurityException expected) {
+        }
+    }
+
+    @Test
+    public void testCachedDestinationsAreBoundedAndDroppedOnNewVersion() {
+        SecurityContext context = new SecurityContext("user") {
+            @Override
+            public Set<Principal> getPrincipals() {
+                return Collections.emptySet();
+            }
+        };
+        context.setMaxAuthorizedDestinations(10);
+        long version = authorizationMap.getVersion();
+        for (int i = 0; i < 100; i++) {
+            context.addAuthorizedWrite(new ActiveMQQueue("DATA.device" + i), authorizationMap, version);
+        }
+        assertEquals(10, context.getAuthorizedWriteDests().size());
+        assertTrue(context.isAuthorizedToWrite(new ActiveMQQueue("DATA.device99"), authorizationMap, version));
+        assertFalse(context.isAuthorizedToRead(new ActiveMQQueue("DATA.device99"), authorizationMap, version));
+
+        authorizationMap.setDefaultEntry(new AuthorizationEntry());
+        assertTrue(authorizationMap.getVersion() != version);
+        assertFalse(context.isAuthorizedToWrite(new ActiveMQQueue("DATA.device99"), authorizationMap, authorizationMap.getVersion()));
+        assertEquals(0, context.getAuthorizedWriteDests().size());
+    }
+}
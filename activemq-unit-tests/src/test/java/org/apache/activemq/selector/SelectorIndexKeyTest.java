@@ -0,0 +1,111 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.selector;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import jakarta.jms.JMSException;
+
+import junit.framework.TestCase;
+
+import org.apache.activemq.command.ActiveMQMessage;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.filter.BooleanExpression;
+import org.apache.activemq.filter.MessageEvaluationContext;
+import org.apache.activemq.filter.SelectorIndexKey;
+
+public class SelectorIndexKeyTest extends TestCase {
+
+    public void testEquality() throws Exception {
+        SelectorIndexKey key = key("region = 'EU'");
+        assertNotNull(key);
+        assertEquals("region", key.getProperty().getName());
+        assertEquals(new HashSet<Object>(Arrays.asList("EU")), key.getValues());
+
+        key = key("42 = tenant");
+        assertNotNull(key);
+        assertEquals("tenant", key.getProperty().getName());
+        assertEquals(new HashSet<Object>(Arrays.asList(42L)), key.getValues());
+    }
+
+    public void testIn() throws Exception {
+        SelectorIndexKey key = key("region IN ('EU', 'US')");
+        assertNotNull(key);
+        assertEquals(new HashSet<Object>(Arrays.asList("EU", "US")), key.getValues());
+        assertNull(key("region NOT IN ('EU', 'US')"));
+    }
+
+    public void testLogic() throws Exception {
+        SelectorIndexKey key = key("region = 'EU' OR region = 'US' OR region IN ('APAC')");
+        assertNotNull(key);
+        assertEquals(new HashSet<Object>(Arrays.asList("EU", "US", "APAC")), key.getValues());
+
+        key = key("priority > 4 AND tenant = 7");
+        assertNotNull(key);
+        assertEquals("tenant", key.getProperty().getName());
+
+        assertNull(key("region = 'EU' OR tenant = 7"));
+        assertNull(key("region = 'EU' OR priority > 4"));
+    }
+
+    public void testNotIndexable() throws Exception {
+        assertNull(key("region <> 'EU'"));
+        assertNull(key("price = 1.5"));
+        assertNull(key("flag = TRUE"));
+        assertNull(key("region LIKE 'E%'"));
+        assertNull(key("convert_string_expressions:code = 42"));
+    }
+
+    public void testConsistentWithEvaluation() throws Exception {
+        String[] selectors = new String[] {
+            "tenant = 42", "tenant = 7", "tenant IN ('42')", "tenant = '42'", "tenant = 16777217"
+        };
+        Object[] values = new Object[] {
+            null, "42", (byte) 42, (short) 42, 42, 42L, 42.0f, 42.0d, 42.5d, Double.NaN, true, 16777216.0f, 7
+        };
+        for (String text : selectors) {
+            BooleanExpression selector = SelectorParser.parse(text);
+            SelectorIndexKey key = SelectorIndexKey.create(selector);
+            assertNotNull(text, key);
+            for (Object value : values) {
+                ActiveMQMessage message = new ActiveMQMessage();
+                message.setJMSDestination(new ActiveMQQueue("TEST"));
+                if (value != null) {
+                    message.setObjectProperty("tenant", value);
+                }
+                boolean matches = matches(selector, message);
+                boolean mayMatch = key.mayMatch(SelectorIndexKey.normalize(value));
+                assertTrue(text + " with " + value + " must not be excluded", mayMatch || !matches);
+            }
+        }
+    }
+
+    private boolean matches(BooleanExpression selector, ActiveMQMessage message) throws JMSException {
+        MessageEvaluationContext context = new MessageEvaluationContext();
+        context.setMessageReference(message);
+        try {
+            return selector.matches(context);
+        } finally {
+            context.clear();
+        }
+    }
+
+    private SelectorIndexKey key(String selector) throws Exception {
+        return SelectorIndexKey.create(SelectorParser.parse(selector));
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.transport.nio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+
+import jakarta.jms.BytesMessage;
+import jakarta.jms.Connection;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Queue;
+import jakarta.jms.Session;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.broker.TransportConnector;
+import org.apache.activemq.command.ActiveMQBytesMessage;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.command.CommandTypes;
+import org.apache.activemq.command.MessageId;
+import org.apache.activemq.openwire.OpenWireFormat;
+import org.apache.activemq.util.ByteSequence;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NIORetainFrameSlicesTest {
+
+    private BrokerService broker;
+    private Connection connection;
+
+    @Before
+    public void setUp() throws Exception {
+        broker = new BrokerService();
+        broker.setPersistent(false);
+        broker.setUseJmx(false);
+        TransportConnector connector = broker.addConnector("nio://localhost:0?transport.retainFrameSlices=true");
+        broker.start();
+        broker.waitUntilStarted();
+
+        ActiveMQConnectionFactory factory = new ActiveMQConnectionFactory(
+            "nio://localhost:" + connector.getConnectUri().getPort() + "?retainFrameSlices=true");
+        connection = factory.createConnection();
+        connection.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (connection != null) {
+            connection.close();
+        }
+        if (broker != null) {
+            broker.stop();
+            broker.waitUntilStopped();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testLargeAndSmallMessages() throws Exception {
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue("TEST");
+        MessageProducer producer = session.createProducer(queue);
+        MessageConsumer consumer = session.createConsumer(queue);
+
+        int[] sizes = {10, 64 * 1024, 1024 * 1024, 100};
+        for (int i = 0; i < sizes.length; i++) {
+            BytesMessage message = session.createBytesMessage();
+            message.writeBytes(payload(sizes[i], i));
+            message.setIntProperty("index", i);
+            message.setStringProperty("text", "message " + i);
+            producer.send(message);
+        }
+
+        for (int i = 0; i < sizes.length; i++) {
+            BytesMessage received = (BytesMessage) consumer.receive(10000);
+            assertNotNull("message " + i, received);
+            assertEquals(i, received.getIntProperty("index"));
+            assertEquals("message " + i, received.getStringProperty("text"));
+            byte[] body = new byte[(int) received.getBodyLength()];
+            received.readBytes(body);
+            assertArrayEquals(payload(sizes[i], i), body);
+        }
+    }
+
+    @Test
+    public void testUnmarshalFrameSlicesContent() throws Exception {
+        OpenWireFormat format = new OpenWireFormat(CommandTypes.PROTOCOL_VERSION);
+        format.setTightEncodingEnabled(true);
+
+        ActiveMQBytesMessage message = new ActiveMQBytesMessage();
+        message.setMessageId(new MessageId("ID:test:1:1:1:1"));
+        message.setDestination(new ActiveMQQueue("TEST"));
+        message.setContent(new ByteSequence(payload(4096, 1)));
+        message.setIntProperty("index", 1);
+        message.onSend();
+
+        ByteSequence frame = format.marshal(message);
+        ActiveMQBytesMessage copy = (ActiveMQBytesMessage) format.unmarshalFrame(frame);
+        assertSame(frame.getData(), copy.getContent().getData());
+        assertSame(frame.getData(), copy.getMarshalledProperties().getData());
+        assertEquals(1, copy.getIntProperty("index"));
+        ByteSequence content = copy.getContent();
+        assertArrayEquals(payload(4096, 1),
+            Arrays.copyOfRange(content.getData(), content.getOffset(), content.getOffset() + content.getLength()));
+    }
+
+    private static byte[] payload(int size, int seed) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) (i * 31 + seed);
+        }
+        return data;
+    }
+}
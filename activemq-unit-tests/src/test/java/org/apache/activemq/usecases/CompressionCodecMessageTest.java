@@ -0,0 +1,179 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.usecases;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+
+import jakarta.jms.BytesMessage;
+import jakarta.jms.MapMessage;
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.ObjectMessage;
+import jakarta.jms.Queue;
+import jakarta.jms.Session;
+import jakarta.jms.StreamMessage;
+import jakarta.jms.TextMessage;
+
+import org.apache.activemq.ActiveMQConnection;
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.command.ActiveMQMessage;
+import org.apache.activemq.compression.CompressionSupport;
+import org.apache.activemq.compression.DeflateCompressionCodec;
+import org.apache.activemq.compression.LZ4CompressionCodec;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Sends every message type compressed with each codec to a consumer that is
+ * not configured for compression.
+ */
+@RunWith(Parameterized.class)
+public class CompressionCodecMessageTest {
+
+    @Parameters(name = "codec={0}")
+    public static Collection<Object[]> data() {
+        return Arrays.asList(new Object[][] {{DeflateCompressionCodec.NAME}, {LZ4CompressionCodec.NAME}});
+    }
+
+    private final String codec;
+    private BrokerService broker;
+    private ActiveMQConnection producerConnection;
+    private ActiveMQConnection consumerConnection;
+
+    public CompressionCodecMessageTest(String codec) {
+        this.codec = codec;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        broker = new BrokerService();
+        broker.setPersistent(false);
+        broker.setUseJmx(false);
+        URI uri = broker.addConnector("tcp://localhost:0").getConnectUri();
+        broker.start();
+        broker.waitUntilStarted();
+
+        ActiveMQConnectionFactory producerFactory = new ActiveMQConnectionFactory(uri + "?jms.useCompression=true&jms.compressionCodec=" + codec);
+        producerConnection = (ActiveMQConnection) producerFactory.createConnection();
+        assertEquals(codec, producerConnection.getCompressionCodec().getName());
+
+        ActiveMQConnectionFactory consumerFactory = new ActiveMQConnectionFactory(uri);
+        consumerFactory.setTrustAllPackages(true);
+        consumerConnection = (ActiveMQConnection) consumerFactory.createConnection();
+        consumerConnection.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (producerConnection != null) {
+            producerConnection.close();
+        }
+        if (consumerConnection != null) {
+            consumerConnection.close();
+        }
+        broker.stop();
+        broker.waitUntilStopped();
+    }
+
+    @Test
+    public void testAllMessageTypes() throws Exception {
+        Session session = producerConnection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue("CompressionCodecTest");
+        MessageProducer producer = session.createProducer(queue);
+
+        String text = repeat("compressed text ", 500);
+        byte[] bytes = repeat("compressed bytes ", 500).getBytes("UTF-8");
+        ArrayList<String> object = new ArrayList<String>(Arrays.asList(text, text));
+
+        producer.send(session.createTextMessage(text));
+
+        BytesMessage bytesMessage = session.createBytesMessage();
+        bytesMessage.writeBytes(bytes);
+        producer.send(bytesMessage);
+
+        MapMessage mapMessage = session.createMapMessage();
+        mapMessage.setString("text", text);
+        mapMessage.setBytes("bytes", bytes);
+        producer.send(mapMessage);
+
+        StreamMessage streamMessage = session.createStreamMessage();
+        streamMessage.writeString(text);
+        streamMessage.writeBytes(bytes);
+        streamMessage.writeLong(42);
+        producer.send(streamMessage);
+
+        producer.send(session.createObjectMessage(object));
+
+        Session consumerSession = consumerConnection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        MessageConsumer consumer = consumerSession.createConsumer(queue);
+
+        TextMessage textMessage = (TextMessage) receiveCompressed(consumer);
+        assertEquals(text, textMessage.getText());
+
+        bytesMessage = (BytesMessage) receiveCompressed(consumer);
+        assertEquals(bytes.length, bytesMessage.getBodyLength());
+        byte[] received = new byte[bytes.length];
+        bytesMessage.readBytes(received);
+        assertArrayEquals(bytes, received);
+
+        mapMessage = (MapMessage) receiveCompressed(consumer);
+        assertEquals(text, mapMessage.getString("text"));
+        assertArrayEquals(bytes, mapMessage.getBytes("bytes"));
+
+        streamMessage = (StreamMessage) receiveCompressed(consumer);
+        assertEquals(text, streamMessage.readString());
+        received = new byte[bytes.length];
+        assertEquals(bytes.length, streamMessage.readBytes(received));
+        assertArrayEquals(bytes, received);
+        streamMessage.readBytes(received);
+        assertEquals(42, streamMessage.readLong());
+
+        ObjectMessage objectMessage = (ObjectMessage) receiveCompressed(consumer);
+        assertEquals(object, objectMessage.getObject());
+    }
+
+    private Message receiveCompressed(MessageConsumer consumer) throws Exception {
+        ActiveMQMessage message = (ActiveMQMessage) consumer.receive(5000);
+        assertNotNull(message);
+        assertTrue(message.isCompressed());
+        assertEquals(!codec.equals(DeflateCompressionCodec.NAME), CompressionSupport.hasCodecHeader(message.getContent()));
+        assertTrue("compressed to " + message.getContent().getLength(), message.getContent().getLength() < 1000);
+        return message;
+    }
+
+    private static String repeat(String value, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(value).append(i % 10);
+        }
+        return builder.toString();
+    }
+}